@@ -39,13 +39,18 @@ import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import jsesh.hieroglyphs.data.HieroglyphDatabaseInterface;
+import jsesh.hieroglyphs.data.HieroglyphDatabaseRepository;
 import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.events.MDCEventHandlerAdapter;
+import jsesh.mdc.events.SignEvent;
 import jsesh.mdc.file.MDCDocument;
 import jsesh.mdc.file.MDCDocumentReader;
 import jsesh.mdc.model.TopItemList;
-import jsesh.mdc.model.utilities.HieroglyphCodesExtractor;
+import jsesh.mdc.utils.HieroglyphCodesExtractor;
 
 /**
  * Dump the codes from various JSesh files.
@@ -93,6 +98,18 @@ public class CodeDump {
     }
 
     private List<List<String>> extractCodes(Path sourceFile) throws MDCSyntaxError, IOException {
+        // Most files are correct, and can be read without building the model.
+        try {
+            CodeLinesCollector collector = new CodeLinesCollector();
+            new MDCDocumentReader().parseFile(sourceFile.toFile(), collector);
+            return collector.lines;
+        } catch (MDCSyntaxError e) {
+            // The model builder will read the correct lines.
+            return extractCodesFromModel(sourceFile);
+        }
+    }
+
+    private List<List<String>> extractCodesFromModel(Path sourceFile) throws MDCSyntaxError, IOException {
         MDCDocumentReader documentReader = new MDCDocumentReader();
         MDCDocument doc = documentReader.loadFile(sourceFile.toFile());
         TopItemList topItemList = doc.getHieroglyphicTextModel().getModel();
@@ -101,6 +118,38 @@ public class CodeDump {
         return lines;
     }
 
+    /**
+     * Collects the codes, line by line, as {@link HieroglyphCodesExtractor}
+     * does.
+     */
+    private static class CodeLinesCollector extends MDCEventHandlerAdapter {
+
+        private final HieroglyphDatabaseInterface mdcInfo = HieroglyphDatabaseRepository.getHieroglyphDatabase();
+        private final List<List<String>> lines = new ArrayList<>();
+
+        CodeLinesCollector() {
+            lines.add(new ArrayList<>());
+        }
+
+        @Override
+        public void sign(SignEvent sign) {
+            String code = mdcInfo.getCanonicalCode(sign.getCode());
+            if (code.matches("[a-zA-Z0-9]+")) {
+                lines.get(lines.size() - 1).add(code);
+            }
+        }
+
+        @Override
+        public void lineBreak(int skip) {
+            lines.add(new ArrayList<>());
+        }
+
+        @Override
+        public void pageBreak() {
+            lines.add(new ArrayList<>());
+        }
+    }
+
     private boolean matchMdcSuffix(Path p) {
         String[] suffixes = {".gly", ".GLY", ".hie", ".HIE"};
         return Arrays.asList(suffixes).stream().anyMatch(
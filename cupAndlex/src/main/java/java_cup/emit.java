@@ -433,15 +433,17 @@ public class emit {
 	      leftstring = "((java_cup.runtime.Symbol)" + emit.pre("stack") + ".elementAt(" + 
 		emit.pre("top") + "-" + loffset + ")).left";	  
 	    }
-	    out.println("              " + pre("result") + " = new java_cup.runtime.Symbol(" + 
+	    out.println("              " + pre("result") + " = " + pre("parser") + 
+			".new_symbol(" + 
 			prod.lhs().the_symbol().index() + "/*" +
 			prod.lhs().the_symbol().name() + "*/" + 
 			", " + leftstring + ", " + rightstring + ", RESULT);");
 	  } else {
-	    out.println("              " + pre("result") + " = new java_cup.runtime.Symbol(" + 
+	    out.println("              " + pre("result") + " = " + pre("parser") + 
+			".new_symbol(" + 
 			prod.lhs().the_symbol().index() + "/*" +
 			prod.lhs().the_symbol().name() + "*/" + 
-			", RESULT);");
+			", -1, -1, RESULT);");
 	  }
 	  
 	  /* end of their block */
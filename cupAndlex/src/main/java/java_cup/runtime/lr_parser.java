@@ -248,7 +248,7 @@ public abstract class lr_parser {
   /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
   /** The parse stack itself. */
-  protected Stack stack = new Stack();
+  protected Stack stack = new symbol_stack();
 
   /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
@@ -267,6 +267,21 @@ public abstract class lr_parser {
 
   /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+  /** Expanded forms of the action and reduce-goto tables, used by parse(). */
+  private direct_table action_direct, reduce_direct;
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Symbols popped off the stack by parse(), which can be reused by 
+   *  new_symbol().  The list is bounded, as a parse only needs as many 
+   *  Symbols as the length of a right hand side. */
+  private final Symbol[] free_symbols = new Symbol[32];
+
+  /** Number of Symbols in free_symbols. */
+  private int free_count = 0;
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
   /** This is the scanner object used by the default implementation
    *  of scan() to get Symbols.  To avoid name conflicts with existing
    *  code, this field is private. [CSA/davidm] */
@@ -411,6 +426,48 @@ public abstract class lr_parser {
 
   /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+  /** Return a Symbol for the left hand side of a reduce.  This is what
+   *  generated action code calls instead of allocating a new Symbol.  The
+   *  Symbol is one which was popped off the parse stack by an earlier 
+   *  reduce, if any is available; action code should thus not keep 
+   *  references to the Symbols of the stack, only to their values.
+   *
+   * @param sym   the Symbol index of the non terminal.
+   * @param left  the left position in the input.
+   * @param right the right position in the input.
+   * @param value the value of the Symbol.
+   */
+  public Symbol new_symbol(int sym, int left, int right, Object value)
+    {
+      if (free_count == 0)
+	return new Symbol(sym, left, right, value);
+
+      Symbol result = free_symbols[--free_count];
+      free_symbols[free_count] = null;
+      result.sym = sym;
+      result.parse_state = -1;
+      result.used_by_parser = false;
+      result.left = left;
+      result.right = right;
+      result.value = value;
+      return result;
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Keep a Symbol popped off the stack for new_symbol().  Its value is 
+   *  released, so that it is not kept alive by the parser. */
+  private void free_symbol(Symbol sym)
+    {
+      if (free_count < free_symbols.length)
+	{
+	  sym.value = null;
+	  free_symbols[free_count++] = sym;
+	}
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
   /** Fetch an action from the action table.  The table is broken up into
    *  rows, one per state (rows are indexed directly by state number).  
    *  Within each row, a list of index, value pairs are given (as sequential
@@ -523,6 +580,8 @@ public abstract class lr_parser {
       production_tab = production_table();
       action_tab     = action_table();
       reduce_tab     = reduce_table();
+      action_direct  = direct_table.action(action_tab);
+      reduce_direct  = direct_table.reduce(reduce_tab);
 
       /* initialize the action encapsulation object */
       init_actions();
@@ -548,7 +607,8 @@ public abstract class lr_parser {
 	  /* current state is always on the top of the stack */
 
 	  /* look up action out of the current state with the current input */
-	  act = get_action(((Symbol)stack.peek()).parse_state, cur_token.sym);
+	  act = action_direct.get(((Symbol)stack.peek()).parse_state, 
+				  cur_token.sym);
 
 	  /* decode the action -- > 0 encodes shift */
 	  if (act > 0)
@@ -572,15 +632,18 @@ public abstract class lr_parser {
 	      lhs_sym_num = production_tab[(-act)-1][0];
 	      handle_size = production_tab[(-act)-1][1];
 
-	      /* pop the handle off the stack */
+	      /* pop the handle off the stack, keeping its Symbols for reuse */
 	      for (int i = 0; i < handle_size; i++)
 		{
-		  stack.pop();
+		  Symbol popped = (Symbol)stack.pop();
+		  if (popped != lhs_sym)
+		    free_symbol(popped);
 		  tos--;
 		}
 	      
 	      /* look up the state to go to from the one popped back to */
-	      act = get_reduce(((Symbol)stack.peek()).parse_state, lhs_sym_num);
+	      act = reduce_direct.get(((Symbol)stack.peek()).parse_state, 
+				      lhs_sym_num);
 
 	      /* shift to that state */
 	      lhs_sym.parse_state = act;
@@ -612,6 +675,22 @@ public abstract class lr_parser {
 
   /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+  /** Release the Symbols kept from the last parse (the parse stack, the 
+   *  current and lookahead Symbols), so that a parser kept for later use 
+   *  does not keep their values alive.  The tables and the scanner are 
+   *  kept, and parse() can be called again. 
+   */
+  public void reset()
+    {
+      stack.removeAllElements();
+      tos = 0;
+      cur_token = null;
+      lookahead = null;
+      lookahead_pos = 0;
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
   /** Write a debugging message to System.err for the debugging version 
    *  of the parser. 
    *
@@ -0,0 +1,139 @@
+
+package java_cup.runtime;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/** An action or reduce-goto table, expanded so that each entry is read
+ *  directly, instead of being searched for in the compacted rows.  The
+ *  expansion is done once for each table (that is, once for each generated
+ *  parser class), and shared by all parsers using it.  Lookups give the
+ *  same results as lr_parser.get_action() and lr_parser.get_reduce().
+ *
+ * @see     java_cup.runtime.lr_parser#get_action
+ * @see     java_cup.runtime.lr_parser#get_reduce
+ */
+
+final class direct_table {
+
+  /*-----------------------------------------------------------*/
+  /*--- Constructor(s) ----------------------------------------*/
+  /*-----------------------------------------------------------*/
+
+  /** Expand a compacted table.
+   *
+   * @param rows        the rows of the table, as in lr_parser.
+   * @param no_default  the value used when a row has no default entry.
+   * @param binary      are large rows sorted (true for action tables)?
+   */
+  private direct_table(short[][] rows, short no_default, boolean binary)
+    {
+      /* the largest Symbol index gives the width of the table */
+      int max_sym = -1;
+      for (int state = 0; state < rows.length; state++)
+	if (rows[state] != null)
+	  for (int probe = 0; probe < rows[state].length - 1; probe += 2)
+	    max_sym = Math.max(max_sym, rows[state][probe]);
+
+      width    = max_sym + 1;
+      entries  = new short[rows.length * width];
+      defaults = new short[rows.length];
+
+      for (int state = 0; state < rows.length; state++)
+	{
+	  short[] row = rows[state];
+	  int base = state * width;
+	  if (row == null)
+	    {
+	      defaults[state] = no_default;
+	    }
+	  else if (binary && row.length >= 20)
+	    {
+	      /* sorted pairs, followed by the default entry */
+	      defaults[state] = row[row.length-1];
+	      for (int sym = 0; sym < width; sym++)
+		entries[base + sym] = defaults[state];
+	      int last = (row.length-1)/2 - 1;
+	      for (int probe = 0; probe <= last; probe++)
+		if (row[probe*2] >= 0)
+		  entries[base + row[probe*2]] = row[probe*2+1];
+	    }
+	  else
+	    {
+	      /* the first entry labeled with a Symbol or the default wins */
+	      int end = 0;
+	      while (end < row.length - 1 && row[end] != -1)
+		end += 2;
+	      defaults[state] = end < row.length - 1 ? row[end+1] : no_default;
+	      for (int sym = 0; sym < width; sym++)
+		entries[base + sym] = defaults[state];
+	      for (int probe = end - 2; probe >= 0; probe -= 2)
+		entries[base + row[probe]] = row[probe+1];
+	    }
+	}
+    }
+
+  /*-----------------------------------------------------------*/
+  /*--- (Access to) Instance Variables ------------------------*/
+  /*-----------------------------------------------------------*/
+
+  /** Number of Symbol indexes in each row. */
+  private final int width;
+
+  /** The entries, row after row. */
+  private final short[] entries;
+
+  /** The default entry of each row, for Symbols outside the table. */
+  private final short[] defaults;
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Expanded tables, indexed by the table they were built from. */
+  private static final Map cache = new WeakHashMap();
+
+  /*-----------------------------------------------------------*/
+  /*--- General Methods ---------------------------------------*/
+  /*-----------------------------------------------------------*/
+
+  /** Return the expanded form of an action table. */
+  static direct_table action(short[][] action_tab)
+    {
+      return get(action_tab, (short)0, true);
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Return the expanded form of a reduce-goto table. */
+  static direct_table reduce(short[][] reduce_tab)
+    {
+      return get(reduce_tab, (short)-1, false);
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  private static direct_table get(short[][] rows, short no_default,
+				  boolean binary)
+    {
+      synchronized (cache)
+	{
+	  direct_table table = (direct_table)cache.get(rows);
+	  if (table == null)
+	    {
+	      table = new direct_table(rows, no_default, binary);
+	      cache.put(rows, table);
+	    }
+	  return table;
+	}
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Return the entry for a state and a Symbol index. */
+  short get(int state, int sym)
+    {
+      if (sym >= 0 && sym < width)
+	return entries[state * width + sym];
+      return defaults[state];
+    }
+}
+
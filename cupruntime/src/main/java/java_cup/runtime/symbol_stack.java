@@ -0,0 +1,108 @@
+
+package java_cup.runtime;
+
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+/** The parse stack of lr_parser.  It is still a java.util.Stack, as the
+ *  action code of generated parsers reads Symbols from it, but the
+ *  operations used while parsing work directly on the underlying array,
+ *  without locking: a parser is only used by one thread at a time.  The
+ *  other methods are the synchronized ones of Stack, and see the same
+ *  content.
+ *
+ * @see     java_cup.runtime.lr_parser
+ */
+
+class symbol_stack extends Stack {
+
+  /*-----------------------------------------------------------*/
+  /*--- Constructor(s) ----------------------------------------*/
+  /*-----------------------------------------------------------*/
+
+  /** Simple constructor. */
+  symbol_stack()
+    {
+      ensureCapacity(64);
+    }
+
+  /*-----------------------------------------------------------*/
+  /*--- General Methods ---------------------------------------*/
+  /*-----------------------------------------------------------*/
+
+  /** Push an element on top of the stack. */
+  public Object push(Object item)
+    {
+      if (elementCount == elementData.length)
+	ensureCapacity(elementCount * 2);
+      elementData[elementCount++] = item;
+      modCount++;
+      return item;
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Remove the element on top of the stack, and return it. */
+  public Object pop()
+    {
+      if (elementCount == 0)
+	throw new EmptyStackException();
+      Object item = elementData[--elementCount];
+      elementData[elementCount] = null;
+      modCount++;
+      return item;
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Return the element on top of the stack. */
+  public Object peek()
+    {
+      if (elementCount == 0)
+	throw new EmptyStackException();
+      return elementData[elementCount - 1];
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Return the element at a given index (0 is the bottom of the stack). */
+  public Object elementAt(int index)
+    {
+      if (index >= elementCount)
+	throw new ArrayIndexOutOfBoundsException(index + " >= " + elementCount);
+      return elementData[index];
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Return the number of elements in the stack. */
+  public int size()
+    {
+      return elementCount;
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Is the stack empty? */
+  public boolean empty()
+    {
+      return elementCount == 0;
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Is the stack empty? */
+  public boolean isEmpty()
+    {
+      return elementCount == 0;
+    }
+
+  /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+  /** Return the parse state of the Symbol on top of the stack. */
+  int top_state()
+    {
+      return ((Symbol)elementData[elementCount - 1]).parse_state;
+    }
+}
+
@@ -40,10 +40,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Observable;
+import java.util.function.Supplier;
 
 import jsesh.editor.caret.MDCCaret;
 import jsesh.editor.command.CommandFactory;
 import jsesh.editor.command.MDCCommand;
+import jsesh.editor.latency.EditorLatency;
+import jsesh.editor.latency.EditorStage;
 import jsesh.mdc.MDCParserModelGenerator;
 import jsesh.mdc.MDCSyntaxError;
 import jsesh.mdc.constants.Dialect;
@@ -166,13 +169,36 @@ public class HieroglyphicTextModel extends Observable implements
 		setTopItemList(l);
 	}
 
+	/**
+	 * Reads a large text into the model, on several threads.
+	 * <p>
+	 * Worth it for texts of more than
+	 * {@link MDCParserModelGenerator#PARALLEL_PARSE_SIZE} chars.
+	 *
+	 * @param text
+	 *            gives a reader on the text. It is read once, and again only
+	 *            if the text is incorrect, to build the error message.
+	 * @param dialect
+	 *            a MDC dialect identifier from Dialect
+	 * @throws MDCSyntaxError
+	 * @see #readTopItemList(Reader, Dialect)
+	 */
+	public void readLargeTopItemList(Supplier<Reader> text, Dialect dialect)
+			throws MDCSyntaxError {
+		setPhilologyIsSign(!Dialect.TKSESH.equals(dialect));
+		MDCParserModelGenerator generator = createGenerator(dialect);
+		generator.setParallel(true);
+		setTopItemList(generator.parse(text));
+	}
+
 	public void setMDCCode(String text) throws MDCSyntaxError {
 		StringReader r = new StringReader(text);
 		readTopItemList(r);
 	}
 
 	private MDCParserModelGenerator createGenerator(Dialect dialect) {
-		MDCParserModelGenerator generator = new MDCParserModelGenerator(dialect);
+		MDCParserModelGenerator generator = MDCParserModelGenerator
+				.getThreadGenerator(dialect);
 		generator.setPhilologyAsSigns(philologyIsSign);
 		generator.setDebug(debug);
 		return generator;
@@ -255,6 +281,18 @@ public class HieroglyphicTextModel extends Observable implements
 		insertElementsAt(buildPosition(index), items);
 	}
 
+	/**
+	 * Adds items read from the document file at the end of the text, while
+	 * it is loaded. This is not an edition : it can't be undone, and doesn't
+	 * make the text dirty.
+	 *
+	 * @param items
+	 * @see jsesh.mdc.file.DocumentLoader
+	 */
+	public void appendLoadedItems(List<TopItem> items) {
+		model.addAll(items);
+	}
+
 	/**
 	 * Is the model clean (i.e. has it been modified since last loaded or saved
 	 * ?).
@@ -286,7 +324,7 @@ public class HieroglyphicTextModel extends Observable implements
 		MDCCommand command = new CommandFactory().buildReplaceCommand(model,
 				newElements, position.getPreviousPosition(1), position,
 				isFirstCommand());
-		undoManager.doCommand(command);
+		doCommand(command);
 	}
 
 	/**
@@ -298,7 +336,7 @@ public class HieroglyphicTextModel extends Observable implements
 	public void insertElementsAt(MDCPosition position, List<TopItem> elements) {
 		MDCCommand command = new CommandFactory().buildInsertCommand(model,
 				elements, position, isFirstCommand());
-		undoManager.doCommand(command);
+		doCommand(command);
 	}
 
 	/**
@@ -310,7 +348,7 @@ public class HieroglyphicTextModel extends Observable implements
 							   List<TopItem> newElements) {
 		MDCCommand command = new CommandFactory().buildReplaceCommand(
 				getModel(), newElements, pos1, pos2, isClean());
-		undoManager.doCommand(command);
+		doCommand(command);
 	}
 
 	public void replaceElement(MDCPosition pos1, MDCPosition pos2,
@@ -360,7 +398,7 @@ public class HieroglyphicTextModel extends Observable implements
 	public void removeElements(MDCPosition minPosition, MDCPosition maxPosition) {
 		MDCCommand command = new CommandFactory().buildRemoveCommand(model,
 				minPosition, maxPosition, isClean());
-		undoManager.doCommand(command);
+		doCommand(command);
 	}
 
 	/**
@@ -386,18 +424,62 @@ public class HieroglyphicTextModel extends Observable implements
 
 	public void redo() {
 		if (undoManager.canRedo()) {
-			undoManager.redo();
+			inBatch(undoManager::redo);
 		}
 
 	}
 
 	public void undo() {
 		if (undoManager.canUndo()) {
-			undoManager.undoCommand();
+			inBatch(undoManager::undoCommand);
 		}
 
 	}
 
+	/**
+	 * Starts a batch of modifications. The observers of this model will be
+	 * notified once, at the end of the batch, instead of once for each
+	 * element.
+	 * <p>
+	 * The text should not be replaced (by {@link #setTopItemList(TopItemList)}
+	 * or a similar method) during the batch.
+	 *
+	 * @see TopItemList#beginBatch()
+	 */
+	public void beginBatch() {
+		model.beginBatch();
+	}
+
+	/**
+	 * Ends a batch of modifications.
+	 *
+	 * @see #beginBatch()
+	 */
+	public void endBatch() {
+		model.endBatch();
+	}
+
+	private void doCommand(MDCCommand command) {
+		inBatch(() -> undoManager.doCommand(command));
+	}
+
+	/**
+	 * Runs an edition command as a batch, so that the views are updated once
+	 * for the whole command.
+	 */
+	private void inBatch(Runnable action) {
+		TopItemList list = model;
+		EditorLatency latency = EditorLatency.getInstance();
+		latency.begin(EditorStage.COMMAND);
+		list.beginBatch();
+		try {
+			action.run();
+		} finally {
+			list.endBatch();
+			latency.end(EditorStage.COMMAND);
+		}
+	}
+
 	/**
 	 * Replace a part of the text with a text in MdC. Precondition: start < end,
 	 * text is a valid MdC text.
@@ -429,6 +511,26 @@ public class HieroglyphicTextModel extends Observable implements
 		return undoManager.canRedo();
 	}
 
+	/**
+	 * Sets the maximal number of operations which can be undone. Consecutive
+	 * sign insertions count as one operation.
+	 *
+	 * @param maximalCommands a positive number.
+	 */
+	public void setMaximalUndoCommands(int maximalCommands) {
+		undoManager.setMaximalCommands(maximalCommands);
+	}
+
+	/**
+	 * Sets the memory the undo history can use (roughly). When it uses more,
+	 * the data of the oldest operations is moved to a temporary file.
+	 *
+	 * @param maximalMemory a size in bytes.
+	 */
+	public void setMaximalUndoMemory(long maximalMemory) {
+		undoManager.setMaximalMemory(maximalMemory);
+	}
+
 	public boolean mustSave() {
 		return !undoManager.isClean();
 	}
@@ -51,6 +51,7 @@ import java.util.logging.Logger;
 import javax.swing.*;
 import jsesh.editor.actions.text.*;
 import jsesh.editor.caret.*;
+import jsesh.editor.latency.*;
 import jsesh.mdc.*;
 import jsesh.mdc.constants.*;
 import jsesh.mdc.model.*;
@@ -99,6 +100,11 @@ public class JMDCEditor extends JPanel {
      * The current view we maintain.
      */
     MDCView documentView;
+    /**
+     * Computes the view in the background when the text is edited.
+     */
+    private final LayoutPipeline layoutPipeline = new LayoutPipeline(
+            this::publishView);
     /**
      * Display scale for this window.
      */
@@ -135,6 +141,12 @@ public class JMDCEditor extends JPanel {
     
     private boolean drawLimits = false;
 
+    /**
+     * The current background search, whose matches are highlighted. May be
+     * null.
+     */
+    private SearchSession searchSession = null;
+
     public JMDCEditor() {
         this(new HieroglyphicTextModel());
     }
@@ -156,7 +168,7 @@ public class JMDCEditor extends JPanel {
         workflow.addMDCModelListener(mdcModelEditionListener);
         // setRequestFocusEnabled(true);
         setFocusable(true);
-        viewUpdater = new MDCViewUpdater(this);
+        viewUpdater = new MDCViewUpdater(layoutPipeline);
 
         eventListener = new MDCEditorEventsListener(this);        
         new MDCEditorKeyManager(this);
@@ -164,7 +176,9 @@ public class JMDCEditor extends JPanel {
 
     public void setHieroglyphiTextModel(
             HieroglyphicTextModel hieroglyphicTextModel) {
+        stopSearch();
         workflow.setHieroglyphicTextModel(hieroglyphicTextModel);        
+        documentView = null;
         invalidateView();
     }
 
@@ -229,14 +243,22 @@ public class JMDCEditor extends JPanel {
     /**
      * Returns a MDCView of the current hieroglyphicTextModel. Build it if
      * necessary.
+     * <p>
+     * Once built, the view is updated in the background when the text is
+     * edited, and may lag behind the text until the new layout is ready.
      *
      * @return the view for the model.
      */
     public MDCView getView() {
         if (documentView == null) {
-            documentView = new SimpleViewBuilder().buildView(
-                    getHieroglyphicTextModel().getModel(),
-                    getDrawingSpecifications());
+            EditorLatency.getInstance().begin(EditorStage.LAYOUT);
+            try {
+                documentView = layoutPipeline.layoutNow(
+                        getHieroglyphicTextModel().getModel(),
+                        getDrawingSpecifications());
+            } finally {
+                EditorLatency.getInstance().end(EditorStage.LAYOUT);
+            }
             revalidate();
             if (debug) {
                 System.out.println(documentView);
@@ -268,8 +290,7 @@ public class JMDCEditor extends JPanel {
         clickPoint.x = (int) (clickPoint.x / getScale());
         clickPoint.y = (int) (clickPoint.y / getScale());
         // drawer.getPositionForPoint(getView(), clickPoint);
-        MDCPosition pos = drawer.getPositionForPoint(getView(), clickPoint,
-                getDrawingSpecifications());
+        MDCPosition pos = getPositionForPoint(clickPoint);
         if (pos != null) {
             workflow.setCursor(pos);
         }
@@ -287,9 +308,27 @@ public class JMDCEditor extends JPanel {
         clickPoint.x = (int) (clickPoint.x / getScale());
         clickPoint.y = (int) (clickPoint.y / getScale());
         // drawer.getPositionForPoint(getView(), clickPoint);
+        MDCPosition pos = getPositionForPoint(clickPoint);
+        workflow.setMark(pos);
+    }
+
+    /**
+     * Returns the text position for a point of the view.
+     * <p>
+     * As the view may lag behind the text while it is laid out, the position
+     * is kept inside the text.
+     *
+     * @param clickPoint a point, in model coordinates.
+     * @return a position.
+     */
+    private MDCPosition getPositionForPoint(Point clickPoint) {
         MDCPosition pos = drawer.getPositionForPoint(getView(), clickPoint,
                 getDrawingSpecifications());
-        workflow.setMark(pos);
+        TopItemList text = getHieroglyphicTextModel().getModel();
+        if (pos != null && pos.getIndex() > text.getNumberOfChildren()) {
+            pos = new MDCPosition(text, text.getNumberOfChildren());
+        }
+        return pos;
     }
 
     /**
@@ -306,6 +345,17 @@ public class JMDCEditor extends JPanel {
 
     @Override
     protected void paintComponent(Graphics g) {
+        EditorLatency latency = EditorLatency.getInstance();
+        latency.begin(EditorStage.PAINT);
+        try {
+            paintEditor(g);
+        } finally {
+            latency.end(EditorStage.PAINT);
+        }
+        latency.painted();
+    }
+
+    private void paintEditor(Graphics g) {
         drawBaseComponent(g);
         GraphicsDevice[] devs = GraphicsEnvironment
                 .getLocalGraphicsEnvironment()
@@ -351,6 +401,42 @@ public class JMDCEditor extends JPanel {
         return getHieroglyphicTextModel().doSearch(query);
    }
 
+    /**
+     * Starts searching the text in the background, replacing the current
+     * search if any. The matches are highlighted as they are found, and kept
+     * up to date while the text is edited.
+     *
+     * @param query the query.
+     * @return the search session, already started.
+     */
+    public SearchSession startSearch(MdCSearchQuery query) {
+        stopSearch();
+        searchSession = new SearchSession(getHieroglyphicTextModel(), query);
+        searchSession.addSearchSessionListener(session -> repaint());
+        drawer.setHighlighted(searchSession::isMatchAt);
+        searchSession.start();
+        return searchSession;
+    }
+
+    /**
+     * Stops the current search, and removes the highlighting of its matches.
+     */
+    public void stopSearch() {
+        if (searchSession != null) {
+            searchSession.stop();
+            searchSession = null;
+            drawer.setHighlighted(null);
+            repaint();
+        }
+    }
+
+    /**
+     * @return the current search session, or null if none.
+     */
+    public SearchSession getSearchSession() {
+        return searchSession;
+    }
+
     /*
      * Auxiliary class, used to redraw the window when the cursor is out of the
      * visible frame.
@@ -500,11 +586,40 @@ public class JMDCEditor extends JPanel {
         invalidateView();
     }
 
+    /**
+     * Recomputes the view, for instance after a change of the drawing
+     * specifications. The current view is displayed until the new one is
+     * ready.
+     */
     public void invalidateView() {
-        documentView = null;
+        if (documentView != null) {
+            layoutPipeline.rebuildAll();
+            layoutPipeline.requestLayout(getDrawingSpecifications());
+        }
+        if (drawer.isCached()) {
+            drawer.flushCache();
+        }
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Displays a view computed by the layout pipeline.
+     *
+     * @param view
+     */
+    private void publishView(MDCView view) {
+        if (documentView == null) {
+            // The view was discarded, and will be built from the text.
+            return;
+        }
+        documentView = view;
         if (drawer.isCached()) {
             drawer.flushCache();
         }
+        // Scroll to the caret again, now that its position is known.
+        caretChanged = true;
+        // FIXME : only call revalidate if the dimensions have changed.
         revalidate();
         repaint();
     }
@@ -524,11 +639,18 @@ public class JMDCEditor extends JPanel {
          * (jsesh.mdc.model.operations.ModelOperation)
          */
         public void textEdited(ModelOperation op) {
-            op.accept(viewUpdater);
+            // Without a view, the next one will be built from the text.
+            if (documentView != null) {
+                EditorLatency.getInstance().begin(EditorStage.VIEW_UPDATE);
+                try {
+                    op.accept(viewUpdater);
+                    layoutPipeline.requestLayout(getDrawingSpecifications());
+                } finally {
+                    EditorLatency.getInstance().end(EditorStage.VIEW_UPDATE);
+                }
+            }
             Logger.getLogger(CLASS_FULL_NAME).fine("Text edited");
             caretChanged = true;
-            // FIXME : only call revalidate if the dimensions have changed.
-            revalidate();
             repaint();
         }
 
@@ -0,0 +1,393 @@
+package jsesh.editor;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+import jsesh.editor.latency.EditorLatency;
+import jsesh.editor.latency.EditorStage;
+import jsesh.mdc.model.ModelElement;
+import jsesh.mdc.model.TopItem;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdcDisplayer.layout.SimpleViewBuilder;
+import jsesh.mdcDisplayer.mdcView.MDCView;
+import jsesh.mdcDisplayer.preferences.DrawingSpecification;
+
+/**
+ * Computes the view of an editor's text on a background thread.
+ * <p>
+ * The pipeline keeps one entry per top item of the text, holding an
+ * immutable snapshot of the item and the view built for it. Edits only
+ * replace the entries of the items they change. When a layout is requested,
+ * the items without a snapshot are copied on the event dispatch thread, and
+ * the list of entries and a copy of the drawing specifications are handed to
+ * the layout thread, which builds the missing views from the snapshots and
+ * lays out the page. The layout thread only reads the snapshots, never the
+ * live text.
+ * <p>
+ * The result is a new document view, whose top-level subviews are shallow
+ * copies of the entries' views, with the snapshots as models. It is
+ * published on the event dispatch thread, after the views inside the items
+ * have been bound to the live elements, and the top-level subviews of the
+ * document view to the live top items, so that the caret and hit-testing
+ * work as with a view built from the text itself. The entries' own views
+ * keep the snapshots as models, as they are laid out again by later layouts.
+ * A layout is only published if the text has not been edited since it was
+ * requested; in the meantime, the editor keeps its previous view, which may
+ * be shorter than the text.
+ * <p>
+ * Except when stated otherwise, methods must be called on the event dispatch
+ * thread.
+ *
+ * @author rosmord
+ */
+class LayoutPipeline {
+
+	private static final ExecutorService WORKER = Executors
+			.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "JSesh layout");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	private final Consumer<MDCView> publisher;
+
+	/**
+	 * The text whose view is computed.
+	 */
+	private TopItemList text = null;
+
+	/**
+	 * The entries for the top items of the text, in the same order.
+	 */
+	private ArrayList<Entry> entries = new ArrayList<Entry>();
+
+	/**
+	 * Incremented at each edit, so that layouts of older versions of the text
+	 * are not published.
+	 */
+	private volatile int generation = 0;
+
+	/**
+	 * The next layout to compute. Layouts requested while the layout thread
+	 * is busy replace each other, so only the last one is computed.
+	 */
+	private final AtomicReference<Job> nextJob = new AtomicReference<Job>();
+
+	/**
+	 * Creates a pipeline.
+	 *
+	 * @param publisher receives the document views, on the event dispatch
+	 *            thread.
+	 */
+	LayoutPipeline(Consumer<MDCView> publisher) {
+		this.publisher = publisher;
+	}
+
+	/**
+	 * Lays out a whole text on the current thread, without copying it.
+	 * <p>
+	 * Pending layouts are cancelled. This is used when there is no view to
+	 * display while the layout is computed.
+	 *
+	 * @param text
+	 * @param drawingSpecifications
+	 * @return the view of the text.
+	 */
+	MDCView layoutNow(TopItemList text,
+			DrawingSpecification drawingSpecifications) {
+		this.text = text;
+		entries = new ArrayList<Entry>(text.getNumberOfChildren());
+		for (int i = 0; i < text.getNumberOfChildren(); i++) {
+			entries.add(new Entry(text.getTopItemAt(i)));
+		}
+		generation++;
+		nextJob.set(null);
+		Job job = new Job(drawingSpecifications.copy());
+		job.layout();
+		return job.bind();
+	}
+
+	/**
+	 * Records the insertion of top items in the text.
+	 *
+	 * @param index
+	 * @param items the inserted items.
+	 */
+	void insert(int index, List<?> items) {
+		ArrayList<Entry> inserted = new ArrayList<Entry>(items.size());
+		for (Object item : items) {
+			inserted.add(new Entry((TopItem) item));
+		}
+		entries.addAll(index, inserted);
+		generation++;
+	}
+
+	/**
+	 * Records the deletion of top items.
+	 *
+	 * @param start
+	 * @param end
+	 */
+	void remove(int start, int end) {
+		entries.subList(start, end).clear();
+		generation++;
+	}
+
+	/**
+	 * Records that the top items between start and end have been modified.
+	 *
+	 * @param start
+	 * @param end
+	 */
+	void update(int start, int end) {
+		for (int i = start; i < end; i++) {
+			entries.set(i, new Entry(text.getTopItemAt(i)));
+		}
+		generation++;
+	}
+
+	/**
+	 * Records that the whole text may have changed.
+	 */
+	void updateAll() {
+		entries.clear();
+		for (int i = 0; i < text.getNumberOfChildren(); i++) {
+			entries.add(new Entry(text.getTopItemAt(i)));
+		}
+		generation++;
+	}
+
+	/**
+	 * Discards the views already built, typically because the drawing
+	 * specifications have changed.
+	 */
+	void rebuildAll() {
+		for (int i = 0; i < entries.size(); i++) {
+			// The items have not changed : their snapshots are still valid.
+			Entry entry = new Entry(entries.get(i).item);
+			entry.snapshot = entries.get(i).snapshot;
+			entries.set(i, entry);
+		}
+		generation++;
+	}
+
+	/**
+	 * Returns the index of a top item in the text.
+	 *
+	 * @param element
+	 * @return the index, or -1 if element is not a top item of the text.
+	 */
+	int indexOf(ModelElement element) {
+		for (int i = 0; i < entries.size(); i++) {
+			if (entries.get(i).item == element) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Requests the layout of the current state of the text. The result will
+	 * be published when it is ready, unless the text is modified in the
+	 * meantime.
+	 *
+	 * @param drawingSpecifications
+	 */
+	void requestLayout(DrawingSpecification drawingSpecifications) {
+		nextJob.set(new Job(drawingSpecifications.copy()).copyMissing());
+		WORKER.execute(() -> {
+			Job job = nextJob.getAndSet(null);
+			if (job != null) {
+				job.run();
+			}
+		});
+	}
+
+	/**
+	 * A top item of the text, with its view.
+	 */
+	private static final class Entry {
+
+		/**
+		 * The top item of the live text.
+		 */
+		final TopItem item;
+
+		/**
+		 * A copy of the item, taken on the event dispatch thread for the
+		 * layout thread, and never modified. The entry is replaced when the
+		 * item is modified.
+		 */
+		TopItem snapshot = null;
+
+		/**
+		 * The view of the item, or null if it's not built yet. Built by the
+		 * thread which lays out the text.
+		 */
+		volatile MDCView view = null;
+
+		/**
+		 * True once the views inside the item are bound to the live
+		 * elements. Only used on the event dispatch thread.
+		 */
+		boolean bound = false;
+
+		Entry(TopItem item) {
+			this.item = item;
+		}
+
+		/**
+		 * @return the element the view is built from, and which is laid out.
+		 */
+		TopItem getSource() {
+			return snapshot != null ? snapshot : item;
+		}
+	}
+
+	/**
+	 * Sets the models of the subviews of a view built for a copy to the
+	 * corresponding live elements. The model of the view itself is kept.
+	 */
+	private static void bindToLive(MDCView view, ModelElement copy,
+			ModelElement live) {
+		Map<ModelElement, ModelElement> liveElements = new IdentityHashMap<ModelElement, ModelElement>();
+		mapCopy(copy, live, liveElements);
+		for (int i = 0; i < view.getNumberOfSubviews(); i++) {
+			bindViews(view.getSubView(i), liveElements);
+		}
+	}
+
+	private static void mapCopy(ModelElement copy, ModelElement live,
+			Map<ModelElement, ModelElement> liveElements) {
+		liveElements.put(copy, live);
+		if (copy.getNumberOfChildren() == live.getNumberOfChildren()) {
+			for (int i = 0; i < copy.getNumberOfChildren(); i++) {
+				mapCopy(copy.getChildAt(i), live.getChildAt(i), liveElements);
+			}
+		}
+	}
+
+	private static void bindViews(MDCView view,
+			Map<ModelElement, ModelElement> liveElements) {
+		ModelElement live = liveElements.get(view.getModel());
+		if (live != null) {
+			view.setModel(live);
+		}
+		for (int i = 0; i < view.getNumberOfSubviews(); i++) {
+			bindViews(view.getSubView(i), liveElements);
+		}
+	}
+
+	/**
+	 * The layout of a version of the text.
+	 */
+	private final class Job {
+
+		private final int jobGeneration = generation;
+
+		private final TopItemList liveText = text;
+
+		private final ArrayList<Entry> jobEntries = new ArrayList<Entry>(entries);
+
+		private final DrawingSpecification drawingSpecifications;
+
+		private MDCView documentView = null;
+
+		Job(DrawingSpecification drawingSpecifications) {
+			this.drawingSpecifications = drawingSpecifications;
+		}
+
+		/**
+		 * Copies the items which have no snapshot yet, so that the layout
+		 * thread doesn't read the live text.
+		 */
+		Job copyMissing() {
+			for (Entry entry : jobEntries) {
+				if (entry.snapshot == null) {
+					entry.snapshot = entry.item.deepCopy();
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Lays out the text on the layout thread, and publishes the result.
+		 */
+		void run() {
+			EditorLatency latency = EditorLatency.getInstance();
+			latency.begin(EditorStage.LAYOUT);
+			try {
+				if (!layout()) {
+					return;
+				}
+			} finally {
+				latency.end(EditorStage.LAYOUT);
+			}
+			SwingUtilities.invokeLater(() -> {
+				if (jobGeneration == generation) {
+					publisher.accept(bind());
+				}
+			});
+		}
+
+		/**
+		 * Builds the document view. The views missing are built from the
+		 * snapshots of the items, which are also the models of the top-level
+		 * subviews laid out. The items themselves are used only if there is
+		 * no snapshot, when the text is laid out on the event dispatch
+		 * thread.
+		 *
+		 * @return false if the text was modified before the end of the
+		 *         layout.
+		 */
+		boolean layout() {
+			SimpleViewBuilder builder = new SimpleViewBuilder();
+			MDCView result = new MDCView(new TopItemList());
+			for (Entry entry : jobEntries) {
+				if (jobGeneration != generation) {
+					return false;
+				}
+				if (entry.view == null) {
+					entry.view = builder.buildView(entry.getSource(),
+							drawingSpecifications);
+				}
+				MDCView view = entry.view.shallowCopy();
+				view.setModel(entry.getSource());
+				result.add(view);
+			}
+			builder.reLayout(result, drawingSpecifications);
+			documentView = result;
+			return jobGeneration == generation;
+		}
+
+		/**
+		 * Binds the document view to the live text, on the event dispatch
+		 * thread.
+		 *
+		 * @return the document view.
+		 */
+		MDCView bind() {
+			documentView.setModel(liveText);
+			for (int i = 0; i < jobEntries.size(); i++) {
+				Entry entry = jobEntries.get(i);
+				if (!entry.bound) {
+					if (entry.snapshot != null) {
+						// The item has not been modified since it was copied.
+						bindToLive(entry.view, entry.snapshot, entry.item);
+					}
+					entry.bound = true;
+				}
+				documentView.getSubView(i).setModel(entry.item);
+			}
+			return documentView;
+		}
+	}
+}
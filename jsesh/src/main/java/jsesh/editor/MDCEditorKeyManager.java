@@ -72,6 +72,8 @@ import jsesh.editor.actions.view.SelectOrientationAction;
 import jsesh.editor.actions.view.SelectTextDirectionAction;
 import jsesh.editor.actionsUtils.DelegatingAction;
 import jsesh.editor.actionsUtils.Enabler;
+import jsesh.editor.latency.EditorLatency;
+import jsesh.editor.latency.EditorStage;
 import jsesh.mdc.constants.SymbolCodes;
 import jsesh.mdc.constants.TextDirection;
 import jsesh.mdc.constants.TextOrientation;
@@ -371,11 +373,19 @@ class MDCEditorKeyManager extends KeyAdapter {
 			JMDCEditor editor = (JMDCEditor) e.getSource();
 			if (!editor.isEditable())
 				return;
-			if (editor.getWorkflow().getMode() == 's' && e.getKeyChar() == '#') {
-				editor.showShadingPopup();
-				return;
+			EditorLatency latency = EditorLatency.getInstance();
+			latency.keyTyped(e.getWhen());
+			latency.begin(EditorStage.KEY);
+			try {
+				if (editor.getWorkflow().getMode() == 's'
+						&& e.getKeyChar() == '#') {
+					editor.showShadingPopup();
+					return;
+				}
+				editor.getWorkflow().keyTyped(e.getKeyChar());
+			} finally {
+				latency.end(EditorStage.KEY);
 			}
-			editor.getWorkflow().keyTyped(e.getKeyChar());
 		}
 	}
 
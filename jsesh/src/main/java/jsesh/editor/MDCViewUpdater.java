@@ -36,10 +36,6 @@ knowledge of the CeCILL license and that you accept its terms.
  */
 package jsesh.editor;
 
-import java.util.Iterator;
-
-import jsesh.mdc.model.ModelElement;
-import jsesh.mdc.model.TopItem;
 import jsesh.mdc.model.operations.ChildOperation;
 import jsesh.mdc.model.operations.Deletion;
 import jsesh.mdc.model.operations.Insertion;
@@ -47,23 +43,24 @@ import jsesh.mdc.model.operations.ModelOperationVisitor;
 import jsesh.mdc.model.operations.Modification;
 import jsesh.mdc.model.operations.Replacement;
 import jsesh.mdc.model.operations.ZoneModification;
-import jsesh.mdcDisplayer.layout.SimpleViewBuilder;
-import jsesh.mdcDisplayer.mdcView.MDCView;
 
 
 /**
  * Updates an editor's view to keep it synchronized with its model.
+ * <p>
+ * The modifications are recorded in the editor's {@link LayoutPipeline},
+ * which computes the new view in the background.
  * @author S. Rosmorduc
  */
 class MDCViewUpdater implements ModelOperationVisitor {
 
-	private final JMDCEditor editor;
+	private final LayoutPipeline pipeline;
 
 	/**
-	 * @param editor
+	 * @param pipeline
 	 */
-	MDCViewUpdater(JMDCEditor editor) {
-		this.editor = editor;
+	MDCViewUpdater(LayoutPipeline pipeline) {
+		this.pipeline = pipeline;
 	}
 
 
@@ -73,22 +70,11 @@ class MDCViewUpdater implements ModelOperationVisitor {
 	 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitChildOperation(jsesh.mdc.model.operations.ChildOperation)
 	 */
 	public void visitChildOperation(ChildOperation operation) {
-		int k;
-		SimpleViewBuilder builder= new SimpleViewBuilder();
 		// Find the index for the element which was modified...
-		for (k = 0; k < this.editor.documentView.getNumberOfSubviews()
-				&& this.editor.documentView.getSubView(k).getModel() != operation
-						.getChildOperation().getElement(); k++)
-			;
-		// This is k. rebuild view for k, and replace it.
-		if (this.editor.documentView.getSubView(k).getModel() == operation
-				.getChildOperation().getElement()) {
-			MDCView subv = builder.buildView(operation.getChildOperation()
-					.getElement(), editor.getDrawingSpecifications());
-			this.editor.documentView.replaceSubView(k, subv);
+		int k = pipeline.indexOf(operation.getChildOperation().getElement());
+		if (k != -1) {
+			pipeline.update(k, k + 1);
 		}
-		// update the page layout.
-		builder.reLayout(this.editor.documentView, editor.getDrawingSpecifications());
 	}
 
 	/*
@@ -97,10 +83,7 @@ class MDCViewUpdater implements ModelOperationVisitor {
 	 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitDeletion(jsesh.mdc.model.operations.Deletion)
 	 */
 	public void visitDeletion(Deletion deletion) {
-		// Remove the modified views, and update page layout.
-		this.editor.documentView.remove(deletion.getStart(), deletion.getEnd());
-		new SimpleViewBuilder().reLayout(this.editor.documentView,editor.getDrawingSpecifications());
-
+		pipeline.remove(deletion.getStart(), deletion.getEnd());
 	}
 
 	/*
@@ -109,14 +92,7 @@ class MDCViewUpdater implements ModelOperationVisitor {
 	 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitInsertion(jsesh.mdc.model.operations.Insertion)
 	 */
 	public void visitInsertion(Insertion insertion) {
-		SimpleViewBuilder builder= new SimpleViewBuilder();
-		int index= insertion.getIndex();
-		// Create and insert views at the proper position.
-		for (Iterator i= insertion.getChildren().iterator(); i.hasNext();) {
-			MDCView subView = builder.buildView((ModelElement) i.next(),editor.getDrawingSpecifications());
-			this.editor.documentView.addAt(index++, subView);
-		}
-		builder.reLayout(this.editor.documentView,editor.getDrawingSpecifications());
+		pipeline.insert(insertion.getIndex(), insertion.getChildren());
 	}
 
 	/*
@@ -125,8 +101,8 @@ class MDCViewUpdater implements ModelOperationVisitor {
 	 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitModification(jsesh.mdc.model.operations.Modification)
 	 */
 	public void visitModification(Modification modification) {
-		// Huge change: we suppress the whole view, which will cause the complete recomputation of the page.
-		this.editor.documentView = null;
+		// Huge change: the whole page is recomputed.
+		pipeline.updateAll();
 	}
 
 	/*
@@ -135,21 +111,14 @@ class MDCViewUpdater implements ModelOperationVisitor {
 	 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitReplacement(jsesh.mdc.model.operations.Replacement)
 	 */
 	public void visitReplacement(Replacement replacement) {
-		this.editor.documentView = null;
+		pipeline.updateAll();
 	}
 
 	/* (non-Javadoc)
 	 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitZoneModification(jsesh.mdc.model.operations.ZoneModification)
 	 */
 	public void visitZoneModification(ZoneModification modification) {
-		SimpleViewBuilder builder= new SimpleViewBuilder();
-		for (int i= modification.getStart(); i< modification.getEnd(); i++) {
-			TopItem it= this.editor.getHieroglyphicTextModel().getModel().getTopItemAt(i);
-			MDCView v= builder.buildView(it,editor.getDrawingSpecifications());
-			editor.documentView.replaceSubView(i,v);
-		}
-		
-		builder.reLayout(this.editor.documentView,editor.getDrawingSpecifications());
+		pipeline.update(modification.getStart(), modification.getEnd());
 	}
 
-}
\ No newline at end of file
+}
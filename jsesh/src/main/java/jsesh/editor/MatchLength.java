@@ -0,0 +1,120 @@
+package jsesh.editor;
+
+import jsesh.mdc.model.Hieroglyph;
+import jsesh.mdc.model.ModelElementDeepAdapter;
+import jsesh.mdc.model.TopItemList;
+
+/**
+ * The maximal length of the matches of a search query.
+ * <p>
+ * The length is counted either in top items, or in signs, for queries which
+ * only look at the sequence of signs of a text, whatever the items between
+ * them. Knowing it, a text can be searched by parts, and searched again only
+ * around its modified parts.
+ *
+ * @see MdCSearchQuery#getMaximalMatchLength()
+ * @author rosmord
+ */
+public final class MatchLength {
+
+	private final int length;
+
+	private final boolean inSigns;
+
+	private MatchLength(int length, boolean inSigns) {
+		if (length < 1) {
+			throw new IllegalArgumentException("Bad match length " + length);
+		}
+		this.length = length;
+		this.inSigns = inSigns;
+	}
+
+	/**
+	 * Matches span at most a number of top items.
+	 *
+	 * @param length the number of items, at least 1.
+	 * @return a match length.
+	 */
+	public static MatchLength items(int length) {
+		return new MatchLength(length, false);
+	}
+
+	/**
+	 * Matches start at a sign, and span at most a number of signs.
+	 *
+	 * @param length the number of signs, at least 1.
+	 * @return a match length.
+	 */
+	public static MatchLength signs(int length) {
+		return new MatchLength(length, true);
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public boolean isInSigns() {
+		return inSigns;
+	}
+
+	/**
+	 * Returns the end of the part of a text which must be searched to find
+	 * all matches starting before an index.
+	 *
+	 * @param items the text.
+	 * @param index an index in the text.
+	 * @return an index greater than or equal to index.
+	 */
+	public int getSearchEnd(TopItemList items, int index) {
+		int end = index;
+		int count = 0;
+		while (end < items.getNumberOfChildren() && count < length - 1) {
+			count += getWeight(items, end);
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the first index where a match covering the item at an index (or
+	 * spanning the position just before it) may start.
+	 *
+	 * @param items the text.
+	 * @param index an index in the text.
+	 * @return an index lower than or equal to index.
+	 */
+	public int getSearchStart(TopItemList items, int index) {
+		int start = Math.min(index, items.getNumberOfChildren());
+		int count = 0;
+		while (start > 0 && count < length) {
+			start--;
+			count += getWeight(items, start);
+		}
+		return start;
+	}
+
+	private int getWeight(TopItemList items, int index) {
+		if (inSigns) {
+			SignCounter counter = new SignCounter();
+			items.getChildAt(index).accept(counter);
+			return counter.count;
+		} else {
+			return 1;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return length + (inSigns ? " signs" : " items");
+	}
+
+	private static class SignCounter extends ModelElementDeepAdapter {
+
+		int count = 0;
+
+		@Override
+		public void visitHieroglyph(Hieroglyph h) {
+			count++;
+		}
+	}
+}
@@ -44,4 +44,14 @@ import jsesh.mdc.model.TopItemList;
  */
 public interface MdCSearchQuery {
        List<MDCPosition> doSearch(TopItemList items);
+
+       /**
+        * Tells how long the matches of this query can be.
+        * <p> When it is known, long texts can be searched by parts, and searched
+        * again only around the modified parts (see {@link SearchSession}).
+        * @return the maximal length of a match, or null if matches can be of any length.
+        */
+       default MatchLength getMaximalMatchLength() {
+              return null;
+       }
 }
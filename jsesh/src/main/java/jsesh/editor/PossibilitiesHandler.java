@@ -33,6 +33,8 @@ knowledge of the CeCILL license and that you accept its terms.
  */
 package jsesh.editor;
 
+import jsesh.editor.latency.EditorLatency;
+import jsesh.editor.latency.EditorStage;
 import jsesh.hieroglyphs.data.PossibilitiesList;
 import jsesh.hieroglyphs.data.Possibility;
 
@@ -59,8 +61,13 @@ class PossibilitiesHandler {
 	 * @param separator
 	 */
 	public void init(String code, char separator) {
-		this.possibilities = PossibilityRepository.getInstance()
-				.getPossibilityListFor(code);
+		EditorLatency.getInstance().begin(EditorStage.POSSIBILITIES);
+		try {
+			this.possibilities = PossibilityRepository.getInstance()
+					.getPossibilityListFor(code);
+		} finally {
+			EditorLatency.getInstance().end(EditorStage.POSSIBILITIES);
+		}
 		this.separator = separator;
 	}
 
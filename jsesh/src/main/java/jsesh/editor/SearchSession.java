@@ -0,0 +1,529 @@
+package jsesh.editor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import jsesh.mdc.model.MDCMark;
+import jsesh.mdc.model.MDCPosition;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdc.model.operations.ChildOperation;
+import jsesh.mdc.model.operations.Deletion;
+import jsesh.mdc.model.operations.Insertion;
+import jsesh.mdc.model.operations.ModelOperation;
+import jsesh.mdc.model.operations.ModelOperationVisitor;
+import jsesh.mdc.model.operations.Modification;
+import jsesh.mdc.model.operations.Replacement;
+import jsesh.mdc.model.operations.ZoneModification;
+
+/**
+ * A search in a text, done in the background, whose matches are kept up to
+ * date while the text is edited.
+ * <p>
+ * The text is copied on the event dispatch thread, and the copy is searched
+ * by a worker thread. The matches are kept as {@link MDCMark}s in the text,
+ * which follow the edits, and are published in batches to the listeners.
+ * <p>
+ * When the query gives its maximal match length, the text is searched by
+ * parts of {@link #CHUNK_SIZE} positions, and an edit only causes the part of
+ * the text around it to be searched again. Otherwise, the whole text is
+ * searched again after each edit, once the user pauses.
+ * <p>
+ * All methods must be called on the event dispatch thread.
+ *
+ * @author rosmord
+ */
+public class SearchSession implements Observer {
+
+	/**
+	 * Number of positions searched in one go, for queries whose match length
+	 * is known.
+	 */
+	static final int CHUNK_SIZE = 1000;
+
+	/**
+	 * Delay after an edit before the text is searched again, in milliseconds.
+	 */
+	private static final int EDITION_DELAY = 150;
+
+	private static final ExecutorService WORKER = Executors
+			.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "JSesh search");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	private final HieroglyphicTextModel text;
+
+	private final MdCSearchQuery query;
+
+	private final MatchLength matchLength;
+
+	/**
+	 * The searched text.
+	 */
+	private TopItemList model = null;
+
+	/**
+	 * The matches, ordered by position.
+	 */
+	private final ArrayList<MDCMark> matches = new ArrayList<MDCMark>();
+
+	/**
+	 * The parts of the text where matches remain to be searched, ordered and
+	 * disjoint.
+	 */
+	private final ArrayList<Region> regions = new ArrayList<Region>();
+
+	/**
+	 * The ranges of the text modified since the last search, not yet turned
+	 * into regions. They are expressed as indexes in the current text.
+	 */
+	private final ArrayList<int[]> changes = new ArrayList<int[]>();
+
+	/**
+	 * True if the whole text must be searched again.
+	 */
+	private boolean textChanged = false;
+
+	/**
+	 * True from an edit until its changes are applied. The timer can't tell
+	 * it : it stops running before its action is performed.
+	 */
+	private boolean editionPending = false;
+
+	private final ChangeRecorder changeRecorder = new ChangeRecorder();
+
+	private final Timer editionTimer;
+
+	private Future<?> task = null;
+
+	/**
+	 * Incremented at each edit, so that matches found in an older copy of the
+	 * text are ignored.
+	 */
+	private int generation = 0;
+
+	private boolean running = false;
+
+	private final List<SearchSessionListener> listeners = new ArrayList<SearchSessionListener>();
+
+	/**
+	 * Creates a search session. It does nothing until started.
+	 *
+	 * @param text the text to search.
+	 * @param query the query.
+	 */
+	public SearchSession(HieroglyphicTextModel text, MdCSearchQuery query) {
+		this.text = text;
+		this.query = query;
+		this.matchLength = query.getMaximalMatchLength();
+		editionTimer = new Timer(EDITION_DELAY, e -> applyChanges());
+		editionTimer.setRepeats(false);
+	}
+
+	/**
+	 * Starts the search, and the update of matches.
+	 */
+	public void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		model = text.getModel();
+		text.addObserver(this);
+		addRegion(0, model.getNumberOfChildren());
+		scheduleSearch();
+	}
+
+	/**
+	 * Stops the search, and forgets the matches.
+	 */
+	public void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		text.deleteObserver(this);
+		editionTimer.stop();
+		editionPending = false;
+		cancelTask();
+		releaseAll();
+		changes.clear();
+		textChanged = false;
+	}
+
+	public MdCSearchQuery getQuery() {
+		return query;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Tells if all the matches in the current text are known.
+	 *
+	 * @return true if the search is done.
+	 */
+	public boolean isDone() {
+		return running && regions.isEmpty() && task == null
+				&& !editionPending;
+	}
+
+	public int getNumberOfMatches() {
+		return matches.size();
+	}
+
+	/**
+	 * Returns the positions of the matches found so far.
+	 *
+	 * @return a list of positions, in the text order.
+	 */
+	public List<MDCPosition> getMatches() {
+		ArrayList<MDCPosition> result = new ArrayList<MDCPosition>(
+				matches.size());
+		for (MDCMark mark : matches) {
+			result.add(mark.getPosition());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first match at or after a position.
+	 *
+	 * @param index the position index.
+	 * @return the position of a match, or null if none was found.
+	 */
+	public MDCPosition getNextMatch(int index) {
+		int i = findMatch(index);
+		if (i < matches.size()) {
+			return matches.get(i).getPosition();
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Tells if a match starts at a position.
+	 *
+	 * @param index the position index.
+	 * @return true if a match starts there.
+	 */
+	public boolean isMatchAt(int index) {
+		int i = findMatch(index);
+		return i < matches.size() && matches.get(i).getIndex() == index;
+	}
+
+	public void addSearchSessionListener(SearchSessionListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeSearchSessionListener(SearchSessionListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Records an edit of the text. The changes are taken into account when
+	 * the edition pauses.
+	 */
+	@Override
+	public void update(Observable o, Object arg) {
+		if (!running) {
+			return;
+		}
+		generation++;
+		cancelTask();
+		if (matchLength != null && arg instanceof ModelOperation
+				&& ((ModelOperation) arg).getElement() == model) {
+			((ModelOperation) arg).accept(changeRecorder);
+		} else {
+			textChanged = true;
+		}
+		editionPending = true;
+		editionTimer.restart();
+	}
+
+	/**
+	 * Turns the recorded changes into regions to search again.
+	 */
+	private void applyChanges() {
+		if (!running) {
+			return;
+		}
+		editionPending = false;
+		if (model != text.getModel()) {
+			releaseAll();
+			model = text.getModel();
+			textChanged = true;
+			fireMatchesChanged();
+		}
+		int size = model.getNumberOfChildren();
+		if (textChanged || matchLength == null) {
+			for (Region region : regions) {
+				region.release();
+			}
+			regions.clear();
+			addRegion(0, size);
+		} else {
+			for (int[] change : changes) {
+				int start = matchLength.getSearchStart(model, change[0]);
+				int end = Math.min(size, Math.max(change[1], change[0] + 1));
+				addRegion(start, Math.max(start, end));
+			}
+		}
+		changes.clear();
+		textChanged = false;
+		scheduleSearch();
+	}
+
+	/**
+	 * Adds a part of the text to search, merging it with the overlapping
+	 * ones.
+	 */
+	private void addRegion(int start, int end) {
+		ArrayList<int[]> ranges = new ArrayList<int[]>();
+		for (Region region : regions) {
+			ranges.add(new int[] { region.start.getIndex(),
+					region.end.getIndex() });
+			region.release();
+		}
+		regions.clear();
+		ranges.add(new int[] { start, end });
+		Collections.sort(ranges, (a, b) -> Integer.compare(a[0], b[0]));
+		int[] current = null;
+		for (int[] range : ranges) {
+			if (current != null && range[0] <= current[1]) {
+				current[1] = Math.max(current[1], range[1]);
+			} else {
+				if (current != null) {
+					regions.add(new Region(current[0], current[1]));
+				}
+				current = range;
+			}
+		}
+		regions.add(new Region(current[0], current[1]));
+	}
+
+	/**
+	 * Starts searching the next part of the text, if any.
+	 */
+	private void scheduleSearch() {
+		if (task != null || regions.isEmpty() || editionPending) {
+			return;
+		}
+		Region region = regions.get(0);
+		final int start;
+		final int end;
+		final TopItemList copy;
+		if (matchLength == null) {
+			start = 0;
+			end = model.getNumberOfChildren();
+			copy = model.deepCopy();
+		} else {
+			start = region.start.getIndex();
+			end = Math.min(region.end.getIndex(), start + CHUNK_SIZE);
+			copy = new TopItemList();
+			copy.addAll(model.getTopItemListBetween(start,
+					matchLength.getSearchEnd(model, end)));
+		}
+		final int taskGeneration = generation;
+		task = WORKER.submit(() -> {
+			List<MDCPosition> found = search(copy);
+			SwingUtilities.invokeLater(() -> searchDone(taskGeneration, start,
+					end, found));
+		});
+	}
+
+	private List<MDCPosition> search(TopItemList copy) {
+		try {
+			return query.doSearch(copy);
+		} catch (RuntimeException e) {
+			// Don't stop the session because of a faulty query.
+			e.printStackTrace();
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Replaces the matches between start and end by the ones found.
+	 *
+	 * @param found the positions found, relative to start.
+	 */
+	private void searchDone(int taskGeneration, int start, int end,
+			List<MDCPosition> found) {
+		if (!running || taskGeneration != generation) {
+			return;
+		}
+		task = null;
+		int first = findMatch(start);
+		int last = end >= model.getNumberOfChildren() ? matches.size()
+				: findMatch(end);
+		List<MDCMark> removed = matches.subList(first, last);
+		for (MDCMark mark : removed) {
+			mark.release();
+		}
+		removed.clear();
+		int[] positions = found.stream()
+				.mapToInt(position -> position.getIndex() + start)
+				.filter(index -> index < end).sorted().distinct().toArray();
+		ArrayList<MDCMark> added = new ArrayList<MDCMark>(positions.length);
+		for (int index : positions) {
+			added.add(new MDCMark(new MDCPosition(model, index)));
+		}
+		matches.addAll(first, added);
+
+		Region region = regions.get(0);
+		if (end >= region.end.getIndex()) {
+			regions.remove(0).release();
+		} else {
+			region.setStart(end);
+		}
+		fireMatchesChanged();
+		scheduleSearch();
+	}
+
+	/**
+	 * Returns the index of the first match at or after a position.
+	 */
+	private int findMatch(int index) {
+		int low = 0;
+		int high = matches.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (matches.get(middle).getIndex() < index) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private void cancelTask() {
+		if (task != null) {
+			task.cancel(true);
+			task = null;
+		}
+	}
+
+	private void releaseAll() {
+		for (MDCMark mark : matches) {
+			mark.release();
+		}
+		matches.clear();
+		for (Region region : regions) {
+			region.release();
+		}
+		regions.clear();
+	}
+
+	private void fireMatchesChanged() {
+		for (SearchSessionListener listener : new ArrayList<SearchSessionListener>(
+				listeners)) {
+			listener.matchesChanged(this);
+		}
+	}
+
+	/**
+	 * A part of the text where matches must be searched, which follows the
+	 * edits.
+	 */
+	private class Region {
+
+		private MDCMark start;
+
+		private final MDCMark end;
+
+		Region(int start, int end) {
+			this.start = new MDCMark(new MDCPosition(model, start),
+					MDCMark.Gravity.BACKWARD);
+			this.end = new MDCMark(new MDCPosition(model, end),
+					MDCMark.Gravity.FORWARD);
+		}
+
+		void setStart(int index) {
+			start.release();
+			start = new MDCMark(new MDCPosition(model, index),
+					MDCMark.Gravity.BACKWARD);
+		}
+
+		void release() {
+			start.release();
+			end.release();
+		}
+	}
+
+	/**
+	 * Records the ranges changed by an edit, and moves the ranges already
+	 * recorded accordingly.
+	 */
+	private class ChangeRecorder implements ModelOperationVisitor {
+
+		@Override
+		public void visitInsertion(Insertion insertion) {
+			int index = insertion.getIndex();
+			int length = insertion.getChildren().size();
+			for (int[] change : changes) {
+				if (change[0] > index) {
+					change[0] += length;
+				}
+				if (change[1] >= index) {
+					change[1] += length;
+				}
+			}
+			changes.add(new int[] { index, index + length });
+		}
+
+		@Override
+		public void visitDeletion(Deletion deletion) {
+			int start = deletion.getStart();
+			int end = deletion.getEnd();
+			for (int[] change : changes) {
+				change[0] = move(change[0], start, end);
+				change[1] = move(change[1], start, end);
+			}
+			changes.add(new int[] { start, start });
+		}
+
+		private int move(int index, int start, int end) {
+			if (index <= start) {
+				return index;
+			} else if (index >= end) {
+				return index - (end - start);
+			} else {
+				return start;
+			}
+		}
+
+		@Override
+		public void visitReplacement(Replacement replacement) {
+			changes.add(new int[] { replacement.getIndex(),
+					replacement.getIndex() + 1 });
+		}
+
+		@Override
+		public void visitZoneModification(ZoneModification modification) {
+			changes.add(new int[] { modification.getStart(),
+					modification.getEnd() });
+		}
+
+		@Override
+		public void visitModification(Modification modification) {
+			textChanged = true;
+		}
+
+		@Override
+		public void visitChildOperation(ChildOperation operation) {
+			textChanged = true;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package jsesh.editor;
+
+/**
+ * Listener for the progress of a {@link SearchSession}.
+ *
+ * @author rosmord
+ */
+public interface SearchSessionListener {
+
+	/**
+	 * Called on the event dispatch thread when matches have been found or
+	 * removed, and when the search is done.
+	 *
+	 * @param session the search session.
+	 */
+	void matchesChanged(SearchSession session);
+}
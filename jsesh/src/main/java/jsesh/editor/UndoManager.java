@@ -39,48 +39,108 @@ package jsesh.editor;
 import java.util.Stack;
 
 import jsesh.editor.command.MDCCommand;
+import jsesh.editor.command.UndoHistoryFile;
 
 /**
  * Rather standard undo manager for managing commands.
  * 
  * Basic behaviour : 
  * <ul>
- * <li> Infinite undo/redo capability.
+ * <li> Undo/redo capability, limited to a maximal number of commands.
  * <li> Some actions will clear the stack, though (opening new text?)
  * <li> As long as there are no "undo" calls, everything is simple. Just push commands.
  * <li> When starting to undo stuff, we shall have two stacks : undo and redo.
  * <li> undo or redo push the command on the "other" stack.
  * <li> we always undo or redo the last command undone or redone.
  * <li> any action different from undo/redo will clear the redo stack.
+ * <li> consecutive sign insertions are grouped, and undone together.
+ * <li> when the commands use too much memory, the data of the oldest ones
+ * (deleted elements) is moved to a temporary file.
  * </ul>
  * @author rosmord
  */
 class UndoManager {
 	
+	/**
+	 * Default maximal number of commands which can be undone.
+	 */
+	public static final int DEFAULT_MAXIMAL_COMMANDS = 1000;
+
+	/**
+	 * Default maximal memory used by the commands, in bytes (estimated).
+	 */
+	public static final long DEFAULT_MAXIMAL_MEMORY = 8L * 1024 * 1024;
+
 	//private boolean textChanged= false;
 	private Stack<MDCCommand> commands= new Stack<MDCCommand>(); // Stack of MDCCommand
 	private Stack<MDCCommand> undoneCommands= new Stack<MDCCommand>(); // Stack of MDCCommand
 	
+	private int maximalCommands= DEFAULT_MAXIMAL_COMMANDS;
+
+	private long maximalMemory= DEFAULT_MAXIMAL_MEMORY;
+
+	/**
+	 * Number of commands, at the bottom of the stack, whose data has been
+	 * moved to the history file.
+	 */
+	private int spilledCommands= 0;
+
+	/**
+	 * Estimated memory used by the other commands in the stack.
+	 */
+	private long memorySize= 0;
+
+	private UndoHistoryFile historyFile= null;
+
+	/**
+	 * True if commands have been forgotten since the history was cleared: the
+	 * text can't be clean again.
+	 */
+	private boolean truncated= false;
+
+	/**
+	 * Can the next command be grouped with the last one ? Not after an undo
+	 * or a redo.
+	 */
+	private boolean canCoalesce= false;
+
 	/**
 	 * Add a new command to the UndoManager.
 	 * @param newCommand
 	 */
 	public void doCommand(MDCCommand newCommand) {
 		undoneCommands.clear();
-		commands.push(newCommand);
 		newCommand.doCommand();
+		MDCCommand merged= null;
+		if (canCoalesce && ! commands.isEmpty()) {
+			// The last command is never spilled.
+			long lastSize= commands.peek().getEstimatedSize();
+			merged= commands.peek().coalesce(newCommand);
+			if (merged != null) {
+				commands.set(commands.size() - 1, merged);
+				memorySize+= merged.getEstimatedSize() - lastSize;
+			}
+		}
+		if (merged == null) {
+			pushCommand(newCommand);
+		}
+		canCoalesce= true;
+		trim();
 	}
 	
 	public void undoCommand() {
-		MDCCommand command = commands.pop();
+		MDCCommand command = popCommand();
 		undoneCommands.push(command);
 		command.undoCommand();
+		canCoalesce= false;
 	}
 	
 	public void redo() {
 		MDCCommand command= undoneCommands.pop();
-		commands.push(command);
 		command.doCommand();
+		pushCommand(command);
+		canCoalesce= false;
+		trim();
 	}
 	
 	public boolean canUndo() {
@@ -98,9 +158,103 @@ class UndoManager {
 		//textChanged= false;
 		commands.clear();
 		undoneCommands.clear();		
+		spilledCommands= 0;
+		memorySize= 0;
+		truncated= false;
+		canCoalesce= false;
+		if (historyFile != null) {
+			historyFile.close();
+			historyFile= null;
+		}
 	}
 	
 	public boolean isClean() {
-		return commands.isEmpty();
+		return commands.isEmpty() && ! truncated;
+	}
+
+	/**
+	 * Sets the maximal number of commands which can be undone. Older
+	 * commands are forgotten.
+	 * @param maximalCommands a positive number.
+	 */
+	public void setMaximalCommands(int maximalCommands) {
+		if (maximalCommands < 1) {
+			throw new IllegalArgumentException("At least one command must be kept");
+		}
+		this.maximalCommands = maximalCommands;
+		trim();
+	}
+
+	public int getMaximalCommands() {
+		return maximalCommands;
+	}
+
+	/**
+	 * Sets the (estimated) memory the commands can use. The data of the
+	 * oldest commands is moved to a temporary file.
+	 * @param maximalMemory a size in bytes.
+	 */
+	public void setMaximalMemory(long maximalMemory) {
+		this.maximalMemory = maximalMemory;
+		trim();
+	}
+
+	public long getMaximalMemory() {
+		return maximalMemory;
+	}
+
+	/**
+	 * @return the estimated memory used by the commands kept in memory.
+	 */
+	long getMemorySize() {
+		return memorySize;
+	}
+
+	/**
+	 * @return the number of commands which can be undone.
+	 */
+	int getNumberOfCommands() {
+		return commands.size();
+	}
+
+	private void pushCommand(MDCCommand command) {
+		commands.push(command);
+		memorySize+= command.getEstimatedSize();
+	}
+
+	private MDCCommand popCommand() {
+		MDCCommand command= commands.pop();
+		if (commands.size() < spilledCommands) {
+			spilledCommands--;
+		} else {
+			memorySize-= command.getEstimatedSize();
+		}
+		return command;
+	}
+
+	/**
+	 * Forgets the oldest commands, and spills the data of the oldest ones
+	 * kept, so that the history stays in its limits.
+	 */
+	private void trim() {
+		while (commands.size() > maximalCommands) {
+			MDCCommand command= commands.remove(0);
+			if (spilledCommands > 0) {
+				spilledCommands--;
+			} else {
+				memorySize-= command.getEstimatedSize();
+			}
+			truncated= true;
+		}
+		// The last command stays in memory, as it can be coalesced.
+		while (memorySize > maximalMemory && spilledCommands < commands.size() - 1) {
+			MDCCommand command= commands.get(spilledCommands);
+			memorySize-= command.getEstimatedSize();
+			if (historyFile == null) {
+				historyFile= new UndoHistoryFile();
+			}
+			command.spill(historyFile);
+			spilledCommands++;
+		}
 	}
-}
\ No newline at end of file
+}
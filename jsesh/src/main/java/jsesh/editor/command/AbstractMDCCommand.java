@@ -33,12 +33,27 @@ knowledge of the CeCILL license and that you accept its terms.
  */
 package jsesh.editor.command;
 
+import java.util.List;
+
+import jsesh.mdc.model.ModelElement;
+import jsesh.mdc.model.TopItem;
+
 /**
  * Command for the undo/redo system.
  * @author rosmord
  *
  */
 abstract class AbstractMDCCommand implements MDCCommand {
+	/**
+	 * Rough memory size of a command, in bytes.
+	 */
+	static final long COMMAND_SIZE = 32;
+
+	/**
+	 * Rough memory size of an element of the model, in bytes.
+	 */
+	static final long ELEMENT_SIZE = 96;
+
 	/**
 	 * Was this command applied on a "clean" text ?
 	 */
@@ -70,4 +85,87 @@ abstract class AbstractMDCCommand implements MDCCommand {
 	public boolean isFirstCommand() {
 		return firstCommand;
 	}
+
+	public long getEstimatedSize() {
+		return COMMAND_SIZE;
+	}
+
+	public void spill(UndoHistoryFile file) {
+	}
+
+	/**
+	 * Merges two sign insertions if the second one inserts its sign just
+	 * after the first one, or replaces the sign it inserted (when grouping
+	 * signs).
+	 * 
+	 * @see jsesh.editor.command.MDCCommand#coalesce(MDCCommand)
+	 */
+	public MDCCommand coalesce(MDCCommand next) {
+		if (!(next instanceof AbstractMDCCommand)) {
+			return null;
+		}
+		AbstractMDCCommand other = (AbstractMDCCommand) next;
+		int end = getInsertionEnd();
+		int start = other.getInsertionStart();
+		if (end < 0 || start < 0 || other.getInsertionEnd() < 0
+				|| start < end - 1 || start > end) {
+			return null;
+		}
+		return merge(other);
+	}
+
+	/**
+	 * Builds a group of sign insertions with this command and the next one.
+	 * 
+	 * @param next
+	 * @return the new group.
+	 */
+	MDCCommand merge(AbstractMDCCommand next) {
+		CompositeCommand group = new CompositeCommand(isFirstCommand(), true);
+		group.addCommand(this);
+		group.addCommand(next);
+		return group;
+	}
+
+	/**
+	 * If this command inserts a sign, possibly replacing the one just before,
+	 * returns the index of the first position it changes.
+	 * 
+	 * @return an index, or -1 for other commands.
+	 */
+	int getInsertionStart() {
+		return -1;
+	}
+
+	/**
+	 * If this command inserts a sign, returns the index of the position after
+	 * this sign.
+	 * 
+	 * @return an index, or -1 for other commands.
+	 */
+	int getInsertionEnd() {
+		return -1;
+	}
+
+	/**
+	 * Estimates the memory used by a list of elements.
+	 * 
+	 * @param items
+	 * @return an estimated size in bytes.
+	 */
+	static long estimateSize(List<TopItem> items) {
+		long count = 0;
+		for (TopItem item : items) {
+			count += countElements(item);
+		}
+		return count * ELEMENT_SIZE;
+	}
+
+	private static long countElements(ModelElement element) {
+		long count = 1;
+		for (int i = 0; i < element.getNumberOfChildren(); i++) {
+			count += countElements(element.getChildAt(i));
+		}
+		return count;
+	}
 }
\ No newline at end of file
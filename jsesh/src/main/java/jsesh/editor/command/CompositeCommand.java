@@ -36,17 +36,45 @@ package jsesh.editor.command;
 import java.util.ArrayList;
 import java.util.List;
 
-
-
+/**
+ * A command made of other commands, done in order and undone in reverse
+ * order.
+ * <p>
+ * A composite command can be a group of sign insertions, built by
+ * {@link MDCCommand#coalesce(MDCCommand)}, which can be extended with the
+ * next insertions.
+ * 
+ * @author rosmord
+ */
 class  CompositeCommand extends AbstractMDCCommand {
+	/**
+	 * Maximal number of sign insertions in a group.
+	 */
+	static final int MAXIMAL_GROUP_SIZE = 20;
+
 	private List<MDCCommand> commands= new ArrayList<MDCCommand>();
+
+	/**
+	 * Is this command a group of sign insertions?
+	 */
+	private boolean group;
 	
 	/**
 	 * Create an empty composite command.
 	 * @param firstCommand was the command applied to a clean text ?
 	 */
 	public CompositeCommand(boolean firstCommand) {
+		this(firstCommand, false);
+	}
+
+	/**
+	 * Create an empty composite command.
+	 * @param firstCommand was the command applied to a clean text ?
+	 * @param group is this command a group of sign insertions ?
+	 */
+	CompositeCommand(boolean firstCommand, boolean group) {
 		super(firstCommand);
+		this.group= group;
 	}
 	
 	public void addCommand(MDCCommand c) {commands.add(c);}
@@ -64,4 +92,68 @@ class  CompositeCommand extends AbstractMDCCommand {
 			c.undoCommand();
 		}
 	}
-}
\ No newline at end of file
+
+	public long getEstimatedSize() {
+		long size= COMMAND_SIZE;
+		for (MDCCommand c : commands) {
+			size+= c.getEstimatedSize();
+		}
+		return size;
+	}
+
+	public void spill(UndoHistoryFile file) {
+		for (MDCCommand c : commands) {
+			c.spill(file);
+		}
+	}
+
+	MDCCommand merge(AbstractMDCCommand next) {
+		if (!group) {
+			return super.merge(next);
+		} else if (commands.size() < MAXIMAL_GROUP_SIZE) {
+			addCommand(next);
+			return this;
+		} else {
+			// The group is full: the next insertion starts a new one.
+			return null;
+		}
+	}
+
+	/**
+	 * A composite is an insertion if it's made of insertions, and of
+	 * deletions of at most one sign (the replacement of a sign by a group).
+	 */
+	int getInsertionStart() {
+		int start= -1;
+		for (int i= 0; i < commands.size(); i++) {
+			MDCCommand c= commands.get(i);
+			int s;
+			if (c instanceof RemoveCommand && ((RemoveCommand) c).getLength() <= 1) {
+				s= ((RemoveCommand) c).getStart();
+			} else if (c instanceof AbstractMDCCommand) {
+				s= ((AbstractMDCCommand) c).getInsertionStart();
+			} else {
+				s= -1;
+			}
+			if (s < 0) {
+				return -1;
+			}
+			if (i == 0) {
+				start= s;
+			}
+		}
+		return start;
+	}
+
+	int getInsertionEnd() {
+		if (getInsertionStart() < 0) {
+			return -1;
+		}
+		MDCCommand last= commands.get(commands.size()-1);
+		if (last instanceof AbstractMDCCommand) {
+			return ((AbstractMDCCommand) last).getInsertionEnd();
+		} else {
+			return -1;
+		}
+	}
+}
@@ -47,9 +47,11 @@ import jsesh.mdc.model.TopItemList;
 class InsertCommand extends AbstractMDCCommand {
 
 	/**
-	 * The cadrats to add.
+	 * The cadrats to add. Null when the command has been spilled: they are
+	 * then in the text, and will be got back from it when undoing.
 	 */
 	private List<TopItem> newCadrats;
+	private int size;
 	private MDCPosition position;
 	private TopItemList topItemList;
 	
@@ -65,6 +67,7 @@ class InsertCommand extends AbstractMDCCommand {
 		super(firstCommand);
 		this.topItemList= topItemList;
 		this.newCadrats= newCadrats;
+		this.size= newCadrats.size();
 		this.position= position;
 	}
 
@@ -72,8 +75,29 @@ class InsertCommand extends AbstractMDCCommand {
 		topItemList.addAllAt(position.getIndex(),newCadrats);
 	}
 
+	@SuppressWarnings("unchecked")
 	public void undoCommand() {
-		topItemList.removeTopItems(position.getIndex(), position.getIndex()+ newCadrats.size());
+		newCadrats= topItemList.removeTopItems(position.getIndex(), position.getIndex()+ size);
+	}
+
+	public void spill(UndoHistoryFile file) {
+		newCadrats= null;
+	}
+
+	/**
+	 * Only the insertion of one sign (not a line or page break) is a sign
+	 * insertion.
+	 */
+	int getInsertionStart() {
+		if (newCadrats == null || size != 1 || newCadrats.get(0).isBreak()) {
+			return -1;
+		}
+		return position.getIndex();
+	}
+
+	int getInsertionEnd() {
+		int start= getInsertionStart();
+		return start < 0 ? -1 : start + size;
 	}
 
 }
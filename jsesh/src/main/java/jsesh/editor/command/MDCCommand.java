@@ -46,4 +46,33 @@ public interface MDCCommand {
 
 	public abstract boolean isFirstCommand();
 
+	/**
+	 * Estimates the memory used by the data this command keeps to be undone
+	 * (for instance, the deleted elements).
+	 * 
+	 * @return an estimated size in bytes.
+	 */
+	public abstract long getEstimatedSize();
+
+	/**
+	 * Moves the data kept by a command which has been done to a history file,
+	 * in order to free memory. The command will read it back if it is undone.
+	 * <p>
+	 * If the data can't be written, it stays in memory.
+	 * 
+	 * @param file
+	 */
+	public abstract void spill(UndoHistoryFile file);
+
+	/**
+	 * Tries to merge this command with the one done just after it, so that
+	 * they will be undone together. Only consecutive sign insertions are
+	 * merged.
+	 * 
+	 * @param next a command done just after this one.
+	 * @return the merged command (possibly this one), or null if the commands
+	 *         can't be merged.
+	 */
+	public abstract MDCCommand coalesce(MDCCommand next);
+
 }
\ No newline at end of file
@@ -33,6 +33,7 @@ knowledge of the CeCILL license and that you accept its terms.
  */
 package jsesh.editor.command;
 
+import java.io.IOException;
 import java.util.List;
 
 import jsesh.mdc.model.MDCPosition;
@@ -53,9 +54,19 @@ class RemoveCommand extends AbstractMDCCommand {
 	
 	
 	/**
-	 * The deleted elements.
+	 * The deleted elements. Null if they have been written to the history
+	 * file.
 	 */
 	private List<TopItem> deletedElements;
+
+	private long estimatedSize= COMMAND_SIZE;
+
+	/**
+	 * The file where the deleted elements have been written, if any.
+	 */
+	private UndoHistoryFile historyFile= null;
+
+	private long historyPosition;
 	
 	/**
 	 * The text which will be modified. 
@@ -77,12 +88,51 @@ class RemoveCommand extends AbstractMDCCommand {
 		deletedElements= null;
 	}
 	
+	@SuppressWarnings("unchecked")
 	public void doCommand() {
 		deletedElements= topItemList.removeTopItems(range[0].getIndex(), range[1].getIndex());
+		estimatedSize= COMMAND_SIZE + estimateSize(deletedElements);
 	}
 	
 	public void undoCommand() {
+		if (historyFile != null) {
+			try {
+				deletedElements= historyFile.readItems(historyPosition);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			historyFile= null;
+		}
 		topItemList.addAllAt(range[0].getIndex(), deletedElements);
 	}
+
+	public long getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	public void spill(UndoHistoryFile file) {
+		if (deletedElements == null || deletedElements.isEmpty()) {
+			return;
+		}
+		try {
+			long p= file.writeItems(deletedElements);
+			if (p >= 0) {
+				historyFile= file;
+				historyPosition= p;
+				deletedElements= null;
+				estimatedSize= COMMAND_SIZE;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	int getStart() {
+		return range[0].getIndex();
+	}
+
+	int getLength() {
+		return range[1].getIndex() - range[0].getIndex();
+	}
 	
 }
@@ -0,0 +1,131 @@
+package jsesh.editor.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.model.TopItem;
+import jsesh.mdc.model.TopItemList;
+
+/**
+ * A temporary file where the oldest commands of an undo history keep their
+ * data.
+ * <p>
+ * The elements are written in Manuel de Codage, which takes a few bytes per
+ * sign, where the model takes a few hundred. The file only grows, and is
+ * deleted when the history is cleared. It is created when the first elements
+ * are written.
+ *
+ * @author rosmord
+ */
+public final class UndoHistoryFile {
+
+	private File file = null;
+
+	private RandomAccessFile data = null;
+
+	public UndoHistoryFile() {
+	}
+
+	/**
+	 * Writes a list of elements, which can be read back by
+	 * {@link #readItems(long)}.
+	 * <p>
+	 * The elements are checked to be exactly the same when read back. They are
+	 * not changed by this method.
+	 *
+	 * @param items detached top items.
+	 * @return the position of the elements in the file, or -1 if they can't be
+	 *         written as Manuel de Codage.
+	 * @throws IOException
+	 */
+	long writeItems(List<TopItem> items) throws IOException {
+		TopItemList list = new TopItemList();
+		list.addAll(items);
+		String mdc = list.toMdC();
+		list.removeTopItems(0, items.size());
+		try {
+			List<TopItem> copy = parse(mdc);
+			if (copy.size() != items.size()) {
+				return -1;
+			}
+			for (int i = 0; i < copy.size(); i++) {
+				if (copy.get(i).compareTo(items.get(i)) != 0) {
+					return -1;
+				}
+			}
+		} catch (MDCSyntaxError e) {
+			return -1;
+		}
+		return write(mdc);
+	}
+
+	/**
+	 * Reads elements written by {@link #writeItems(List)}.
+	 *
+	 * @param position the position returned by writeItems.
+	 * @return new top items.
+	 * @throws IOException
+	 */
+	List<TopItem> readItems(long position) throws IOException {
+		String mdc = read(position);
+		try {
+			return parse(mdc);
+		} catch (MDCSyntaxError e) {
+			throw new IOException("Corrupted undo history", e);
+		}
+	}
+
+	/**
+	 * Deletes the file. The history file can still be used afterwards, with a
+	 * new file.
+	 */
+	public void close() {
+		if (data != null) {
+			try {
+				data.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			file.delete();
+			data = null;
+			file = null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<TopItem> parse(String mdc) throws MDCSyntaxError {
+		TopItemList list = MDCParserModelGenerator.getThreadGenerator(
+				Dialect.OTHER).parse(mdc);
+		return list.removeTopItems(0, list.getNumberOfChildren());
+	}
+
+	private long write(String text) throws IOException {
+		if (data == null) {
+			file = File.createTempFile("jseshUndo", ".mdc");
+			file.deleteOnExit();
+			data = new RandomAccessFile(file, "rw");
+		}
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		long position = data.length();
+		data.seek(position);
+		data.writeInt(bytes.length);
+		data.write(bytes);
+		return position;
+	}
+
+	private String read(long position) throws IOException {
+		if (data == null) {
+			throw new IOException("No undo history file");
+		}
+		data.seek(position);
+		byte[] bytes = new byte[data.readInt()];
+		data.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,337 @@
+package jsesh.editor.latency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jsesh.Version;
+
+/**
+ * Measures the time spent in each stage of the edition pipeline of the
+ * editors, from a typed key to the painting of the result.
+ * <p>
+ * Stages are bracketed by {@link #begin(EditorStage)} and
+ * {@link #end(EditorStage)}, which should be called in a finally block. They
+ * can be nested, and each stage only records its own time, without the time
+ * of the stages nested inside it. Measures cost two calls to
+ * {@link System#nanoTime()}; they can be disabled with
+ * {@link #setEnabled(boolean)}, or with the system property
+ * <code>jsesh.latency=false</code>.
+ * <p>
+ * The histograms can be read through JMX, under the name
+ * {@value #OBJECT_NAME}, shown in an {@link EditorLatencyPanel}, or written to
+ * a file for bug reports.
+ *
+ * @author rosmord
+ */
+public final class EditorLatency implements EditorLatencyMXBean {
+
+	public static final String OBJECT_NAME = "jsesh:type=EditorLatency";
+
+	/**
+	 * A typed key not followed by a painting for this time is forgotten.
+	 */
+	private static final long KEYSTROKE_TIMEOUT = 5000000000L;
+
+	private static EditorLatency instance = null;
+
+	private final EnumMap<EditorStage, LatencyHistogram> histograms = new EnumMap<EditorStage, LatencyHistogram>(
+			EditorStage.class);
+
+	private volatile boolean enabled;
+
+	/**
+	 * The stages in progress, for each thread.
+	 */
+	private final ThreadLocal<ArrayDeque<Frame>> frames = new ThreadLocal<ArrayDeque<Frame>>() {
+		@Override
+		protected ArrayDeque<Frame> initialValue() {
+			return new ArrayDeque<Frame>();
+		}
+	};
+
+	/**
+	 * Start of the handling of the first key typed since the last painting,
+	 * or -1. Only used on the event dispatch thread.
+	 */
+	private long keystrokeStart = -1;
+
+	EditorLatency() {
+		for (EditorStage stage : EditorStage.values()) {
+			histograms.put(stage, new LatencyHistogram());
+		}
+		enabled = !"false".equals(System.getProperty("jsesh.latency"));
+	}
+
+	/**
+	 * Returns the latency measures shared by all editors. They are registered
+	 * with the platform MBean server when first used.
+	 *
+	 * @return the latency measures.
+	 */
+	public static synchronized EditorLatency getInstance() {
+		if (instance == null) {
+			instance = new EditorLatency();
+			instance.register();
+		}
+		return instance;
+	}
+
+	private void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName(OBJECT_NAME));
+		} catch (JMException | SecurityException e) {
+			Logger.getLogger(EditorLatency.class.getName()).log(Level.WARNING,
+					"Can't register the editor latency MBean", e);
+		}
+	}
+
+	/**
+	 * Starts measuring a stage.
+	 *
+	 * @param stage
+	 */
+	public void begin(EditorStage stage) {
+		if (enabled) {
+			frames.get().push(new Frame(stage, System.nanoTime()));
+		}
+	}
+
+	/**
+	 * Ends the measure of a stage, started by {@link #begin(EditorStage)} on
+	 * the same thread.
+	 *
+	 * @param stage
+	 */
+	public void end(EditorStage stage) {
+		ArrayDeque<Frame> stack = frames.get();
+		if (!isStarted(stack, stage)) {
+			// Begun while the measures were disabled.
+			return;
+		}
+		long now = System.nanoTime();
+		while (!stack.isEmpty()) {
+			Frame frame = stack.pop();
+			long elapsed = now - frame.start;
+			if (!stack.isEmpty()) {
+				stack.peek().nested += elapsed;
+			}
+			if (frame.stage == stage) {
+				histograms.get(stage).record(elapsed - frame.nested);
+				return;
+			}
+			// A stage was not ended, probably because of an exception.
+		}
+	}
+
+	private static boolean isStarted(ArrayDeque<Frame> stack, EditorStage stage) {
+		for (Frame frame : stack) {
+			if (frame.stage == stage) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Records a duration measured elsewhere.
+	 *
+	 * @param stage
+	 * @param nanos the duration in nanoseconds.
+	 */
+	public void record(EditorStage stage, long nanos) {
+		if (enabled) {
+			histograms.get(stage).record(nanos);
+		}
+	}
+
+	/**
+	 * Called when the handling of a typed key starts, on the event dispatch
+	 * thread.
+	 *
+	 * @param eventTime the time of the key event, as returned by
+	 *            {@link java.awt.event.InputEvent#getWhen()}.
+	 */
+	public void keyTyped(long eventTime) {
+		if (enabled) {
+			long now = System.nanoTime();
+			record(EditorStage.EVENT_QUEUE,
+					(System.currentTimeMillis() - eventTime) * 1000000L);
+			if (keystrokeStart == -1 || now - keystrokeStart > KEYSTROKE_TIMEOUT) {
+				keystrokeStart = now;
+			}
+		}
+	}
+
+	/**
+	 * Called when an editor has been painted, on the event dispatch thread.
+	 */
+	public void painted() {
+		if (keystrokeStart != -1) {
+			record(EditorStage.KEYSTROKE, System.nanoTime() - keystrokeStart);
+			keystrokeStart = -1;
+		}
+	}
+
+	public LatencyHistogram getHistogram(EditorStage stage) {
+		return histograms.get(stage);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			keystrokeStart = -1;
+		}
+	}
+
+	@Override
+	public String[] getStageNames() {
+		EditorStage[] stages = EditorStage.values();
+		String[] names = new String[stages.length];
+		for (int i = 0; i < stages.length; i++) {
+			names[i] = stages[i].name();
+		}
+		return names;
+	}
+
+	@Override
+	public long getCount(String stage) {
+		return getHistogram(EditorStage.valueOf(stage)).getCount();
+	}
+
+	@Override
+	public double getMedianMillis(String stage) {
+		return getHistogram(EditorStage.valueOf(stage))
+				.getPercentileMillis(50);
+	}
+
+	@Override
+	public double getPercentile99Millis(String stage) {
+		return getHistogram(EditorStage.valueOf(stage))
+				.getPercentileMillis(99);
+	}
+
+	@Override
+	public double getMaxMillis(String stage) {
+		return getHistogram(EditorStage.valueOf(stage)).getMaxMillis();
+	}
+
+	@Override
+	public String getReport() {
+		StringWriter writer = new StringWriter();
+		try (PrintWriter out = new PrintWriter(writer)) {
+			writeReport(out, false);
+		}
+		return writer.toString();
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyHistogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+
+	@Override
+	public void dump(String fileName) throws IOException {
+		dump(new File(fileName));
+	}
+
+	/**
+	 * Writes the full report, with the histograms, to a file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void dump(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file,
+				StandardCharsets.UTF_8.name())) {
+			writeReport(out, true);
+			if (out.checkError()) {
+				throw new IOException("Can't write " + file);
+			}
+		}
+	}
+
+	/**
+	 * Writes a report on the measures.
+	 *
+	 * @param out
+	 * @param withBuckets if true, the histograms are written too.
+	 */
+	public void writeReport(PrintWriter out, boolean withBuckets) {
+		out.println("JSesh editor latency (ms)");
+		out.println("Version: " + getVersion());
+		out.println("Date: " + new Date());
+		out.println("Java: " + System.getProperty("java.version") + ", "
+				+ System.getProperty("os.name") + " "
+				+ System.getProperty("os.version"));
+		if (!enabled) {
+			out.println("Measures disabled");
+		}
+		out.println(String.format(Locale.ROOT,
+				"%-22s %8s %9s %9s %9s %9s %9s", "Stage", "Count", "Mean",
+				"p50", "p90", "p99", "Max"));
+		for (EditorStage stage : EditorStage.values()) {
+			LatencyHistogram histogram = histograms.get(stage);
+			out.println(String.format(Locale.ROOT,
+					"%-22s %8d %9.3f %9.3f %9.3f %9.3f %9.3f", stage.name(),
+					histogram.getCount(), histogram.getMeanMillis(),
+					histogram.getPercentileMillis(50),
+					histogram.getPercentileMillis(90),
+					histogram.getPercentileMillis(99),
+					histogram.getMaxMillis()));
+		}
+		if (withBuckets) {
+			for (EditorStage stage : EditorStage.values()) {
+				out.println();
+				out.println(stage.name());
+				histograms.get(stage).writeBuckets(out);
+			}
+		}
+	}
+
+	private static String getVersion() {
+		try {
+			return Version.getVersion();
+		} catch (RuntimeException e) {
+			return "unknown";
+		}
+	}
+
+	private static final class Frame {
+
+		final EditorStage stage;
+
+		final long start;
+
+		/**
+		 * Time spent in the stages nested in this one.
+		 */
+		long nested = 0;
+
+		Frame(EditorStage stage, long start) {
+			this.stage = stage;
+			this.start = start;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package jsesh.editor.latency;
+
+import java.io.IOException;
+
+/**
+ * Management interface of {@link EditorLatency}, registered as
+ * <code>jsesh:type=EditorLatency</code>.
+ * <p>
+ * Stages are designated by the names of the {@link EditorStage} constants.
+ *
+ * @author rosmord
+ */
+public interface EditorLatencyMXBean {
+
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	String[] getStageNames();
+
+	long getCount(String stage);
+
+	double getMedianMillis(String stage);
+
+	double getPercentile99Millis(String stage);
+
+	double getMaxMillis(String stage);
+
+	/**
+	 * @return a summary of all stages, as text.
+	 */
+	String getReport();
+
+	void reset();
+
+	/**
+	 * Writes the full report, with the histograms, to a file.
+	 *
+	 * @param fileName the file name.
+	 * @throws IOException
+	 */
+	void dump(String fileName) throws IOException;
+}
@@ -0,0 +1,138 @@
+package jsesh.editor.latency;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * A debugging panel, which shows the latency of the stages of edition, and
+ * can save them for a bug report.
+ * <p>
+ * The figures are refreshed every second while the panel is displayed.
+ *
+ * @author rosmord
+ */
+public class EditorLatencyPanel extends JPanel {
+
+	private static final long serialVersionUID = 2317755316408315441L;
+
+	private static final String[] COLUMNS = { "Stage", "Count", "Mean (ms)",
+			"p50 (ms)", "p99 (ms)", "Max (ms)" };
+
+	private final EditorLatency latency;
+
+	private final LatencyTableModel tableModel = new LatencyTableModel();
+
+	private final Timer refreshTimer;
+
+	public EditorLatencyPanel() {
+		this(EditorLatency.getInstance());
+	}
+
+	public EditorLatencyPanel(EditorLatency latency) {
+		super(new BorderLayout());
+		this.latency = latency;
+		JTable table = new JTable(tableModel);
+		table.setPreferredScrollableViewportSize(table.getPreferredSize());
+		add(new JScrollPane(table), BorderLayout.CENTER);
+
+		JCheckBox enabledBox = new JCheckBox("Measure", latency.isEnabled());
+		enabledBox.addActionListener(e -> latency.setEnabled(enabledBox
+				.isSelected()));
+		JButton resetButton = new JButton("Reset");
+		resetButton.addActionListener(e -> {
+			latency.reset();
+			tableModel.fireTableDataChanged();
+		});
+		JButton saveButton = new JButton("Save report...");
+		saveButton.addActionListener(e -> saveReport());
+		JPanel buttons = new JPanel(new FlowLayout(FlowLayout.TRAILING));
+		buttons.add(enabledBox);
+		buttons.add(resetButton);
+		buttons.add(saveButton);
+		add(buttons, BorderLayout.SOUTH);
+
+		refreshTimer = new Timer(1000, e -> tableModel.fireTableDataChanged());
+	}
+
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		refreshTimer.start();
+	}
+
+	@Override
+	public void removeNotify() {
+		refreshTimer.stop();
+		super.removeNotify();
+	}
+
+	private void saveReport() {
+		JFileChooser chooser = new JFileChooser();
+		chooser.setSelectedFile(new File("jseshLatency.txt"));
+		if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+			try {
+				latency.dump(chooser.getSelectedFile());
+			} catch (IOException e) {
+				JOptionPane.showMessageDialog(this, e.getMessage(),
+						"Can't save the report", JOptionPane.ERROR_MESSAGE);
+			}
+		}
+	}
+
+	private class LatencyTableModel extends AbstractTableModel {
+
+		private static final long serialVersionUID = -3709040829466924375L;
+
+		@Override
+		public int getRowCount() {
+			return EditorStage.values().length;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return COLUMNS[column];
+		}
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			EditorStage stage = EditorStage.values()[row];
+			LatencyHistogram histogram = latency.getHistogram(stage);
+			switch (column) {
+			case 0:
+				return stage.getLabel();
+			case 1:
+				return histogram.getCount();
+			case 2:
+				return format(histogram.getMeanMillis());
+			case 3:
+				return format(histogram.getPercentileMillis(50));
+			case 4:
+				return format(histogram.getPercentileMillis(99));
+			default:
+				return format(histogram.getMaxMillis());
+			}
+		}
+
+		private String format(double millis) {
+			return String.format(Locale.ROOT, "%.3f", millis);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package jsesh.editor.latency;
+
+/**
+ * The stages of the edition pipeline of an editor, whose durations are
+ * measured by {@link EditorLatency}.
+ * <p>
+ * The stages can be nested; the time recorded for a stage doesn't include
+ * the time spent in the stages inside it, except for {@link #KEYSTROKE},
+ * which covers the whole handling of a typed key.
+ *
+ * @author rosmord
+ */
+public enum EditorStage {
+
+	/**
+	 * Time between a key press and the start of its handling: this is the time
+	 * the key event waited in the event queue.
+	 */
+	EVENT_QUEUE("Event queue"),
+	/**
+	 * Handling of a typed key by the editor (key manager and workflow).
+	 */
+	KEY("Key handling"),
+	/**
+	 * Search of the signs corresponding to a code.
+	 */
+	POSSIBILITIES("Possibilities"),
+	/**
+	 * Execution of an edition command on the model.
+	 */
+	COMMAND("Model command"),
+	/**
+	 * Update of the views after an edit.
+	 */
+	VIEW_UPDATE("View update"),
+	/**
+	 * Layout of the views.
+	 */
+	LAYOUT("Layout"),
+	/**
+	 * Painting of the editor.
+	 */
+	PAINT("Painting"),
+	/**
+	 * Time from the handling of a typed key to the end of the next painting.
+	 */
+	KEYSTROKE("Keystroke to screen");
+
+	private final String label;
+
+	private EditorStage(String label) {
+		this.label = label;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+}
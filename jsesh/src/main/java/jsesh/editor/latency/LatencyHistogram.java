@@ -0,0 +1,129 @@
+package jsesh.editor.latency;
+
+import java.io.PrintWriter;
+
+/**
+ * A histogram of durations, with a bounded relative error.
+ * <p>
+ * Durations are counted in microseconds, in buckets whose width grows with
+ * the duration: there are 16 buckets for each power of two, so the
+ * percentiles are known within about 6%. The histogram takes a few kilobytes,
+ * whatever the number of recorded values.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author rosmord
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Number of bits for the buckets inside a power of two.
+	 */
+	private static final int SUB_BITS = 4;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+
+	private long count = 0;
+
+	private long total = 0;
+
+	private long max = 0;
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos the duration in nanoseconds.
+	 */
+	public synchronized void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		counts[getBucket(micros)]++;
+		count++;
+		total += micros;
+		max = Math.max(max, micros);
+	}
+
+	public synchronized void reset() {
+		java.util.Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean duration in milliseconds, or 0 if nothing was recorded.
+	 */
+	public synchronized double getMeanMillis() {
+		return count == 0 ? 0 : total / (count * 1000.0);
+	}
+
+	/**
+	 * @return the longest duration in milliseconds.
+	 */
+	public synchronized double getMaxMillis() {
+		return max / 1000.0;
+	}
+
+	/**
+	 * Returns a percentile of the recorded durations.
+	 *
+	 * @param percent the percentage of durations below the result, between 0
+	 *            and 100.
+	 * @return a duration in milliseconds, or 0 if nothing was recorded.
+	 */
+	public synchronized double getPercentileMillis(double percent) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * Math.min(100, percent) / 100.0);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= Math.max(1, rank)) {
+				return Math.min(getBucketTop(i), max) / 1000.0;
+			}
+		}
+		return max / 1000.0;
+	}
+
+	/**
+	 * Writes the non-empty buckets, one per line, as the upper bound of the
+	 * bucket in microseconds and the number of durations in it.
+	 *
+	 * @param out
+	 */
+	public synchronized void writeBuckets(PrintWriter out) {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				out.println("\t<= " + getBucketTop(i) + " us\t" + counts[i]);
+			}
+		}
+	}
+
+	static int getBucket(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the largest value in a bucket.
+	 */
+	static long getBucketTop(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long bottom = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+		return bottom + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
@@ -35,6 +35,7 @@ package jsesh.glossary;
 
 import jsesh.mdc.MDCParserModelGenerator;
 import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
 import jsesh.mdc.model.AlphabeticText;
 import jsesh.mdc.model.TopItemList;
 
@@ -80,7 +81,8 @@ public class GlossaryEntry {
 
 	public TopItemList getTopItems() {
 		if (topItems == null) {
-			MDCParserModelGenerator parser = new MDCParserModelGenerator();
+			MDCParserModelGenerator parser = MDCParserModelGenerator
+					.getThreadGenerator(Dialect.OTHER);
 			try {
 				topItems= parser.parse(mdc);				
 			} catch (MDCSyntaxError e) {
@@ -500,7 +500,8 @@ public class ManuelDeCodage {
      * @param canonicalCode
      */
     private void putCanon(String code, String canonicalCode) {
-        canonical.put(code, canonicalCode);
+        canonical.put(SignCodeInterner.intern(code),
+                SignCodeInterner.intern(canonicalCode));
     }
 
     /**
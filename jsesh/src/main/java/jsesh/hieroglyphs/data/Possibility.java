@@ -35,6 +35,7 @@ package jsesh.hieroglyphs.data;
 
 import jsesh.mdc.MDCParserModelGenerator;
 import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
 import jsesh.mdc.model.TopItemList;
 
 /**
@@ -123,7 +124,7 @@ public final class Possibility {
 	 */
 	public TopItemList getTopItemList() {
 		if (topItemList == null) {
-			MDCParserModelGenerator gen= new MDCParserModelGenerator();
+			MDCParserModelGenerator gen= MDCParserModelGenerator.getThreadGenerator(Dialect.OTHER);
 			try {
 				topItemList= gen.parse(code);
 			} catch (MDCSyntaxError e) {
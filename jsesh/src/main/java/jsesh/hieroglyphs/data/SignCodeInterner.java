@@ -0,0 +1,64 @@
+package jsesh.hieroglyphs.data;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A global table of sign codes, so that the same code is represented by the
+ * same string everywhere: in the sign database, in the lexer, and in the
+ * signs of all loaded texts.
+ * <p>
+ * Large corpora contain millions of signs, but only a few thousand distinct
+ * codes. The table is filled by the sign database (with the codes it
+ * describes and the canonical codes of the Manuel de Codage), and with the
+ * other codes as they are met. The codes kept are also interned by the JVM,
+ * so that they are the same as the string literals in the code. Once the
+ * table is full, new codes are not interned any more, so that random codes
+ * can't use all the memory.
+ *
+ * @author rosmord
+ */
+public final class SignCodeInterner {
+
+    /**
+     * Maximal number of codes in the table.
+     */
+    static final int MAXIMAL_SIZE = 1 << 16;
+
+    private static final ConcurrentHashMap<String, String> codes = new ConcurrentHashMap<>(
+            8192);
+
+    private SignCodeInterner() {
+    }
+
+    /**
+     * Returns the shared representation of a code.
+     *
+     * @param code a sign code (may be null).
+     * @return a string equal to code.
+     */
+    public static String intern(String code) {
+        if (code == null) {
+            return null;
+        }
+        String result = codes.get(code);
+        if (result == null) {
+            if (codes.size() >= MAXIMAL_SIZE) {
+                return code;
+            }
+            // The same instance as the literals in the code.
+            String shared = code.intern();
+            result = codes.putIfAbsent(shared, shared);
+            if (result == null) {
+                result = shared;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of codes in the table.
+     */
+    public static int size() {
+        return codes.size();
+    }
+}
@@ -320,6 +320,7 @@ public class SimpleHieroglyphDatabase implements HieroglyphDatabaseInterface {
             return null;
         }
         if (!signInfoMap.containsKey(code)) {
+            code = SignCodeInterner.intern(code);
             signInfoMap.put(code, new SignInfo(code));
         }
         return signInfoMap.get(code);
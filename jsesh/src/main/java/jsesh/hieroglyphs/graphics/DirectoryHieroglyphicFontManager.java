@@ -84,7 +84,7 @@ public class DirectoryHieroglyphicFontManager implements
 		lastRefreshed = directory.lastModified();
 	}
 
-	public ShapeChar get(String code) {
+	public synchronized ShapeChar get(String code) {
 		ShapeChar result = null;
 		refreshIfNeeded();
 		if (signsMap.containsKey(code))
@@ -101,7 +101,7 @@ public class DirectoryHieroglyphicFontManager implements
 		return get(code + "_BOLD");
 	}
 
-	public Set<String> getCodes() {
+	public synchronized Set<String> getCodes() {
 		refreshIfNeeded();
 		hasNewSigns = false;
 		return codeMap.keySet();
@@ -105,7 +105,7 @@ public class ResourcesHieroglyphicFontManager extends Object implements
 		}
 	}
 
-	public ShapeChar get(String code) {
+	public synchronized ShapeChar get(String code) {
 		ShapeChar result = null;
 		if (signs.containsKey(code)) {
 			Object data = signs.get(code);
@@ -2,8 +2,10 @@ package jsesh.mdc;
 
 import java.io.Reader;
 
+import java_cup.runtime.Scanner;
 import java_cup.runtime.Symbol;
 import jsesh.mdc.interfaces.MDCBuilder;
+import jsesh.mdc.lex.MDCFastLex;
 import jsesh.mdc.lex.MDCLex;
 import jsesh.mdc.parser.MDCParse;
 
@@ -17,6 +19,11 @@ import jsesh.mdc.parser.MDCParse;
  * 
  * <p> A number of useful simple parser will be provided for usual
  * needs.
+ * 
+ * <p> A facade can parse any number of texts, one after the other. The
+ * parser and the lexer are kept and reset between them, so that reusing a
+ * facade for many short texts is cheaper than creating one for each.
+ * A facade must not be used by two threads at the same time.
  *
  * @see MDCParserModelGenerator
  */
@@ -26,6 +33,12 @@ public class MDCParserFacade {
 	private boolean debug;
 	//private MDCBuilder builder;
 	private boolean philologyAsSigns;
+	private boolean fastLexer;
+
+	/**
+	 * The hand-written lexer, kept from one parse to the next.
+	 */
+	private MDCFastLex fastLex;
 
 	/**
 	 * Build a Parser for MDC text, but without any builder; normally
@@ -36,6 +49,7 @@ public class MDCParserFacade {
 		parser = new MDCParse();
 		setDebug(false);
 		setPhilologyAsSigns(true);
+		setFastLexer(true);
 	}
 
 	/**
@@ -66,12 +80,38 @@ public class MDCParserFacade {
 	}
 
 	public Object parse(Reader in) throws MDCSyntaxError {
+		if (fastLexer) {
+			if (fastLex == null) {
+				fastLex = new MDCFastLex(in);
+			} else {
+				fastLex.reset(in);
+			}
+			fastLex.setPhilologyAsSigns(philologyAsSigns);
+			fastLex.setDebug(debug);
+			return parse(fastLex, fastLex);
+		} else {
+			MDCLex lex = new MDCLex(in);
+			lex.setPhilologyAsSigns(philologyAsSigns);
+			lex.setDebug(debug);
+			return parse(lex, lex);
+		}
+	}
+
+	/**
+	 * Parse the tokens given by a scanner.
+	 * <p> The scanner is used as is : the philology and debug settings of
+	 * this facade don't apply to it.
+	 * @param scanner the source of tokens.
+	 * @param errorManager builds the errors, usually the scanner itself.
+	 * @return the result of the builder.
+	 * @throws MDCSyntaxError
+	 * @see jsesh.mdc.lex.MDCTokenBuffer
+	 */
+	public Object parse(Scanner scanner, ParserErrorManager errorManager)
+			throws MDCSyntaxError {
 		Symbol parse_tree = null;
-		MDCLex lex = new MDCLex(in);
-		lex.setPhilologyAsSigns(philologyAsSigns);
-		lex.setDebug(debug);
-		parser.setScanner(lex);
-		parser.setErrorManager(lex);
+		parser.setScanner(scanner);
+		parser.setErrorManager(errorManager);
 		try {
 
 			if (isDebug()) {
@@ -88,6 +128,11 @@ public class MDCParserFacade {
 		 		new MDCSyntaxError("Generic Error", 0, 0,e.getMessage());
 		 		err.setStackTrace(e.getStackTrace());
 		 		throw err;	
+		} finally {
+			// Don't keep the result alive until the next parse.
+			parser.reset();
+			parser.setScanner(null);
+			parser.setErrorManager(null);
 		}
 	}
 
@@ -127,4 +172,22 @@ public class MDCParserFacade {
 		this.philologyAsSigns = v;
 	}
 
+	/**
+	 * Does the parser use the hand-written lexer ?
+	 * @return value of fastLexer.
+	 */
+	public boolean isFastLexer() {
+		return fastLexer;
+	}
+
+	/**
+	 * Choose the lexical analyser. If true (the default), use the
+	 * hand-written {@link MDCFastLex}; else, use the JLex-generated one. Both
+	 * produce the same tokens.
+	 * @param v Value to assign to fastLexer.
+	 */
+	public void setFastLexer(boolean v) {
+		this.fastLexer = v;
+	}
+
 } // MDCParserFacade
@@ -8,21 +8,53 @@ package jsesh.mdc;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import jsesh.mdc.constants.Dialect;
 import jsesh.mdc.model.MDCModelBuilder;
 import jsesh.mdc.model.TopItemList;
+import jsesh.mdc.model.TopItemState;
 
 /**
  * A Parser for MdC code which generates a model (TopItemList)
  * for the code.
+ * <p>
+ * A generator can parse many texts, one after the other. Note that the
+ * state (red, shaded...) at the end of a text is the one at the start of the
+ * next. For short texts, {@link #getThreadGenerator(Dialect)} gives a
+ * generator kept for the current thread.
  * 
  * @author rosmord
  * @see jsesh.mdc.model.TopItemList
  */
 public class MDCParserModelGenerator {
+
+	/**
+	 * Length of a text, in chars, above which it is parsed on several threads
+	 * in parallel mode. Cutting smaller texts costs more than it saves.
+	 *
+	 * @see #setParallel(boolean)
+	 */
+	public static final int PARALLEL_PARSE_SIZE = 256 * 1024;
+
 	private MDCParserFacade facade;
 
+	private Dialect dialect = Dialect.OTHER;
+
+	private boolean parallel = false;
+
+	/**
+	 * True during a parse ; used to detect reentrant uses of the generators
+	 * kept for each thread.
+	 */
+	private boolean parsing = false;
+
+	private static final ThreadLocal<Map<Dialect, MDCParserModelGenerator>> threadGenerators = ThreadLocal
+			.withInitial(() -> new EnumMap<Dialect, MDCParserModelGenerator>(
+					Dialect.class));
+
 	public MDCParserModelGenerator() {
 		facade = new MDCParserFacade(new MDCModelBuilder());
 	}
@@ -34,16 +66,91 @@ public class MDCParserModelGenerator {
 	 */
 	public MDCParserModelGenerator(Dialect dialect) {
 		facade = new MDCParserFacade(new MDCModelBuilder(dialect));
+		this.dialect = dialect;
+	}
+
+	/**
+	 * Returns a generator for the current thread, with the default settings
+	 * and state, as if it was new.
+	 * <p>
+	 * Creating a generator means creating a parser and a lexer, which costs
+	 * more than parsing a few signs. Short texts, like the ones typed in the
+	 * editor, should use this method. The generator should not be kept, as
+	 * the next call on the same thread returns it again, with new settings.
+	 * 
+	 * @param dialect
+	 * @return a generator, which must only be used by the current thread.
+	 */
+	public static MDCParserModelGenerator getThreadGenerator(Dialect dialect) {
+		Map<Dialect, MDCParserModelGenerator> generators = threadGenerators
+				.get();
+		MDCParserModelGenerator generator = generators.get(dialect);
+		if (generator == null) {
+			generator = new MDCParserModelGenerator(dialect);
+			generators.put(dialect, generator);
+		} else if (generator.parsing) {
+			// Called while a text is parsed (by the builder ?).
+			return new MDCParserModelGenerator(dialect);
+		}
+		generator.setDebug(false);
+		generator.setPhilologyAsSigns(true);
+		generator.setParallel(false);
+		((MDCModelBuilder) generator.facade.getBuilder())
+				.setCurrentState(new TopItemState());
+		return generator;
 	}
 
+	/**
+	 * Parses a text on the current thread.
+	 *
+	 * @param in
+	 * @return the list of top items.
+	 * @throws MDCSyntaxError
+	 */
 	public TopItemList parse(Reader in) throws MDCSyntaxError {
-		facade.parse(in);
-		return ((MDCModelBuilder) facade.getBuilder()).getResult();
+		MDCModelBuilder builder = (MDCModelBuilder) facade.getBuilder();
+		parsing = true;
+		try {
+			facade.parse(in);
+			TopItemList result = builder.getResult();
+			// The builder doesn't need to keep it.
+			builder.reset();
+			return result;
+		} finally {
+			parsing = false;
+		}
 	}
-	
+
+	/**
+	 * Parses a text which can be read more than once, on several threads in
+	 * parallel mode.
+	 *
+	 * @param text
+	 *            gives a reader on the text. In parallel mode, the text is
+	 *            read once, and again only to build the message of a syntax
+	 *            error.
+	 * @return the list of top items.
+	 * @throws MDCSyntaxError
+	 */
+	public TopItemList parse(Supplier<Reader> text) throws MDCSyntaxError {
+		if (!parallel || isDebug()) {
+			return parse(text.get());
+		}
+		parsing = true;
+		try {
+			return new ParallelModelParser(dialect, isPhilologyAsSigns(),
+					Runtime.getRuntime().availableProcessors()).parse(text,
+					(MDCModelBuilder) facade.getBuilder());
+		} finally {
+			parsing = false;
+		}
+	}
+
 	public TopItemList parse(String text) throws MDCSyntaxError {
-		facade.parse(new StringReader(text));
-		return ((MDCModelBuilder) facade.getBuilder()).getResult();
+		if (text.length() >= PARALLEL_PARSE_SIZE) {
+			return parse(() -> new StringReader(text));
+		}
+		return parse(new StringReader(text));
 	}
 	
 	
@@ -77,4 +184,27 @@ public class MDCParserModelGenerator {
 		facade.setPhilologyAsSigns(v);
 	}
 
+	/**
+	 * @return true if long texts are parsed on several threads.
+	 * @see #setParallel(boolean)
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Choose to parse long texts on several threads.
+	 * <p>
+	 * The text is cut at line and page ends, and the parts are parsed at the
+	 * same time. The result and the errors are the same as for a normal
+	 * parse. This is useful for large files. Only texts which can be read
+	 * again are parsed in parallel: strings of at least
+	 * {@link #PARALLEL_PARSE_SIZE} chars, and texts passed to
+	 * {@link #parse(Supplier)}. Not used in debug mode.
+	 * @param v
+	 */
+	public void setParallel(boolean v) {
+		this.parallel = v;
+	}
+
 }
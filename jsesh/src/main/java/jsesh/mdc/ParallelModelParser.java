@@ -0,0 +1,180 @@
+package jsesh.mdc;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.constants.ToggleType;
+import jsesh.mdc.lex.MDCSymbols;
+import jsesh.mdc.lex.MDCTokenBuffer;
+import jsesh.mdc.lex.MDCTokenBuffer.TokenScanner;
+import jsesh.mdc.model.MDCModelBuilder;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdc.model.TopItemState;
+
+/**
+ * Parses a long text in several parts, on several threads.
+ * <p>
+ * The text is read once, and its tokens are cut after line and page ends.
+ * As line ends can only appear in the top item list, each part of a correct
+ * text can be parsed on its own, starting in the state (red, shaded...) the
+ * previous part ended with. The lists built for the parts are then put one
+ * after the other.
+ * <p>
+ * If a part contains an error, the text is parsed again on a single parser,
+ * from the start of this part to the end, so that the error reported is
+ * exactly the one a normal parse would give. As the tokens keep their
+ * positions in the whole text, so do the errors.
+ *
+ * @author rosmord
+ * @see MDCParserModelGenerator#setParallel(boolean)
+ */
+class ParallelModelParser {
+
+	/**
+	 * Minimal number of tokens in a part. Smaller parts are not worth a
+	 * thread.
+	 */
+	static final int MINIMAL_PART_SIZE = 4096;
+
+	private final Dialect dialect;
+
+	private final boolean philologyAsSigns;
+
+	private final int numberOfThreads;
+
+	ParallelModelParser(Dialect dialect, boolean philologyAsSigns,
+			int numberOfThreads) {
+		this.dialect = dialect;
+		this.philologyAsSigns = philologyAsSigns;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Parse a text.
+	 * 
+	 * @param text
+	 *            gives a reader on the text. The text is read once, and again
+	 *            only to build the message of a syntax error.
+	 * @param stateHolder
+	 *            a builder, whose state is used at the start of the text, and
+	 *            which gets the state at the end of the text, as if it had
+	 *            parsed it.
+	 * @return the list of top items.
+	 * @throws MDCSyntaxError
+	 */
+	public TopItemList parse(Supplier<Reader> text,
+			MDCModelBuilder stateHolder) throws MDCSyntaxError {
+		MDCTokenBuffer tokens = new MDCTokenBuffer(text, philologyAsSigns);
+		List<Part> parts = split(tokens, stateHolder);
+		if (parts.size() == 1 || numberOfThreads < 2) {
+			return parse(tokens.getScanner(0, tokens.size()),
+					parts.get(0).state);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(numberOfThreads, parts.size()), r -> {
+					Thread t = new Thread(r, "MdC parser");
+					t.setDaemon(true);
+					return t;
+				});
+		List<TokenScanner> scanners = new ArrayList<TokenScanner>();
+		List<Future<TopItemList>> results = new ArrayList<Future<TopItemList>>();
+		try {
+			for (Part part : parts) {
+				TokenScanner scanner = tokens.getScanner(part.start, part.end);
+				scanners.add(scanner);
+				results.add(executor.submit(() -> parse(scanner, part.state)));
+			}
+			TopItemList result = new TopItemList();
+			for (int i = 0; i < parts.size(); i++) {
+				try {
+					append(result, results.get(i).get());
+				} catch (ExecutionException e) {
+					// Stop the other parts before their tokens are read again.
+					for (int j = i + 1; j < parts.size(); j++) {
+						scanners.get(j).cancel();
+					}
+					for (int j = i + 1; j < parts.size(); j++) {
+						try {
+							results.get(j).get();
+						} catch (ExecutionException ignored) {
+						}
+					}
+					append(result, parse(tokens.getScanner(parts.get(i).start,
+							tokens.size()), parts.get(i).state));
+					break;
+				}
+			}
+			return result;
+		} catch (InterruptedException e) {
+			for (TokenScanner scanner : scanners) {
+				scanner.cancel();
+			}
+			Thread.currentThread().interrupt();
+			throw new MDCSyntaxError("Generic Error", 0, 0, e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Cut the tokens in parts of about the same size. Each part ends with a
+	 * line or page end.
+	 */
+	private List<Part> split(MDCTokenBuffer tokens, MDCModelBuilder stateHolder) {
+		int partSize = Math.max(MINIMAL_PART_SIZE, tokens.size()
+				/ (numberOfThreads * 4));
+		List<Part> parts = new ArrayList<Part>();
+		// Follows the toggles, to know the state at the start of each part.
+		TopItemState startState = stateHolder.getCurrentState();
+		int start = 0;
+		for (int i = 0; i < tokens.size(); i++) {
+			int code = tokens.getSymbolCode(i);
+			if (code == MDCSymbols.TOGGLE) {
+				stateHolder.addToggleToTopItemList(null,
+						(ToggleType) tokens.getValue(i));
+			} else if ((code == MDCSymbols.LINEEND || code == MDCSymbols.PAGEEND)
+					&& i + 1 - start >= partSize
+					&& tokens.size() - (i + 1) >= partSize) {
+				parts.add(new Part(start, i + 1, startState));
+				start = i + 1;
+				startState = stateHolder.getCurrentState();
+			}
+		}
+		parts.add(new Part(start, tokens.size(), startState));
+		return parts;
+	}
+
+	private TopItemList parse(TokenScanner scanner, TopItemState state)
+			throws MDCSyntaxError {
+		MDCModelBuilder builder = new MDCModelBuilder(dialect);
+		builder.setCurrentState(state);
+		MDCParserFacade facade = new MDCParserFacade(builder);
+		facade.parse(scanner, scanner);
+		return builder.getResult();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void append(TopItemList result, TopItemList list) {
+		result.addAll(list.removeTopItems(0, list.getNumberOfChildren()));
+	}
+
+	private static class Part {
+		final int start;
+		final int end;
+		final TopItemState state;
+
+		Part(int start, int end, TopItemState state) {
+			this.start = start;
+			this.end = end;
+			this.state = state;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package jsesh.mdc;
+
+import java.io.Reader;
+
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.lex.MDCFastLex;
+import jsesh.mdc.lex.MDCSymbols;
+import jsesh.mdc.model.MDCModelBuilder;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdc.model.TopItemState;
+
+/**
+ * Parses a long text part by part, so that the start of the text can be used
+ * before the end is read.
+ * <p>
+ * A single lexer reads the whole text, and the token stream is cut after a
+ * given number of line and page ends. As for {@link ParallelModelParser},
+ * each part of a correct text can then be parsed on its own, starting in the
+ * state (red, shaded...) the previous part ended with, and the parts put one
+ * after the other give the same list as a parse of the whole text.
+ * <p>
+ * Parts are only cut at the end of a line of the file, so that an incorrect
+ * part can be read again line by line. Errors are reported with their
+ * positions in the whole text.
+ *
+ * @author rosmord
+ */
+public class ProgressiveModelParser {
+
+	private final Dialect dialect;
+
+	private final MDCFastLex lex;
+
+	private final PartScanner scanner = new PartScanner();
+
+	private TopItemState state = new TopItemState();
+
+	private boolean done = false;
+
+	/**
+	 * Prepares the parse of a text.
+	 *
+	 * @param in
+	 *            the text.
+	 * @param dialect
+	 * @param philologyAsSigns
+	 *            see {@link MDCFastLex#setPhilologyAsSigns(boolean)}
+	 */
+	public ProgressiveModelParser(Reader in, Dialect dialect,
+			boolean philologyAsSigns) {
+		this.dialect = dialect;
+		lex = new MDCFastLex(in);
+		lex.setPhilologyAsSigns(philologyAsSigns);
+	}
+
+	/**
+	 * Parses the next part of the text.
+	 *
+	 * @param numberOfBreaks
+	 *            the number of line and page ends after which the part is
+	 *            cut.
+	 * @return the items of the part, or null if the whole text has been
+	 *         read.
+	 * @throws MDCSyntaxError
+	 *             if the part is incorrect ; the rest of the text can't be
+	 *             read by this parser.
+	 */
+	public TopItemList nextPart(int numberOfBreaks) throws MDCSyntaxError {
+		if (done) {
+			return null;
+		}
+		MDCModelBuilder builder = new MDCModelBuilder(dialect);
+		builder.setCurrentState(state);
+		scanner.start(numberOfBreaks);
+		try {
+			new MDCParserFacade(builder).parse(scanner, scanner);
+		} catch (MDCSyntaxError e) {
+			done = true;
+			throw e;
+		}
+		state = builder.getCurrentState();
+		done = scanner.reachedEnd;
+		return builder.getResult();
+	}
+
+	/**
+	 * @return true if the whole text has been read.
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * @return the line of the file where the last part read (or which failed
+	 *         to be read) starts, counted from 0.
+	 */
+	public int getPartStartLine() {
+		return scanner.partStartLine;
+	}
+
+	/**
+	 * @return the state (red, shaded...) at the start of the next part, or
+	 *         of the part which failed to be read.
+	 */
+	public TopItemState getState() {
+		return state;
+	}
+
+	/**
+	 * Gives the tokens of the lexer, up to the end of the current part.
+	 */
+	private class PartScanner implements Scanner, ParserErrorManager {
+
+		private int remainingBreaks;
+
+		/**
+		 * True once the end of the current part has been passed.
+		 */
+		private boolean partEnded;
+
+		private boolean reachedEnd = false;
+
+		/**
+		 * The token after the end of the last part, already read from the
+		 * lexer.
+		 */
+		private Symbol pending = null;
+
+		private int partStartLine = 0;
+
+		private int nextPartStartLine = 0;
+
+		void start(int numberOfBreaks) {
+			remainingBreaks = numberOfBreaks;
+			partEnded = false;
+			partStartLine = nextPartStartLine;
+		}
+
+		public Symbol next_token() throws Exception {
+			if (partEnded) {
+				return new Symbol(MDCSymbols.EOF);
+			}
+			Symbol s = pending;
+			pending = null;
+			if (s == null) {
+				s = lex.next_token();
+			}
+			if (s.sym == MDCSymbols.EOF) {
+				reachedEnd = true;
+				partEnded = true;
+			} else if ((s.sym == MDCSymbols.LINEEND || s.sym == MDCSymbols.PAGEEND)
+					&& --remainingBreaks <= 0) {
+				// Cut if the next token is on another line.
+				int line = lex.getLine();
+				pending = lex.next_token();
+				if (pending.sym != MDCSymbols.EOF && lex.getLine() > line) {
+					partEnded = true;
+					nextPartStartLine = line + 1;
+				}
+			}
+			return s;
+		}
+
+		public MDCSyntaxError buildError(String message) {
+			return lex.buildError(message);
+		}
+	}
+}
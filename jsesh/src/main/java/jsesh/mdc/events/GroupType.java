@@ -0,0 +1,29 @@
+package jsesh.mdc.events;
+
+/**
+ * Types of groups reported by {@link MDCEventHandler#startGroup(GroupType)}.
+ *
+ * @author rosmord
+ */
+public enum GroupType {
+	/**
+	 * A line of a quadrant, that is, elements joined by "*".
+	 */
+	HORIZONTAL,
+	/**
+	 * A group between parenthesis.
+	 */
+	SUBGROUP,
+	/**
+	 * Signs joined by "&amp;".
+	 */
+	LIGATURE,
+	/**
+	 * Two signs joined by "#".
+	 */
+	OVERWRITE,
+	/**
+	 * Signs joined by "&amp;&amp;", with explicit positions.
+	 */
+	ABSOLUTE_GROUP
+}
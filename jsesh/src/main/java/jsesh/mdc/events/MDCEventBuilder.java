@@ -0,0 +1,486 @@
+package jsesh.mdc.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.constants.ToggleType;
+import jsesh.mdc.interfaces.AbsoluteGroupInterface;
+import jsesh.mdc.interfaces.BasicItemListInterface;
+import jsesh.mdc.interfaces.CadratInterface;
+import jsesh.mdc.interfaces.CartoucheInterface;
+import jsesh.mdc.interfaces.ComplexLigatureInterface;
+import jsesh.mdc.interfaces.HBoxInterface;
+import jsesh.mdc.interfaces.HieroglyphInterface;
+import jsesh.mdc.interfaces.HorizontalListElementInterface;
+import jsesh.mdc.interfaces.InnerGroupInterface;
+import jsesh.mdc.interfaces.LigatureInterface;
+import jsesh.mdc.interfaces.MDCBuilder;
+import jsesh.mdc.interfaces.MDCFileInterface;
+import jsesh.mdc.interfaces.ModifierListInterface;
+import jsesh.mdc.interfaces.OptionListInterface;
+import jsesh.mdc.interfaces.OverwriteInterface;
+import jsesh.mdc.interfaces.PhilologyInterface;
+import jsesh.mdc.interfaces.SubCadratInterface;
+import jsesh.mdc.interfaces.TopItemListInterface;
+import jsesh.mdc.interfaces.VBoxInterface;
+import jsesh.mdc.interfaces.ZoneStartInterface;
+import jsesh.mdc.model.OptionsMap;
+
+/**
+ * A builder which sends events to a {@link MDCEventHandler} instead of
+ * building a model.
+ * <p>
+ * As the parser is bottom-up, the content of a top item (a quadrant, for
+ * instance) is only known when the item is complete. The builder keeps a
+ * small tree for the current top item, sends the corresponding events when
+ * the item is added to the text, and forgets it. The memory used is then
+ * proportional to the size of the largest top item, not to the size of the
+ * text.
+ *
+ * @author rosmord
+ * @see MDCEventParser
+ */
+public class MDCEventBuilder implements MDCBuilder {
+
+	private static final MDCEventHandler NO_HANDLER = new MDCEventHandlerAdapter() {
+	};
+
+	/**
+	 * The top item list is not built ; this object only stands for it.
+	 */
+	private static final TopList TOP_LIST = new TopList();
+
+	private MDCEventHandler handler = NO_HANDLER;
+
+	private final Dialect dialect;
+
+	public MDCEventBuilder() {
+		this(Dialect.OTHER);
+	}
+
+	/**
+	 * @param dialect
+	 *            a dialect for the Manuel de codage.
+	 * @see Dialect
+	 */
+	public MDCEventBuilder(Dialect dialect) {
+		this.dialect = dialect;
+	}
+
+	public MDCEventHandler getHandler() {
+		return handler;
+	}
+
+	/**
+	 * Sets the object which will receive the events.
+	 *
+	 * @param handler
+	 */
+	public void setHandler(MDCEventHandler handler) {
+		this.handler = handler == null ? NO_HANDLER : handler;
+	}
+
+	public void reset() {
+	}
+
+	public TopItemListInterface buildTopItemList() {
+		handler.startDocument();
+		return TOP_LIST;
+	}
+
+	public MDCFileInterface buildMDCFileInterface(TopItemListInterface l) {
+		handler.endDocument();
+		return TOP_LIST;
+	}
+
+	// Top items : the events are sent at once.
+
+	public void addCadratToTopItemList(TopItemListInterface l,
+			CadratInterface e, int shading) {
+		// A null cadrat comes from error recovery.
+		if (e != null) {
+			Group cadrat = (Group) e;
+			cadrat.a = shading;
+			cadrat.emit(handler);
+		}
+	}
+
+	public void addCartoucheToTopItemList(TopItemListInterface l,
+			CartoucheInterface c) {
+		((Group) c).emit(handler);
+	}
+
+	public void addHRuleToTopItemList(TopItemListInterface l, char lineType,
+			int startPos, int endPos) {
+		handler.hRule(lineType, startPos, endPos);
+	}
+
+	public void addLineBreakToTopItemList(TopItemListInterface l, int skip) {
+		handler.lineBreak(skip);
+	}
+
+	public void addPageBreakToTopItemList(TopItemListInterface l) {
+		handler.pageBreak();
+	}
+
+	public void addStartHieroglyphicTextToTopItemList(TopItemListInterface l) {
+		handler.startHieroglyphicText();
+	}
+
+	public void addTabStopToTopItemList(TopItemListInterface l, int stopWidth) {
+		handler.tabStop(stopWidth);
+	}
+
+	public void addTextSuperscriptToTopItemList(TopItemListInterface l,
+			String text) {
+		// Remove protection characters... (only in front of "\" and "-")
+		handler.superscript(text.replaceAll("\\\\(\\\\|-)", "$1"));
+	}
+
+	public void addTextToTopItemList(TopItemListInterface l, char scriptCode,
+			String text) {
+		handler.text(scriptCode, text);
+	}
+
+	public void addToggleToTopItemList(TopItemListInterface l,
+			ToggleType toggle) {
+		handler.toggle(toggle);
+	}
+
+	public void addZoneStartToTopItemList(TopItemListInterface e1,
+			ZoneStartInterface e2) {
+		handler.zoneStart(((Zone) e2).options);
+	}
+
+	public void addTabbingToTopItemList(TopItemListInterface e1,
+			OptionListInterface e3) {
+		handler.tabbing((OptionsMap) e3);
+	}
+
+	public void addTabbingClearToTopItemList(TopItemListInterface e1) {
+		handler.tabbingClear();
+	}
+
+	// Inner elements : a tree is built.
+
+	public BasicItemListInterface buildBasicItemList() {
+		return new Group(Group.BASIC_LIST);
+	}
+
+	public void addCadratToBasicItemList(BasicItemListInterface l,
+			CadratInterface c, int shading) {
+		if (c != null) {
+			Group cadrat = (Group) c;
+			cadrat.a = shading;
+			((Group) l).add(cadrat);
+		}
+	}
+
+	public void addTextToBasicItemList(BasicItemListInterface l,
+			char scriptCode, String text) {
+		((Group) l).add(new Text(scriptCode, text));
+	}
+
+	public void addToggleToBasicItemList(BasicItemListInterface l,
+			ToggleType toggleCode) {
+		((Group) l).add(new Toggle(toggleCode));
+	}
+
+	public void addStartHieroglyphicTextToBasicItemList(
+			BasicItemListInterface l) {
+		((Group) l).add(StartHieroglyphs.INSTANCE);
+	}
+
+	public VBoxInterface buildVBox() {
+		return new Group(Group.QUADRANT);
+	}
+
+	public void addToVerticalList(VBoxInterface l, HBoxInterface h) {
+		((Group) l).add(h);
+	}
+
+	public CadratInterface buildCadrat(VBoxInterface e) {
+		return (Group) e;
+	}
+
+	public void setOptionList(CadratInterface result, OptionListInterface e1) {
+		// Ignored, as in the model.
+	}
+
+	public HBoxInterface buildHBox() {
+		return new Group(Group.HORIZONTAL);
+	}
+
+	public void addToHorizontalList(HBoxInterface h,
+			HorizontalListElementInterface elt) {
+		((Group) h).add(elt);
+	}
+
+	public CartoucheInterface buildCartouche(int type, int leftPart,
+			BasicItemListInterface e, int rightPart) {
+		Group result = new Group(Group.CARTOUCHE);
+		result.a = type;
+		result.b = leftPart;
+		result.c = rightPart;
+		result.add(e);
+		return result;
+	}
+
+	public PhilologyInterface buildPhilology(int code1,
+			BasicItemListInterface e, int code2) {
+		Group result = new Group(Group.PHILOLOGY);
+		result.a = code1;
+		result.b = code2;
+		result.add(e);
+		return result;
+	}
+
+	public SubCadratInterface buildSubCadrat(BasicItemListInterface e) {
+		Group result = new Group(Group.SUBGROUP);
+		result.add(e);
+		return result;
+	}
+
+	public LigatureInterface buildLigature() {
+		return new Group(Group.LIGATURE);
+	}
+
+	public void addToLigature(LigatureInterface i, HieroglyphInterface h) {
+		((Group) i).add(h);
+	}
+
+	public void completeLigature(LigatureInterface i) {
+	}
+
+	public AbsoluteGroupInterface buildAbsoluteGroup() {
+		return new Group(Group.ABSOLUTE_GROUP);
+	}
+
+	public void addHieroglyphToAbsoluteGroup(AbsoluteGroupInterface group,
+			HieroglyphInterface e) {
+		((Group) group).add(e);
+	}
+
+	public OverwriteInterface buildOverwrite(HieroglyphInterface e1,
+			HieroglyphInterface e2) {
+		Group result = new Group(Group.OVERWRITE);
+		result.add(e1);
+		result.add(e2);
+		return result;
+	}
+
+	public ComplexLigatureInterface buildComplexLigature(
+			InnerGroupInterface e1, HieroglyphInterface e2,
+			InnerGroupInterface e3) {
+		Group result = new Group(Group.COMPLEX_LIGATURE);
+		// The null elements are kept, so that positions are meaningful.
+		result.add(e1);
+		result.add(e2);
+		result.add(e3);
+		return result;
+	}
+
+	public HieroglyphInterface buildHieroglyph(boolean isGrammar, int type,
+			String code, ModifierListInterface m, int isEnd) {
+		return new SignEvent(code, type, isGrammar, isEnd,
+				(SignEvent.ModifierList) m);
+	}
+
+	public void setHieroglyphPosition(HieroglyphInterface h, int x, int y,
+			int scale) {
+		((SignEvent) h).setExplicitPosition(x, y, scale);
+	}
+
+	public ModifierListInterface buildModifierList() {
+		return new SignEvent.ModifierList();
+	}
+
+	public void addModifierToModifierList(ModifierListInterface mods,
+			String name, Integer value) {
+		String actualName = name;
+		if ("r".equals(name) && dialect == Dialect.MACSCRIBE) {
+			// Then, r is the same as "R".
+			actualName = "R";
+		}
+		((SignEvent.ModifierList) mods).add(actualName, value);
+	}
+
+	public ZoneStartInterface buildZone() {
+		return new Zone();
+	}
+
+	public void setOptionList(ZoneStartInterface result, OptionListInterface e1) {
+		((Zone) result).options = (OptionsMap) e1;
+	}
+
+	public OptionListInterface buildOptionList() {
+		return new OptionsMap();
+	}
+
+	public void addOption(OptionListInterface e1, String optName, int val) {
+		((OptionsMap) e1).setOption(optName, val);
+	}
+
+	public void addOption(OptionListInterface e1, String optName, String val) {
+		((OptionsMap) e1).setOption(optName, val);
+	}
+
+	public void addOption(OptionListInterface e1, String optName) {
+		((OptionsMap) e1).setOption(optName, true);
+	}
+
+	/**
+	 * Sends the events for an element of the temporary tree.
+	 */
+	private static void emit(Object element, MDCEventHandler handler) {
+		if (element instanceof SignEvent) {
+			handler.sign((SignEvent) element);
+		} else {
+			((Node) element).emit(handler);
+		}
+	}
+
+	private static abstract class Node {
+		abstract void emit(MDCEventHandler handler);
+	}
+
+	/**
+	 * All groups use the same class. The meaning of a, b and c depends on the
+	 * kind of group.
+	 */
+	private static final class Group extends Node implements
+			BasicItemListInterface, CadratInterface, VBoxInterface,
+			HBoxInterface, CartoucheInterface, PhilologyInterface,
+			SubCadratInterface, LigatureInterface, AbsoluteGroupInterface,
+			OverwriteInterface, ComplexLigatureInterface {
+
+		static final int BASIC_LIST = 0;
+		static final int QUADRANT = 1;
+		static final int HORIZONTAL = 2;
+		static final int CARTOUCHE = 3;
+		static final int PHILOLOGY = 4;
+		static final int SUBGROUP = 5;
+		static final int LIGATURE = 6;
+		static final int ABSOLUTE_GROUP = 7;
+		static final int OVERWRITE = 8;
+		static final int COMPLEX_LIGATURE = 9;
+
+		final int kind;
+
+		final List<Object> children = new ArrayList<Object>(4);
+
+		int a, b, c;
+
+		Group(int kind) {
+			this.kind = kind;
+		}
+
+		void add(Object child) {
+			children.add(child);
+		}
+
+		@Override
+		void emit(MDCEventHandler handler) {
+			switch (kind) {
+			case QUADRANT:
+				handler.startQuadrant(a);
+				emitChildren(handler);
+				handler.endQuadrant();
+				break;
+			case HORIZONTAL:
+				emitGroup(GroupType.HORIZONTAL, handler);
+				break;
+			case CARTOUCHE:
+				handler.startCartouche(a, b, c);
+				emitChildren(handler);
+				handler.endCartouche();
+				break;
+			case PHILOLOGY:
+				handler.startPhilology(a);
+				emitChildren(handler);
+				handler.endPhilology(b);
+				break;
+			case SUBGROUP:
+				emitGroup(GroupType.SUBGROUP, handler);
+				break;
+			case LIGATURE:
+				emitGroup(GroupType.LIGATURE, handler);
+				break;
+			case ABSOLUTE_GROUP:
+				emitGroup(GroupType.ABSOLUTE_GROUP, handler);
+				break;
+			case OVERWRITE:
+				emitGroup(GroupType.OVERWRITE, handler);
+				break;
+			case COMPLEX_LIGATURE:
+				handler.startComplexLigature(children.get(0) != null,
+						children.get(2) != null);
+				emitChildren(handler);
+				handler.endComplexLigature();
+				break;
+			default:
+				emitChildren(handler);
+			}
+		}
+
+		private void emitGroup(GroupType type, MDCEventHandler handler) {
+			handler.startGroup(type);
+			emitChildren(handler);
+			handler.endGroup(type);
+		}
+
+		private void emitChildren(MDCEventHandler handler) {
+			for (int i = 0; i < children.size(); i++) {
+				Object child = children.get(i);
+				if (child != null)
+					MDCEventBuilder.emit(child, handler);
+			}
+		}
+	}
+
+	private static final class Text extends Node {
+		private final char scriptCode;
+		private final String text;
+
+		Text(char scriptCode, String text) {
+			this.scriptCode = scriptCode;
+			this.text = text;
+		}
+
+		@Override
+		void emit(MDCEventHandler handler) {
+			handler.text(scriptCode, text);
+		}
+	}
+
+	private static final class Toggle extends Node {
+		private final ToggleType toggle;
+
+		Toggle(ToggleType toggle) {
+			this.toggle = toggle;
+		}
+
+		@Override
+		void emit(MDCEventHandler handler) {
+			handler.toggle(toggle);
+		}
+	}
+
+	private static final class StartHieroglyphs extends Node {
+		static final StartHieroglyphs INSTANCE = new StartHieroglyphs();
+
+		@Override
+		void emit(MDCEventHandler handler) {
+			handler.startHieroglyphicText();
+		}
+	}
+
+	private static final class Zone implements ZoneStartInterface {
+		OptionsMap options = new OptionsMap();
+	}
+
+	private static final class TopList implements TopItemListInterface,
+			MDCFileInterface {
+	}
+}
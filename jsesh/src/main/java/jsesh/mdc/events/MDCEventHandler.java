@@ -0,0 +1,140 @@
+package jsesh.mdc.events;
+
+import jsesh.mdc.constants.ToggleType;
+import jsesh.mdc.model.OptionsMap;
+
+/**
+ * Receives the content of a manuel de codage text, in reading order, as it
+ * is parsed.
+ * <p>
+ * The structure of the text is the one of the model: the text is a list of
+ * top items ; a quadrant is made of horizontal groups (one per line), which
+ * contain signs and inner groups. Each start event is matched by an end
+ * event.
+ * <p>
+ * For instance, "p*t:pt" gives: startQuadrant, startGroup(HORIZONTAL),
+ * sign(p), sign(t), endGroup(HORIZONTAL), startGroup(HORIZONTAL), sign(pt),
+ * endGroup(HORIZONTAL), endQuadrant.
+ * <p>
+ * Contrary to the model builder, toggles (red, shading...) are simply
+ * reported, and not turned into a state.
+ *
+ * @author rosmord
+ * @see MDCEventParser
+ * @see MDCEventHandlerAdapter
+ */
+public interface MDCEventHandler {
+
+	void startDocument();
+
+	void endDocument();
+
+	/**
+	 * A sign. The event object is only valid during the call.
+	 *
+	 * @param sign
+	 */
+	void sign(SignEvent sign);
+
+	/**
+	 * Start of a quadrant.
+	 *
+	 * @param shading
+	 *            the shaded parts of the quadrant, as in
+	 *            {@link jsesh.mdc.interfaces.MDCBuilder#addCadratToTopItemList}
+	 *            (15 for a fully shaded quadrant).
+	 */
+	void startQuadrant(int shading);
+
+	void endQuadrant();
+
+	void startGroup(GroupType type);
+
+	void endGroup(GroupType type);
+
+	/**
+	 * Start of a cartouche (or serekh, castle...). The parameters are those
+	 * of {@link jsesh.mdc.interfaces.MDCBuilder#buildCartouche}.
+	 *
+	 * @param type
+	 * @param leftPart
+	 * @param rightPart
+	 */
+	void startCartouche(int type, int leftPart, int rightPart);
+
+	void endCartouche();
+
+	/**
+	 * Start of a philological construct, when philological markers are not
+	 * parsed as signs.
+	 *
+	 * @param code
+	 *            the philology code (see
+	 *            {@link jsesh.mdc.constants.SymbolCodes}).
+	 */
+	void startPhilology(int code);
+
+	void endPhilology(int code);
+
+	/**
+	 * Start of a ligature like t^^^w&amp;&amp;&amp;t. The optional groups
+	 * before and after the central sign are reported before and after it.
+	 *
+	 * @param hasGroupBefore
+	 *            true if there is a group before the sign (t^^^w).
+	 * @param hasGroupAfter
+	 *            true if there is a group after the sign (w&amp;&amp;&amp;t).
+	 */
+	void startComplexLigature(boolean hasGroupBefore, boolean hasGroupAfter);
+
+	void endComplexLigature();
+
+	/**
+	 * Alphabetic text.
+	 *
+	 * @param scriptCode
+	 *            'l' for latin, 'i' for italic, 't' for transliteration...
+	 * @param text
+	 */
+	void text(char scriptCode, String text);
+
+	/**
+	 * Text given with "|".
+	 *
+	 * @param text
+	 */
+	void superscript(String text);
+
+	/**
+	 * @param skip
+	 *            vertical skip, as percentage of line height.
+	 */
+	void lineBreak(int skip);
+
+	void pageBreak();
+
+	void toggle(ToggleType toggle);
+
+	/**
+	 * The "+s" construct.
+	 */
+	void startHieroglyphicText();
+
+	void tabStop(int stopWidth);
+
+	/**
+	 * @param options
+	 *            the options of the tabbing ; empty if none.
+	 */
+	void tabbing(OptionsMap options);
+
+	void tabbingClear();
+
+	void hRule(char lineType, int startPos, int endPos);
+
+	/**
+	 * @param options
+	 *            the options of the zone ; empty if none.
+	 */
+	void zoneStart(OptionsMap options);
+}
@@ -0,0 +1,88 @@
+package jsesh.mdc.events;
+
+import jsesh.mdc.constants.ToggleType;
+import jsesh.mdc.model.OptionsMap;
+
+/**
+ * An event handler which does nothing.
+ * <p>
+ * Extend it when you are only interested in a few events (for instance, only
+ * in signs).
+ *
+ * @author rosmord
+ */
+public abstract class MDCEventHandlerAdapter implements MDCEventHandler {
+
+	public void startDocument() {
+	}
+
+	public void endDocument() {
+	}
+
+	public void sign(SignEvent sign) {
+	}
+
+	public void startQuadrant(int shading) {
+	}
+
+	public void endQuadrant() {
+	}
+
+	public void startGroup(GroupType type) {
+	}
+
+	public void endGroup(GroupType type) {
+	}
+
+	public void startCartouche(int type, int leftPart, int rightPart) {
+	}
+
+	public void endCartouche() {
+	}
+
+	public void startPhilology(int code) {
+	}
+
+	public void endPhilology(int code) {
+	}
+
+	public void startComplexLigature(boolean hasGroupBefore,
+			boolean hasGroupAfter) {
+	}
+
+	public void endComplexLigature() {
+	}
+
+	public void text(char scriptCode, String text) {
+	}
+
+	public void superscript(String text) {
+	}
+
+	public void lineBreak(int skip) {
+	}
+
+	public void pageBreak() {
+	}
+
+	public void toggle(ToggleType toggle) {
+	}
+
+	public void startHieroglyphicText() {
+	}
+
+	public void tabStop(int stopWidth) {
+	}
+
+	public void tabbing(OptionsMap options) {
+	}
+
+	public void tabbingClear() {
+	}
+
+	public void hRule(char lineType, int startPos, int endPos) {
+	}
+
+	public void zoneStart(OptionsMap options) {
+	}
+}
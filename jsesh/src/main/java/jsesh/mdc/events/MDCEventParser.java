@@ -0,0 +1,90 @@
+package jsesh.mdc.events;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import jsesh.mdc.MDCParserFacade;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
+
+/**
+ * A Parser for MdC code which sends events to a handler instead of building
+ * a model.
+ * <p>
+ * Use it for batch work which only needs to look at the text once, such as
+ * extracting codes, counting signs or checking a file: no model is built,
+ * and the memory used doesn't depend on the size of the text.
+ * <p>
+ * Events are sent as the text is parsed. If the text contains an error, the
+ * events for the part before the error will already have been sent, and
+ * {@link MDCEventHandler#endDocument()} won't be called.
+ *
+ * @author rosmord
+ * @see MDCEventHandler
+ * @see jsesh.mdc.MDCParserModelGenerator
+ */
+public class MDCEventParser {
+	private MDCParserFacade facade;
+
+	private MDCEventBuilder builder;
+
+	public MDCEventParser() {
+		this(Dialect.OTHER);
+	}
+
+	/**
+	 * 
+	 * @param dialect a dialect for the Manuel de codage
+	 * @see Dialect
+	 */
+	public MDCEventParser(Dialect dialect) {
+		builder = new MDCEventBuilder(dialect);
+		facade = new MDCParserFacade(builder);
+	}
+
+	public void parse(Reader in, MDCEventHandler handler)
+			throws MDCSyntaxError {
+		builder.setHandler(handler);
+		try {
+			facade.parse(in);
+		} finally {
+			builder.setHandler(null);
+		}
+	}
+
+	public void parse(String text, MDCEventHandler handler)
+			throws MDCSyntaxError {
+		parse(new StringReader(text), handler);
+	}
+
+	/**
+	 * @return true if we are debugging.
+	 */
+	public boolean isDebug() {
+		return facade.isDebug();
+	}
+
+	/**
+	 * if true, philological markers, such as [[ and ]], are considered
+	 * as simple signs, and not as constructs.
+	 * @return true if philological markers are considered as simple signs.
+	 */
+	public boolean isPhilologyAsSigns() {
+		return facade.isPhilologyAsSigns();
+	}
+
+	/**
+	 * @param v
+	 */
+	public void setDebug(boolean v) {
+		facade.setDebug(v);
+	}
+
+	/**
+	 * @param v
+	 */
+	public void setPhilologyAsSigns(boolean v) {
+		facade.setPhilologyAsSigns(v);
+	}
+
+}
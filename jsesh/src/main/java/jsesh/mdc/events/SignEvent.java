@@ -0,0 +1,159 @@
+package jsesh.mdc.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jsesh.mdc.constants.SymbolCodes;
+import jsesh.mdc.constants.WordEndingCode;
+import jsesh.mdc.interfaces.HieroglyphInterface;
+import jsesh.mdc.interfaces.ModifierListInterface;
+
+/**
+ * A sign, as reported by {@link MDCEventHandler#sign(SignEvent)}.
+ * <p>
+ * The information is the one of the Manuel de Codage text: modifiers are
+ * kept as they were written, and are not interpreted (except for the dialect
+ * specific ones).
+ *
+ * @author rosmord
+ */
+public class SignEvent implements HieroglyphInterface {
+
+	private final String code;
+
+	private final int type;
+
+	private final boolean grammar;
+
+	private final WordEndingCode endingCode;
+
+	private final ModifierList modifiers;
+
+	private boolean explicitPosition = false;
+
+	private int x, y, scale = 100;
+
+	SignEvent(String code, int type, boolean grammar, int isEnd,
+			ModifierList modifiers) {
+		this.code = code;
+		this.type = type;
+		this.grammar = grammar;
+		switch (isEnd) {
+		case 1:
+			endingCode = WordEndingCode.WORD_END;
+			break;
+		case 2:
+			endingCode = WordEndingCode.SENTENCE_END;
+			break;
+		default:
+			endingCode = WordEndingCode.NONE;
+		}
+		this.modifiers = modifiers;
+	}
+
+	void setExplicitPosition(int x, int y, int scale) {
+		this.explicitPosition = true;
+		this.x = x;
+		this.y = y;
+		this.scale = scale;
+	}
+
+	/**
+	 * @return the code of the sign, as written in the text.
+	 */
+	public String getCode() {
+		return code;
+	}
+
+	/**
+	 * @return the type of the sign (see {@link SymbolCodes}).
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * @return true if the sign is a hieroglyph, and not a special symbol
+	 *         like a space or a philological mark.
+	 */
+	public boolean isHieroglyph() {
+		return type == SymbolCodes.MDCCODE;
+	}
+
+	/**
+	 * @return true if the sign is part of a grammatical ending.
+	 */
+	public boolean isGrammar() {
+		return grammar;
+	}
+
+	public WordEndingCode getEndingCode() {
+		return endingCode;
+	}
+
+	public int getNumberOfModifiers() {
+		return modifiers == null || modifiers.names == null ? 0
+				: modifiers.names.size();
+	}
+
+	/**
+	 * @param i
+	 * @return the name of the i-th modifier (for instance, "R" for "\R90").
+	 */
+	public String getModifierName(int i) {
+		return modifiers.names.get(i);
+	}
+
+	/**
+	 * @param i
+	 * @return the value of the i-th modifier, or null if it has none.
+	 */
+	public Integer getModifierValue(int i) {
+		return modifiers.values.get(i);
+	}
+
+	/**
+	 * @return true if the position of the sign was given with {{x,y,scale}}.
+	 */
+	public boolean hasExplicitPosition() {
+		return explicitPosition;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * @return the scale, as a percentage (100 if no explicit position).
+	 */
+	public int getScale() {
+		return scale;
+	}
+
+	@Override
+	public String toString() {
+		return code;
+	}
+
+	/**
+	 * Modifiers of a sign. Most signs have none, so the lists are only
+	 * created when needed.
+	 */
+	static class ModifierList implements ModifierListInterface {
+		List<String> names;
+		List<Integer> values;
+
+		void add(String name, Integer value) {
+			if (names == null) {
+				names = new ArrayList<String>(2);
+				values = new ArrayList<Integer>(2);
+			}
+			names.add(name);
+			values.add(value);
+		}
+	}
+}
@@ -0,0 +1,598 @@
+package jsesh.mdc.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import jsesh.editor.HieroglyphicTextModel;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.model.TopItem;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdc.model.operations.ChildOperation;
+import jsesh.mdc.model.operations.Deletion;
+import jsesh.mdc.model.operations.Insertion;
+import jsesh.mdc.model.operations.Replacement;
+import jsesh.mdc.model.operations.ZoneModification;
+
+/**
+ * An append-only journal of the modifications of a document since it was
+ * last saved, from which they can be recovered after a crash.
+ * <p>
+ * The journal observes the text of the document. Each modification is
+ * recorded as the insertion of some Manuel de Codage, or the deletion of a
+ * range of elements ; a modified item is deleted and inserted again. Only a
+ * new text is recorded as a whole. Records are written by a background
+ * thread, and synced in batches, at most {@link #FLUSH_DELAY} milliseconds
+ * after the modification. When the journal grows larger than {@link #COMPACTION_SIZE},
+ * it is rewritten as a copy of the whole text.
+ * <p>
+ * The journal of a file is kept next to it (see {@link #getJournalFile(File)}).
+ * Its header holds a hash of the file it applies to : if the file has been
+ * saved (or changed by someone else) since, the journal is ignored.
+ * <p>
+ * Format : a header (magic number, {@link #VERSION}, hash of the file), and
+ * records. Each record is its length, its content and a CRC32 of the
+ * content ; a record which was not completely written when the program
+ * stopped ends the journal.
+ *
+ * @author rosmord
+ * @see MDCDocument#setJournaled(boolean)
+ */
+public class DocumentJournal implements Observer {
+
+	/**
+	 * Version of the format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Maximal delay before a modification is written, in milliseconds.
+	 */
+	public static final long FLUSH_DELAY = 500;
+
+	/**
+	 * Size of the journal above which it is compacted, in bytes.
+	 */
+	public static final long COMPACTION_SIZE = 1024 * 1024;
+
+	private static final byte[] MAGIC = { 'J', 'S', 'J', 'N' };
+
+	private static final int KEY_SIZE = 32;
+
+	private static final int HEADER_SIZE = MAGIC.length + 4 + KEY_SIZE;
+
+	// Record kinds.
+	private static final int INSERT = 1;
+	private static final int DELETE = 2;
+	/**
+	 * Replaces the whole text.
+	 */
+	private static final int TEXT = 3;
+	/**
+	 * Not written : starts a new journal file.
+	 */
+	private static final int REWRITE = 4;
+
+	private static final Logger LOGGER = Logger.getLogger(DocumentJournal.class
+			.getName());
+
+	private final HieroglyphicTextModel text;
+
+	private final File file;
+
+	/**
+	 * Thread for all file operations.
+	 */
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * The records which have not been written yet.
+	 */
+	private List<Record> pending = new ArrayList<Record>();
+
+	private boolean flushScheduled = false;
+
+	/**
+	 * Size of the journal file.
+	 */
+	private volatile long size = 0;
+
+	private volatile boolean compacting = false;
+
+	private volatile boolean failed = false;
+
+	// Used only by the executor thread.
+	private FileChannel channel = null;
+
+	private byte[] key;
+
+	/**
+	 * Starts journaling the modifications of a text.
+	 *
+	 * @param text
+	 *            the text, which should correspond to the content of the
+	 *            file, except for the modifications in the journal, if any.
+	 * @param file
+	 *            the journal file.
+	 * @param key
+	 *            the digest of the document file (see {@link #digest(ByteBuffer)}).
+	 * @param validLength
+	 *            the length of the current journal, which has been replayed
+	 *            into the text, or 0 to start a new one.
+	 */
+	DocumentJournal(HieroglyphicTextModel text, File file, byte[] key,
+			long validLength) {
+		this.text = text;
+		this.file = file;
+		this.key = key;
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "Journal " + file.getName());
+			t.setDaemon(true);
+			return t;
+		});
+		if (validLength >= HEADER_SIZE) {
+			executor.execute(() -> reopen(validLength));
+		} else {
+			addRecord(new Record(REWRITE, key, null));
+		}
+		text.addObserver(this);
+	}
+
+	/**
+	 * Returns the file used to store the journal of a file.
+	 *
+	 * @param file
+	 * @return a (hidden) file in the same directory.
+	 */
+	public static File getJournalFile(File file) {
+		return new File(file.getAbsoluteFile().getParentFile(), "."
+				+ file.getName() + ".journal");
+	}
+
+	/**
+	 * Computes the digest which identifies the content of a file.
+	 *
+	 * @param content
+	 *            the bytes of the file, between the buffer position and its
+	 *            limit.
+	 * @return the digest.
+	 */
+	public static byte[] digest(ByteBuffer content) {
+		MessageDigest digest = newDigest();
+		digest.update(content.duplicate());
+		return digest.digest();
+	}
+
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e); // SHA-256 is always available.
+		}
+	}
+
+	/**
+	 * Replays the journal of a document, if any, in its text.
+	 * <p>
+	 * The modifications are done as normal edition commands : the document is
+	 * not clean afterwards, and they can be undone.
+	 *
+	 * @param document
+	 *            a document just read from its file.
+	 * @param key
+	 *            the digest of the file.
+	 * @return the length of the journal part which has been replayed, or 0
+	 *         if there is no journal for this version of the file.
+	 */
+	static long replay(MDCDocument document, byte[] key) {
+		File journalFile = getJournalFile(document.getFile());
+		if (!journalFile.isFile()) {
+			return 0;
+		}
+		ByteBuffer in;
+		try {
+			in = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Could not read " + journalFile, e);
+			return 0;
+		}
+		if (in.remaining() < HEADER_SIZE) {
+			return 0;
+		}
+		byte[] magic = new byte[MAGIC.length];
+		byte[] storedKey = new byte[KEY_SIZE];
+		in.get(magic);
+		int version = in.getInt();
+		in.get(storedKey);
+		if (!Arrays.equals(MAGIC, magic) || version != VERSION
+				|| !Arrays.equals(key, storedKey)) {
+			return 0;
+		}
+		HieroglyphicTextModel text = document.getHieroglyphicTextModel();
+		int records = 0;
+		long validLength = in.position();
+		text.beginBatch();
+		try {
+			while (in.remaining() >= 4) {
+				int length = in.getInt();
+				if (length <= 0 || in.remaining() < length + 4) {
+					break;
+				}
+				byte[] content = new byte[length];
+				in.get(content);
+				CRC32 crc = new CRC32();
+				crc.update(content);
+				if ((int) crc.getValue() != in.getInt()
+						|| !apply(text, ByteBuffer.wrap(content))) {
+					break;
+				}
+				records++;
+				validLength = in.position();
+			}
+		} finally {
+			text.endBatch();
+		}
+		LOGGER.log(Level.FINE, "Replayed {0} modifications from {1}",
+				new Object[] { records, journalFile });
+		return validLength;
+	}
+
+	/**
+	 * Applies a record to a text.
+	 *
+	 * @return false if the record is not correct.
+	 */
+	private static boolean apply(HieroglyphicTextModel text, ByteBuffer record) {
+		try {
+			int kind = record.get();
+			int size = text.getModel().getNumberOfChildren();
+			switch (kind) {
+			case INSERT: {
+				int index = record.getInt();
+				List<TopItem> items = text.buildItems(readString(record));
+				if (index < 0 || index > size) {
+					return false;
+				}
+				text.insertElementsAt(text.buildPosition(index), items);
+				return true;
+			}
+			case DELETE: {
+				int start = record.getInt();
+				int end = record.getInt();
+				if (start < 0 || start > end || end > size) {
+					return false;
+				}
+				text.removeElements(text.buildPosition(start),
+						text.buildPosition(end));
+				return true;
+			}
+			case TEXT: {
+				List<TopItem> items = text.buildItems(readString(record));
+				text.replaceElement(text.buildPosition(0),
+						text.buildPosition(size), items);
+				return true;
+			}
+			default:
+				return false;
+			}
+		} catch (MDCSyntaxError | RuntimeException e) {
+			return false;
+		}
+	}
+
+	private static String readString(ByteBuffer record) {
+		return new String(record.array(), record.position(),
+				record.remaining(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Records the modifications of the text. Called on the thread which
+	 * modifies it.
+	 */
+	@Override
+	public void update(Observable o, Object arg) {
+		if (failed) {
+			return;
+		}
+		TopItemList model = text.getModel();
+		// The top item in which something changed, if any (a sign property,
+		// for instance).
+		int changedItem = -1;
+		if (arg instanceof ChildOperation
+				&& ((ChildOperation) arg).getElement() == model) {
+			changedItem = model.indexOfTopItem(((ChildOperation) arg)
+					.getChildOperation().getElement());
+		}
+		if (arg instanceof Insertion
+				&& ((Insertion) arg).getElement() == model) {
+			Insertion insertion = (Insertion) arg;
+			TopItemList items = new TopItemList();
+			for (Object child : insertion.getChildren()) {
+				items.addTopItem(((TopItem) child).buildTopItem());
+			}
+			addRecord(new Record(INSERT, insertion.getIndex(), 0, items));
+		} else if (arg instanceof Deletion
+				&& ((Deletion) arg).getElement() == model) {
+			Deletion deletion = (Deletion) arg;
+			addRecord(new Record(DELETE, deletion.getStart(), deletion
+					.getEnd(), null));
+		} else if (arg instanceof ZoneModification
+				&& ((ZoneModification) arg).getElement() == model) {
+			ZoneModification zone = (ZoneModification) arg;
+			recordReplacement(model, zone.getStart(), zone.getEnd());
+		} else if (arg instanceof Replacement
+				&& ((Replacement) arg).getElement() == model) {
+			int index = ((Replacement) arg).getIndex();
+			recordReplacement(model, index, index + 1);
+		} else if (changedItem != -1) {
+			recordReplacement(model, changedItem, changedItem + 1);
+		} else {
+			// A new text, or a modification of the whole text.
+			addRecord(new Record(TEXT, 0, 0, model.deepCopy()));
+		}
+		if (!compacting && size > COMPACTION_SIZE) {
+			checkpoint();
+		}
+	}
+
+	/**
+	 * Records that the top items between start and end have been modified,
+	 * as their deletion and the insertion of their new version.
+	 */
+	private void recordReplacement(TopItemList model, int start, int end) {
+		TopItemList items = new TopItemList();
+		items.addAll(model.getTopItemListBetween(start, end));
+		addRecord(new Record(DELETE, start, end, null));
+		addRecord(new Record(INSERT, start, 0, items));
+	}
+
+	/**
+	 * Rewrites the journal as a copy of the current text.
+	 */
+	public void checkpoint() {
+		compacting = true;
+		addRecord(new Record(REWRITE, null, text.getModel().deepCopy()));
+	}
+
+	/**
+	 * Starts a new journal, for a new version of the document file. The
+	 * modifications which have not been written yet are dropped.
+	 *
+	 * @param newKey
+	 *            the digest of the new file.
+	 */
+	void restart(byte[] newKey) {
+		synchronized (this) {
+			pending.clear();
+		}
+		addRecord(new Record(REWRITE, newKey, null));
+	}
+
+	/**
+	 * Writes all the modifications recorded, and waits until they are on the
+	 * disk.
+	 */
+	public void flush() {
+		try {
+			executor.submit(this::writePending).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Stops journaling and deletes the journal. To call when the document is
+	 * closed normally.
+	 */
+	public void close() {
+		text.deleteObserver(this);
+		executor.execute(() -> {
+			closeChannel();
+			file.delete();
+		});
+		executor.shutdown();
+		try {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the journal file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	private void addRecord(Record record) {
+		synchronized (this) {
+			pending.add(record);
+			if (record.kind == REWRITE) {
+				executor.execute(this::writePending);
+			} else if (!flushScheduled) {
+				flushScheduled = true;
+				executor.schedule(this::writePending, FLUSH_DELAY,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	private void writePending() {
+		List<Record> records;
+		synchronized (this) {
+			records = pending;
+			pending = new ArrayList<Record>();
+			flushScheduled = false;
+		}
+		if (records.isEmpty() || failed) {
+			return;
+		}
+		try {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			for (Record record : records) {
+				if (record.kind == REWRITE) {
+					// What was recorded before is in the file, or in the
+					// copy of the text.
+					buffer.reset();
+					if (record.key != null) {
+						key = record.key;
+					}
+					rewrite(record.text);
+					compacting = false;
+				} else {
+					record.writeTo(buffer);
+				}
+			}
+			if (buffer.size() > 0) {
+				channel.write(ByteBuffer.wrap(buffer.toByteArray()));
+				channel.force(false);
+				size = channel.size();
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Journal " + file + " disabled", e);
+			failed = true;
+			closeChannel();
+		}
+	}
+
+	/**
+	 * Replaces the journal file by a new one, with a header and an optional
+	 * copy of the text.
+	 */
+	private void rewrite(TopItemList copy) throws IOException {
+		closeChannel();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buffer);
+		out.write(MAGIC);
+		out.writeInt(VERSION);
+		out.write(key);
+		if (copy != null) {
+			new Record(TEXT, 0, 0, copy).writeTo(buffer);
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileChannel tmpChannel = FileChannel.open(tmp.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			tmpChannel.write(ByteBuffer.wrap(buffer.toByteArray()));
+			tmpChannel.force(false);
+		}
+		try {
+			Files.move(tmp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		reopen(buffer.size());
+	}
+
+	/**
+	 * Opens the journal file, to append records after its first bytes.
+	 */
+	private void reopen(long length) {
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+			channel.truncate(length);
+			channel.position(length);
+			size = length;
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Journal " + file + " disabled", e);
+			failed = true;
+		}
+	}
+
+	private void closeChannel() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOGGER.log(Level.FINE, "Could not close " + file, e);
+			}
+			channel = null;
+		}
+	}
+
+	/**
+	 * A modification, not yet written.
+	 */
+	private static final class Record {
+
+		final int kind;
+		final int start;
+		final int end;
+		/**
+		 * The elements inserted, or the new text (copies).
+		 */
+		final TopItemList text;
+		/**
+		 * For REWRITE : the digest of the document file, if it has changed.
+		 */
+		final byte[] key;
+
+		Record(int kind, int start, int end, TopItemList text) {
+			this.kind = kind;
+			this.start = start;
+			this.end = end;
+			this.text = text;
+			this.key = null;
+		}
+
+		Record(int kind, byte[] key, TopItemList text) {
+			this.kind = kind;
+			this.start = 0;
+			this.end = 0;
+			this.text = text;
+			this.key = key;
+		}
+
+		void writeTo(ByteArrayOutputStream buffer) throws IOException {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(content);
+			out.writeByte(kind);
+			if (kind == INSERT) {
+				out.writeInt(start);
+			} else if (kind == DELETE) {
+				out.writeInt(start);
+				out.writeInt(end);
+			}
+			if (text != null) {
+				out.write(text.toMdC().getBytes(StandardCharsets.UTF_8));
+			}
+			out.flush();
+			byte[] bytes = content.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(bytes);
+			DataOutputStream data = new DataOutputStream(buffer);
+			data.writeInt(bytes.length);
+			data.write(bytes);
+			data.writeInt((int) crc.getValue());
+			data.flush();
+		}
+	}
+}
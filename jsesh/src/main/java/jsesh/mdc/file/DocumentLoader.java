@@ -0,0 +1,248 @@
+package jsesh.mdc.file;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jsesh.editor.HieroglyphicTextModel;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.ProgressiveModelParser;
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.model.TopItem;
+import jsesh.mdc.model.TopItemList;
+import jsesh.utils.ByteBufferReader;
+
+/**
+ * Reads the end of a large document in the background, after its first
+ * pages have been displayed.
+ * <p>
+ * The text is parsed by parts of {@link #PART_SIZE} lines, on a thread of its
+ * own, and each part is added at the end of the text on the thread which
+ * modifies it (usually the event dispatch thread). The text can be edited in
+ * the meantime ; the additions are not editions, and can't be undone. If
+ * the text of the document is replaced, the loading stops.
+ * <p>
+ * If a part is incorrect, the rest of the text is read line by line, as
+ * {@link MDCDocumentReader} does for incorrect documents.
+ *
+ * @author rosmord
+ * @see MDCDocumentReader#setLargeDocumentMode(boolean)
+ */
+public class DocumentLoader {
+
+	/**
+	 * Number of line and page ends in a part.
+	 */
+	static final int PART_SIZE = 500;
+
+	private final MDCDocument document;
+
+	private final HieroglyphicTextModel text;
+
+	/**
+	 * The list the parts are added to.
+	 */
+	private final TopItemList model;
+
+	private final ProgressiveModelParser parser;
+
+	private final ByteBufferReader reader;
+
+	/**
+	 * Reads the lines of the text again, for line by line recovery.
+	 */
+	private final Supplier<List<String>> lines;
+
+	private final Dialect dialect;
+
+	private final List<DocumentLoaderListener> listeners = new ArrayList<DocumentLoaderListener>();
+
+	private volatile boolean cancelled = false;
+
+	/**
+	 * True if a part could not be read, or added to the text.
+	 */
+	private volatile boolean failed = false;
+
+	private boolean started = false;
+
+	// Used only on the thread which modifies the text.
+	private double progress = 0;
+
+	private boolean done = false;
+
+	private boolean truncated = false;
+
+	private int numberOfIncorrectLines = 0;
+
+	/**
+	 * Prepares the loading of a document, whose first part has been read.
+	 *
+	 * @param document
+	 * @param parser the parser which read the first part.
+	 * @param reader the reader the parser reads from.
+	 * @param lines reads the text again, line by line, if it is incorrect.
+	 */
+	DocumentLoader(MDCDocument document, ProgressiveModelParser parser,
+			ByteBufferReader reader, Supplier<List<String>> lines) {
+		this.document = document;
+		this.text = document.getHieroglyphicTextModel();
+		this.model = text.getModel();
+		this.parser = parser;
+		this.reader = reader;
+		this.lines = lines;
+		this.dialect = document.getDialect();
+		this.progress = reader.getProgress();
+	}
+
+	/**
+	 * Starts reading the rest of the document. Does nothing if it has already
+	 * been started.
+	 *
+	 * @param textThread runs the modifications of the text, typically
+	 *            <code>SwingUtilities::invokeLater</code>.
+	 */
+	public void start(Executor textThread) {
+		if (started) {
+			return;
+		}
+		started = true;
+		String name = document.getFile() == null ? "document" : document
+				.getFile().getName();
+		Thread thread = new Thread(() -> load(textThread), "Loading " + name);
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Stops the loading. The parts of the document not read yet are lost.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	private void load(Executor textThread) {
+		// Only one part waits for the text thread at a time.
+		CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+		try {
+			try {
+				TopItemList part;
+				while (!cancelled && (part = parser.nextPart(PART_SIZE)) != null) {
+					List<TopItem> items = removeAll(part);
+					double partProgress = reader.getProgress();
+					previous.join();
+					previous = CompletableFuture.runAsync(
+							() -> append(items, partProgress), textThread);
+				}
+			} catch (MDCSyntaxError e) {
+				List<TopItem> items = recover(e);
+				previous.join();
+				previous = CompletableFuture.runAsync(() -> append(items, 1),
+						textThread);
+			}
+			previous.join();
+		} catch (RuntimeException e) {
+			// Includes the errors while adding a part to the text.
+			failed = true;
+			Logger.getLogger(DocumentLoader.class.getName()).log(Level.WARNING,
+					"Can't load " + document.getFile(), e);
+		} finally {
+			textThread.execute(this::finish);
+		}
+	}
+
+	/**
+	 * Reads the text line by line, from the start of the incorrect part.
+	 */
+	private List<TopItem> recover(MDCSyntaxError e) {
+		List<String> allLines = lines.get();
+		int first = Math.min(parser.getPartStartLine(), allLines.size());
+		LineRecovery recovery = new LineRecovery(dialect, Runtime.getRuntime()
+				.availableProcessors());
+		TopItemList rest = recovery.recover(
+				allLines.subList(first, allLines.size()), e.getLine() - first,
+				parser.getState());
+		numberOfIncorrectLines = recovery.getNumberOfIncorrectLines();
+		return removeAll(rest);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<TopItem> removeAll(TopItemList list) {
+		return list.removeTopItems(0, list.getNumberOfChildren());
+	}
+
+	private void append(List<TopItem> items, double partProgress) {
+		if (text.getModel() != model) {
+			// The text was replaced.
+			cancelled = true;
+		}
+		if (cancelled) {
+			return;
+		}
+		text.appendLoadedItems(items);
+		progress = partProgress;
+		fireLoadingProgressed();
+	}
+
+	private void finish() {
+		// If the text was replaced, what was read doesn't matter any more.
+		truncated = (failed || cancelled) && text.getModel() == model;
+		done = true;
+		progress = 1;
+		document.loadingFinished(this);
+		fireLoadingProgressed();
+	}
+
+	/**
+	 * @return the proportion of the document which has been added to the
+	 *         text, between 0 and 1.
+	 */
+	public double getProgress() {
+		return progress;
+	}
+
+	/**
+	 * @return true if the whole document has been read, or if the loading
+	 *         was cancelled or has failed.
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * @return true if the loading stopped before the end of the document,
+	 *         because it failed or was cancelled. The text then holds only a
+	 *         part of the document.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * @return the number of lines of the document which could not be read,
+	 *         and were kept as text.
+	 */
+	public int getNumberOfIncorrectLines() {
+		return numberOfIncorrectLines;
+	}
+
+	public void addDocumentLoaderListener(DocumentLoaderListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeDocumentLoaderListener(DocumentLoaderListener listener) {
+		listeners.remove(listener);
+	}
+
+	private void fireLoadingProgressed() {
+		for (DocumentLoaderListener listener : new ArrayList<DocumentLoaderListener>(
+				listeners)) {
+			listener.loadingProgressed(this);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package jsesh.mdc.file;
+
+/**
+ * Listener for the progress of a {@link DocumentLoader}.
+ *
+ * @author rosmord
+ */
+public interface DocumentLoaderListener {
+
+	/**
+	 * Called on the thread which modifies the text when a part of the
+	 * document has been added to it, and when the loading is done.
+	 *
+	 * @param loader the loader.
+	 */
+	void loadingProgressed(DocumentLoader loader);
+}
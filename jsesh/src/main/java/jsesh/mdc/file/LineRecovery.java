@@ -0,0 +1,226 @@
+package jsesh.mdc.file;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java_cup.runtime.Symbol;
+import jsesh.mdc.MDCParserFacade;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.constants.ToggleType;
+import jsesh.mdc.lex.MDCFastLex;
+import jsesh.mdc.lex.MDCSymbols;
+import jsesh.mdc.model.AlphabeticText;
+import jsesh.mdc.model.LineBreak;
+import jsesh.mdc.model.MDCModelBuilder;
+import jsesh.mdc.model.TopItem;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdc.model.TopItemState;
+
+/**
+ * Reads an incorrect text line by line. Incorrect lines are kept as plain
+ * text, with the error message, for later correction.
+ * <p>
+ * The lines before the first error are parsed as a whole, as they are known
+ * to be correct. The other lines are parsed one by one, in batches, on
+ * several threads. As toggles (red, shading...) go on from one line to the
+ * next, each batch is parsed with the state the previous batch is expected
+ * to end with ; if the guess is wrong (which can only happen after an
+ * incorrect line), the batch is parsed again.
+ *
+ * @author rosmord
+ */
+class LineRecovery {
+
+	/**
+	 * Number of lines parsed together by one thread.
+	 */
+	static final int BATCH_SIZE = 256;
+
+	private final Dialect dialect;
+
+	private final int numberOfThreads;
+
+	private int numberOfIncorrectLines = 0;
+
+	LineRecovery(Dialect dialect, int numberOfThreads) {
+		this.dialect = dialect;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Parse the lines of a text.
+	 *
+	 * @param lines
+	 *            the lines.
+	 * @param errorLine
+	 *            the line where the parse of the whole text failed (lines
+	 *            before it are supposed to be correct).
+	 * @return the content of the text.
+	 */
+	public TopItemList recover(List<String> lines, int errorLine) {
+		return recover(lines, errorLine, new TopItemState());
+	}
+
+	/**
+	 * Parse the lines at the end of a text.
+	 *
+	 * @param lines
+	 *            the lines.
+	 * @param errorLine
+	 *            the line where the parse failed, in <code>lines</code>.
+	 * @param initialState
+	 *            the state (red, shaded...) at the start of the lines.
+	 * @return the content of the lines.
+	 */
+	public TopItemList recover(List<String> lines, int errorLine,
+			TopItemState initialState) {
+		TopItemList result = new TopItemList();
+		TopItemState state = initialState;
+		int first = Math.max(0, Math.min(errorLine, lines.size()));
+		if (first > 0) {
+			MDCModelBuilder builder = new MDCModelBuilder(dialect);
+			builder.setCurrentState(initialState);
+			try {
+				new MDCParserFacade(builder).parse(new StringReader(String
+						.join("\n", lines.subList(0, first))));
+				result = builder.getResult();
+				state = builder.getCurrentState();
+			} catch (MDCSyntaxError e) {
+				// The error was found after the line where it is.
+				first = 0;
+				state = initialState;
+			}
+		}
+
+		List<Batch> batches = new ArrayList<Batch>();
+		TopItemState expectedState = state;
+		for (int start = first; start < lines.size(); start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, lines.size());
+			batches.add(new Batch(lines, start, end, expectedState));
+			expectedState = guessFinalState(lines, start, end, expectedState);
+		}
+
+		List<Future<Batch>> results = new ArrayList<Future<Batch>>();
+		ExecutorService executor = null;
+		if (numberOfThreads > 1 && batches.size() > 1) {
+			executor = Executors.newFixedThreadPool(
+					Math.min(numberOfThreads, batches.size()), r -> {
+						Thread t = new Thread(r, "MdC line recovery");
+						t.setDaemon(true);
+						return t;
+					});
+			for (Batch batch : batches) {
+				results.add(executor.submit(() -> batch.parse()));
+			}
+		}
+		try {
+			for (int i = 0; i < batches.size(); i++) {
+				Batch batch;
+				if (executor == null) {
+					batch = new Batch(lines, batches.get(i).start,
+							batches.get(i).end, state).parse();
+				} else {
+					batch = results.get(i).get();
+				}
+				if (!batch.startState.equals(state)) {
+					batch = new Batch(lines, batch.start, batch.end, state)
+							.parse();
+				}
+				result.addAll(batch.result);
+				numberOfIncorrectLines += batch.numberOfIncorrectLines;
+				state = batch.endState;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if (executor != null)
+				executor.shutdown();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of lines which could not be parsed in the last
+	 *         text.
+	 */
+	public int getNumberOfIncorrectLines() {
+		return numberOfIncorrectLines;
+	}
+
+	/**
+	 * Guess the state at the end of some lines, by following their toggles.
+	 */
+	private TopItemState guessFinalState(List<String> lines, int start,
+			int end, TopItemState startState) {
+		MDCModelBuilder stateTracker = new MDCModelBuilder(dialect);
+		stateTracker.setCurrentState(startState);
+		for (int i = start; i < end; i++) {
+			MDCFastLex lex = new MDCFastLex(new StringReader(lines.get(i)));
+			lex.setPhilologyAsSigns(true);
+			try {
+				Symbol s;
+				while ((s = lex.next_token()).sym != MDCSymbols.EOF) {
+					if (s.sym == MDCSymbols.TOGGLE)
+						stateTracker.addToggleToTopItemList(null,
+								(ToggleType) s.value);
+				}
+			} catch (Exception e) {
+				// A guess, anyway.
+			}
+		}
+		return stateTracker.getCurrentState();
+	}
+
+	/**
+	 * Some lines, parsed one by one.
+	 */
+	private class Batch {
+		final List<String> lines;
+		final int start, end;
+		final TopItemState startState;
+		final List<TopItem> result = new ArrayList<TopItem>();
+		TopItemState endState;
+		int numberOfIncorrectLines = 0;
+
+		Batch(List<String> lines, int start, int end, TopItemState startState) {
+			this.lines = lines;
+			this.start = start;
+			this.end = end;
+			this.startState = startState;
+		}
+
+		@SuppressWarnings("unchecked")
+		Batch parse() {
+			MDCModelBuilder builder = new MDCModelBuilder(dialect);
+			builder.setCurrentState(startState);
+			MDCParserFacade parser = new MDCParserFacade(builder);
+			for (int i = start; i < end; i++) {
+				String line = lines.get(i);
+				try {
+					parser.parse(new StringReader(line));
+					TopItemList items = builder.getResult();
+					result.addAll(items.removeTopItems(0,
+							items.getNumberOfChildren()));
+				} catch (MDCSyntaxError exception) {
+					result.add(new AlphabeticText('b', "Error in file: "
+							+ exception.getMessage()));
+					result.add(new LineBreak());
+					result.add(new AlphabeticText('l', line));
+					result.add(new LineBreak());
+					numberOfIncorrectLines++;
+				}
+			}
+			endState = builder.getCurrentState();
+			return this;
+		}
+	}
+}
@@ -7,7 +7,11 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import jsesh.editor.HieroglyphicTextModel;
 import jsesh.mdc.constants.Dialect;
@@ -18,6 +22,7 @@ import jsesh.mdc.model.TopItemList;
 import jsesh.mdc.output.MdCModelWriter;
 import jsesh.mdcDisplayer.preferences.DrawingSpecification;
 import jsesh.mdcDisplayer.preferences.ShadingStyle;
+import jsesh.utils.ByteArraysUtils;
 import jsesh.utils.FileUtils;
 import jsesh.utils.SystemUtils;
 
@@ -40,6 +45,31 @@ public class MDCDocument {
 	private DocumentPreferences documentPreferences = new DocumentPreferences();
 	private HieroglyphicTextModel hieroglyphicTextModel = new HieroglyphicTextModel();
 
+	/**
+	 * Digest of the content of the file, when the document was last read
+	 * from it or saved to it.
+	 */
+	private byte[] fileDigest = null;
+
+	/**
+	 * Length of the journal replayed when the document was read, if any.
+	 */
+	private long replayedJournalLength = 0;
+
+	private boolean journaled = false;
+
+	private DocumentJournal journal = null;
+
+	/**
+	 * Reads the end of the document, if it is still being loaded.
+	 */
+	private DocumentLoader loader = null;
+
+	/**
+	 * True if the loader stopped before the end of the document.
+	 */
+	private boolean truncated = false;
+
 	public MDCDocument() {
 		hieroglyphicTextModel.setPhilologyIsSign(true);
 	}
@@ -109,6 +139,131 @@ public class MDCDocument {
 	public void setHieroglyphicTextModel(
 			HieroglyphicTextModel hieroglyphicTextModel) {
 		this.hieroglyphicTextModel = hieroglyphicTextModel;
+		if (loader != null) {
+			loader.cancel();
+			loader = null;
+		}
+		truncated = false;
+		if (journal != null) {
+			journal.close();
+			journal = null;
+			openJournal();
+			if (journal != null) {
+				journal.checkpoint();
+			}
+		}
+	}
+
+	/**
+	 * Journals the modifications of the document, so that they can be
+	 * recovered if the program stops before it is saved.
+	 * <p>
+	 * If the document has no file yet, the journal starts when it is saved.
+	 * Turning journaling off deletes the journal : call
+	 * <code>setJournaled(false)</code> when the document is closed normally.
+	 *
+	 * @param journaled
+	 * @see DocumentJournal
+	 * @see MDCDocumentReader#setReplayJournal(boolean)
+	 */
+	public void setJournaled(boolean journaled) {
+		this.journaled = journaled;
+		if (journaled) {
+			openJournal();
+		} else if (journal != null) {
+			journal.close();
+			journal = null;
+		}
+	}
+
+	public boolean isJournaled() {
+		return journaled;
+	}
+
+	/**
+	 * @return the journal of the document, or null if there is none.
+	 */
+	public DocumentJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * @return the loader which reads the end of the document, or null if the
+	 *         document has been read at once.
+	 * @see MDCDocumentReader#setLargeDocumentMode(boolean)
+	 */
+	public DocumentLoader getLoader() {
+		return loader;
+	}
+
+	void setLoader(DocumentLoader loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * @return true if the end of the document is still being read. The
+	 *         document can't be saved in the meantime.
+	 */
+	public boolean isLoading() {
+		return loader != null && !loader.isDone();
+	}
+
+	/**
+	 * @return true if only a part of the document could be read, because its
+	 *         loading failed or was cancelled. The document can't be saved,
+	 *         as this would lose its end.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Called by the loader once the loading is over.
+	 */
+	void loadingFinished(DocumentLoader finished) {
+		if (finished != loader) {
+			return;
+		}
+		loader = null;
+		if (finished.isTruncated()) {
+			truncated = true;
+			Logger.getLogger(MDCDocument.class.getName()).log(Level.WARNING,
+					"Only a part of {0} was read", file);
+		} else if (journaled) {
+			openJournal();
+			// Edits made during the loading are not in the journal yet.
+			if (journal != null && hieroglyphicTextModel.mustSave()) {
+				journal.checkpoint();
+			}
+		}
+	}
+
+	void setFileDigest(byte[] fileDigest) {
+		this.fileDigest = fileDigest;
+	}
+
+	void setReplayedJournalLength(long replayedJournalLength) {
+		this.replayedJournalLength = replayedJournalLength;
+	}
+
+	private void openJournal() {
+		if (journal != null || file == null || !file.isFile() || isLoading()) {
+			return;
+		}
+		if (fileDigest == null) {
+			try {
+				fileDigest = DocumentJournal.digest(ByteArraysUtils
+						.readFileInByteBuffer(file));
+			} catch (IOException e) {
+				Logger.getLogger(MDCDocument.class.getName()).log(
+						Level.WARNING, "Can't journal " + file, e);
+				return;
+			}
+		}
+		journal = new DocumentJournal(hieroglyphicTextModel,
+				DocumentJournal.getJournalFile(file), fileDigest,
+				replayedJournalLength);
+		replayedJournalLength = 0;
 	}
 
 	/**
@@ -121,8 +276,23 @@ public class MDCDocument {
 	public void save() throws IOException {
 		if (getFile().getName().toLowerCase().endsWith(".pdf"))
 			throw new UserMessage("THIS METHOD CAN NOT SAVE PDF");
+		checkComplete();
 		fixDocumentEncoding();
-		saveTo(new FileOutputStream(getFile()));
+		MessageDigest digest = DocumentJournal.newDigest();
+		saveTo(new DigestOutputStream(new FileOutputStream(getFile()), digest));
+		fileDigest = digest.digest();
+		if (journal != null
+				&& !journal.getFile().equals(
+						DocumentJournal.getJournalFile(getFile()))) {
+			// Saved under a new name.
+			journal.close();
+			journal = null;
+		}
+		if (journal != null) {
+			journal.restart(fileDigest);
+		} else if (journaled) {
+			openJournal();
+		}
 	}
 
 	/**
@@ -150,6 +320,7 @@ public class MDCDocument {
 	public void saveTo(Writer writer) throws IOException {
 		fixDocumentEncoding();
 		try {
+			checkComplete();
 			writeHeader(writer);
 			MdCModelWriter w = new MdCModelWriter();
 			w.write(writer, hieroglyphicTextModel.getModel());
@@ -166,6 +337,23 @@ public class MDCDocument {
 		}
 	}
 
+	/**
+	 * Checks that the document holds the whole text of its file, so that it
+	 * can be saved or exported.
+	 *
+	 * @throws IOException
+	 *             if the document is still being loaded, or if only a part of
+	 *             it could be read.
+	 */
+	public void checkComplete() throws IOException {
+		if (isLoading()) {
+			throw new IOException("The document is still being loaded");
+		}
+		if (truncated) {
+			throw new IOException("Only a part of the document could be read");
+		}
+	}
+
 	private void fixDocumentEncoding() {
 		String correctExtension;
 		// Ensure there is an encoding !
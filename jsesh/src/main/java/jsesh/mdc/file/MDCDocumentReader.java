@@ -1,25 +1,37 @@
 package jsesh.mdc.file;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.StringReader;
+import java.io.LineNumberReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import jsesh.mdc.MDCParserModelGenerator;
 import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.ProgressiveModelParser;
 import jsesh.mdc.constants.Dialect;
 import jsesh.mdc.constants.JSeshInfoConstants;
+import jsesh.mdc.events.MDCEventHandler;
+import jsesh.mdc.events.MDCEventParser;
 import jsesh.mdc.jseshInfo.JSeshInfoReader;
-import jsesh.mdc.model.AlphabeticText;
-import jsesh.mdc.model.LineBreak;
 import jsesh.mdc.model.TopItemList;
 import jsesh.utils.ByteArraysUtils;
-import jsesh.utils.StringBufferUtils;
+import jsesh.utils.ByteBufferReader;
+import jsesh.utils.ReaderUtils;
 import jsesh.utils.SystemUtils;
 
 /**
@@ -31,6 +43,41 @@ public class MDCDocumentReader {
     private String defaultEncoding = null;
     MDCDocument document;
 
+    /**
+     * Time spent reading the last document line by line, in milliseconds.
+     */
+    private long lastRecoveryTime = 0;
+
+    private int numberOfIncorrectLines = 0;
+
+    /**
+     * Files smaller than this (in bytes) are simply parsed.
+     */
+    static final int MINIMAL_SNAPSHOT_SIZE = 64 * 1024;
+
+    private boolean useSnapshots = true;
+
+    private boolean replayJournal = false;
+
+    /**
+     * Files at least this large (in bytes) are loaded progressively in large
+     * document mode.
+     */
+    static final int LARGE_DOCUMENT_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Number of line and page ends read before a large document is returned.
+     */
+    static final int FIRST_PART_SIZE = 200;
+
+    private boolean largeDocumentMode = false;
+
+    /**
+     * Number of bytes read at the start of a file to guess its encoding and
+     * dialect, when the file is not read in memory.
+     */
+    static final int SNIFF_SIZE = 4096;
+
     /**
      * Open a file in a given defaultEncoding.
      *
@@ -40,9 +87,101 @@ public class MDCDocumentReader {
      * @throws MDCSyntaxError
      */
     public MDCDocument loadFile(File file) throws IOException, MDCSyntaxError {
+        // We don't map the file in memory : on some systems, a mapped file
+        // can't be written to as long as the mapping has not been garbage
+        // collected, and the document will usually be saved to the same file.
+        ByteBuffer bytes = ByteArraysUtils.readFileInByteBuffer(file);
+        byte[] digest = replayJournal ? DocumentJournal.digest(bytes) : null;
+        // A journal is replayed on the whole text.
+        boolean progressive = largeDocumentMode
+                && bytes.remaining() >= LARGE_DOCUMENT_SIZE
+                && !(replayJournal
+                && DocumentJournal.getJournalFile(file).isFile());
+        MDCDocument result = extractDocumentFrom(bytes, file, useSnapshots
+                && bytes.remaining() >= MINIMAL_SNAPSHOT_SIZE, progressive);
+        if (replayJournal) {
+            result.setFileDigest(digest);
+        }
+        if (replayJournal && result.getLoader() == null) {
+            result.setReplayedJournalLength(DocumentJournal.replay(result,
+                    digest));
+        }
+        return result;
+    }
 
-        byte[] bytes = ByteArraysUtils.readFileInByteArray(file);
-        return extractDocumentFrom(bytes, file);
+    /**
+     * Reads a file without building its model.
+     * <p>
+     * The header is read as usual, and the text is sent to the handler as it
+     * is parsed. Use this for batch work on large files. Contrary to
+     * {@link #loadFile(File)}, there is no line by line recovery if the text
+     * is incorrect.
+     *
+     * @param file
+     * @param handler the object which will receive the content of the text.
+     * @return the document, with its properties, but with an empty text.
+     * @throws IOException
+     * @throws MDCSyntaxError
+     * @see MDCEventParser
+     */
+    public MDCDocument parseFile(File file, MDCEventHandler handler)
+            throws IOException, MDCSyntaxError {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            BufferedReader r = openText(file, channel);
+            MDCEventParser parser = new MDCEventParser(document.getDialect());
+            parser.setPhilologyAsSigns(document.getDialect().isEditorialMarksAsSign());
+            parser.parse(r, handler);
+            return document;
+        }
+    }
+
+    /**
+     * Reads the properties of a file (dialect, encoding and document
+     * preferences), but not its text.
+     * <p>
+     * Only the start of the file is read : the dialect is guessed from its
+     * first bytes, and the header, if any, is decoded directly from the file.
+     * Use this to classify many files, for instance when indexing a corpus.
+     *
+     * @param file
+     * @return the document, with its properties, but with an empty text.
+     * @throws IOException
+     */
+    public MDCDocument readProperties(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            openText(file, channel);
+            return document;
+        }
+    }
+
+    /**
+     * Starts reading a file without loading it in memory : guesses its
+     * encoding and dialect from its first bytes, and reads its header.
+     *
+     * @return a reader for the text, after the header.
+     */
+    private BufferedReader openText(File file, FileChannel channel)
+            throws IOException {
+        document = new MDCDocument();
+        document.setFile(file);
+        document.setEncoding(defaultEncoding);
+
+        ByteBuffer start = ByteBuffer.allocate(SNIFF_SIZE);
+        while (start.hasRemaining() && channel.read(start) != -1) {
+        }
+        start.flip();
+        int first = guessEncodingAndDialect(file, start);
+
+        // The decoder reads the file from the start of the header.
+        channel.position(first);
+        BufferedReader r = new BufferedReader(Channels.newReader(channel,
+                getCharset(document.getEncoding()).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), -1));
+        readHeader(r);
+        return r;
     }
 
     /**
@@ -58,67 +197,192 @@ public class MDCDocumentReader {
     public MDCDocument readStream(InputStream in, File file)
             throws IOException, MDCSyntaxError {
         byte[] bytes = ByteArraysUtils.readStreamInByteArray(in);
-        return extractDocumentFrom(bytes, file);
+        return extractDocumentFrom(ByteBuffer.wrap(bytes), file, false, false);
     }
 
     /**
-     * Extract a document from an array of bytes.
+     * Extract a document from a buffer of bytes.
+     * <p>
+     * The text is decoded on demand while the parser reads it ; no string
+     * containing the whole text is ever built.
      *
-     * @param bytes an array of bytes containing the document
+     * @param bytes a buffer containing the document, between its position
+     * and its limit.
      * @param file the file the document should be saved to (possibly later).
+     * @param withSnapshot true if the bytes are the content of the file, and
+     * its snapshot should be used (or built).
+     * @param progressive true if only the start of the text should be read,
+     * the rest being read later by the document's loader. The snapshot is
+     * still used if there is one, but none is built.
      * @return
-     * @throws UnsupportedEncodingException
+     * @throws IOException
      * @throws MDCSyntaxError
+     * @see TopItemListSnapshot
      */
-    private MDCDocument extractDocumentFrom(byte[] bytes, File file)
-            throws UnsupportedEncodingException, MDCSyntaxError {
+    private MDCDocument extractDocumentFrom(ByteBuffer bytes, File file,
+            boolean withSnapshot, boolean progressive) throws IOException,
+            MDCSyntaxError {
         document = new MDCDocument();
         document.setFile(file);
         document.setEncoding(defaultEncoding);
+        lastRecoveryTime = 0;
+        numberOfIncorrectLines = 0;
 
-        int first = 0;
+        int first = guessEncodingAndDialect(file, bytes);
+        Charset charset = getCharset(document.getEncoding());
 
-        first = guessEncodingAndDialect(file, bytes);
+        ByteBuffer text = bytes.duplicate();
+        text.position(first);
 
-        // Now, build a StringBuffer with the whole text in it.
-        StringBuffer buff;
+        TopItemListSnapshot snapshot = null;
+        File snapshotFile = null;
+        if (withSnapshot) {
+            snapshot = new TopItemListSnapshot(bytes, document.getEncoding());
+            snapshotFile = TopItemListSnapshot.getSnapshotFile(file);
+        }
 
-        if (bytes.length == 0) {
-            buff = new StringBuffer();
-        } else {
-            buff = new StringBuffer(new String(bytes, first, bytes.length
-                    - first, document.getEncoding()));
+        ByteBufferReader textReader = new ByteBufferReader(text, charset);
+        LineNumberReader r = new LineNumberReader(textReader);
+        readHeader(r);
+        if (snapshot != null) {
+            TopItemList list = snapshot.read(snapshotFile);
+            if (list != null) {
+                document.getHieroglyphicTextModel().setPhilologyIsSign(
+                        document.getDialect() != Dialect.TKSESH);
+                document.getHieroglyphicTextModel().setTopItemList(list);
+                return document;
+            }
+        }
+        if (progressive) {
+            int headerLines = r.getLineNumber();
+            ProgressiveModelParser parser = new ProgressiveModelParser(r,
+                    document.getDialect(),
+                    document.getDialect() != Dialect.TKSESH);
+            try {
+                TopItemList list = parser.nextPart(FIRST_PART_SIZE);
+                document.getHieroglyphicTextModel().setPhilologyIsSign(
+                        document.getDialect() != Dialect.TKSESH);
+                document.getHieroglyphicTextModel().setTopItemList(
+                        list == null ? new TopItemList() : list);
+                if (!parser.isDone()) {
+                    document.setLoader(new DocumentLoader(document, parser,
+                            textReader, () -> readLines(text, charset,
+                                    headerLines)));
+                }
+                return document;
+            } catch (MDCSyntaxError e) {
+                // The start of the text is incorrect : read it as usual.
+                r = new LineNumberReader(new ByteBufferReader(text, charset));
+                readHeader(r);
+            }
         }
+        try {
+            if (text.remaining() >= MDCParserModelGenerator.PARALLEL_PARSE_SIZE) {
+                int headerLines = r.getLineNumber();
+                document.getHieroglyphicTextModel().readLargeTopItemList(
+                        () -> readText(text, charset, headerLines),
+                        document.getDialect());
+            } else {
+                document.getHieroglyphicTextModel().readTopItemList(r,
+                        document.getDialect());
+            }
+            if (snapshot != null && !progressive) {
+                writeSnapshot(snapshot, snapshotFile);
+            }
+        } catch (MDCSyntaxError e) {
+            // Read the text again, line by line, starting from the error.
+            long start = System.nanoTime();
+            r = new LineNumberReader(new ByteBufferReader(text, charset));
+            readHeader(r);
+            List<String> lines = readLines(r);
+            LineRecovery recovery = new LineRecovery(document.getDialect(),
+                    Runtime.getRuntime().availableProcessors());
+            document.getHieroglyphicTextModel().setTopItemList(
+                    recovery.recover(lines, e.getLine()));
+            lastRecoveryTime = (System.nanoTime() - start) / 1000000;
+            numberOfIncorrectLines = recovery.getNumberOfIncorrectLines();
+            Logger.getLogger(MDCDocumentReader.class.getName()).log(Level.FINE,
+                    "Recovered {0} lines ({1} incorrect) in {2} ms",
+                    new Object[]{lines.size(), numberOfIncorrectLines,
+                        lastRecoveryTime});
+        }
+        return document;
+    }
 
-        readHeader(buff);
+    private static List<String> readLines(BufferedReader r) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        String line;
+        while ((line = r.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
 
-        StringReader r = new StringReader(buff.toString());
+    /**
+     * Reads the lines of a text again, after its header, for the line by line
+     * recovery of a document loaded progressively.
+     */
+    private static List<String> readLines(ByteBuffer text, Charset charset,
+            int headerLines) {
         try {
-            document.getHieroglyphicTextModel().readTopItemList(r,
-                    document.getDialect());
-        } catch (MDCSyntaxError e) {
-            MDCParserModelGenerator gen = new MDCParserModelGenerator(document.getDialect());
-            String[] tab = buff.toString().split("\n|\r|\r\n");
-            TopItemList list = new TopItemList();
-            for (String line : tab) {
-                try {
-                    TopItemList items = gen.parse(line);
-                    list.addAll(items.asList());
-                } catch (MDCSyntaxError exception) {
-                    list.addTopItem(new AlphabeticText('b', "Error in file: " + exception.getMessage()));
-                    list.addTopItem(new LineBreak());
-                    list.addTopItem(new AlphabeticText('l', line));
-                    list.addTopItem(new LineBreak());
-                }
+            return readLines(readText(text, charset, headerLines));
+        } catch (IOException e) {
+            // Can't happen : the text is in memory.
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads a text again, from the end of its header.
+     */
+    private static BufferedReader readText(ByteBuffer text, Charset charset,
+            int headerLines) {
+        try {
+            BufferedReader r = new BufferedReader(new ByteBufferReader(text,
+                    charset));
+            for (int i = 0; i < headerLines; i++) {
+                r.readLine();
             }
-            document.getHieroglyphicTextModel().setTopItemList(list);
+            return r;
+        } catch (IOException e) {
+            // Can't happen : the text is in memory.
+            throw new RuntimeException(e);
         }
-        return document;
     }
 
-    private void readHeader(StringBuffer buff) {
+    /**
+     * Writes the snapshot of a correct document. Failures are not errors : the
+     * document will simply be parsed next time.
+     */
+    private void writeSnapshot(TopItemListSnapshot snapshot, File snapshotFile) {
+        try {
+            snapshot.write(document.getHieroglyphicTextModel().getModel(),
+                    snapshotFile);
+        } catch (IOException e) {
+            Logger.getLogger(MDCDocumentReader.class.getName()).log(Level.FINE,
+                    "Could not write " + snapshotFile, e);
+        }
+    }
 
-        int headerEnd = 0;
+    private static Charset getCharset(String encoding)
+            throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalCharsetNameException e) {
+            throw new UnsupportedEncodingException(encoding);
+        } catch (UnsupportedCharsetException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+    }
+
+    /**
+     * Skip the header, if any. The header is read as a prefix of the text,
+     * and only the header lines are consumed.
+     *
+     * @param in
+     * @throws IOException
+     */
+    private void readHeader(BufferedReader in) throws IOException {
         if (null == document.getDialect()) {
 
         } else {
@@ -127,21 +391,20 @@ public class MDCDocumentReader {
                     // (and advance until we find a line not starting with "++"...
                     // we should rather set a flag so that end-of-line go back to
                     // the "+s" state).
-                    while (StringBufferUtils.startsWith(buff, headerEnd, "++")
-                            || StringBufferUtils.startsWith(buff, headerEnd, "+O")) {
-                        headerEnd = StringBufferUtils.nextLineIndex(buff, headerEnd);
+                    while (ReaderUtils.startsWith(in, "++")
+                            || ReaderUtils.startsWith(in, "+O")) {
+                        in.readLine();
                     }
                     break;
                 case WINGLYPH:
                     // Skip the first line if the document starts with a "@".
-                    if (buff.length() > 0 && buff.charAt(0) == '@') {
-                        headerEnd = StringBufferUtils.nextLineIndex(buff, 0);
+                    if (ReaderUtils.startsWith(in, "@")) {
+                        in.readLine();
                     }
                     break;
                 case JSESH1:
                     JSeshInfoReader infoReader = new JSeshInfoReader();
-                    infoReader.process(buff, document);
-                    headerEnd = infoReader.getNextPos();
+                    infoReader.process(in, document);
                     break;
                 case JSESH:
                     break;
@@ -151,10 +414,6 @@ public class MDCDocumentReader {
                     break;
             }
         }
-        if (headerEnd > 0) {
-            buff.delete(0, headerEnd);
-        }
-
     }
 
     /**
@@ -164,9 +423,9 @@ public class MDCDocumentReader {
      * @param bytes
      * @return  first reading position to start reading the header.
      */
-    private int guessEncodingAndDialect(File f, byte[] bytes) {
+    private int guessEncodingAndDialect(File f, ByteBuffer bytes) {
         // first byte to actually include in the text read
-        int firstByte = 0;
+        int firstByte = bytes.position();
 
         String guessedEncoding = null;
 
@@ -225,6 +484,81 @@ public class MDCDocumentReader {
         return defaultEncoding;
     }
 
+    /**
+     * Should large files be read from their snapshots, when they have one ?
+     * If true (the default), a snapshot is written next to large correct files
+     * when they are read, and used as long as the file doesn't change.
+     *
+     * @param useSnapshots
+     * @see TopItemListSnapshot
+     */
+    public void setUseSnapshots(boolean useSnapshots) {
+        this.useSnapshots = useSnapshots;
+    }
+
+    public boolean isUseSnapshots() {
+        return useSnapshots;
+    }
+
+    /**
+     * If true, {@link #loadFile(File)} replays the journal of the file, if
+     * the program stopped before the modifications were saved. The replayed
+     * modifications can be undone, and the document is not clean.
+     * <p>
+     * False by default, as only an editor will want this.
+     *
+     * @param replayJournal
+     * @see DocumentJournal
+     */
+    public void setReplayJournal(boolean replayJournal) {
+        this.replayJournal = replayJournal;
+    }
+
+    public boolean isReplayJournal() {
+        return replayJournal;
+    }
+
+    /**
+     * If true, {@link #loadFile(File)} only reads the first pages of large
+     * files before returning the document. The rest of the text is read by
+     * the document's loader, which must be started by the caller, and is
+     * added to the text as it is read. The document can be displayed and
+     * edited in the meantime, but not saved.
+     * <p>
+     * A large file with a journal to replay is read at once.
+     * <p>
+     * False by default.
+     *
+     * @param largeDocumentMode
+     * @see MDCDocument#getLoader()
+     * @see DocumentLoader#start(java.util.concurrent.Executor)
+     */
+    public void setLargeDocumentMode(boolean largeDocumentMode) {
+        this.largeDocumentMode = largeDocumentMode;
+    }
+
+    public boolean isLargeDocumentMode() {
+        return largeDocumentMode;
+    }
+
+    /**
+     * Time spent reading the last document line by line, because it was
+     * incorrect.
+     *
+     * @return the time in milliseconds, or 0 if the last document was correct.
+     */
+    public long getLastRecoveryTime() {
+        return lastRecoveryTime;
+    }
+
+    /**
+     * @return the number of lines of the last document which could not be
+     * read, and were kept as text.
+     */
+    public int getNumberOfIncorrectLines() {
+        return numberOfIncorrectLines;
+    }
+
     /**
      * Create a new Document from a string containing standard JSesh text.
      *
@@ -235,13 +569,8 @@ public class MDCDocumentReader {
      */
     public MDCDocument readString(String mdc, File file) throws MDCSyntaxError {
         try {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            OutputStreamWriter w = new OutputStreamWriter(out, "UTF-8");
-            w.write(mdc);
-            w.close();
-            ByteArrayInputStream in = new ByteArrayInputStream(
-                    out.toByteArray());
-            return readStream(in, file);
+            return extractDocumentFrom(ByteBuffer.wrap(mdc.getBytes("UTF-8")),
+                    file, false, false);
         } catch (IOException e) {
             throw new RuntimeException(e); // Should not happen.
         }
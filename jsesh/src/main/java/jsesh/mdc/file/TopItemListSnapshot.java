@@ -0,0 +1,790 @@
+package jsesh.mdc.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import jsesh.mdc.constants.LexicalSymbolsUtils;
+import jsesh.mdc.constants.SymbolCodes;
+import jsesh.mdc.constants.TabbingJustification;
+import jsesh.mdc.constants.TextOrientation;
+import jsesh.mdc.constants.WordEndingCode;
+import jsesh.mdc.model.AbsoluteGroup;
+import jsesh.mdc.model.AlphabeticText;
+import jsesh.mdc.model.BasicItem;
+import jsesh.mdc.model.BasicItemList;
+import jsesh.mdc.model.Cadrat;
+import jsesh.mdc.model.Cartouche;
+import jsesh.mdc.model.ComplexLigature;
+import jsesh.mdc.model.HBox;
+import jsesh.mdc.model.HRule;
+import jsesh.mdc.model.Hieroglyph;
+import jsesh.mdc.model.HorizontalListElement;
+import jsesh.mdc.model.InnerGroup;
+import jsesh.mdc.model.Ligature;
+import jsesh.mdc.model.LineBreak;
+import jsesh.mdc.model.ModelElement;
+import jsesh.mdc.model.ModelElementVisitor;
+import jsesh.mdc.model.Modifier;
+import jsesh.mdc.model.ModifiersList;
+import jsesh.mdc.model.Overwrite;
+import jsesh.mdc.model.PageBreak;
+import jsesh.mdc.model.Philology;
+import jsesh.mdc.model.SubCadrat;
+import jsesh.mdc.model.Superscript;
+import jsesh.mdc.model.TabStop;
+import jsesh.mdc.model.Tabbing;
+import jsesh.mdc.model.TabbingClear;
+import jsesh.mdc.model.TopItem;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdc.model.ZoneStart;
+import jsesh.utils.ByteArraysUtils;
+
+/**
+ * A binary copy of a parsed text, which can be read back much faster than
+ * the text can be parsed.
+ * <p>
+ * A snapshot is made for a given source : the bytes of a file, read in a given
+ * encoding. It stores a hash of this source, and can only be read back for
+ * the very same source ; if the file has changed, the snapshot is simply
+ * ignored. The snapshot of a file is kept next to it (see
+ * {@link #getSnapshotFile(File)}).
+ * <p>
+ * Format : a header (magic number, {@link #VERSION}, source hash), a table
+ * of the sign codes and modifier names used in the text, and the elements,
+ * in prefix order. Each element starts with a byte for its kind (and, for top
+ * items, its state) ; integers are written as varints, and codes as indexes in
+ * the table. When the model or the parser change in a way which would give a
+ * different model for the same text, {@link #VERSION} must be changed too.
+ *
+ * @author rosmord
+ */
+public class TopItemListSnapshot {
+
+	/**
+	 * Version of the format (and of the model it describes).
+	 */
+	public static final int VERSION = 1;
+
+	private static final byte[] MAGIC = { 'J', 'S', 'N', 'P' };
+
+	// Element kinds. Bits 5 and 6 of the kind byte are used for the state
+	// of top items.
+	private static final int ALPHABETIC_TEXT = 1;
+	private static final int BASIC_ITEM_LIST = 2;
+	private static final int CADRAT = 3;
+	private static final int CARTOUCHE = 4;
+	private static final int HBOX = 5;
+	private static final int HIEROGLYPH = 6;
+	private static final int HRULE = 7;
+	private static final int LIGATURE = 8;
+	private static final int OVERWRITE = 9;
+	private static final int PHILOLOGY = 10;
+	private static final int SUBCADRAT = 11;
+	private static final int SUPERSCRIPT = 12;
+	private static final int TABSTOP = 13;
+	private static final int LINEBREAK = 14;
+	private static final int PAGEBREAK = 15;
+	private static final int ABSOLUTE_GROUP = 16;
+	private static final int ZONE_START = 17;
+	private static final int COMPLEX_LIGATURE = 18;
+	private static final int TABBING = 19;
+	private static final int TABBING_CLEAR = 20;
+
+	private static final int KIND_MASK = 0x1F;
+	private static final int RED = 0x20;
+	private static final int SHADED = 0x40;
+	/**
+	 * For quadrants : the quadrant is shaded.
+	 */
+	private static final int HAS_SHADING = 0x80;
+	/**
+	 * For horizontal boxes, which are not top items, bits 5-7 hold the number
+	 * of children, up to {@link #SMALL_COUNT_MAX} - 1.
+	 */
+	private static final int SMALL_COUNT_SHIFT = 5;
+	private static final int SMALL_COUNT_MAX = 7;
+
+	// Hieroglyph flags.
+	private static final int GRAMMAR = 1;
+	private static final int HAS_POSITION = 2;
+	private static final int ENDING_SHIFT = 2; // two bits.
+	private static final int HAS_MODIFIERS = 0x10;
+	private static final int HAS_TYPE = 0x20;
+
+	/**
+	 * Hash of the source text.
+	 */
+	private final byte[] key;
+
+	/**
+	 * Prepares a snapshot for a text.
+	 *
+	 * @param source
+	 *            the bytes of the text (with its header), between the buffer
+	 *            position and its limit.
+	 * @param encoding
+	 *            the encoding used to read the text.
+	 */
+	public TopItemListSnapshot(ByteBuffer source, String encoding) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(encoding.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(source.duplicate());
+			key = digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e); // SHA-256 is always available.
+		}
+	}
+
+	/**
+	 * Returns the file used to store the snapshot of a file.
+	 *
+	 * @param file
+	 * @return a (hidden) file in the same directory.
+	 */
+	public static File getSnapshotFile(File file) {
+		return new File(file.getAbsoluteFile().getParentFile(), "."
+				+ file.getName() + ".snapshot");
+	}
+
+	/**
+	 * Reads the snapshot stored in a file.
+	 *
+	 * @param snapshotFile
+	 * @return the text, or null if there is no valid snapshot for the source
+	 *         in the file.
+	 */
+	public TopItemList read(File snapshotFile) {
+		if (!snapshotFile.isFile()) {
+			return null;
+		}
+		try {
+			return read(ByteArraysUtils.readFileInByteArray(snapshotFile));
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads a snapshot.
+	 *
+	 * @param data
+	 * @return the text, or null if data is not a valid snapshot for the source.
+	 */
+	public TopItemList read(byte[] data) {
+		try {
+			Input in = new Input(data);
+			for (byte b : MAGIC) {
+				if (in.readByte() != b) {
+					return null;
+				}
+			}
+			if (in.readVarint() != VERSION) {
+				return null;
+			}
+			byte[] storedKey = in.readBytes(key.length);
+			if (!Arrays.equals(key, storedKey)) {
+				return null;
+			}
+			return new ElementReader(in).readTopItemList();
+		} catch (RuntimeException e) {
+			// Truncated or corrupted data.
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a snapshot in a file. The file is written under another name,
+	 * and then renamed, so that a partly written snapshot is never used.
+	 *
+	 * @param list
+	 * @param snapshotFile
+	 * @throws IOException
+	 */
+	public void write(TopItemList list, File snapshotFile) throws IOException {
+		File tmp = new File(snapshotFile.getPath() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmp)) {
+			write(list, out);
+		}
+		try {
+			Files.move(tmp.toPath(), snapshotFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), snapshotFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Writes a snapshot.
+	 *
+	 * @param list
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(TopItemList list, OutputStream out) throws IOException {
+		ElementWriter writer = new ElementWriter();
+		writer.writeChildren(list);
+		Output header = new Output();
+		header.writeBytes(MAGIC);
+		header.writeVarint(VERSION);
+		header.writeBytes(key);
+		header.writeVarint(writer.table.size());
+		for (String s : writer.tableContent) {
+			header.writeString(s);
+		}
+		header.writeTo(out);
+		writer.body.writeTo(out);
+	}
+
+	/**
+	 * Writes the elements, in prefix order, and builds the table of codes.
+	 */
+	private static class ElementWriter implements ModelElementVisitor {
+
+		private final Output body = new Output();
+
+		private final HashMap<String, Integer> table = new HashMap<String, Integer>();
+
+		private final ArrayList<String> tableContent = new ArrayList<String>();
+
+		private void writeKind(int kind, ModelElement e) {
+			if (e instanceof TopItem) {
+				TopItem item = (TopItem) e;
+				if (item.isRed())
+					kind |= RED;
+				if (item.isShaded())
+					kind |= SHADED;
+			}
+			body.writeByte(kind);
+		}
+
+		private void writeCode(String code) {
+			Integer index = table.get(code);
+			if (index == null) {
+				index = tableContent.size();
+				table.put(code, index);
+				tableContent.add(code);
+			}
+			body.writeVarint(index);
+		}
+
+		private void writeChildren(ModelElement e) {
+			body.writeVarint(e.getNumberOfChildren());
+			for (int i = 0; i < e.getNumberOfChildren(); i++) {
+				e.getChildAt(i).accept(this);
+			}
+		}
+
+		public void visitAlphabeticText(AlphabeticText t) {
+			writeKind(ALPHABETIC_TEXT, t);
+			body.writeVarint(t.getScriptCode());
+			body.writeString(t.getText());
+		}
+
+		public void visitBasicItemList(BasicItemList l) {
+			writeKind(BASIC_ITEM_LIST, l);
+			writeChildren(l);
+		}
+
+		public void visitCadrat(Cadrat c) {
+			if (c.getShading() != 0) {
+				writeKind(CADRAT | HAS_SHADING, c);
+				body.writeVarint(c.getShading());
+			} else {
+				writeKind(CADRAT, c);
+			}
+			writeChildren(c);
+		}
+
+		public void visitCartouche(Cartouche c) {
+			writeKind(CARTOUCHE, c);
+			body.writeSignedVarint(c.getType());
+			body.writeSignedVarint(c.getStartPart());
+			body.writeSignedVarint(c.getEndPart());
+			c.getBasicItemList().accept(this);
+		}
+
+		public void visitHBox(HBox b) {
+			int n = b.getNumberOfChildren();
+			body.writeByte(HBOX
+					| (Math.min(n, SMALL_COUNT_MAX) << SMALL_COUNT_SHIFT));
+			if (n >= SMALL_COUNT_MAX) {
+				body.writeVarint(n - SMALL_COUNT_MAX);
+			}
+			for (int i = 0; i < n; i++) {
+				b.getChildAt(i).accept(this);
+			}
+		}
+
+		public void visitHieroglyph(Hieroglyph h) {
+			writeKind(HIEROGLYPH, h);
+			writeCode(h.getCode());
+			ModifiersList modifiers = h.getModifiers();
+			boolean hasPosition = h.getX() != 0 || h.getY() != 0;
+			boolean hasModifiers = modifiers.getAngle() != 0
+					|| modifiers.isReversed() || modifiers.getScale() != 100
+					|| modifiers.getNumberOfChildren() != 0;
+			boolean hasType = h.getType() != typeForCode(h.getCode());
+			body.writeByte((h.isGrammar() ? GRAMMAR : 0)
+					| (hasPosition ? HAS_POSITION : 0)
+					| (h.getEndingCode().getId() << ENDING_SHIFT)
+					| (hasModifiers ? HAS_MODIFIERS : 0)
+					| (hasType ? HAS_TYPE : 0));
+			if (hasType) {
+				body.writeVarint(h.getType());
+			}
+			if (hasPosition) {
+				body.writeSignedVarint(h.getX());
+				body.writeSignedVarint(h.getY());
+			}
+			if (hasModifiers) {
+				modifiers.accept(this);
+			}
+		}
+
+		public void visitHRule(HRule h) {
+			writeKind(HRULE, h);
+			body.writeVarint(h.getType());
+			body.writeSignedVarint(h.getStartPos());
+			body.writeSignedVarint(h.getEndPos());
+		}
+
+		public void visitLigature(Ligature l) {
+			writeKind(LIGATURE, l);
+			writeChildren(l);
+		}
+
+		public void visitModifier(Modifier mod) {
+			Integer value = mod.getValue();
+			writeCode(mod.getName());
+			if (value == null) {
+				body.writeByte(0);
+			} else {
+				body.writeByte(1);
+				body.writeSignedVarint(value);
+			}
+		}
+
+		public void visitModifierList(ModifiersList l) {
+			// Always part of a hieroglyph : no kind.
+			body.writeVarint(l.getAngle());
+			body.writeByte(l.isReversed() ? 1 : 0);
+			body.writeSignedVarint(l.getScale());
+			writeChildren(l);
+		}
+
+		public void visitOverwrite(Overwrite o) {
+			writeKind(OVERWRITE, o);
+			o.getFirst().accept(this);
+			o.getSecond().accept(this);
+		}
+
+		public void visitPhilology(Philology p) {
+			writeKind(PHILOLOGY, p);
+			body.writeSignedVarint(p.getType());
+			p.getBasicItemList().accept(this);
+		}
+
+		public void visitSubCadrat(SubCadrat c) {
+			writeKind(SUBCADRAT, c);
+			c.getBasicItemList().accept(this);
+		}
+
+		public void visitSuperScript(Superscript s) {
+			writeKind(SUPERSCRIPT, s);
+			body.writeString(s.getText());
+		}
+
+		public void visitTabStop(TabStop t) {
+			writeKind(TABSTOP, t);
+			body.writeSignedVarint(t.getStopPos());
+		}
+
+		public void visitTopItemList(TopItemList t) {
+			writeChildren(t);
+		}
+
+		public void visitLineBreak(LineBreak b) {
+			writeKind(LINEBREAK, b);
+			body.writeSignedVarint(b.getSpacing());
+		}
+
+		public void visitPageBreak(PageBreak b) {
+			writeKind(PAGEBREAK, b);
+		}
+
+		public void visitAbsoluteGroup(AbsoluteGroup g) {
+			writeKind(ABSOLUTE_GROUP, g);
+			writeChildren(g);
+		}
+
+		public void visitZoneStart(ZoneStart start) {
+			// Zone starts have no other content yet (see ZoneStart.deepCopy).
+			writeKind(ZONE_START, start);
+		}
+
+		public void visitComplexLigature(ComplexLigature ligature) {
+			writeKind(COMPLEX_LIGATURE, ligature);
+			body.writeByte((ligature.getBeforeGroup() != null ? 1 : 0)
+					| (ligature.getAfterGroup() != null ? 2 : 0));
+			writeChildren(ligature);
+		}
+
+		public void visitTabbing(Tabbing tabbing) {
+			writeKind(TABBING, tabbing);
+			body.writeSignedVarint(tabbing.getId());
+			body.writeVarint(tabbing.getTabbingJustification() == null ? 0
+					: tabbing.getTabbingJustification().ordinal() + 1);
+			body.writeVarint(tabbing.getOrientation() == null ? 0 : tabbing
+					.getOrientation().ordinal() + 1);
+		}
+
+		public void visitTabbingClear(TabbingClear tabbingClear) {
+			writeKind(TABBING_CLEAR, tabbingClear);
+		}
+	}
+
+	/**
+	 * Builds the elements back.
+	 * <p>
+	 * Codes are read once, and shared by all the signs which use them.
+	 */
+	private static class ElementReader {
+
+		private final Input in;
+
+		private final String[] table;
+
+		ElementReader(Input in) {
+			this.in = in;
+			table = new String[in.readVarint()];
+			for (int i = 0; i < table.length; i++) {
+				table[i] = in.readString();
+			}
+		}
+
+		TopItemList readTopItemList() {
+			TopItemList result = new TopItemList();
+			int n = in.readVarint();
+			for (int i = 0; i < n; i++) {
+				result.addTopItem((TopItem) readElement());
+			}
+			if (!in.atEnd()) {
+				throw new IllegalStateException("data after the text");
+			}
+			return result;
+		}
+
+		private ModelElement readElement() {
+			int kindByte = in.readByte();
+			ModelElement result;
+			switch (kindByte & KIND_MASK) {
+			case ALPHABETIC_TEXT: {
+				char scriptCode = (char) in.readVarint();
+				result = new AlphabeticText(scriptCode, in.readString());
+				break;
+			}
+			case BASIC_ITEM_LIST:
+				result = readBasicItemList();
+				break;
+			case CADRAT: {
+				Cadrat cadrat = new Cadrat();
+				if ((kindByte & HAS_SHADING) != 0) {
+					cadrat.setShading(in.readVarint());
+				}
+				int n = in.readVarint();
+				for (int i = 0; i < n; i++) {
+					cadrat.addHBox((HBox) readElement());
+				}
+				result = cadrat;
+				break;
+			}
+			case CARTOUCHE: {
+				int type = in.readSignedVarint();
+				int startPart = in.readSignedVarint();
+				int endPart = in.readSignedVarint();
+				result = new Cartouche(type, startPart, endPart,
+						(BasicItemList) readElement());
+				break;
+			}
+			case HBOX: {
+				HBox box = new HBox();
+				int n = kindByte >> SMALL_COUNT_SHIFT;
+				if (n == SMALL_COUNT_MAX) {
+					n += in.readVarint();
+				}
+				for (int i = 0; i < n; i++) {
+					box.addHorizontalListElement((HorizontalListElement) readElement());
+				}
+				result = box;
+				break;
+			}
+			case HIEROGLYPH:
+				result = readHieroglyph();
+				break;
+			case HRULE: {
+				char type = (char) in.readVarint();
+				int startPos = in.readSignedVarint();
+				result = new HRule(type, startPos, in.readSignedVarint());
+				break;
+			}
+			case LIGATURE: {
+				Ligature ligature = new Ligature();
+				int n = in.readVarint();
+				for (int i = 0; i < n; i++) {
+					ligature.addHieroglyph((Hieroglyph) readElement());
+				}
+				result = ligature;
+				break;
+			}
+			case OVERWRITE: {
+				Hieroglyph first = (Hieroglyph) readElement();
+				result = new Overwrite(first, (Hieroglyph) readElement());
+				break;
+			}
+			case PHILOLOGY: {
+				int type = in.readSignedVarint();
+				result = new Philology(type, (BasicItemList) readElement());
+				break;
+			}
+			case SUBCADRAT:
+				result = new SubCadrat((BasicItemList) readElement());
+				break;
+			case SUPERSCRIPT:
+				result = new Superscript(in.readString());
+				break;
+			case TABSTOP:
+				result = new TabStop(in.readSignedVarint());
+				break;
+			case LINEBREAK:
+				result = new LineBreak(in.readSignedVarint());
+				break;
+			case PAGEBREAK:
+				result = new PageBreak();
+				break;
+			case ABSOLUTE_GROUP: {
+				AbsoluteGroup group = new AbsoluteGroup();
+				int n = in.readVarint();
+				for (int i = 0; i < n; i++) {
+					group.addHieroglyph((Hieroglyph) readElement());
+				}
+				result = group;
+				break;
+			}
+			case ZONE_START:
+				result = new ZoneStart();
+				break;
+			case COMPLEX_LIGATURE: {
+				int groups = in.readByte();
+				if (in.readVarint() != 1 + Integer.bitCount(groups)) {
+					throw new IllegalStateException("bad complex ligature");
+				}
+				InnerGroup before = (groups & 1) != 0 ? (InnerGroup) readElement()
+						: null;
+				Hieroglyph h = (Hieroglyph) readElement();
+				InnerGroup after = (groups & 2) != 0 ? (InnerGroup) readElement()
+						: null;
+				result = new ComplexLigature(before, h, after);
+				break;
+			}
+			case TABBING: {
+				int id = in.readSignedVarint();
+				int justification = in.readVarint();
+				int orientation = in.readVarint();
+				result = new Tabbing(id,
+						justification == 0 ? null
+								: TabbingJustification.values()[justification - 1],
+						orientation == 0 ? null
+								: TextOrientation.values()[orientation - 1]);
+				break;
+			}
+			case TABBING_CLEAR:
+				result = new TabbingClear();
+				break;
+			default:
+				throw new IllegalStateException("unknown element " + kindByte);
+			}
+			if (result instanceof TopItem && (kindByte & (RED | SHADED)) != 0) {
+				if ((kindByte & RED) != 0)
+					((TopItem) result).setRed(true);
+				if ((kindByte & SHADED) != 0)
+					((TopItem) result).setShaded(true);
+			}
+			return result;
+		}
+
+		private BasicItemList readBasicItemList() {
+			BasicItemList list = new BasicItemList();
+			int n = in.readVarint();
+			for (int i = 0; i < n; i++) {
+				list.addBasicItem((BasicItem) readElement());
+			}
+			return list;
+		}
+
+		private Hieroglyph readHieroglyph() {
+			Hieroglyph h = new Hieroglyph(table[in.readVarint()]);
+			int flags = in.readByte();
+			if ((flags & HAS_TYPE) != 0) {
+				h.setType(in.readVarint());
+			}
+			if ((flags & GRAMMAR) != 0) {
+				h.setGrammar(true);
+			}
+			switch ((flags >> ENDING_SHIFT) & 3) {
+			case 1:
+				h.setEndingCode(WordEndingCode.WORD_END);
+				break;
+			case 2:
+				h.setEndingCode(WordEndingCode.SENTENCE_END);
+				break;
+			}
+			int x = 0, y = 0;
+			if ((flags & HAS_POSITION) != 0) {
+				x = in.readSignedVarint();
+				y = in.readSignedVarint();
+			}
+			ModifiersList modifiers = h.getModifiers();
+			if ((flags & HAS_MODIFIERS) != 0) {
+				modifiers.setAngle(in.readVarint());
+				modifiers.setReversed(in.readByte() != 0);
+				modifiers.setScale(in.readSignedVarint());
+				int n = in.readVarint();
+				for (int i = 0; i < n; i++) {
+					String name = table[in.readVarint()];
+					Integer value = null;
+					if (in.readByte() != 0) {
+						value = in.readSignedVarint();
+					}
+					modifiers.includeModifier(new Modifier(name, value));
+				}
+			}
+			if ((flags & HAS_POSITION) != 0) {
+				h.setExplicitPosition(x, y, modifiers.getScale());
+			}
+			return h;
+		}
+	}
+
+	/**
+	 * The type a sign gets from its code.
+	 *
+	 * @see Hieroglyph#setCode(String)
+	 */
+	private static int typeForCode(String code) {
+		int type = LexicalSymbolsUtils.getCodeForString(code);
+		return type == -1 ? SymbolCodes.MDCCODE : type;
+	}
+
+	/**
+	 * A growing byte array.
+	 */
+	private static class Output {
+		private byte[] data = new byte[4096];
+		private int size = 0;
+
+		void writeByte(int b) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = (byte) b;
+		}
+
+		void writeBytes(byte[] bytes) {
+			for (byte b : bytes) {
+				writeByte(b);
+			}
+		}
+
+		void writeVarint(int v) {
+			while ((v & ~0x7F) != 0) {
+				writeByte((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			writeByte(v);
+		}
+
+		void writeSignedVarint(int v) {
+			writeVarint((v << 1) ^ (v >> 31));
+		}
+
+		void writeString(String s) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			writeBytes(bytes);
+		}
+
+		void writeTo(OutputStream out) throws IOException {
+			out.write(data, 0, size);
+		}
+	}
+
+	/**
+	 * Reads a byte array. Reading past its end throws an exception.
+	 */
+	private static class Input {
+		private final byte[] data;
+		private int pos = 0;
+
+		Input(byte[] data) {
+			this.data = data;
+		}
+
+		int readByte() {
+			return data[pos++] & 0xFF;
+		}
+
+		byte[] readBytes(int n) {
+			byte[] result = Arrays.copyOfRange(data, pos, pos + n);
+			pos += n;
+			return result;
+		}
+
+		int readVarint() {
+			int result = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = readByte();
+				result |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return result;
+		}
+
+		int readSignedVarint() {
+			int v = readVarint();
+			return (v >>> 1) ^ -(v & 1);
+		}
+
+		String readString() {
+			int length = readVarint();
+			if (length > data.length - pos) {
+				throw new IllegalStateException("truncated data");
+			}
+			String result = new String(data, pos, length,
+					StandardCharsets.UTF_8);
+			pos += length;
+			return result;
+		}
+
+		boolean atEnd() {
+			return pos == data.length;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package jsesh.mdc.jseshInfo;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.HashMap;
 
 import jsesh.mdc.constants.JSeshInfoConstants;
@@ -7,6 +9,7 @@ import jsesh.mdc.constants.TextDirection;
 import jsesh.mdc.constants.TextOrientation;
 import jsesh.mdc.file.DocumentPreferences;
 import jsesh.mdc.file.MDCDocument;
+import jsesh.utils.ReaderUtils;
 import jsesh.utils.StringBufferUtils;
 
 public class JSeshInfoReader {
@@ -28,14 +31,39 @@ public class JSeshInfoReader {
 		while (StringBufferUtils.startsWith(buffer, pos, "++"
 				+ JSeshInfoConstants.JSESH_INFO_PREFIX)) {
 			String line = readLine();
-			String[] tab = line.split(" ");
-			String property = tab[0].substring(2);
-			String value = tab.length > 1 ? tab[1] : "";
-			propertyMap.put(property, value);
+			addProperty(propertyMap, line);
 		}
 		document.setDocumentPreferences(DocumentPreferences.fromStringMap(propertyMap));
 	}
 
+	/**
+	 * Reads the JSesh info lines at the start of a reader.
+	 * <p>
+	 * Only the header lines are consumed; when this method returns, the
+	 * reader is positioned at the start of the actual text.
+	 * 
+	 * @param in
+	 * @param document
+	 * @throws IOException
+	 */
+	public void process(BufferedReader in, MDCDocument document)
+			throws IOException {
+		this.document = document;
+		HashMap<String, String> propertyMap = new HashMap<String, String>();
+		while (ReaderUtils.startsWith(in, "++"
+				+ JSeshInfoConstants.JSESH_INFO_PREFIX)) {
+			addProperty(propertyMap, in.readLine());
+		}
+		document.setDocumentPreferences(DocumentPreferences.fromStringMap(propertyMap));
+	}
+
+	private void addProperty(HashMap<String, String> propertyMap, String line) {
+		String[] tab = line.split(" ");
+		String property = tab[0].substring(2);
+		String value = tab.length > 1 ? tab[1] : "";
+		propertyMap.put(property, value);
+	}
+
 	
 	public int getNextPos() {
 		return pos;
@@ -0,0 +1,1100 @@
+package jsesh.mdc.lex;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import java_cup.runtime.Symbol;
+import jsesh.hieroglyphs.data.SignCodeInterner;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.ParserErrorManager;
+import jsesh.mdc.constants.SymbolCodes;
+import jsesh.mdc.constants.ToggleType;
+
+/**
+ * Hand-written lexical analyser for manuel de codage texts.
+ * <p>
+ * It recognizes exactly the same language as the JLex-generated analyser
+ * (see MDCLexAux.l and {@link MDCLex}), and produces the same tokens, with
+ * the same values. As in JLex, the longest match wins, and among matches of
+ * the same length, the first rule in MDCLexAux.l wins.
+ * <p>
+ * Instead of going through the generic JLex automaton, the analyser
+ * dispatches on the first character of each token, and only tests the rules
+ * which can start with it. The text is read directly from a char buffer, and
+ * hieroglyphic codes are interned through a small table, so that the same
+ * code is represented by the same string in the whole text, and no
+ * temporary string is built to find it.
+ *
+ * @author rosmord
+ */
+public class MDCFastLex implements java_cup.runtime.Scanner,
+		ParserErrorManager, MDCSymbols, SymbolCodes {
+
+	private static final int EOF_CHAR = -1;
+
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	/**
+	 * Size above which the table of codes is not kept by {@link #reset(Reader)}.
+	 */
+	private static final int MAXIMAL_KEPT_CODES = 4096;
+
+	private static final byte LETTER = 1;
+
+	private static final byte CODE = 2;
+
+	/**
+	 * Classes of ASCII chars.
+	 */
+	private static final byte[] CHAR_CLASSES = new byte[128];
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			CHAR_CLASSES[c] = LETTER | CODE;
+			CHAR_CLASSES[Character.toUpperCase(c)] = LETTER | CODE;
+		}
+		for (char c = '0'; c <= '9'; c++)
+			CHAR_CLASSES[c] = CODE;
+		CHAR_CLASSES['@'] = CODE;
+	}
+
+	private Reader in;
+
+	/**
+	 * Chars read from the input. The current token starts at start.
+	 */
+	private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+
+	/**
+	 * Start of the current token in buffer.
+	 */
+	private int start = 0;
+
+	/**
+	 * End of the current token in buffer.
+	 */
+	private int end = 0;
+
+	/**
+	 * Number of chars read in buffer.
+	 */
+	private int limit = 0;
+
+	private boolean endOfInput = false;
+
+	/**
+	 * Position of the current token in the text, as in JLex.
+	 */
+	private int yychar = 0;
+
+	/**
+	 * Line of the current token, as in JLex (\r, \n and \r\n are line ends).
+	 */
+	private int yyline = 0;
+
+	private boolean lastWasCR = false;
+
+	/**
+	 * True between {{ and }}, and between [ and ].
+	 */
+	private boolean inProperties = false;
+
+	private boolean philologyAsSigns;
+
+	private boolean expectSpace = false;
+
+	/**
+	 * Used to see if '#' corresponds to shading or to overwrite.
+	 */
+	private boolean justAfterSign = false;
+
+	private boolean debug;
+
+	private CodeTable codes = new CodeTable();
+
+	/**
+	 * The last token read by the lexer. May be null.
+	 */
+	private Symbol lastToken;
+
+	public MDCFastLex(Reader in) {
+		this.in = in;
+		setDebug(false);
+	}
+
+	/**
+	 * Prepares the analyser to read another text, as if it had just been
+	 * created, with the same settings (philology, debug).
+	 * <p>
+	 * The buffer and the table of codes are kept, unless they have grown
+	 * too large, so that many short texts (as the ones typed in the editor)
+	 * can be read without allocating them each time.
+	 *
+	 * @param in
+	 *            the new text.
+	 */
+	public void reset(Reader in) {
+		this.in = in;
+		if (buffer.length > INITIAL_BUFFER_SIZE)
+			buffer = new char[INITIAL_BUFFER_SIZE];
+		if (codes.size > MAXIMAL_KEPT_CODES)
+			codes = new CodeTable();
+		start = 0;
+		end = 0;
+		limit = 0;
+		endOfInput = false;
+		yychar = 0;
+		yyline = 0;
+		lastWasCR = false;
+		inProperties = false;
+		expectSpace = false;
+		justAfterSign = false;
+		lastToken = null;
+	}
+
+	public Symbol next_token() throws IOException {
+		Symbol result;
+		do {
+			markStart();
+			if (la(0) == EOF_CHAR) {
+				printDebug(EOF);
+				result = buildMDCSymbol(EOF);
+			} else if (inProperties) {
+				result = nextPropertiesToken();
+			} else {
+				result = nextToken();
+			}
+		} while (result == null);
+		lastToken = result;
+		fixExpect(result);
+		return result;
+	}
+
+	public MDCSyntaxError buildError(String message) {
+		String token = lastToken.toString();
+		String res = message + " line " + yyline + " char " + yychar
+				+ " at token '" + yytext() + "'";
+		return new MDCSyntaxError(res, yyline, yychar, token);
+	}
+
+	/**
+	 * Put in "space is meaningful" mode if spaces are meaningful after the
+	 * current symbol.
+	 *
+	 * @param s
+	 */
+	private void fixExpect(Symbol s) {
+		expectSpace = s.sym == HIEROGLYPH || s.sym == MODIFIER
+				|| s.sym == DOUBLERIGHTCURLY;
+		justAfterSign = s.sym == HIEROGLYPH;
+	}
+
+	public void reset() {
+		expectSpace = false;
+		justAfterSign = false;
+		inProperties = false;
+	}
+
+	public boolean getDebug() {
+		return debug;
+	}
+
+	public void setDebug(boolean d) {
+		this.debug = d;
+	}
+
+	/**
+	 * @return if philological markers are simple signs.
+	 */
+	public boolean getPhilologyAsSigns() {
+		return philologyAsSigns;
+	}
+
+	/**
+	 * choose if philological parenthesis will be considered as simple signs.
+	 *
+	 * @param p
+	 */
+	public void setPhilologyAsSigns(boolean p) {
+		this.philologyAsSigns = p;
+	}
+
+	/**
+	 * Reads a token in the normal state. Returns null for ignored spaces.
+	 */
+	private Symbol nextToken() throws IOException {
+		int c = la(0);
+		int c1 = la(1);
+		switch (c) {
+		case '!':
+			if (c1 == '!') {
+				accept(2 + countLineSpaces(2));
+				return buildMDCSymbol(PAGEEND);
+			} else {
+				int len = 1;
+				int skip = 100; // default value.
+				if (c1 == '=') {
+					int digits = countDigits(2);
+					if (digits > 0 && la(2 + digits) == '%') {
+						skip = Integer.parseInt(new String(buffer, start + 2,
+								digits));
+						len = 3 + digits;
+					}
+				}
+				accept(len + countLineSpaces(len));
+				// The skip is expressed as percentage of normal skip.
+				return buildMDCIntValuedSymbol(LINEEND, skip);
+			}
+		case '?': {
+			int digits = countDigits(1);
+			if (digits > 0) {
+				accept(1 + digits);
+				return buildMDCIntValuedSymbol(TABSTOP,
+						Integer.parseInt(new String(buffer, start + 1, digits)));
+			} else if (c1 == '?') {
+				accept(2);
+				return buildMDCToggle(ToggleType.LINELACUNA);
+			} else if (c1 == ']') {
+				accept(2);
+				return handlePhilology(ENDPHIL, DUBIOUS);
+			} else {
+				accept(1);
+				return buildMDCToggle(ToggleType.LACUNA);
+			}
+		}
+		case '%':
+			if (lookingAt(1, "clear")) {
+				accept(6);
+				return buildMDCSymbol(TABBINGCLEAR);
+			} else {
+				accept(1);
+				return buildMDCSymbol(TABBING);
+			}
+		case '{':
+			if (c1 == 'l' || c1 == 'L') {
+				int len = matchHRule();
+				if (len > 0) {
+					accept(len);
+					return buildHRule((char) c1);
+				}
+			} else if (c1 == '{') {
+				accept(2);
+				inProperties = true;
+				return buildMDCSymbol(DOUBLELEFTCURLY);
+			}
+			return buildUnknown();
+		case '+':
+			if (c1 == 's') {
+				accept(2);
+				return buildMDCSymbol(STARTHIEROGLYPHS);
+			} else if (c1 == '+' || (c1 >= 'a' && c1 <= 'z')) {
+				accept(2 + matchAlphabeticTextBody(2));
+				return buildMDCAlphabeticText((char) c1);
+			}
+			return buildUnknown();
+		case '|':
+			accept(matchTextSuper());
+			return buildMDCString(TEXTSUPER, new String(buffer, start + 1, end
+					- start - 1));
+		case ' ':
+		case '\t':
+		case '\n':
+		case '\r':
+		case '_': {
+			int spaces = 1 + countTrueSpaces(1);
+			justAfterSign = false;
+			if (spaces == 1) {
+				accept(1);
+				if (expectSpace)
+					return buildMDCSymbol(WORDEND);
+			} else {
+				// Spaces go by pairs.
+				accept(spaces & ~1);
+				if (expectSpace)
+					return buildMDCSymbol(SENTENCEEND);
+			}
+			return null;
+		}
+		case '-':
+			if (c1 == '#') {
+				switch (la(2)) {
+				case '-':
+					accept(3);
+					return buildMDCToggle(ToggleType.SHADINGTOGGLE);
+				case 'b':
+					accept(3);
+					return buildMDCToggle(ToggleType.SHADINGON);
+				case 'e':
+					accept(3);
+					return buildMDCToggle(ToggleType.SHADINGOFF);
+				default:
+					accept(2);
+					return buildMDCToggle(ToggleType.SHADINGTOGGLE);
+				}
+			} else {
+				// Non standard. Used to fix small errors.
+				accept(1 + countLineSpaces(1));
+				return buildMDCSymbol(SEPARATOR);
+			}
+		case '#':
+			return matchSharp(c1);
+		case '$':
+			if (c1 == 'r') {
+				accept(2);
+				return buildMDCToggle(ToggleType.RED);
+			} else if (c1 == 'b') {
+				accept(2);
+				return buildMDCToggle(ToggleType.BLACK);
+			} else {
+				accept(1);
+				return buildMDCToggle(ToggleType.BLACKRED);
+			}
+		case '^':
+			if (c1 == '^') {
+				accept(la(2) == '^' ? 3 : 2);
+				return buildMDCSymbol(LIGBEFORE);
+			} else {
+				accept(1);
+				return buildMDCToggle(ToggleType.OMMIT);
+			}
+		case ':':
+			accept(1);
+			return buildMDCSymbol(COLON);
+		case '*':
+			if (c1 == '*') {
+				accept(2);
+				return buildMDCSymbol(DOUBLEAMP);
+			} else {
+				accept(1);
+				return buildMDCSymbol(STAR);
+			}
+		case '[':
+			return matchOpeningBracket(c1);
+		case '<':
+			return matchCartoucheStart(c1);
+		case '>':
+			accept(1);
+			return buildEndCartouche('c', '2');
+		case ']':
+			if (c1 == ']') {
+				accept(2);
+				return handlePhilology(ENDPHIL, ERASEDSIGNS);
+			}
+			return buildUnknown();
+		case '}':
+			if (c1 == ']') {
+				accept(2);
+				return handlePhilology(ENDPHIL, EDITORSUPERFLUOUS);
+			}
+			return buildUnknown();
+		case '"':
+			if (c1 == ']') {
+				accept(2);
+				return handlePhilology(ENDPHIL, PREVIOUSLYREADABLE);
+			} else {
+				int len = matchSmallText();
+				if (len > 0) {
+					accept(len);
+					return buildMDCSign(SMALLTEXT, yytext());
+				}
+			}
+			return buildUnknown();
+		case '\'':
+			if (c1 == ']') {
+				accept(2);
+				return handlePhilology(ENDPHIL, SCRIBEADDITION);
+			}
+			return buildUnknown();
+		case '&':
+			if (c1 == '&') {
+				if (la(2) == '&') {
+					accept(3);
+					return buildMDCSymbol(LIGAFTER);
+				} else {
+					accept(2);
+					return buildMDCSymbol(DOUBLEAMP);
+				}
+			} else if (c1 == ']') {
+				accept(2);
+				return handlePhilology(ENDPHIL, EDITORADDITION);
+			} else {
+				accept(1);
+				return buildMDCSymbol(AMP);
+			}
+		case ')':
+			if (c1 == ']') {
+				accept(2);
+				return handlePhilology(ENDPHIL, MINORADDITION);
+			} else {
+				accept(1);
+				return buildMDCSymbol(EPAR);
+			}
+		case '(':
+			accept(1);
+			return buildMDCSymbol(BPAR);
+		case '=':
+			accept(1);
+			return buildMDCSymbol(GRAMMAR);
+		case '\\':
+			accept(matchModifier(c1));
+			return buildMDCModifier(yytext());
+		case '`':
+			accept(1);
+			return buildMDCSign(MDCCODE, "`");
+		case '.':
+			if (c1 == '.') {
+				accept(2);
+				return buildMDCSign(FULLSPACE, "..");
+			} else {
+				accept(1);
+				return buildMDCSign(HALFSPACE, ".");
+			}
+		case '/':
+			if (c1 == '/') {
+				accept(2);
+				return buildMDCSign(FULLSHADE, "//");
+			} else {
+				accept(1);
+				return buildMDCSign(QUATERSHADE, "/");
+			}
+		case 's':
+		case 'f':
+		case 'h':
+			if (c1 >= '0' && c1 <= '3' && la(2) == '>') {
+				accept(3);
+				return buildEndCartouche((char) c, (char) c1);
+			} else if (c1 == '>') {
+				accept(2);
+				return buildEndCartouche((char) c, '2');
+			} else if (c == 'h' && c1 == '/') {
+				accept(2);
+				return buildMDCSign(HORIZONTALSHADE, "h/");
+			}
+			return matchCode();
+		case '0':
+		case '1':
+		case '2':
+			if (c1 == '>') {
+				accept(2);
+				return buildEndCartouche('c', (char) c);
+			}
+			return matchCode();
+		case 'v':
+			if (c1 == '/') {
+				accept(2);
+				return buildMDCSign(VERTICALSHADE, "v/");
+			}
+			return matchCode();
+		case 'o':
+			if (!isCodeChar(c1)) {
+				accept(1);
+				return buildMDCSign(REDPOINT, "o");
+			}
+			return matchCode();
+		case 'O':
+			if (!isCodeChar(c1)) {
+				accept(1);
+				return buildMDCSign(BLACKPOINT, "O");
+			}
+			return matchCode();
+		case 'z':
+			if (lookingAt(1, "one") && !isCodeChar(la(4))) {
+				accept(4);
+				return buildMDCSymbol(ZONE);
+			}
+			return matchCode();
+		case 'q':
+			if (lookingAt(1, "uadrant") && !isCodeChar(la(8))) {
+				accept(8);
+				return buildMDCSymbol(CADRAT);
+			}
+			return matchCode();
+		default:
+			if (isCodeChar(c))
+				return matchCode();
+			return buildUnknown();
+		}
+	}
+
+	/**
+	 * Reads a token between {{ and }}, or [ and ]. Returns null for spaces.
+	 */
+	private Symbol nextPropertiesToken() throws IOException {
+		int c = la(0);
+		switch (c) {
+		case '}':
+			if (la(1) == '}') {
+				accept(2);
+				inProperties = false;
+				return buildMDCSymbol(DOUBLERIGHTCURLY);
+			}
+			return buildUnknown();
+		case ']':
+			accept(1);
+			inProperties = false;
+			return buildMDCSymbol(CLOSEBRACE);
+		case ',':
+			accept(1);
+			return buildMDCSymbol(COMMA);
+		case '=':
+			accept(1);
+			return buildMDCSymbol(EQUAL);
+		case ' ':
+		case '\t':
+		case '\n':
+		case '\r':
+			accept(1);
+			return null;
+		default:
+			if (c >= '0' && c <= '9') {
+				accept(countDigits(0));
+				return buildMDCIntValuedSymbol(INTEGER,
+						Integer.parseInt(yytext()));
+			} else if (isIdentifierStart(c)) {
+				int len = 1;
+				while (isIdentifierStart(la(len))
+						|| (la(len) >= '0' && la(len) <= '9'))
+					len++;
+				accept(len);
+				return buildMDCString(IDENTIFIER, yytext());
+			}
+			return buildUnknown();
+		}
+	}
+
+	/**
+	 * Codes starting with '#'.
+	 */
+	private Symbol matchSharp(int c1) throws IOException {
+		switch (c1) {
+		case '-':
+		case ' ': {
+			int len = 2;
+			if (c1 == ' ') {
+				while (la(len) == ' ')
+					len++;
+			}
+			accept(len);
+			// #- can be either SHADINGTOGGLE or full cadrat shading
+			// (normally #// or #1234).
+			if (justAfterSign)
+				return buildMDCShading("#1234");
+			else
+				return buildMDCToggle(ToggleType.SHADINGTOGGLE);
+		}
+		case 'b':
+			accept(2);
+			return buildMDCToggle(ToggleType.SHADINGON);
+		case 'e':
+			accept(2);
+			return buildMDCToggle(ToggleType.SHADINGOFF);
+		case '#':
+			accept(2);
+			return buildMDCSymbol(OVERWRITE);
+		case '1':
+		case '2':
+		case '3':
+		case '4': {
+			int len = 1;
+			for (char digit = '1'; digit <= '4'; digit++) {
+				if (la(len) == digit)
+					len++;
+			}
+			accept(len);
+			return buildMDCShading(yytext());
+		}
+		default:
+			accept(1);
+			// Potential problem here : A #x could really mean
+			// "A (end word) overwrite x" !!!
+			if (justAfterSign)
+				return buildMDCSymbol(OVERWRITE);
+			else
+				return buildMDCToggle(ToggleType.SHADINGTOGGLE);
+		}
+	}
+
+	private Symbol matchOpeningBracket(int c1) throws IOException {
+		int sub;
+		switch (c1) {
+		case '[':
+			sub = ERASEDSIGNS;
+			break;
+		case '{':
+			sub = EDITORSUPERFLUOUS;
+			break;
+		case '"':
+			sub = PREVIOUSLYREADABLE;
+			break;
+		case '\'':
+			sub = SCRIBEADDITION;
+			break;
+		case '&':
+			sub = EDITORADDITION;
+			break;
+		case '(':
+			sub = MINORADDITION;
+			break;
+		case '?':
+			sub = DUBIOUS;
+			break;
+		default:
+			accept(1);
+			inProperties = true;
+			return buildMDCSymbol(OPENBRACE);
+		}
+		accept(2);
+		return handlePhilology(BEGINPHIL, sub);
+	}
+
+	private Symbol matchCartoucheStart(int c1) throws IOException {
+		int c2 = la(2);
+		if (c1 == 'S' || c1 == 'F' || c1 == 'H') {
+			if (c2 == 'b' || c2 == 'm' || c2 == 'e') {
+				accept(3);
+				return buildStartOldCartouche((char) c1, (char) c2);
+			} else {
+				accept(2);
+				return buildStartOldCartouche((char) c1, 'a');
+			}
+		} else if (c1 == 'b' || c1 == 'm' || c1 == 'e') {
+			accept(2);
+			return buildStartOldCartouche('c', (char) c1);
+		} else if (c1 == 's' || c1 == 'f' || c1 == 'h') {
+			if (c2 >= '0' && c2 <= '3') {
+				accept(3);
+				return buildBeginCartouche((char) c1, (char) c2);
+			} else {
+				accept(2);
+				return buildBeginCartouche((char) c1, '1');
+			}
+		} else if (c1 >= '0' && c1 <= '2') {
+			accept(2);
+			return buildBeginCartouche('c', (char) c1);
+		} else {
+			accept(1);
+			return buildStartOldCartouche('c', 'a');
+		}
+	}
+
+	/**
+	 * Matches a hieroglyphic code, that is, a sequence of letters, digits
+	 * and '@', or '@' followed by any char.
+	 */
+	private Symbol matchCode() throws IOException {
+		int len = 1;
+		while (isCodeChar(la(len)))
+			len++;
+		if (len == 1 && la(0) == '@' && isAnyChar(la(1)))
+			len = 2;
+		accept(len);
+		printDebug(MDCCODE);
+		return new Symbol(HIEROGLYPH, new MDCSign(MDCCODE, codes.get(buffer,
+				start, len)));
+	}
+
+	/**
+	 * Length of the modifier starting at the current position (with '\').
+	 */
+	private int matchModifier(int c1) throws IOException {
+		if (c1 == '?')
+			return 2;
+		// General form : letters followed by digits.
+		int len = 1;
+		while (isLetter(la(len)))
+			len++;
+		len += countDigits(len);
+		// \R, with a possibly negative value.
+		if (c1 == 'R') {
+			int rLength = la(2) == '-' ? 3 : 2;
+			rLength += countDigits(rLength);
+			len = Math.max(len, rLength);
+		}
+		return len;
+	}
+
+	/**
+	 * Length of "{l" INTEGER "," INTEGER "}", or 0.
+	 */
+	private int matchHRule() throws IOException {
+		int len = 2;
+		int digits = countDigits(len);
+		if (digits == 0)
+			return 0;
+		len += digits;
+		if (la(len) != ',')
+			return 0;
+		len++;
+		digits = countDigits(len);
+		if (digits == 0)
+			return 0;
+		len += digits;
+		if (la(len) != '}')
+			return 0;
+		return len + 1;
+	}
+
+	/**
+	 * Length of the body of a text, starting at pos. The body is described
+	 * by (\\\+|[^+]|"+"[^a-z+])* ; we simulate the corresponding automaton.
+	 */
+	private int matchAlphabeticTextBody(int pos) throws IOException {
+		final int normal = 1, escape = 2, plus = 4;
+		int states = normal;
+		int result = 0;
+		for (int i = pos; states != 0; i++) {
+			int c = la(i);
+			if (c == EOF_CHAR)
+				break;
+			int next = 0;
+			if ((states & normal) != 0) {
+				if (c == '+') {
+					next |= plus;
+				} else {
+					next |= normal;
+					if (c == '\\')
+						next |= escape;
+				}
+			}
+			if ((states & escape) != 0 && c == '+')
+				next |= normal;
+			if ((states & plus) != 0 && c != '+' && (c < 'a' || c > 'z'))
+				next |= normal;
+			states = next;
+			if ((states & normal) != 0)
+				result = i + 1 - pos;
+		}
+		return result;
+	}
+
+	/**
+	 * Length of "|"([^-]|"\-")*.
+	 */
+	private int matchTextSuper() throws IOException {
+		int len = 1;
+		int c;
+		while ((c = la(len)) != EOF_CHAR
+				&& (c != '-' || (len > 1 && la(len - 1) == '\\')))
+			len++;
+		return len;
+	}
+
+	/**
+	 * Length of \"([^\"\\\]]|\\.)*\", or 0.
+	 */
+	private int matchSmallText() throws IOException {
+		int len = 1;
+		while (true) {
+			int c = la(len);
+			if (c == '"') {
+				return len + 1;
+			} else if (c == '\\') {
+				if (!isAnyChar(la(len + 1)))
+					return 0;
+				len += 2;
+			} else if (c == EOF_CHAR || c == ']') {
+				return 0;
+			} else {
+				len++;
+			}
+		}
+	}
+
+	private int countDigits(int pos) throws IOException {
+		int len = 0;
+		int c;
+		while ((c = la(pos + len)) >= '0' && c <= '9')
+			len++;
+		return len;
+	}
+
+	/**
+	 * Counts chars in [ \t\n\r_-].
+	 */
+	private int countLineSpaces(int pos) throws IOException {
+		int len = 0;
+		int c;
+		while (isTrueSpace(c = la(pos + len)) || c == '-')
+			len++;
+		return len;
+	}
+
+	private int countTrueSpaces(int pos) throws IOException {
+		int len = 0;
+		while (isTrueSpace(la(pos + len)))
+			len++;
+		return len;
+	}
+
+	private boolean lookingAt(int pos, String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			if (la(pos + i) != s.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Chars matched by '.' in JLex (which excludes both \r and \n).
+	 */
+	private static boolean isAnyChar(int c) {
+		return c != EOF_CHAR && c != '\n' && c != '\r';
+	}
+
+	private static boolean isTrueSpace(int c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '_';
+	}
+
+	private static boolean isLetter(int c) {
+		return c >= 0 && c < 128 && (CHAR_CLASSES[c] & LETTER) != 0;
+	}
+
+	private static boolean isCodeChar(int c) {
+		return c >= 0 && c < 128 && (CHAR_CLASSES[c] & CODE) != 0;
+	}
+
+	private static boolean isIdentifierStart(int c) {
+		return isLetter(c) || c == '_';
+	}
+
+	/**
+	 * Returns the char at position pos from the start of the current token,
+	 * or EOF_CHAR.
+	 */
+	private int la(int pos) throws IOException {
+		int index = start + pos;
+		if (index < limit)
+			return buffer[index];
+		return fill(index);
+	}
+
+	/**
+	 * Reads more chars, until index is available or the end of input is
+	 * reached.
+	 */
+	private int fill(int index) throws IOException {
+		while (index >= limit && !endOfInput) {
+			if (start > 0) {
+				System.arraycopy(buffer, start, buffer, 0, limit - start);
+				limit -= start;
+				end -= start;
+				index -= start;
+				start = 0;
+			}
+			if (limit == buffer.length) {
+				char[] newBuffer = new char[buffer.length * 2];
+				System.arraycopy(buffer, 0, newBuffer, 0, limit);
+				buffer = newBuffer;
+			}
+			int read = in.read(buffer, limit, buffer.length - limit);
+			if (read == -1)
+				endOfInput = true;
+			else
+				limit += read;
+		}
+		if (index < limit)
+			return buffer[index];
+		return EOF_CHAR;
+	}
+
+	/**
+	 * Move past the last token, and update the position.
+	 */
+	private void markStart() {
+		for (int i = start; i < end; i++) {
+			char c = buffer[i];
+			if (c == '\r') {
+				yyline++;
+				lastWasCR = true;
+			} else {
+				if (c == '\n' && !lastWasCR)
+					yyline++;
+				lastWasCR = false;
+			}
+		}
+		yychar += end - start;
+		start = end;
+	}
+
+	private void accept(int length) {
+		end = start + length;
+	}
+
+	private String yytext() {
+		return new String(buffer, start, end - start);
+	}
+
+	/**
+	 * @return the line of the last token, counted from 0.
+	 */
+	public int getLine() {
+		return yyline;
+	}
+
+	/**
+	 * @return the position of the last token, in chars from the start of the
+	 *         text.
+	 */
+	int getCharPos() {
+		return yychar;
+	}
+
+	/**
+	 * Appends the text of the last token.
+	 *
+	 * @param b
+	 */
+	void appendText(StringBuilder b) {
+		b.append(buffer, start, end - start);
+	}
+
+	/**
+	 * Handle philological parenthesis, choosing between simple signs and
+	 * complex contructs, depending on user's choice.
+	 */
+	private Symbol handlePhilology(int type, int sub) {
+		if (philologyAsSigns) {
+			if (type == BEGINPHIL)
+				return buildMDCSign(sub * 2, yytext());
+			else
+				return buildMDCSign(sub * 2 + 1, yytext());
+		} else {
+			printDebug(type);
+			return new Symbol(type, new MDCSubType(sub));
+		}
+	}
+
+	private void printDebug(int code) {
+		if (debug)
+			System.err.println("token : " + code + " " + yytext());
+	}
+
+	private Symbol buildUnknown() {
+		accept(1);
+		return buildMDCString(UNKNOWN, yytext());
+	}
+
+	private Symbol buildMDCSymbol(int type) {
+		printDebug(type);
+		return new Symbol(type);
+	}
+
+	private Symbol buildMDCIntValuedSymbol(int type, int value) {
+		printDebug(type);
+		return new Symbol(type, Integer.valueOf(value));
+	}
+
+	private Symbol buildMDCString(int type, String s) {
+		printDebug(type);
+		return new Symbol(type, s);
+	}
+
+	private Symbol buildMDCSign(int subtype, String s) {
+		printDebug(subtype);
+		return new Symbol(HIEROGLYPH, new MDCSign(subtype, s));
+	}
+
+	private Symbol buildMDCModifier(String s) {
+		printDebug(MODIFIER);
+		return new Symbol(MODIFIER, MDCModifier.buildMDCModifierFromString(s));
+	}
+
+	private Symbol buildMDCToggle(ToggleType v) {
+		printDebug(TOGGLE);
+		return new Symbol(TOGGLE, v);
+	}
+
+	private Symbol buildMDCShading(String t) {
+		printDebug(SHADING);
+		return new Symbol(SHADING, new MDCShading(t));
+	}
+
+	private Symbol buildStartOldCartouche(char code, char part) {
+		printDebug(BEGINOLDCARTOUCHE);
+		return new Symbol(BEGINOLDCARTOUCHE, new MDCStartOldCartouche(code,
+				part));
+	}
+
+	private Symbol buildBeginCartouche(char type, char part) {
+		printDebug(BEGINCARTOUCHE);
+		return new Symbol(BEGINCARTOUCHE, new MDCCartouche(type, part - '0'));
+	}
+
+	private Symbol buildEndCartouche(char type, char part) {
+		printDebug(ENDCARTOUCHE);
+		return new Symbol(ENDCARTOUCHE, new MDCCartouche(type, part - '0'));
+	}
+
+	private Symbol buildMDCAlphabeticText(char code) {
+		printDebug(TEXT);
+		String txt = new String(buffer, start + 2, end - start - 2);
+		if (txt.indexOf('\\') != -1)
+			txt = txt.replaceAll("\\\\\\+", "+").replaceAll("\\\\\\\\", "\\\\");
+		return new Symbol(TEXT, new MDCAlphabeticText(code, txt));
+	}
+
+	private Symbol buildHRule(char type) {
+		printDebug(type);
+		int commaIndex = start + 2;
+		while (buffer[commaIndex] != ',')
+			commaIndex++;
+		int startPos = Integer.parseInt(new String(buffer, start + 2,
+				commaIndex - start - 2));
+		int endPos = Integer.parseInt(new String(buffer, commaIndex + 1, end
+				- commaIndex - 2));
+		return new Symbol(HRULE, new MDCHRule(type, startPos, endPos));
+	}
+
+	/**
+	 * Interned hieroglyphic codes, looked up directly from the buffer.
+	 */
+	private static final class CodeTable {
+		private String[] table = new String[256];
+		private int size = 0;
+
+		String get(char[] chars, int offset, int length) {
+			int hash = 0;
+			for (int i = 0; i < length; i++)
+				hash = 31 * hash + chars[offset + i];
+			int mask = table.length - 1;
+			int index = (hash ^ (hash >>> 16)) & mask;
+			String s;
+			while ((s = table[index]) != null) {
+				if (s.hashCode() == hash && matches(s, chars, offset, length))
+					return s;
+				index = (index + 1) & mask;
+			}
+			s = SignCodeInterner.intern(new String(chars, offset, length));
+			table[index] = s;
+			if (++size * 2 > table.length)
+				rehash();
+			return s;
+		}
+
+		private static boolean matches(String s, char[] chars, int offset,
+				int length) {
+			if (s.length() != length)
+				return false;
+			for (int i = 0; i < length; i++) {
+				if (s.charAt(i) != chars[offset + i])
+					return false;
+			}
+			return true;
+		}
+
+		private void rehash() {
+			String[] old = table;
+			table = new String[old.length * 2];
+			int mask = table.length - 1;
+			for (String s : old) {
+				if (s != null) {
+					int hash = s.hashCode();
+					int index = (hash ^ (hash >>> 16)) & mask;
+					while (table[index] != null)
+						index = (index + 1) & mask;
+					table[index] = s;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package jsesh.mdc.lex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.ParserErrorManager;
+
+/**
+ * The tokens of a whole text, read once, which can be given to one or more
+ * parsers.
+ * <p>
+ * Each part of the buffer can be read by a separate scanner, so that parts
+ * of a text can be parsed independently. Error messages are the same as
+ * those of the lexer: positions are those in the whole text.
+ * <p>
+ * Only the symbols, their values and their positions are kept. The text of
+ * a token is only needed for error messages: it is then read again by a
+ * lexer.
+ *
+ * @author rosmord
+ */
+public class MDCTokenBuffer implements MDCSymbols {
+
+	private int[] codes = new int[1024];
+
+	private Object[] values = new Object[1024];
+
+	private int[] lines = new int[1024];
+
+	private int[] positions = new int[1024];
+
+	private int size = 0;
+
+	private final Supplier<Reader> text;
+
+	private final boolean philologyAsSigns;
+
+	/**
+	 * The exception thrown by the lexer after the last token, if any.
+	 */
+	private Exception exception;
+
+	/**
+	 * Reads all tokens of a text.
+	 *
+	 * @param text
+	 *            gives a reader on the text. It is called once to read the
+	 *            tokens, and again if the text of a token is needed for an
+	 *            error message.
+	 * @param philologyAsSigns
+	 *            see {@link MDCFastLex#setPhilologyAsSigns(boolean)}
+	 */
+	public MDCTokenBuffer(Supplier<Reader> text, boolean philologyAsSigns) {
+		this.text = text;
+		this.philologyAsSigns = philologyAsSigns;
+		MDCFastLex lex = new MDCFastLex(text.get());
+		lex.setPhilologyAsSigns(philologyAsSigns);
+		try {
+			Symbol s;
+			do {
+				s = lex.next_token();
+				add(s, lex);
+			} while (s.sym != EOF);
+		} catch (Exception e) {
+			// The parser will get it when it reaches this point.
+			exception = e;
+		}
+	}
+
+	private void add(Symbol s, MDCFastLex lex) {
+		if (size == codes.length) {
+			int newLength = size * 2;
+			codes = Arrays.copyOf(codes, newLength);
+			values = Arrays.copyOf(values, newLength);
+			lines = Arrays.copyOf(lines, newLength);
+			positions = Arrays.copyOf(positions, newLength);
+		}
+		codes[size] = s.sym;
+		values[size] = s.value;
+		lines[size] = lex.getLine();
+		positions[size] = lex.getCharPos();
+		size++;
+	}
+
+	/**
+	 * Reads the text again, up to a token, to get the text of this token.
+	 *
+	 * @param i
+	 * @return the text of token i.
+	 */
+	private String getTokenText(int i) {
+		MDCFastLex lex = new MDCFastLex(text.get());
+		lex.setPhilologyAsSigns(philologyAsSigns);
+		try {
+			for (int k = 0; k <= i; k++) {
+				lex.next_token();
+			}
+		} catch (IOException e) {
+			return "";
+		}
+		StringBuilder b = new StringBuilder();
+		lex.appendText(b);
+		return b.toString();
+	}
+
+	/**
+	 * @return the number of tokens, including the final EOF token.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param i
+	 * @return the symbol code of token i (see {@link MDCSymbols}).
+	 */
+	public int getSymbolCode(int i) {
+		return codes[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the value of token i.
+	 */
+	public Object getValue(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Returns a scanner for tokens from..to-1, followed by an EOF token.
+	 * <p>
+	 * If to is the size of the buffer, the scanner behaves exactly as the
+	 * lexer on the whole text. Symbols are built anew for each scanner, but
+	 * their values are shared.
+	 *
+	 * @param from
+	 * @param to
+	 * @return a scanner, which is also the error manager for the parser.
+	 */
+	public TokenScanner getScanner(int from, int to) {
+		return new TokenScanner(from, to);
+	}
+
+	/**
+	 * Reads a part of the buffer.
+	 */
+	public class TokenScanner implements Scanner, ParserErrorManager {
+
+		private final int to;
+
+		private int next;
+
+		private volatile boolean cancelled = false;
+
+		private TokenScanner(int from, int to) {
+			this.next = from;
+			this.to = to;
+		}
+
+		/**
+		 * Stops the scanner. The next call to {@link #next_token()} will
+		 * throw an exception.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public Symbol next_token() throws Exception {
+			if (cancelled)
+				throw new InterruptedException("parse cancelled");
+			if (next < to) {
+				Symbol s = new Symbol(codes[next], values[next]);
+				next++;
+				return s;
+			} else if (next == size && exception != null) {
+				throw exception;
+			} else {
+				// End of this part of the text.
+				if (next == to)
+					next++;
+				return new Symbol(EOF);
+			}
+		}
+
+		public MDCSyntaxError buildError(String message) {
+			int current = Math.min(next - 1, size - 1);
+			int line = 0, pos = 0;
+			String tokenText = "";
+			String token = null;
+			if (next > to && to < size) {
+				// On the EOF token at the end of this part.
+				line = lines[to];
+				pos = positions[to];
+				token = new Symbol(EOF).toString();
+			} else if (current >= 0) {
+				line = lines[current];
+				pos = positions[current];
+				tokenText = getTokenText(current);
+				token = new Symbol(codes[current]).toString();
+			}
+			String res = message + " line " + line + " char " + pos
+					+ " at token '" + tokenText + "'";
+			return new MDCSyntaxError(res, line, pos, token);
+		}
+	}
+}
@@ -2,6 +2,7 @@ package jsesh.mdc.model;
 
 import jsesh.hieroglyphs.data.HieroglyphDatabaseRepository;
 import jsesh.hieroglyphs.data.HieroglyphDatabaseInterface;
+import jsesh.hieroglyphs.data.SignCodeInterner;
 import jsesh.mdc.constants.LexicalSymbolsUtils;
 import jsesh.mdc.constants.SymbolCodes;
 import jsesh.mdc.constants.WordEndingCode;
@@ -77,6 +78,23 @@ public class Hieroglyph extends InnerGroup implements HieroglyphInterface {
         addChild(new ModifiersList());
     }
 
+    /**
+     * Copy constructor, used by deepCopy. The code of the original sign is
+     * already normalized and shared, and its modifiers are copied from it, so
+     * none of them is built or computed again.
+     *
+     * @param other the sign to copy.
+     */
+    private Hieroglyph(Hieroglyph other) {
+        code = other.code;
+        endingCode = other.endingCode;
+        grammar = other.grammar;
+        type = other.type;
+        x = other.x;
+        y = other.y;
+        other.copyContentTo(this);
+    }
+
     /**
      * Create a sign of a particular type. May be a hieroglyph, or some other
      * symbols like red points.
@@ -149,15 +167,7 @@ public class Hieroglyph extends InnerGroup implements HieroglyphInterface {
 	 * @see jsesh.mdc.model.ModelElement#deepCopy()
      */
     public Hieroglyph deepCopy() {
-        Hieroglyph result;
-        result = new Hieroglyph(code);
-        result.endingCode = endingCode;
-        result.grammar = grammar;
-        result.type = type;
-        result.x = x;
-        result.y = y;
-        copyContentTo(result);
-        return result;
+        return new Hieroglyph(this);
     }
 
     public int getAngle() {
@@ -256,7 +266,8 @@ public class Hieroglyph extends InnerGroup implements HieroglyphInterface {
         } else if ("Ff2".equals(code)) {
             code = "V49A";
         }
-        this.code = code;
+        // Shared with the other signs with the same code.
+        this.code = SignCodeInterner.intern(code);
         int typeCode = LexicalSymbolsUtils.getCodeForString(code);
         if (typeCode != -1) {
             type = typeCode;
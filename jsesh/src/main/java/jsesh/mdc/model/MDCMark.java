@@ -6,14 +6,6 @@ package jsesh.mdc.model;
 
 import java.util.List;
 
-import jsesh.mdc.model.operations.ChildOperation;
-import jsesh.mdc.model.operations.Deletion;
-import jsesh.mdc.model.operations.Insertion;
-import jsesh.mdc.model.operations.ModelOperation;
-import jsesh.mdc.model.operations.ModelOperationVisitor;
-import jsesh.mdc.model.operations.Modification;
-import jsesh.mdc.model.operations.Replacement;
-import jsesh.mdc.model.operations.ZoneModification;
 import jsesh.utils.EnumBase;
 
 /**
@@ -60,12 +52,19 @@ public class MDCMark {
 	}
 
 	/**
-	 * The underlying text position.
-	 * 
+	 * The underlying text position. As the index of the mark is maintained by
+	 * the {@link MarkIndex} of the text, it may be out of date: use
+	 * {@link #getPosition()}.
 	 */
 
 	private MDCPosition position;
 
+	/**
+	 * The node of this mark in the mark index of its text, or null if the
+	 * mark has been released.
+	 */
+	MarkIndex.Node node = null;
+
 	/**
 	 * Will the mark move left or right when data is inserted at the mark index.
 	 * When data at the mark position, the mark may move either to the left or
@@ -75,8 +74,6 @@ public class MDCMark {
 	private Gravity gravity;
 
 	List listeners = null;
-	
-	private MarkUpdater markUpdater;
 
 	/**
 	 * Create a mark corresponding to a specific position in a text. When text
@@ -101,7 +98,6 @@ public class MDCMark {
 	public MDCMark(MDCPosition position, Gravity gravity) {
 		this.position = position;
 		this.gravity = gravity;
-		markUpdater= new MarkUpdater();
 		position.getTopItemList().addMark(this);
 	}
 
@@ -109,6 +105,12 @@ public class MDCMark {
 	 * @return Returns the position.
 	 */
 	public MDCPosition getPosition() {
+		if (node != null) {
+			int index = MarkIndex.indexOf(node);
+			if (position.getIndex() != index) {
+				position = new MDCPosition(position.getTopItemList(), index);
+			}
+		}
 		return position;
 	}
 
@@ -123,104 +125,6 @@ public class MDCMark {
 		position = null;
 	}
 
-	/**
-	 * a method to update this mark when the model it points to is modified.
-	 * Automatically called by the model. Hence the "package" visibility.
-	 */
-	void updateMark(ModelOperation op) {
-		op.accept(markUpdater);
-	}
-	
-	private class MarkUpdater implements ModelOperationVisitor {
-		
-		/* (non-Javadoc)
-		 * @see jsesh.mdc.model.ModelElementObserver#observedElementChanged(jsesh.mdc.model.operations.ModelOperation)
-		 */
-		public void observedElementChanged(ModelOperation operation) {
-			operation.accept(this);
-		}
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitInsertion(jsesh.mdc.model.operations.Insertion)
-		 */
-
-		public void visitInsertion(Insertion insertion) {
-			if (insertion.getIndex() < position.getIndex()) {
-				advanceBy(insertion.getChildren().size());
-			} else if (insertion.getIndex() == position.getIndex()) {
-				if (gravity.equals(Gravity.FORWARD)) {
-					advanceBy(insertion.getChildren().size());
-				}
-			}
-		}
-
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitDeletion(jsesh.mdc.model.operations.Deletion)
-		 */
-
-		public void visitDeletion(Deletion deletion) {
-			// Note that deletion affects the element after the mark.
-			// hence the "<" below.
-			if (deletion.getEnd() <= position.getIndex()) {
-				advanceBy(-deletion.getEnd() + deletion.getStart());
-			} else if (deletion.getStart() < position.getIndex()) {
-				// The mark falls in the deleted zone.
-				setIndex(deletion.getStart());
-			}
-		}
-
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitReplacement(jsesh.mdc.model.operations.Replacement)
-		 */
-
-		public void visitReplacement(Replacement replacement) {
-			// CURRENTLY NO-OP.
-		}
-
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitModification(jsesh.mdc.model.operations.Modification)
-		 */
-
-		public void visitModification(Modification modification) {
-			// CURRENTLY NO-OP.
-		}
-
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitChildOperation(jsesh.mdc.model.operations.ChildOperation)
-		 */
-
-		public void visitChildOperation(ChildOperation operation) {
-			// CURRENTLY NO-OP.
-		}
-
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see jsesh.mdc.model.operations.ModelOperationVisitor#visitZoneModification(jsesh.mdc.model.operations.ZoneModification)
-		 */
-		public void visitZoneModification(ZoneModification modification) {
-			// TODO Auto-generated method stub
-		}
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see java.util.Observer#update(java.util.Observable,
-		 *      java.lang.Object)
-		 */
-
-	}
-
-	
-
 	/**
 	 * Returns the gravity of this mark. When data at the mark position, the
 	 * mark may move either to the left or to the right.
@@ -232,46 +136,25 @@ public class MDCMark {
 		return gravity;
 	}
 
-	/**
-	 * Update the position of this mark during a text change. Marks are
-	 * immutable, but they follow the text. Hence their internal representation
-	 * change.
-	 * 
-	 * @param index
-	 */
-	private void setIndex(int index) {
-		if (index < 0
-				|| index > position.getTopItemList().getNumberOfChildren())
-			return;
-		if (position.getIndex() != index) {
-			position = new MDCPosition(position.getTopItemList(), index);
-
-		}
-	}
-
-	private void advanceBy(int i) {
-		setIndex(position.getIndex() + i);
-	}
-
 	/**
 	 * @return the element after the mark.
 	 */
 	public TopItem getElementAfter() {
-		return position.getElementAfter();
+		return getPosition().getElementAfter();
 	}
 
 	/**
 	 * @return the element before the mark.
 	 */
 	public TopItem getElementBefore() {
-		return position.getElementBefore();
+		return getPosition().getElementBefore();
 	}
 
 	/**
 	 * @return the mark index.
 	 */
 	public int getIndex() {
-		return position.getIndex();
+		return getPosition().getIndex();
 	}
 
 	/**
@@ -282,7 +165,7 @@ public class MDCMark {
 	 * @see MDCPosition#getNextPosition(int)
 	 */
 	public MDCPosition getNextPosition(int i) {
-		return position.getNextPosition(i);
+		return getPosition().getNextPosition(i);
 	}
 
 	/**
@@ -293,7 +176,7 @@ public class MDCMark {
 	 * @see MDCPosition#getPositionAt(int)
 	 */
 	public MDCPosition getPositionAt(int k) {
-		return position.getPositionAt(k);
+		return getPosition().getPositionAt(k);
 	}
 
 	/**
@@ -311,15 +194,15 @@ public class MDCMark {
 	 * @see java.lang.Object#toString()
 	 */
 	public String toString() {
-		return position.toString();
+		return getPosition().toString();
 	}
 
 	public boolean hasNext() {
-		return position.hasNext();
+		return getPosition().hasNext();
 	}
 
 	public boolean hasPrevious() {
-		return position.hasPrevious();
+		return getPosition().hasPrevious();
 	}
 
 }
\ No newline at end of file
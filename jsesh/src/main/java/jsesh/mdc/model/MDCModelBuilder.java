@@ -404,6 +404,27 @@ public class MDCModelBuilder implements MDCBuilder {
 		return result;
 	}
 
+	/**
+	 * Returns the current state (red, shaded), as set by the toggles read so
+	 * far.
+	 * 
+	 * @return a copy of the current state.
+	 */
+	public TopItemState getCurrentState() {
+		return currentState.duplicate();
+	}
+
+	/**
+	 * Sets the state for the next elements. Used when a text is parsed in
+	 * several parts, so that each part starts in the state the previous one
+	 * ended with.
+	 * 
+	 * @param state
+	 */
+	public void setCurrentState(TopItemState state) {
+		currentState = state.duplicate();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -0,0 +1,334 @@
+package jsesh.mdc.model;
+
+import java.util.Random;
+
+import jsesh.mdc.model.operations.ChildOperation;
+import jsesh.mdc.model.operations.Deletion;
+import jsesh.mdc.model.operations.Insertion;
+import jsesh.mdc.model.operations.ModelOperation;
+import jsesh.mdc.model.operations.ModelOperationVisitor;
+import jsesh.mdc.model.operations.Modification;
+import jsesh.mdc.model.operations.Replacement;
+import jsesh.mdc.model.operations.ZoneModification;
+
+/**
+ * The marks of a {@link TopItemList}, ordered by position.
+ * <p>
+ * The marks are kept in two treaps (one for each gravity), ordered by index.
+ * The index of a mark is not stored in the mark itself: each node holds an
+ * offset which applies to its whole subtree, so that shifting all the marks
+ * after an insertion or a deletion is done in O(log n), whatever the number
+ * of marks. The index of a mark is computed from its node and its ancestors.
+ * <p>
+ * Marks which fall inside a deleted zone are moved one by one to the start of
+ * the zone.
+ *
+ * @author rosmord
+ */
+final class MarkIndex {
+
+    private final Tree forward = new Tree();
+
+    private final Tree backward = new Tree();
+
+    private final Random random = new Random();
+
+    private final MarkUpdater updater = new MarkUpdater();
+
+    private int size = 0;
+
+    void add(MDCMark mark, int index) {
+        Node node = new Node(mark, index, random.nextInt());
+        getTree(mark).insert(node);
+        mark.node = node;
+        size++;
+    }
+
+    void remove(MDCMark mark) {
+        if (mark.node != null) {
+            getTree(mark).delete(mark.node);
+            mark.node = null;
+            size--;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Updates the marks after a modification of the list.
+     *
+     * @param operation
+     */
+    void update(ModelOperation operation) {
+        operation.accept(updater);
+    }
+
+    /**
+     * Returns the first mark at or after a given index.
+     *
+     * @param index
+     * @return a mark, or null if there is none.
+     */
+    MDCMark getNextMark(int index) {
+        Node f = forward.ceiling(index);
+        Node b = backward.ceiling(index);
+        if (f == null) {
+            return b == null ? null : b.mark;
+        } else if (b == null || indexOf(f) <= indexOf(b)) {
+            return f.mark;
+        } else {
+            return b.mark;
+        }
+    }
+
+    /**
+     * Computes the current index of the mark stored in a node.
+     *
+     * @param node
+     * @return the mark index.
+     */
+    static int indexOf(Node node) {
+        int index = node.key;
+        for (Node p = node.parent; p != null; p = p.parent) {
+            index += p.offset;
+        }
+        return index;
+    }
+
+    private Tree getTree(MDCMark mark) {
+        if (MDCMark.Gravity.FORWARD.equals(mark.getGravity())) {
+            return forward;
+        } else {
+            return backward;
+        }
+    }
+
+    /**
+     * A node of the treaps. Its mark index is key plus the offsets of its
+     * ancestors.
+     */
+    static final class Node {
+
+        final MDCMark mark;
+        final int priority;
+        int key;
+        /**
+         * Offset to add to all the nodes below this one.
+         */
+        int offset = 0;
+        Node left = null;
+        Node right = null;
+        Node parent = null;
+
+        Node(MDCMark mark, int key, int priority) {
+            this.mark = mark;
+            this.key = key;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * A treap ordered by key, and heap-ordered by priority.
+     */
+    private static final class Tree {
+
+        Node root = null;
+
+        /**
+         * Results of split.
+         */
+        private Node splitLeft, splitRight;
+
+        void insert(Node node) {
+            split(root, node.key);
+            Node right = splitRight;
+            root = merge(merge(splitLeft, node), right);
+            root.parent = null;
+        }
+
+        void delete(Node node) {
+            pushPath(node);
+            Node replacement = merge(node.left, node.right);
+            Node parent = node.parent;
+            if (replacement != null) {
+                replacement.parent = parent;
+            }
+            if (parent == null) {
+                root = replacement;
+            } else if (parent.left == node) {
+                parent.left = replacement;
+            } else {
+                parent.right = replacement;
+            }
+            node.left = node.right = node.parent = null;
+        }
+
+        /**
+         * Adds delta to the keys of all nodes whose key is at least from.
+         */
+        void shiftFrom(int from, int delta) {
+            split(root, from);
+            shift(splitRight, delta);
+            root = merge(splitLeft, splitRight);
+            if (root != null) {
+                root.parent = null;
+            }
+        }
+
+        /**
+         * Updates the keys after the deletion of the zone [start, end).
+         */
+        void delete(int start, int end) {
+            split(root, start + 1);
+            Node before = splitLeft;
+            split(splitRight, end);
+            Node inside = splitLeft;
+            Node after = splitRight;
+            moveTo(inside, start);
+            shift(after, start - end);
+            root = merge(merge(before, inside), after);
+            if (root != null) {
+                root.parent = null;
+            }
+        }
+
+        /**
+         * Finds the node with the smallest key at least equal to index.
+         */
+        Node ceiling(int index) {
+            Node result = null;
+            int offset = 0;
+            Node n = root;
+            while (n != null) {
+                boolean found = n.key + offset >= index;
+                if (found) {
+                    result = n;
+                }
+                offset += n.offset;
+                n = found ? n.left : n.right;
+            }
+            return result;
+        }
+
+        /**
+         * Splits a tree in the nodes whose keys are less than key (in
+         * splitLeft) and the others (in splitRight).
+         */
+        private void split(Node t, int key) {
+            if (t == null) {
+                splitLeft = splitRight = null;
+                return;
+            }
+            push(t);
+            if (t.key < key) {
+                split(t.right, key);
+                t.right = splitLeft;
+                setParent(splitLeft, t);
+                splitLeft = t;
+            } else {
+                split(t.left, key);
+                t.left = splitRight;
+                setParent(splitRight, t);
+                splitRight = t;
+            }
+            t.parent = null;
+        }
+
+        /**
+         * Merges two trees, all keys of a being less or equal to those of b.
+         */
+        private Node merge(Node a, Node b) {
+            if (a == null) {
+                return b;
+            } else if (b == null) {
+                return a;
+            } else if (a.priority > b.priority) {
+                push(a);
+                a.right = merge(a.right, b);
+                a.right.parent = a;
+                return a;
+            } else {
+                push(b);
+                b.left = merge(a, b.left);
+                b.left.parent = b;
+                return b;
+            }
+        }
+
+        /**
+         * Push the offsets from the root down to node (included).
+         */
+        private void pushPath(Node node) {
+            if (node.parent != null) {
+                pushPath(node.parent);
+            }
+            push(node);
+        }
+
+        private void moveTo(Node node, int key) {
+            if (node != null) {
+                node.key = key;
+                node.offset = 0;
+                moveTo(node.left, key);
+                moveTo(node.right, key);
+            }
+        }
+
+        private static void push(Node node) {
+            if (node.offset != 0) {
+                shift(node.left, node.offset);
+                shift(node.right, node.offset);
+                node.offset = 0;
+            }
+        }
+
+        private static void shift(Node node, int delta) {
+            if (node != null) {
+                node.key += delta;
+                node.offset += delta;
+            }
+        }
+
+        private static void setParent(Node node, Node parent) {
+            if (node != null) {
+                node.parent = parent;
+            }
+        }
+    }
+
+    private class MarkUpdater implements ModelOperationVisitor {
+
+        @Override
+        public void visitInsertion(Insertion insertion) {
+            int index = insertion.getIndex();
+            int length = insertion.getChildren().size();
+            // Forward marks at the insertion point move, backward ones don't.
+            forward.shiftFrom(index, length);
+            backward.shiftFrom(index + 1, length);
+        }
+
+        @Override
+        public void visitDeletion(Deletion deletion) {
+            forward.delete(deletion.getStart(), deletion.getEnd());
+            backward.delete(deletion.getStart(), deletion.getEnd());
+        }
+
+        @Override
+        public void visitReplacement(Replacement replacement) {
+        }
+
+        @Override
+        public void visitModification(Modification modification) {
+        }
+
+        @Override
+        public void visitChildOperation(ChildOperation operation) {
+        }
+
+        @Override
+        public void visitZoneModification(ZoneModification modification) {
+        }
+    }
+}
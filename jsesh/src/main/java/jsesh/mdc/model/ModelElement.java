@@ -2,6 +2,7 @@ package jsesh.mdc.model;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -89,6 +90,11 @@ public abstract class ModelElement implements ModelElementObserver,
 
     private static final long serialVersionUID = -8654450475547792198L;
 
+    /**
+     * The children of this element. Elements without children share the
+     * immutable empty list; the actual list is built when the first child is
+     * added.
+     */
     private List<EmbeddedModelElement> children = null;
 
     /**
@@ -97,7 +103,7 @@ public abstract class ModelElement implements ModelElementObserver,
     private boolean updatesEnabled = true;
 
     public ModelElement() {
-        children = buildChildrenList();
+        children = Collections.emptyList();
     }
 
     abstract public void accept(ModelElementVisitor v);
@@ -119,6 +125,9 @@ public abstract class ModelElement implements ModelElementObserver,
      */
     final protected void addChildAt(int idx, EmbeddedModelElement child) {
         child.setParent(this);
+        if (children == Collections.<EmbeddedModelElement>emptyList()) {
+            children = buildChildrenList();
+        }
         children.add(idx, child);
         fixSlibings(idx);
         notifyModelElementObservers(new Insertion(this, idx, child));
@@ -127,13 +136,27 @@ public abstract class ModelElement implements ModelElementObserver,
     /**
      * Creates an empty list for children. Override it to change the children
      * list implementation.
+     * <p>
+     * Called when the first child is added, or when the children are copied.
      *
      * @return a newly built empty list of children.
      */
-    private List<EmbeddedModelElement> buildChildrenList() {
+    protected List<EmbeddedModelElement> buildChildrenList() {
         return new ArrayList<>();
     }
 
+    /**
+     * Creates a list of children holding a number of elements. Used when
+     * copying elements. The default implementation keeps the list it is given.
+     *
+     * @param elements an array list of elements, which belongs to the caller.
+     * @return a list of children holding the elements.
+     */
+    protected List<EmbeddedModelElement> buildChildrenList(
+            ArrayList<EmbeddedModelElement> elements) {
+        return elements;
+    }
+
     /**
      * Build a <em>copy</em> of this object, embedded into a topitem. May return
      * null if this doesn't mean anything (in particular, for modifiers).
@@ -279,11 +302,28 @@ public abstract class ModelElement implements ModelElementObserver,
      */
     protected void copyContentTo(ModelElement copy) {
         if (children != null) {
-            copy.children = buildChildrenList();
-            for (int i = 0; i < children.size(); i++) // It's important to use addChild here !
-            {
-                copy.addChild((EmbeddedModelElement) getChildAt(i).deepCopy());
+            if (children.isEmpty()) {
+                copy.children = Collections.emptyList();
+                return;
+            }
+            // The children are linked directly: the copy is new, and has no
+            // observer to notify.
+            ArrayList<EmbeddedModelElement> copies = new ArrayList<>(children
+                    .size());
+            EmbeddedModelElement previous = null;
+            for (EmbeddedModelElement child : children) {
+                EmbeddedModelElement childCopy = (EmbeddedModelElement) child
+                        .deepCopy();
+                childCopy.setParent(copy);
+                childCopy.previous = previous;
+                childCopy.next = null;
+                if (previous != null) {
+                    previous.next = childCopy;
+                }
+                copies.add(childCopy);
+                previous = childCopy;
             }
+            copy.children = copy.buildChildrenList(copies);
         }
     }
 
@@ -441,11 +481,12 @@ public abstract class ModelElement implements ModelElementObserver,
      * @return the list of the suppressed elements.
      */
     protected List<EmbeddedModelElement> removeChildren(int a, int b) {
-        List<EmbeddedModelElement> l = new ArrayList<>(b - a);
-        l.addAll(children.subList(a, b));
-        for (int i = b - 1; i >= a; i--) {
-            EmbeddedModelElement child = children.get(i);
-            children.remove(i);
+        List<EmbeddedModelElement> removed = children.subList(a, b);
+        List<EmbeddedModelElement> l = new ArrayList<>(removed);
+        // Removes the whole range at once, instead of shifting the end of the
+        // list for each element.
+        removed.clear();
+        for (EmbeddedModelElement child : l) {
             child.detachFromContainer();
         }
         fixSlibings(a);
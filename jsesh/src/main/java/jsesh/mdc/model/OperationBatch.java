@@ -0,0 +1,233 @@
+package jsesh.mdc.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jsesh.mdc.model.operations.ChildOperation;
+import jsesh.mdc.model.operations.Deletion;
+import jsesh.mdc.model.operations.Insertion;
+import jsesh.mdc.model.operations.ModelOperation;
+import jsesh.mdc.model.operations.Replacement;
+import jsesh.mdc.model.operations.ZoneModification;
+
+/**
+ * The operations done on a {@link TopItemList} during a batch, which will be
+ * sent to its observers when the batch ends.
+ * <p>
+ * Operations on contiguous ranges are coalesced: inserting elements one after
+ * the other gives a single {@link Insertion}, deleting them one after the
+ * other a single {@link Deletion}, and so on.
+ * <p>
+ * Insertions and deletions can be replayed in order by the observers, as they
+ * carry all the information they need. The other operations are read by the
+ * observers on the current state of the model, which might have changed since
+ * then. Hence, if a batch doesn't reduce to a single operation and contains
+ * some of them, it is reported as the range of elements it changed: a
+ * {@link ZoneModification} if the range has kept its size, or else a
+ * {@link Deletion} of the old elements followed by an {@link Insertion} of
+ * the new ones.
+ *
+ * @author rosmord
+ */
+final class OperationBatch {
+
+    private final TopItemList list;
+
+    private final List<ModelOperation> operations = new ArrayList<>();
+
+    /**
+     * The children of the last operation, if it is an insertion built by this
+     * batch (and which can thus be extended).
+     */
+    private List<ModelElement> insertedChildren = null;
+
+    /**
+     * Number of elements of the list when the batch started.
+     */
+    private final int initialSize;
+
+    /**
+     * Number of elements at the start of the list which have not been
+     * changed by the batch.
+     */
+    private int unchangedStart = Integer.MAX_VALUE;
+
+    /**
+     * Number of elements at the end of the list which have not been changed
+     * by the batch.
+     */
+    private int unchangedEnd = Integer.MAX_VALUE;
+
+    /**
+     * Number of nested batches.
+     */
+    private int depth = 0;
+
+    OperationBatch(TopItemList list) {
+        this.list = list;
+        this.initialSize = list.getNumberOfChildren();
+    }
+
+    void begin() {
+        depth++;
+    }
+
+    /**
+     * Ends a (possibly nested) batch.
+     *
+     * @return true if the outermost batch is over.
+     */
+    boolean end() {
+        if (depth == 0) {
+            throw new IllegalStateException("No batch in progress");
+        }
+        depth--;
+        return depth == 0;
+    }
+
+    void add(ModelOperation operation) {
+        extendChangedRange(operation);
+        if (!operations.isEmpty()) {
+            ModelOperation last = operations.get(operations.size() - 1);
+            ModelOperation merged = merge(last, operation);
+            if (merged != null) {
+                operations.set(operations.size() - 1, merged);
+                return;
+            }
+        }
+        insertedChildren = null;
+        operations.add(operation);
+    }
+
+    /**
+     * Returns the coalesced operations to send to observers.
+     *
+     * @return a list of operations, possibly empty.
+     */
+    List<ModelOperation> getOperations() {
+        if (operations.size() > 1) {
+            for (ModelOperation operation : operations) {
+                if (!(operation instanceof Insertion)
+                        && !(operation instanceof Deletion)) {
+                    return getChangedRange();
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Records the range of elements changed by an operation, which has just
+     * been done.
+     */
+    private void extendChangedRange(ModelOperation operation) {
+        int size = list.getNumberOfChildren();
+        // The range changed, in the current list.
+        int start = 0;
+        int end = size;
+        if (operation instanceof Insertion) {
+            Insertion insertion = (Insertion) operation;
+            start = insertion.getIndex();
+            end = start + insertion.getChildren().size();
+        } else if (operation instanceof Deletion) {
+            start = ((Deletion) operation).getStart();
+            end = start;
+        } else if (operation instanceof ZoneModification) {
+            start = ((ZoneModification) operation).getStart();
+            end = ((ZoneModification) operation).getEnd();
+        } else if (operation instanceof Replacement) {
+            start = ((Replacement) operation).getIndex();
+            end = start + 1;
+        } else if (operation instanceof ChildOperation) {
+            int index = list.indexOfTopItem(((ChildOperation) operation)
+                    .getChildOperation().getElement());
+            if (index != -1) {
+                start = index;
+                end = index + 1;
+            }
+        }
+        unchangedStart = Math.min(unchangedStart, start);
+        unchangedEnd = Math.min(unchangedEnd, size - end);
+    }
+
+    /**
+     * Describes the whole batch as the replacement of a range of elements.
+     */
+    private List<ModelOperation> getChangedRange() {
+        int size = list.getNumberOfChildren();
+        int end = Math.min(unchangedEnd, Math.min(size, initialSize)
+                - unchangedStart);
+        int oldEnd = initialSize - end;
+        int newEnd = size - end;
+        List<ModelOperation> result = new ArrayList<>(2);
+        if (oldEnd == newEnd) {
+            result.add(new ZoneModification(list, unchangedStart, newEnd));
+        } else {
+            if (oldEnd > unchangedStart) {
+                result.add(new Deletion(list, unchangedStart, oldEnd));
+            }
+            if (newEnd > unchangedStart) {
+                List<ModelElement> children = new ArrayList<>(newEnd
+                        - unchangedStart);
+                for (int i = unchangedStart; i < newEnd; i++) {
+                    children.add(list.getChildAt(i));
+                }
+                result.add(new Insertion(list, unchangedStart, children));
+            }
+        }
+        return result;
+    }
+
+    private ModelOperation merge(ModelOperation last, ModelOperation operation) {
+        if (last instanceof Insertion && operation instanceof Insertion) {
+            return mergeInsertions((Insertion) last, (Insertion) operation);
+        } else if (last instanceof Deletion && operation instanceof Deletion) {
+            return mergeDeletions((Deletion) last, (Deletion) operation);
+        } else if (last instanceof ZoneModification
+                && operation instanceof ZoneModification) {
+            ZoneModification z1 = (ZoneModification) last;
+            ZoneModification z2 = (ZoneModification) operation;
+            if (z2.getStart() <= z1.getEnd() && z1.getStart() <= z2.getEnd()) {
+                return new ZoneModification(list, Math.min(z1.getStart(),
+                        z2.getStart()), Math.max(z1.getEnd(), z2.getEnd()));
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ModelOperation mergeInsertions(Insertion last, Insertion insertion) {
+        List<ModelElement> lastChildren = last.getChildren();
+        List<ModelElement> children = insertion.getChildren();
+        if (insertion.getIndex() == last.getIndex() + lastChildren.size()) {
+            // Typing or pasting: the new elements follow the previous ones.
+            if (insertedChildren != lastChildren) {
+                insertedChildren = new ArrayList<>(lastChildren);
+            }
+            insertedChildren.addAll(children);
+            return new Insertion(list, last.getIndex(), insertedChildren);
+        } else if (insertion.getIndex() == last.getIndex()) {
+            List<ModelElement> merged = new ArrayList<>(children.size()
+                    + lastChildren.size());
+            merged.addAll(children);
+            merged.addAll(lastChildren);
+            insertedChildren = merged;
+            return new Insertion(list, last.getIndex(), merged);
+        } else {
+            return null;
+        }
+    }
+
+    private ModelOperation mergeDeletions(Deletion last, Deletion deletion) {
+        if (deletion.getStart() == last.getStart()) {
+            // Deleting forward.
+            return new Deletion(list, last.getStart(), last.getEnd()
+                    + deletion.getEnd() - deletion.getStart());
+        } else if (deletion.getEnd() == last.getStart()) {
+            // Deleting backward.
+            return new Deletion(list, deletion.getStart(), last.getEnd());
+        } else {
+            return null;
+        }
+    }
+}
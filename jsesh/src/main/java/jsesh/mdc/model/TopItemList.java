@@ -36,10 +36,16 @@ public class TopItemList extends ModelElement implements MDCFileInterface,
     transient List<ModelElementObserver> topItemListObservers;
 
     /**
-     * The list of MDCMark on this topItemList. To avoid problems with outdated
-     * marks, we have separated them from the usual observers.
+     * The MDCMarks on this topItemList, ordered by position. To avoid problems
+     * with outdated marks, we have separated them from the usual observers.
      */
-    transient List<MDCMark> marks;
+    transient MarkIndex marks;
+
+    /**
+     * The operations waiting for the end of the current batch, or null if
+     * there is no batch in progress.
+     */
+    private transient OperationBatch batch;
 
     public TopItemList() {
     }
@@ -48,6 +54,26 @@ public class TopItemList extends ModelElement implements MDCFileInterface,
         v.visitTopItemList(this);
     }
 
+    /**
+     * Top item lists may be very long, and are edited anywhere: their children
+     * are kept in a balanced tree, with logarithmic access, insertion and
+     * deletion.
+     *
+     * @return a new empty tree list.
+     */
+    @Override
+    protected List<EmbeddedModelElement> buildChildrenList() {
+        return new TreeList<>();
+    }
+
+    @Override
+    protected List<EmbeddedModelElement> buildChildrenList(
+            ArrayList<EmbeddedModelElement> elements) {
+        List<EmbeddedModelElement> result = new TreeList<>();
+        result.addAll(elements);
+        return result;
+    }
+
     /**
      * Adds a list of elements to this TopItemList. The list must contain only
      * topitems.
@@ -55,8 +81,13 @@ public class TopItemList extends ModelElement implements MDCFileInterface,
      * @param elements
      */
     public void addAll(List<TopItem> elements) {
-        for (TopItem e : elements) {
-            addChild(e);
+        beginBatch();
+        try {
+            for (TopItem e : elements) {
+                addChild(e);
+            }
+        } finally {
+            endBatch();
         }
     }
 
@@ -69,9 +100,70 @@ public class TopItemList extends ModelElement implements MDCFileInterface,
      */
     public void addAllAt(int index, List<? extends TopItem> items) {
         int pos = index;
-        for (TopItem e : items) {
-            super.addChildAt(pos++, e);
+        beginBatch();
+        try {
+            for (TopItem e : items) {
+                super.addChildAt(pos++, e);
+            }
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Starts a batch of modifications.
+     * <p>
+     * Until the matching call to {@link #endBatch()}, the observers of this
+     * list are not notified. At the end of the batch, they receive the
+     * operations done in the meantime, with operations on contiguous ranges
+     * coalesced (for instance, one insertion for a whole pasted text).
+     * <p>
+     * Marks are still updated immediately, so that positions stay valid
+     * during the batch.
+     * <p>
+     * Batches can be nested; the observers are notified at the end of the
+     * outermost one. Use it as:
+     * <pre>
+     * list.beginBatch();
+     * try {
+     *     ...
+     * } finally {
+     *     list.endBatch();
+     * }
+     * </pre>
+     */
+    public void beginBatch() {
+        if (batch == null) {
+            batch = new OperationBatch(this);
+        }
+        batch.begin();
+    }
+
+    /**
+     * Ends a batch of modifications, and notifies the observers if it was the
+     * outermost one.
+     *
+     * @throws IllegalStateException if no batch is in progress.
+     * @see #beginBatch()
+     */
+    public void endBatch() {
+        if (batch == null) {
+            throw new IllegalStateException("No batch in progress");
         }
+        if (batch.end()) {
+            List<ModelOperation> operations = batch.getOperations();
+            batch = null;
+            for (ModelOperation op : operations) {
+                notifyObservers(op);
+            }
+        }
+    }
+
+    /**
+     * @return true if a batch of modifications is in progress.
+     */
+    public boolean isInBatch() {
+        return batch != null;
     }
 
     public void addTopItem(TopItem topItem) {
@@ -109,6 +201,27 @@ public class TopItemList extends ModelElement implements MDCFileInterface,
         return (TopItem) getChildAt(i);
     }
 
+    /**
+     * Returns the index of a top item of this list.
+     *
+     * @param item
+     * @return the index of item (compared by identity), or -1 if it is not a
+     * child of this list.
+     */
+    public int indexOfTopItem(ModelElement item) {
+        if (item.getParent() != this) {
+            return -1;
+        }
+        int index = 0;
+        for (Iterator<EmbeddedModelElement> it = getModelElementIterator(); it
+                .hasNext(); index++) {
+            if (it.next() == item) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
     /**
      * @param i
      */
@@ -252,12 +365,17 @@ public class TopItemList extends ModelElement implements MDCFileInterface,
     protected void notifyModelElementObservers(ModelOperation op) {
         // First notify marks
         if (marks != null) {
-            for (Iterator<MDCMark> it = marks.iterator(); it.hasNext();) {
-                MDCMark mark = it.next();
-                mark.updateMark(op);
-            }
+            marks.update(op);
         }
-        // Then notify regular observers
+        // Then notify regular observers, now or at the end of the batch.
+        if (batch != null) {
+            batch.add(op);
+        } else {
+            notifyObservers(op);
+        }
+    }
+
+    private void notifyObservers(ModelOperation op) {
         if (topItemListObservers != null) {
             for (Iterator<ModelElementObserver> it = topItemListObservers
                     .iterator(); it.hasNext();) {
@@ -316,21 +434,45 @@ public class TopItemList extends ModelElement implements MDCFileInterface,
     }
 
     public void addMark(MDCMark mdcMark) {
+        if (mdcMark.node != null) {
+            return;
+        }
         if (marks == null) {
-            marks = new ArrayList<MDCMark>();
+            marks = new MarkIndex();
         }
-        marks.add(mdcMark);
+        marks.add(mdcMark, mdcMark.getIndex());
     }
 
     public void removeMark(MDCMark mdcMark) {
         if (marks != null) {
             marks.remove(mdcMark);
-            if (marks.isEmpty()) {
+            if (marks.size() == 0) {
                 marks = null;
             }
         }
     }
 
+    /**
+     * Returns the first mark at or after a given position.
+     * <p>
+     * The marks are kept ordered, so this takes a time in O(log n), n being
+     * the number of marks. If several marks are at the same position, any of
+     * them may be returned.
+     *
+     * @param index a position in this list.
+     * @return a mark, or null if there is no mark at or after index.
+     */
+    public MDCMark getNextMark(int index) {
+        return marks == null ? null : marks.getNextMark(index);
+    }
+
+    /**
+     * @return the number of marks on this list.
+     */
+    public int getNumberOfMarks() {
+        return marks == null ? 0 : marks.size();
+    }
+
     /**
      * Returns a MdC Representation for this object.
      *
@@ -0,0 +1,350 @@
+package jsesh.mdc.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A list stored in a balanced (AVL) tree, where each node knows the size of
+ * its subtree.
+ * <p>
+ * Access, insertion and deletion at any index take a time in O(log n). It is
+ * used for the children of {@link TopItemList}, where an array list would
+ * have to shift the whole end of the text for each insertion or deletion near
+ * its start.
+ * <p>
+ * Null elements are allowed, but not used by the model.
+ *
+ * @param <E> the type of the elements.
+ * @author rosmord
+ */
+final class TreeList<E> extends AbstractList<E> implements Serializable {
+
+    private static final long serialVersionUID = 3183446029171426573L;
+
+    /**
+     * The tree itself is not serialized: the elements are written in order.
+     */
+    private transient Node<E> root = null;
+
+    public TreeList() {
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public E get(int index) {
+        return getNode(index).element;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        Node<E> node = getNode(index);
+        E old = node.element;
+        node.element = element;
+        return old;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + size());
+        }
+        root = insert(root, index, element);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        E old = getNode(index).element;
+        root = delete(root, index);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size(), c);
+    }
+
+    /**
+     * Adds elements at a given index. Filling an empty list builds a balanced
+     * tree in linear time.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        if (root != null || index != 0) {
+            return super.addAll(index, c);
+        }
+        Object[] elements = c.toArray();
+        root = build(elements, 0, elements.length);
+        modCount++;
+        return elements.length != 0;
+    }
+
+    /**
+     * Iterates in order, in constant amortized time per element.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new TreeIterator();
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        modCount++;
+    }
+
+    /**
+     * Removes the elements between fromIndex (included) and toIndex
+     * (excluded). Used by <code>subList(a,b).clear()</code>.
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex == 0 && toIndex == size()) {
+            root = null;
+        } else {
+            for (int i = fromIndex; i < toIndex; i++) {
+                root = delete(root, fromIndex);
+            }
+        }
+        modCount++;
+    }
+
+    private Node<E> getNode(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + size());
+        }
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<E> build(Object[] elements, int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+        int middle = (start + end) >>> 1;
+        Node<E> node = new Node<>((E) elements[middle]);
+        node.left = build(elements, start, middle);
+        node.right = build(elements, middle + 1, end);
+        update(node);
+        return node;
+    }
+
+    private Node<E> insert(Node<E> node, int index, E element) {
+        if (node == null) {
+            return new Node<>(element);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            node.left = insert(node.left, index, element);
+        } else {
+            node.right = insert(node.right, index - leftSize - 1, element);
+        }
+        return balance(node);
+    }
+
+    private Node<E> delete(Node<E> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            node.left = delete(node.left, index);
+        } else if (index > leftSize) {
+            node.right = delete(node.right, index - leftSize - 1);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else {
+            // Replace the element by the first one of the right subtree.
+            Node<E> next = node.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            node.element = next.element;
+            node.right = delete(node.right, 0);
+        }
+        return balance(node);
+    }
+
+    private Node<E> balance(Node<E> node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        } else if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        } else {
+            return node;
+        }
+    }
+
+    private Node<E> rotateRight(Node<E> node) {
+        Node<E> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Node<E> rotateLeft(Node<E> node) {
+        Node<E> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = size(node.left) + size(node.right) + 1;
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size());
+        for (E e : this) {
+            out.writeObject(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            add(i, (E) in.readObject());
+        }
+    }
+
+    /**
+     * Keeps the path to the next node, instead of searching each element from
+     * the root.
+     */
+    private final class TreeIterator implements Iterator<E> {
+
+        /**
+         * The next node, above the nodes which follow it among its ancestors.
+         */
+        private final ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+
+        private int index = 0;
+
+        private int lastReturned = -1;
+
+        private int expectedModCount = modCount;
+
+        TreeIterator() {
+            seek(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<E> node = stack.pop();
+            for (Node<E> n = node.right; n != null; n = n.left) {
+                stack.push(n);
+            }
+            lastReturned = index++;
+            return node.element;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            TreeList.this.remove(lastReturned);
+            index = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+            seek(index);
+        }
+
+        private void seek(int i) {
+            stack.clear();
+            Node<E> n = root;
+            while (n != null) {
+                int leftSize = size(n.left);
+                if (i <= leftSize) {
+                    stack.push(n);
+                    if (i == leftSize) {
+                        break;
+                    }
+                    n = n.left;
+                } else {
+                    i -= leftSize + 1;
+                    n = n.right;
+                }
+            }
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private static final class Node<E> {
+
+        E element;
+        Node<E> left = null;
+        Node<E> right = null;
+        int size = 1;
+        int height = 1;
+
+        Node(E element) {
+            this.element = element;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.io.StringWriter;
 import jsesh.hieroglyphs.data.HieroglyphDatabaseRepository;
 import jsesh.mdc.MDCParserModelGenerator;
 import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
 import jsesh.mdc.model.Hieroglyph;
 import jsesh.mdc.model.ModelElementDeepAdapter;
 import jsesh.mdc.model.TopItemList;
@@ -46,7 +47,8 @@ public class MDCNormalizer {
 	 */
 	public String normalize(String mdc) throws MDCSyntaxError {
 		// Get the representation
-		MDCParserModelGenerator mdcParser = new MDCParserModelGenerator();
+		MDCParserModelGenerator mdcParser = MDCParserModelGenerator
+				.getThreadGenerator(Dialect.OTHER);
 		TopItemList result = mdcParser.parse(new StringReader(mdc));
 		normalize(result);
 		MdCModelWriter mdCModelWriter = new MdCModelWriter();
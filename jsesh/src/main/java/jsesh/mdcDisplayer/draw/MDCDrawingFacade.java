@@ -13,6 +13,7 @@ import java.io.StringReader;
 
 import jsesh.mdc.MDCParserModelGenerator;
 import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
 import jsesh.mdc.model.TopItemList;
 import jsesh.mdcDisplayer.layout.MDCEditorKit;
 import jsesh.mdcDisplayer.layout.SimpleViewBuilder;
@@ -60,7 +61,8 @@ public class MDCDrawingFacade {
 	}
 
 	private TopItemList buidTopItemList(String mdcCodes) throws MDCSyntaxError {
-		MDCParserModelGenerator gen = new MDCParserModelGenerator();
+		MDCParserModelGenerator gen = MDCParserModelGenerator
+				.getThreadGenerator(Dialect.OTHER);
 		gen.setPhilologyAsSigns(isPhilologySign());
 		TopItemList t = gen.parse(new StringReader(mdcCodes));
 		return t;
@@ -3,39 +3,87 @@ package jsesh.mdcDisplayer.draw;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Shape;
 import java.awt.geom.Area;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class Shader {
-	
+
+	/**
+	 * Maximal number of hatched areas kept in the cache.
+	 */
+	private static final int CACHE_SIZE = 256;
+
+	/**
+	 * Hatched areas already computed, indexed by the (page coordinates)
+	 * outline of the original area. As the hatching is aligned on the page,
+	 * redrawing the same view at the same place (which is what happens when
+	 * scrolling or repainting) gives the same result.
+	 */
+	private final Map<AreaKey, Area> hatchCache = new LinkedHashMap<AreaKey, Area>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<AreaKey, Area> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
 	/**
 	 * Shade an area. Utility method.
 	 * To function correctly, this method needs the area to be expressed in page coordinates.
 	 * That is, all areas should be drawn using the same reference system.
 	 * If it isn't the case, they won't align correctly.
-	 * TODO : to avoid too many copies of the area, we might decide that the area will be modified
-	 * by the method.
+	 * <p> The area is not modified.
 	 * @param area
 	 */
 	public void shadeArea(Graphics2D g, Area area) {
 		// Easy way: paint the area in grey...
 		// Complex way : intersect the area with line hatching...
-
-		// Prevent us from messing with the area (not that important currently,
-		// but who knows ?)
-
-		area = (Area) area.clone();
+		AreaKey key = new AreaKey(area);
+		Area hatched = hatchCache.get(key);
+		if (hatched == null) {
+			hatched = computeHatchedArea(area);
+			hatchCache.put(key, hatched);
+		}
 		// Let's work in a protected graphic environment.
 		Graphics2D tempG = (Graphics2D) g.create();
+		// Draw...
+		tempG.setColor(Color.BLACK);
+		tempG.fill(hatched);
 
+		tempG.dispose();
+	}
+
+	/**
+	 * Forget all computed shadings.
+	 */
+	public void clearCache() {
+		hatchCache.clear();
+	}
+
+	/**
+	 * Computes the intersection of an area with the hatching lines.
+	 * @param area the area (not modified).
+	 * @return a new area.
+	 */
+	private Area computeHatchedArea(Area area) {
 		// Now we can work in page coordinate for everything...
 		// Let's take a rectangle large enough
 		Rectangle2D r = area.getBounds2D();
 
-		// Now, we want to draw lines in this rectangle
-		// Those lines will be added to an area
-		Area shadingLines = new Area();
+		// Now, we want to draw lines in this rectangle.
+		// As the lines don't overlap, we gather them in one path, and build
+		// a single area from it. This is much cheaper than computing the
+		// union of one area per line.
+		Path2D.Double shadingLines = new Path2D.Double(Path2D.WIND_NON_ZERO);
 
 		// the minimal possible starting point for a shading line which
 		// intersects our area.
@@ -55,20 +103,80 @@ public class Shader {
 
 		double x = n * spacing - r.getMaxY();
 
-		// Add all relevant line segments to the area.
+		// Add all relevant line segments to the path.
 		while (x < r.getMaxX()) {
 			Line2D l = new Line2D.Double(x, r.getMaxY(), x + r.getHeight(), r
 					.getMinY());
-
-			shadingLines.add(new Area(stroke.createStrokedShape(l)));
+			Shape s = stroke.createStrokedShape(l);
+			shadingLines.append(s, false);
 			x += spacing;
 		}
-		// The area is ready. Intersect it with the original area
-		area.intersect(shadingLines);
-		// Draw...
-		tempG.setColor(Color.BLACK);
-		tempG.fill(area);
+		// The lines are ready. Intersect them with the original area
+		Area result = new Area(shadingLines);
+		result.intersect(area);
+		return result;
+	}
 
-		tempG.dispose();
+	/**
+	 * Key for the cache : the exact outline of an area.
+	 */
+	private static final class AreaKey {
+		private final int[] types;
+		private final double[] coords;
+		private final int hash;
+
+		AreaKey(Area area) {
+			int typesTab[] = new int[8];
+			double coordsTab[] = new double[32];
+			int numberOfSegments = 0;
+			int numberOfCoords = 0;
+			double segment[] = new double[6];
+			for (PathIterator it = area.getPathIterator(null); !it.isDone(); it
+					.next()) {
+				int type = it.currentSegment(segment);
+				if (numberOfSegments == typesTab.length)
+					typesTab = Arrays.copyOf(typesTab, typesTab.length * 2);
+				typesTab[numberOfSegments++] = type;
+				int n = coordinatesFor(type);
+				if (numberOfCoords + n > coordsTab.length)
+					coordsTab = Arrays.copyOf(coordsTab,
+							Math.max(coordsTab.length * 2, numberOfCoords + n));
+				System.arraycopy(segment, 0, coordsTab, numberOfCoords, n);
+				numberOfCoords += n;
+			}
+			types = Arrays.copyOf(typesTab, numberOfSegments);
+			coords = Arrays.copyOf(coordsTab, numberOfCoords);
+			hash = 31 * Arrays.hashCode(types) + Arrays.hashCode(coords);
+		}
+
+		private static int coordinatesFor(int segmentType) {
+			switch (segmentType) {
+			case PathIterator.SEG_MOVETO:
+			case PathIterator.SEG_LINETO:
+				return 2;
+			case PathIterator.SEG_QUADTO:
+				return 4;
+			case PathIterator.SEG_CUBICTO:
+				return 6;
+			default:
+				return 0;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof AreaKey))
+				return false;
+			AreaKey other = (AreaKey) obj;
+			return hash == other.hash && Arrays.equals(types, other.types)
+					&& Arrays.equals(coords, other.coords);
+		}
 	}
 }
@@ -10,6 +10,8 @@ import java.awt.geom.Area;
 import java.awt.geom.Dimension2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import jsesh.mdc.constants.LexicalSymbolsUtils;
 import jsesh.mdc.constants.ScriptCodes;
@@ -47,6 +49,32 @@ import jsesh.mdcDisplayer.preferences.ShadingStyle;
  */
 public class SimpleElementDrawer extends ElementDrawer {
 
+    /**
+     * Maximal number of quadrant shading areas kept in the cache.
+     */
+    private static final int SHADING_CACHE_SIZE = 128;
+
+    /**
+     * Shader used for hatched shading (it caches its results).
+     */
+    private final Shader shader = new Shader();
+
+    /**
+     * Shaded areas for quadrants, in the quadrant's coordinates. They only
+     * depend on the shading code and the quadrant size, and are shared : they
+     * should never be modified.
+     */
+    private final Map<QuadrantShadingKey, Area> quadrantShadingCache = new LinkedHashMap<QuadrantShadingKey, Area>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<QuadrantShadingKey, Area> eldest) {
+            return size() > SHADING_CACHE_SIZE;
+        }
+    };
+
     /**
      * {@inheritDoc}
      */
@@ -439,8 +467,7 @@ public class SimpleElementDrawer extends ElementDrawer {
         boolean fillBottomLeft;
         boolean fillBottomRight;
 
-        Rectangle2D.Double r = new Rectangle2D.Double(0, 0, currentView
-                .getWidth() / 2, currentView.getHeight() / 2);
+        Rectangle2D.Double r = new Rectangle2D.Double();
         // IMPORTANT : we use the alpha chanel for transparency.
         // If this doesn't work for some implementations of Graphics2D,
         // We should have a "B plan".
@@ -461,24 +488,33 @@ public class SimpleElementDrawer extends ElementDrawer {
             fillBottomRight = (localShading & ShadingCode.BOTTOM_START) != 0;
         }
 
-        Area shadedArea = new Area();
-
-        if (fillTopLeft) {
-            shadedArea.add(new Area(r));
-        }
-        if (fillTopRight) {
-            r.x = currentView.getWidth() / 2;
-            shadedArea.add(new Area(r));
-        }
-        if (fillBottomLeft) {
-            r.x = 0;
-            r.y = currentView.getHeight() / 2;
-            shadedArea.add(new Area(r));
-        }
-        if (fillBottomRight) {
-            r.x = currentView.getWidth() / 2;
-            r.y = currentView.getHeight() / 2;
-            shadedArea.add(new Area(r));
+        QuadrantShadingKey key = new QuadrantShadingKey(fillTopLeft,
+                fillTopRight, fillBottomLeft, fillBottomRight,
+                currentView.getWidth(), currentView.getHeight());
+        Area shadedArea = quadrantShadingCache.get(key);
+        if (shadedArea == null) {
+            shadedArea = new Area();
+            r.width = currentView.getWidth() / 2;
+            r.height = currentView.getHeight() / 2;
+
+            if (fillTopLeft) {
+                shadedArea.add(new Area(r));
+            }
+            if (fillTopRight) {
+                r.x = currentView.getWidth() / 2;
+                shadedArea.add(new Area(r));
+            }
+            if (fillBottomLeft) {
+                r.x = 0;
+                r.y = currentView.getHeight() / 2;
+                shadedArea.add(new Area(r));
+            }
+            if (fillBottomRight) {
+                r.x = currentView.getWidth() / 2;
+                r.y = currentView.getHeight() / 2;
+                shadedArea.add(new Area(r));
+            }
+            quadrantShadingCache.put(key, shadedArea);
         }
 
         shadeArea(shadedArea);
@@ -515,6 +551,7 @@ public class SimpleElementDrawer extends ElementDrawer {
 
     /**
      * Shade an area. Utility method (will move out of there).
+     * <p> The area is not modified.
      *
      * @param area
      */
@@ -541,7 +578,7 @@ public class SimpleElementDrawer extends ElementDrawer {
             // sets the coordinate space to page coordinates.
             getPageCoordinateSystem().moveBackToPageReferenceSystem(tempG);
 
-            new Shader().shadeArea(tempG, area);
+            shader.shadeArea(tempG, area);
 
             tempG.dispose();
         }
@@ -577,4 +614,41 @@ public class SimpleElementDrawer extends ElementDrawer {
         return getDrawingState().isShaded();
     }
 
+
+    /**
+     * Key for the quadrant shading cache.
+     */
+    private static final class QuadrantShadingKey {
+
+        private final int quadrants;
+        private final float width, height;
+
+        QuadrantShadingKey(boolean topLeft, boolean topRight,
+                boolean bottomLeft, boolean bottomRight, float width,
+                float height) {
+            this.quadrants = (topLeft ? 1 : 0) | (topRight ? 2 : 0)
+                    | (bottomLeft ? 4 : 0) | (bottomRight ? 8 : 0);
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = quadrants;
+            result = 31 * result + Float.floatToIntBits(width);
+            result = 31 * result + Float.floatToIntBits(height);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof QuadrantShadingKey)) {
+                return false;
+            }
+            QuadrantShadingKey other = (QuadrantShadingKey) obj;
+            return quadrants == other.quadrants
+                    && Float.floatToIntBits(width) == Float.floatToIntBits(other.width)
+                    && Float.floatToIntBits(height) == Float.floatToIntBits(other.height);
+        }
+    }
 }
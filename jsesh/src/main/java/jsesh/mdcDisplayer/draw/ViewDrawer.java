@@ -11,6 +11,7 @@ import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.function.IntPredicate;
 
 import jsesh.editor.caret.MDCCaret;
 import jsesh.mdc.constants.TextDirection;
@@ -53,6 +54,12 @@ public class ViewDrawer {
      */
     private MDCCaret cursor = null;
 
+    /**
+     * Tells which top items to highlight, for instance search matches. May be
+     * null.
+     */
+    private IntPredicate highlighted = null;
+
     private boolean debug = false;
 
     private ElementDrawer elementDrawer;
@@ -223,32 +230,39 @@ public class ViewDrawer {
      * @param v the view
      */
     private void drawSelection(Graphics2D g, int i, MDCView v) {
+        if (highlighted != null && highlighted.test(i)) {
+            fillView(g, v, new Color(255, 200, 0, 90));
+        }
         if (cursor != null && cursor.hasMark()) {
             int a = Math.min(cursor.getInsert().getIndex(), cursor.getMark()
                     .getIndex());
             int b = Math.max(cursor.getInsert().getIndex(), cursor.getMark()
                     .getIndex());
             if (a <= i && i < b) {
-                float w = v.getWidth();
-                float h = v.getHeight();
+                fillView(g, v, new Color(0, 0, 255, 50));
+            }
+        }
+    }
 
-                // h and w are OK, but the inter-cadrat space is not filled.
-                if (drawingSpecifications.getTextOrientation().isHorizontal()) {
-                    if (v.nextIsHorizontallyAdjacent()) {
-                        w += drawingSpecifications.getSmallSkip();
-                    }
-                } else {
-                    h += drawingSpecifications.getSmallSkip();
-                }
-                // TODO : take into account vertical text ???
-                // AND right-to-left text also. Basically, use
-                // the values of dx and dy.
-                // h= h+ v.getNextViewPosition().getDy();
+    private void fillView(Graphics2D g, MDCView v, Color color) {
+        float w = v.getWidth();
+        float h = v.getHeight();
 
-                g.setColor(new Color(0, 0, 255, 50));
-                g.fill(new Rectangle2D.Double(0, 0, w, h));
+        // h and w are OK, but the inter-cadrat space is not filled.
+        if (drawingSpecifications.getTextOrientation().isHorizontal()) {
+            if (v.nextIsHorizontallyAdjacent()) {
+                w += drawingSpecifications.getSmallSkip();
             }
+        } else {
+            h += drawingSpecifications.getSmallSkip();
         }
+        // TODO : take into account vertical text ???
+        // AND right-to-left text also. Basically, use
+        // the values of dx and dy.
+        // h= h+ v.getNextViewPosition().getDy();
+
+        g.setColor(color);
+        g.fill(new Rectangle2D.Double(0, 0, w, h));
     }
 
     /**
@@ -540,11 +554,13 @@ public class ViewDrawer {
      */
     public Point2D getPointForPosition(MDCView v, MDCPosition position) {
         Point2D ref;
+        // The view may have less subviews than the text has items.
+        int index = Math.min(position.getIndex(), v.getNumberOfSubviews());
 
-        if (position.getIndex() == 0) {
+        if (index == 0) {
             ref = new Point2D.Float(0, 0);
-        } else if (position.getIndex() < v.getNumberOfSubviews()) {
-            MDCView subv = v.getSubView(position.getIndex());
+        } else if (index < v.getNumberOfSubviews()) {
+            MDCView subv = v.getSubView(index);
             ref = new Point2D.Double(subv.getPosition().x, subv.getPosition().y);
         } else {
             MDCView subv = v.getSubView(v.getNumberOfSubviews() - 1);
@@ -594,7 +610,7 @@ public class ViewDrawer {
                 e.printStackTrace();
             }
 
-            int i = 0;
+            int i = getFirstCandidateForPoint(v, point, ds);
             while (pos == -1 && i < v.getNumberOfSubviews()) {
 
                 MDCView subv = v.getSubView(i);
@@ -667,6 +683,34 @@ public class ViewDrawer {
         }
     }
 
+    /**
+     * Find the first subview which might be selected by a click on point.
+     * <p>
+     * All subviews before the result lie entirely before the point (above it
+     * for lines, to its left for left-to-right columns), and would not be
+     * selected by the linear search in getPositionForPoint. Uses the view's
+     * subview index, so the search is logarithmic in the size of the text.
+     *
+     * @param v the view
+     * @param point the point, in v's reference system
+     * @param ds
+     * @return the index of the first subview to test.
+     */
+    private int getFirstCandidateForPoint(MDCView v, Point2D.Float point,
+            DrawingSpecification ds) {
+        if (ds.getTextOrientation().isHorizontal()) {
+            return v.getSubViewIndex().firstSubViewEndingAfterY(point.y,
+                    ds.getSmallSkip());
+        } else if (ds.getTextDirection().isLeftToRight()
+                && v.getDirection().equals(TextDirection.LEFT_TO_RIGHT)) {
+            return v.getSubViewIndex().firstSubViewEndingAfterX(point.x,
+                    ds.getSmallSkip());
+        } else {
+            // Right-to-left columns : no monotonous criterion, linear search.
+            return 0;
+        }
+    }
+
     /**
      * Returns A rectangle that surrounds a specific text position.
      * <p>
@@ -682,8 +726,10 @@ public class ViewDrawer {
             MDCPosition position, DrawingSpecification specs) {
         // position is the next index. The rectangle should include both
         // views i-1 and i (if they exist).
+        // The view may be a bit late on the text, if it is laid out in the
+        // background : positions after its end are at its end.
 
-        int index = position.getIndex();
+        int index = Math.min(position.getIndex(), v.getNumberOfSubviews());
         Rectangle2D result = new Rectangle2D.Float(0, 0, specs.getSmallSkip(),
                 specs.getMaxCadratHeight());
 
@@ -813,6 +859,15 @@ public class ViewDrawer {
         debug = b;
     }
 
+    /**
+     * Sets the top items to highlight when drawing a text.
+     *
+     * @param highlighted a predicate on the indexes of the top items, or null.
+     */
+    public void setHighlighted(IntPredicate highlighted) {
+        this.highlighted = highlighted;
+    }
+
     /**
      * If ShadeAfter is true, the shading should be drawn <em>after</em> the
      * shaded elements. For systems which support transparency, shadeAfter at
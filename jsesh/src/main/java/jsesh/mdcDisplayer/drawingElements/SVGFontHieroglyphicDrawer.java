@@ -8,6 +8,7 @@ import java.awt.geom.Area;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.Rectangle2D.Float;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -43,6 +44,11 @@ public class SVGFontHieroglyphicDrawer implements HieroglyphsDrawer {
      */
     private static final String DEFAULT_CODE = "A1";
 
+    /**
+     * Maximal number of transformed glyphs kept in the cache.
+     */
+    private static final int CACHE_SIZE = 1024;
+
     private static HashMap<String, String> normalizedCodesMap = new HashMap<String, String>();
 
     static {
@@ -73,6 +79,26 @@ public class SVGFontHieroglyphicDrawer implements HieroglyphsDrawer {
 
     private boolean smallBodyUsed = false;
 
+    /**
+     * Rotated (and possibly scaled) versions of the glyphs. Layout asks many
+     * times for the bounding box of the same rotated sign, and rotating a
+     * glyph and computing its bounds is costly.
+     * <p>
+     * Each entry remembers the glyph it was computed from ; if the font
+     * manager returns a new glyph for the code (because new signs were
+     * loaded), the entry is recomputed.
+     */
+    private final Map<TransformedGlyphKey, TransformedGlyph> transformedGlyphs = new LinkedHashMap<TransformedGlyphKey, TransformedGlyph>(
+            64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<TransformedGlyphKey, TransformedGlyph> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     public SVGFontHieroglyphicDrawer() {
         // IMPORTANT : I don't know it this absolutely needs to be a singleton.
         // If it's not, we might think of using prototypes.
@@ -114,6 +140,7 @@ public class SVGFontHieroglyphicDrawer implements HieroglyphsDrawer {
         if (isSmallBodyUsed()) {
             glyph = fontManager.getSmallBody(code);
         }
+        boolean smallBody = glyph != null;
         // If we don't want a small body font, or the glyph was not available
         // there,
         // try the normal shape.
@@ -121,8 +148,12 @@ public class SVGFontHieroglyphicDrawer implements HieroglyphsDrawer {
             glyph = fontManager.get(code);
         }
         tmpG.scale(view.getXScale(), view.getYScale());
-        if (glyph != null) {
-            glyph.draw(tmpG, 0, 0, 1.0, 1.0, (float) (angle * Math.PI / 180));
+        if (glyph != null && angle != 0) {
+            // Rotated glyph, moved so that its top-left is 0,0.
+            tmpG.fill(getRotatedGlyph(code, angle, smallBody, glyph)
+                    .getShape());
+        } else if (glyph != null) {
+            glyph.draw(tmpG, 0, 0, 1.0, 1.0, 0f);
         } else {
             // If the glyph wasn't found, write its code.
             Rectangle2D r = tmpG.getFont().getStringBounds(code,
@@ -160,16 +191,22 @@ public class SVGFontHieroglyphicDrawer implements HieroglyphsDrawer {
             } else if (nonHieroglyphic.containsKey(code)) {
                 result = getNonHieroglyphic(code).getBounds2D();
             }
-        } else if (angle != 0) {
-            // TODO : centralize decisions about the rotations.
-            // (rotation is found both here and in the drawing class).
-            // Other point : getShape may call us, but only with angle = 0, so
-            // there is no infinite recursion...
-            Shape shape = getShape(code);
-            AffineTransform rot = AffineTransform.getRotateInstance(angle
-                    * Math.PI / 180f);
-            shape = rot.createTransformedShape(shape);
-            result = shape.getBounds2D();
+        } else {
+            ShapeChar glyph = fontManager.get(code);
+            if (glyph != null) {
+                // Rotated glyphs are cached.
+                result = getRotatedGlyph(code, angle, false, glyph).getBbox();
+            } else {
+                // TODO : centralize decisions about the rotations.
+                // (rotation is found both here and in the drawing class).
+                // Other point : getShape may call us, but only with angle = 0, so
+                // there is no infinite recursion...
+                Shape shape = getShape(code);
+                AffineTransform rot = AffineTransform.getRotateInstance(angle
+                        * Math.PI / 180f);
+                shape = rot.createTransformedShape(shape);
+                result = shape.getBounds2D();
+            }
         }
 
         return result;
@@ -210,8 +247,12 @@ public class SVGFontHieroglyphicDrawer implements HieroglyphsDrawer {
         ShapeChar glyph = fontManager.get(code);
         if (glyph != null) // FIXME : use reversed !
         {
-            result = glyph.getSignArea(x, y, xscale, yscale, angle * Math.PI
-                    / 180.0);
+            // The area is computed once at 0,0, and then moved.
+            TransformedGlyph transformed = getTransformedGlyph(
+                    new TransformedGlyphKey(code, angle, false, xscale, yscale),
+                    glyph);
+            result = transformed.getSignArea().createTransformedArea(
+                    AffineTransform.getTranslateInstance(x, y));
         } else if (nonHieroglyphic.containsKey(code)) {
             Shape s = ShapeHelper.transformShape(x, y, xscale, yscale, angle
                     * Math.PI / 180.0, getNonHieroglyphic(code));
@@ -272,6 +313,33 @@ public class SVGFontHieroglyphicDrawer implements HieroglyphsDrawer {
         return smallBodyUsed;
     }
 
+    /**
+     * Returns the rotated version of a glyph, with its bounding box.
+     *
+     * @param code the (normalized) code.
+     * @param angle angle, in degrees.
+     * @param smallBody true if glyph was taken in the small body font.
+     * @param glyph the glyph for the code.
+     * @return the cached rotated glyph.
+     */
+    private TransformedGlyph getRotatedGlyph(String code, int angle,
+            boolean smallBody, ShapeChar glyph) {
+        return getTransformedGlyph(new TransformedGlyphKey(code, angle,
+                smallBody, 1.0, 1.0), glyph);
+    }
+
+    private TransformedGlyph getTransformedGlyph(TransformedGlyphKey key,
+            ShapeChar glyph) {
+        synchronized (transformedGlyphs) {
+            TransformedGlyph result = transformedGlyphs.get(key);
+            if (result == null || result.glyph != glyph) {
+                result = new TransformedGlyph(glyph, key);
+                transformedGlyphs.put(key, result);
+            }
+            return result;
+        }
+    }
+
     /**
      * Returns a normalized version of code. In particular, deals with codes
      * like '[[' and ']]'.
@@ -286,4 +354,96 @@ public class SVGFontHieroglyphicDrawer implements HieroglyphsDrawer {
             return code;
         }
     }
+
+    /**
+     * Key for the transformed glyphs cache.
+     */
+    private static final class TransformedGlyphKey {
+
+        private final String code;
+        private final int angle;
+        private final boolean smallBody;
+        private final double xscale, yscale;
+
+        TransformedGlyphKey(String code, int angle, boolean smallBody,
+                double xscale, double yscale) {
+            this.code = code;
+            this.angle = angle;
+            this.smallBody = smallBody;
+            this.xscale = xscale;
+            this.yscale = yscale;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = code.hashCode();
+            result = 31 * result + angle;
+            result = 31 * result + (smallBody ? 1 : 0);
+            result = 31 * result + Double.valueOf(xscale).hashCode();
+            result = 31 * result + Double.valueOf(yscale).hashCode();
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TransformedGlyphKey)) {
+                return false;
+            }
+            TransformedGlyphKey other = (TransformedGlyphKey) obj;
+            return angle == other.angle && smallBody == other.smallBody
+                    && Double.compare(xscale, other.xscale) == 0
+                    && Double.compare(yscale, other.yscale) == 0
+                    && code.equals(other.code);
+        }
+    }
+
+    /**
+     * A glyph, rotated and scaled. The sign area, which is quite costly, is
+     * computed only if needed.
+     */
+    private static final class TransformedGlyph {
+
+        private final ShapeChar glyph;
+        private final TransformedGlyphKey key;
+        /**
+         * Bounding box of the rotated glyph (before it's moved to 0,0).
+         */
+        private final Rectangle2D bbox;
+        /**
+         * The rotated glyph, moved so that its top-left corner is at 0,0.
+         */
+        private final Shape shape;
+        private Area signArea;
+
+        TransformedGlyph(ShapeChar glyph, TransformedGlyphKey key) {
+            this.glyph = glyph;
+            this.key = key;
+            double radians = key.angle * Math.PI / 180.0;
+            Shape rotated = AffineTransform.getRotateInstance(radians)
+                    .createTransformedShape(glyph.getShape());
+            bbox = rotated.getBounds2D();
+            shape = AffineTransform.getTranslateInstance(-bbox.getMinX(),
+                    -bbox.getMinY()).createTransformedShape(rotated);
+        }
+
+        Rectangle2D getBbox() {
+            // Rectangles are mutable.
+            return (Rectangle2D) bbox.clone();
+        }
+
+        Shape getShape() {
+            return shape;
+        }
+
+        /**
+         * Returns the sign area, at position 0,0. Should not be modified.
+         */
+        synchronized Area getSignArea() {
+            if (signArea == null) {
+                signArea = glyph.getSignArea(0, 0, key.xscale, key.yscale,
+                        key.angle * Math.PI / 180.0);
+            }
+            return signArea;
+        }
+    }
 }
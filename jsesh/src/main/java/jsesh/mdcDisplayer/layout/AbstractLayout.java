@@ -87,6 +87,8 @@ public abstract class AbstractLayout extends ModelElementAdapter implements Layo
 		commonLayoutHook();
 		// Actual layout :
 		view.getModel().accept(this);
+		// The subviews have moved : the hit-testing index is obsolete.
+		view.invalidateSubViewIndex();
 		// Reset everything, to avoid keeping unnecessary references.
 		currentView= null;
 	}
@@ -5,12 +5,17 @@
  */
 package jsesh.mdcDisplayer.layout;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
 
 import jsesh.hieroglyphs.data.HieroglyphDatabaseRepository;
 import jsesh.hieroglyphs.graphics.DefaultHieroglyphicFontManager;
@@ -20,11 +25,32 @@ import jsesh.resources.ResourcesManager;
 /**
  * Manages ligatures.
  * Currently a singleton.
+ * <p>
+ * Ligatures are stored in a trie over canonical sign codes. The ligature
+ * description is read from a precompiled binary file when it is available and
+ * up-to-date with the textual description (see
+ * {@link #readPrecompiled(InputStream, long)}), which avoids parsing the text.
+ * <p>
+ * Both files hold tksesh's values, which depend on the current font (the
+ * height of the signs) and on the current sign database (the canonical codes).
+ * Codes are canonicalized when the ligatures are read, and positions are
+ * converted to JSesh units the first time a ligature is used, so that
+ * the glyphs are loaded only when needed.
  * @author S. Rosmorduc
  *
  */
 public class LigatureManager {
 
+	/**
+	 * Magic number for precompiled ligature files ("JSLG").
+	 */
+	private static final int MAGIC = 0x4A534C47;
+
+	/**
+	 * Version of the precompiled ligature file format.
+	 */
+	private static final int FORMAT_VERSION = 2;
+
 	static private LigatureManager instance = null;
 
 	/**
@@ -34,8 +60,20 @@ public class LigatureManager {
 		if (instance == null) {
 			instance = new LigatureManager();
 			try {
-				instance.readTksesh(
-					ResourcesManager.getInstance().getLigatureData());
+				ResourcesManager resources = ResourcesManager.getInstance();
+				long checksum = computeChecksum(resources.getLigatureData());
+				InputStream precompiled = resources.getPrecompiledLigatureData();
+				boolean done = false;
+				if (precompiled != null) {
+					try {
+						done = instance.readPrecompiled(precompiled, checksum);
+					} finally {
+						precompiled.close();
+					}
+				}
+				if (!done) {
+					instance.readTksesh(resources.getLigatureData());
+				}
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -43,26 +81,48 @@ public class LigatureManager {
 
 		return instance;
 	}
-	private final Map<String[], ExplicitPosition[]> ligaturesMap;
 
-	@SuppressWarnings("unchecked")
+	private final LigatureTrie<Ligature> ligatures;
+
 	public LigatureManager() {
-		// Using checked types here would not work easily, as one can't use arrays as 
-		// generic type.
-		// We would need to build arraylists of strings, which we might do later.
-		// meanwhile, we are content with @SuppressWarnings
-		ligaturesMap = new TreeMap<>(new LigatureComparator());
+		ligatures = new LigatureTrie<Ligature>();
 	}
 
 	public ExplicitPosition[] getPositions(String codes[]) {
 		String c[]= new String[codes.length];
 		for (int i= 0; i< codes.length; i++)
 			c[i]= HieroglyphDatabaseRepository.getHieroglyphDatabase().getCanonicalCode(codes[i]);
-		return ligaturesMap.get(c);
+		Ligature ligature = ligatures.get(c);
+		return ligature == null ? null : ligature.getPositions();
+	}
+
+	/**
+	 * Finds the longest known ligature at the start of a sequence of signs.
+	 * @param codes sign codes (canonical or not).
+	 * @param start the position of the first sign to consider.
+	 * @return the number of signs in the ligature, or 0 if no ligature starts at this position.
+	 */
+	public int getLongestLigatureLength(String codes[], int start) {
+		String c[]= new String[codes.length];
+		for (int i= start; i< codes.length; i++)
+			c[i]= HieroglyphDatabaseRepository.getHieroglyphDatabase().getCanonicalCode(codes[i]);
+		return ligatures.longestPrefix(c, start);
 	}
 
 	public void put(String codes[], ExplicitPosition[] positions) {
-		ligaturesMap.put(codes, positions);
+		ligatures.put(codes, new Ligature(positions));
+	}
+
+	/**
+	 * Adds a ligature described with tksesh's values.
+	 * @param codes the codes of the ligature, as written in the description.
+	 * @param ligature
+	 */
+	private void putTksesh(String codes[], Ligature ligature) {
+		String c[] = new String[codes.length];
+		for (int i = 0; i < codes.length; i++)
+			c[i] = HieroglyphDatabaseRepository.getHieroglyphDatabase().getCanonicalCode(codes[i]);
+		ligatures.put(c, ligature);
 	}
 
 	/**
@@ -73,60 +133,174 @@ public class LigatureManager {
 	 */
 	public void readTksesh(Reader in) throws IOException {
 		BufferedReader r = new BufferedReader(in);
-		HieroglyphicFontManager fontmanager= DefaultHieroglyphicFontManager.getInstance();
-		
 		String s;
 		while ((s = r.readLine()) != null) {
-			int i;
 			String parts[] = s.split("\\|");
+			putTksesh(parts[0].split("&"), parseTksesh(parts[1]));
+		}
+	}
+
+	/**
+	 * Parses the positions part of a line of tksesh's description.
+	 */
+	private static Ligature parseTksesh(String description) {
+		String pos[] = description.split(" ");
+		// pos[0] holds the number of signs in the ligature.
+		Ligature ligature = new Ligature(Integer.parseInt(pos[0]));
+		int k = 0;
+		for (int i = 1; i < pos.length; i += 4) {
+			// i : sign code
+			ligature.signs[k] = pos[i];
+			ligature.x[k] = Float.parseFloat(pos[i + 1]);
+			ligature.y[k] = Float.parseFloat(pos[i + 2]);
+			ligature.scales[k] = Integer.parseInt(pos[i + 3]);
+			k++;
+		}
+		return ligature;
+	}
+
+	/**
+	 * Reads a precompiled ligature file, as written by
+	 * {@link #precompile(Reader, OutputStream, long)}.
+	 * <p>
+	 * If the file is obsolete (i.e. if it was not compiled from a textual
+	 * description with the expected checksum) or has an unknown format, nothing
+	 * is read.
+	 * @param in the binary data.
+	 * @param expectedChecksum the checksum of the textual description, as
+	 * computed by {@link #computeChecksum(Reader)}.
+	 * @return true if the ligatures were read.
+	 * @throws IOException
+	 */
+	public boolean readPrecompiled(InputStream in, long expectedChecksum) throws IOException {
+		DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+		if (din.readInt() != MAGIC || din.readInt() != FORMAT_VERSION
+				|| din.readLong() != expectedChecksum) {
+			return false;
+		}
+		int count = din.readInt();
+		for (int i = 0; i < count; i++) {
+			String codes[] = new String[din.readUnsignedByte()];
+			for (int j = 0; j < codes.length; j++) {
+				codes[j] = din.readUTF();
+			}
+			Ligature ligature = new Ligature(din.readUnsignedByte());
+			for (int j = 0; j < ligature.signs.length; j++) {
+				ligature.signs[j] = din.readUTF();
+				ligature.x[j] = din.readFloat();
+				ligature.y[j] = din.readFloat();
+				ligature.scales[j] = din.readInt();
+			}
+			putTksesh(codes, ligature);
+		}
+		return true;
+	}
+
+	/**
+	 * Compiles a ligature description file (in tksesh's format) into binary
+	 * form.
+	 * <p>
+	 * The values are written as they are in the description, without
+	 * depending on the current font or sign database.
+	 * @param tksesh the textual description.
+	 * @param out
+	 * @param checksum the checksum of the textual description.
+	 * @throws IOException
+	 * @see #readPrecompiled(InputStream, long)
+	 */
+	public static void precompile(Reader tksesh, OutputStream out, long checksum) throws IOException {
+		BufferedReader r = new BufferedReader(tksesh);
+		List<String> lines = new ArrayList<String>();
+		String s;
+		while ((s = r.readLine()) != null) {
+			lines.add(s);
+		}
+		DataOutputStream dout = new DataOutputStream(out);
+		dout.writeInt(MAGIC);
+		dout.writeInt(FORMAT_VERSION);
+		dout.writeLong(checksum);
+		dout.writeInt(lines.size());
+		for (String line : lines) {
+			String parts[] = line.split("\\|");
 			String codes[] = parts[0].split("&");
-			// replace codes by their canonical equivalents.
-			for(i= 0; i< codes.length; i++)
-				codes[i]= HieroglyphDatabaseRepository.getHieroglyphDatabase().getCanonicalCode(codes[i]);
-			
-			String pos[] = parts[1].split(" ");
-			// pos[0] holds the number of signs in the ligature.
-			int size = Integer.parseInt(pos[0]);
-			ExplicitPosition positions[]= new ExplicitPosition[size];
-			int k = 0;
-			for (i = 1; i < pos.length; i += 4) {
-				// i : sign code
-				float x = Float.parseFloat(pos[i + 1]);
-				float y = Float.parseFloat(pos[i + 2]);
-				int scale = Integer.parseInt(pos[i + 3]);
-				// Units are not the same in tksesh and in JSesh.
-				x= (x * 1000f)/17f;
-				float h= (float) fontmanager.get(pos[i]).getBbox().getHeight();
-				y= ((17f - y - h) * 1000f)/17f;
-				positions[k] = new ExplicitPosition(x,y,scale);
-				k++;
+			dout.writeByte(codes.length);
+			for (String code : codes) {
+				dout.writeUTF(code);
+			}
+			Ligature ligature = parseTksesh(parts[1]);
+			dout.writeByte(ligature.signs.length);
+			for (int i = 0; i < ligature.signs.length; i++) {
+				dout.writeUTF(ligature.signs[i]);
+				dout.writeFloat(ligature.x[i]);
+				dout.writeFloat(ligature.y[i]);
+				dout.writeInt(ligature.scales[i]);
+			}
+		}
+		dout.flush();
+	}
+
+	/**
+	 * Computes the checksum of a textual ligature description, which is used to
+	 * check that a precompiled file is up-to-date. Closes the reader.
+	 * @param in
+	 * @return a checksum.
+	 * @throws IOException
+	 */
+	public static long computeChecksum(Reader in) throws IOException {
+		CRC32 crc = new CRC32();
+		try {
+			char buffer[] = new char[4096];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				for (int i = 0; i < n; i++) {
+					crc.update(buffer[i] >> 8);
+					crc.update(buffer[i]);
+				}
 			}
-			put(codes, positions);
+		} finally {
+			in.close();
 		}
+		return crc.getValue();
 	}
 
-    private static class LigatureComparator implements Comparator {
-
-        public LigatureComparator() {
-        }
-
-        @Override
-        public int compare(Object o1, Object o2) {
-            String t0[]= (String[]) o1;
-            String t1[]= (String[]) o2;
-            int result= 0;
-            int i= 0;
-            while (result == 0 && i < t0.length && i < t1.length) {
-                result= t0[i].compareTo(t1[i]);
-                i++;
-            }
-            if (result == 0) {
-                // both array are equals until the end of one of them.
-                // the shorter is the smaller :
-                result= t0.length - t1.length;
-            }
-            return result;
-        }
-    }
+	/**
+	 * The positions of the signs in a ligature. They are either given
+	 * directly, or computed from tksesh's values when first needed.
+	 */
+	private static class Ligature {
+		String signs[];
+		float x[];
+		float y[];
+		int scales[];
+
+		private volatile ExplicitPosition positions[];
+
+		Ligature(ExplicitPosition positions[]) {
+			this.positions = positions;
+		}
+
+		Ligature(int size) {
+			signs = new String[size];
+			x = new float[size];
+			y = new float[size];
+			scales = new int[size];
+		}
+
+		ExplicitPosition[] getPositions() {
+			if (positions == null) {
+				HieroglyphicFontManager fontmanager= DefaultHieroglyphicFontManager.getInstance();
+				ExplicitPosition result[] = new ExplicitPosition[signs.length];
+				for (int i = 0; i < signs.length; i++) {
+					// Units are not the same in tksesh and in JSesh.
+					float px = (x[i] * 1000f) / 17f;
+					float h = (float) fontmanager.get(signs[i]).getBbox().getHeight();
+					float py = ((17f - y[i] - h) * 1000f) / 17f;
+					result[i] = new ExplicitPosition(px, py, scales[i]);
+				}
+				positions = result;
+			}
+			return positions;
+		}
+	}
 
 }
@@ -0,0 +1,110 @@
+/*
+ * This file is distributed under the LGPL.
+ */
+package jsesh.mdcDisplayer.layout;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A trie of sign codes, used to find explicit ligature positions.
+ * <p>
+ * Codes are interned when inserted, and each node has a small map of its
+ * children, so a lookup costs one hash access per sign in the ligature,
+ * instead of the array comparisons of a sorted map.
+ * <p>
+ * Besides exact lookup, the trie supports longest-prefix matching: given a
+ * sequence of signs, it finds the longest ligature which starts the
+ * sequence.
+ *
+ * @author S. Rosmorduc
+ */
+class LigatureTrie<T> {
+
+	private final Node<T> root = new Node<T>();
+
+	private int size = 0;
+
+	/**
+	 * Associates a value with a sequence of codes.
+	 *
+	 * @param codes
+	 * @param value
+	 */
+	public void put(String codes[], T value) {
+		Node<T> current = root;
+		for (String code : codes) {
+			current = current.getOrCreateChild(code.intern());
+		}
+		if (current.value == null)
+			size++;
+		current.value = value;
+	}
+
+	/**
+	 * Returns the value associated with exactly this sequence of codes.
+	 *
+	 * @param codes
+	 * @return a value, or null if none.
+	 */
+	public T get(String codes[]) {
+		Node<T> current = root;
+		for (int i = 0; current != null && i < codes.length; i++) {
+			current = current.getChild(codes[i]);
+		}
+		return current == null ? null : current.value;
+	}
+
+	/**
+	 * Finds the longest sequence of codes, starting at position start in
+	 * codes, which has a value in the trie.
+	 *
+	 * @param codes
+	 * @param start
+	 * @return the length of the longest match, or 0 if none.
+	 */
+	public int longestPrefix(String codes[], int start) {
+		int result = 0;
+		Node<T> current = root;
+		for (int i = start; i < codes.length; i++) {
+			current = current.getChild(codes[i]);
+			if (current == null)
+				break;
+			if (current.value != null)
+				result = i - start + 1;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of entries in the trie.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static class Node<T> {
+		/**
+		 * Children, created lazily, as most nodes are leaves.
+		 */
+		private Map<String, Node<T>> children;
+		private T value;
+
+		Node<T> getChild(String code) {
+			if (children == null)
+				return null;
+			return children.get(code);
+		}
+
+		Node<T> getOrCreateChild(String code) {
+			if (children == null)
+				children = new HashMap<String, Node<T>>(4);
+			Node<T> result = children.get(code);
+			if (result == null) {
+				result = new Node<T>();
+				children.put(code, result);
+			}
+			return result;
+		}
+	}
+}
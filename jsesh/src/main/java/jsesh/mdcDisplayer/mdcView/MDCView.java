@@ -137,6 +137,11 @@ public class MDCView implements ViewBox {
 
 	private List<MDCView> subViews;
 
+	/**
+	 * Index for hit-testing among subviews, built on demand.
+	 */
+	private SubViewIndex subViewIndex;
+
 	/**
 	 * size of this view (seen from <em>outside</rm>).
 	 */
@@ -212,12 +217,40 @@ public class MDCView implements ViewBox {
 	 */
 	public void addAt(int i, MDCView subView) {
 		getSubViews().add(i, subView);
+		invalidateSubViewIndex(i);
 		fixSlibingsAt(i - 1);
 		fixSlibingsAt(i);
 		fixSlibingsAt(i + 1);
 		subView.parent = this;
 	}
 
+	/**
+	 * Returns a copy of this view, which shares its subviews.
+	 * <p>
+	 * The copy has the same model, dimensions, scale and position as this
+	 * view, and can be laid out in another parent view without changing this
+	 * one. The subviews are neither copied nor modified: they still consider
+	 * this view as their parent.
+	 *
+	 * @return a copy of this view.
+	 */
+	public MDCView shallowCopy() {
+		MDCView result = new MDCView(model);
+		result.angle = angle;
+		result.deltaBaseX = deltaBaseX;
+		result.deltaBaseY = deltaBaseY;
+		result.xStretchable = xStretchable;
+		result.yStretchable = yStretchable;
+		result.direction = direction;
+		result.position = (Point2D.Double) position.clone();
+		result.subViews = subViews;
+		result.width = width;
+		result.height = height;
+		result.xScale = xScale;
+		result.yScale = yScale;
+		return result;
+	}
+
 	/**
 	 * center the subviews horizontally for this view.
 	 */
@@ -252,6 +285,7 @@ public class MDCView implements ViewBox {
 			getSubView(i).previous = null;
 		}
 		getSubViews().clear();
+		invalidateSubViewIndex();
 	}
 
 	/**
@@ -640,6 +674,36 @@ public class MDCView implements ViewBox {
 		return yScale;
 	}
 
+	/**
+	 * Returns the spatial index of this view's subviews, used for
+	 * hit-testing.
+	 * 
+	 * @return the index (never null).
+	 */
+	public SubViewIndex getSubViewIndex() {
+		if (subViewIndex == null)
+			subViewIndex = new SubViewIndex(this);
+		return subViewIndex;
+	}
+
+	/**
+	 * Signals that the subviews of this view have been moved (typically by a
+	 * new layout), and that the subview index must be recomputed.
+	 */
+	public void invalidateSubViewIndex() {
+		invalidateSubViewIndex(0);
+	}
+
+	/**
+	 * Signals that the subviews from index on have been modified.
+	 * 
+	 * @param index
+	 */
+	private void invalidateSubViewIndex(int index) {
+		if (subViewIndex != null)
+			subViewIndex.invalidateFrom(index);
+	}
+
 	public ViewIterator iterator() {
 		return new ViewIterator(this, getSubViews().listIterator());
 	}
@@ -655,6 +719,7 @@ public class MDCView implements ViewBox {
 		MDCView subv = getSubView(idx);
 		subv.parent = null;
 		subViews.remove(idx);
+		invalidateSubViewIndex(idx);
 		fixSlibingsAt(idx - 1);
 		fixSlibingsAt(idx);
 	}
@@ -667,6 +732,7 @@ public class MDCView implements ViewBox {
 			subv.previous = null;
 			subViews.remove(i);
 		}
+		invalidateSubViewIndex(a);
 		fixSlibingsAt(a - 1);
 		fixSlibingsAt(a);
 	}
@@ -680,6 +746,7 @@ public class MDCView implements ViewBox {
 	 */
 	public void replaceSubView(int i, MDCView subv) {
 		subViews.set(i, subv);
+		invalidateSubViewIndex(i);
 		fixSlibingsAt(i - 1);
 		fixSlibingsAt(i);
 		fixSlibingsAt(i + 1);
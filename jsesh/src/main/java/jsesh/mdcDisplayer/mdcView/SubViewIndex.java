@@ -0,0 +1,144 @@
+package jsesh.mdcDisplayer.mdcView;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index over the subviews of a view, used for hit-testing.
+ * <p>
+ * For each subview index i, we keep the maximal bottom (resp. right) extent
+ * of the subviews 0..i. Those prefix maxima are monotonous, which allows a
+ * binary search for the first subview which might still contain a given
+ * point: all subviews before it end strictly before the point.
+ * <p>
+ * As subviews are laid out line by line (or column by column), the first
+ * candidate is normally on the line of the point, and the linear part of
+ * hit-testing is reduced to the length of one line.
+ * <p>
+ * The index is computed lazily. Structural modifications of the view only
+ * invalidate the index from the modified position on, and the next query
+ * recomputes the invalid part. A change of layout (which moves the subviews)
+ * must call {@link MDCView#invalidateSubViewIndex()}.
+ * <p>
+ * Coordinates are those of the subviews, as stored, i.e. without taking the
+ * view's direction into account.
+ *
+ * <p>
+ * This file is free Software (c) Serge Rosmorduc
+ *
+ * @author rosmord
+ */
+public class SubViewIndex {
+
+	private final MDCView view;
+
+	/**
+	 * maxBottom[i] = max of the bottoms of subviews 0..i.
+	 */
+	private double[] maxBottom = new double[0];
+
+	/**
+	 * maxRight[i] = max of the right sides of subviews 0..i.
+	 */
+	private double[] maxRight = new double[0];
+
+	/**
+	 * Entries before this index are up to date.
+	 */
+	private int validUpTo = 0;
+
+	SubViewIndex(MDCView view) {
+		this.view = view;
+	}
+
+	/**
+	 * Declares that subviews from index on may have been modified or moved.
+	 *
+	 * @param index
+	 */
+	void invalidateFrom(int index) {
+		if (index < 0)
+			index = 0;
+		if (index < validUpTo)
+			validUpTo = index;
+	}
+
+	/**
+	 * Returns the index of the first subview whose bottom side (plus margin)
+	 * is strictly greater than y. All subviews before this one are entirely
+	 * above y - margin.
+	 *
+	 * @param y
+	 *            the vertical coordinate, in the view's system.
+	 * @param margin
+	 *            a non-negative margin added to the bottom of each subview.
+	 * @return an index between 0 and the number of subviews (included).
+	 */
+	public int firstSubViewEndingAfterY(double y, double margin) {
+		update();
+		return firstAbove(maxBottom, y, margin);
+	}
+
+	/**
+	 * Returns the index of the first subview whose right side (plus margin)
+	 * is strictly greater than x.
+	 *
+	 * @param x
+	 *            the horizontal coordinate, in the view's system, not
+	 *            corrected for text direction.
+	 * @param margin
+	 *            a non-negative margin added to the right side of each
+	 *            subview.
+	 * @return an index between 0 and the number of subviews (included).
+	 * @see #firstSubViewEndingAfterY(double, double)
+	 */
+	public int firstSubViewEndingAfterX(double x, double margin) {
+		update();
+		return firstAbove(maxRight, x, margin);
+	}
+
+	private int firstAbove(double[] extents, double value, double margin) {
+		int n = view.getNumberOfSubviews();
+		if (margin < 0)
+			return 0;
+		int low = 0;
+		int high = n;
+		// invariant: extents[k] + margin <= value for k < low,
+		// and > value for k >= high.
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (extents[mid] + margin > value)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Recompute the invalid part of the index.
+	 */
+	private void update() {
+		int n = view.getNumberOfSubviews();
+		if (maxBottom.length < n) {
+			int capacity = Math.max(n, maxBottom.length * 2);
+			maxBottom = Arrays.copyOf(maxBottom, capacity);
+			maxRight = Arrays.copyOf(maxRight, capacity);
+		}
+		if (validUpTo > n)
+			validUpTo = n;
+		for (int i = validUpTo; i < n; i++) {
+			MDCView subv = view.getSubView(i);
+			double y = subv.getPosition().y;
+			double x = subv.getPosition().x;
+			double bottom = Math.max(y, y + subv.getHeight());
+			double right = Math.max(x, x + subv.getWidth());
+			if (i > 0) {
+				bottom = Math.max(bottom, maxBottom[i - 1]);
+				right = Math.max(right, maxRight[i - 1]);
+			}
+			maxBottom[i] = bottom;
+			maxRight[i] = right;
+		}
+		validUpTo = n;
+	}
+}
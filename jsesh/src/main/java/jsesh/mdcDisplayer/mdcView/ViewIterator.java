@@ -26,6 +26,7 @@ public class ViewIterator {
 	 */
 	public void add(MDCView o) {
 		rep.add(o);
+		container.invalidateSubViewIndex();
 	}
 
 	/*
@@ -75,6 +76,7 @@ public class ViewIterator {
 	 */
 	public void remove() {
 		rep.remove();
+		container.invalidateSubViewIndex();
 	}
 
 	/*
@@ -82,6 +84,7 @@ public class ViewIterator {
 	 */
 	public void set(MDCView o) {
 		rep.set(o);
+		container.invalidateSubViewIndex();
 	}
 
 }
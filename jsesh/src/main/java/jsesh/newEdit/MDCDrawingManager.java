@@ -5,6 +5,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import jsesh.mdc.MDCParserModelGenerator;
 import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
 import jsesh.mdc.model.Cadrat;
 import jsesh.mdc.model.EmbeddedModelElement;
 import jsesh.mdc.model.HBox;
@@ -56,7 +57,7 @@ public class MDCDrawingManager {
 
     public void setMdc(String mdc) {
         try {
-            MDCParserModelGenerator mDCParserModelGenerator = new MDCParserModelGenerator();
+            MDCParserModelGenerator mDCParserModelGenerator = MDCParserModelGenerator.getThreadGenerator(Dialect.OTHER);
             items = mDCParserModelGenerator.parse(mdc);
             layout();
         } catch (MDCSyntaxError ex) {
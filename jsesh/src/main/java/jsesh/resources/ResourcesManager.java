@@ -137,6 +137,17 @@ public class ResourcesManager {
         return in;
     }
 
+    /**
+     * Returns the precompiled version of the ligature data, if available.
+     *
+     * @return a stream, or null if there is no precompiled data.
+     * @see jsesh.mdcDisplayer.layout.LigatureManager#readPrecompiled(InputStream, long)
+     */
+    public InputStream getPrecompiledLigatureData() {
+        return ResourcesManager.class
+                .getResourceAsStream("/jseshResources/data/ligatures.bin");
+    }
+
     public Reader getDemoData() {
         try {
             Reader in;
@@ -0,0 +1,40 @@
+package jsesh.utilitySoftwares;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import jsesh.mdcDisplayer.layout.LigatureManager;
+import jsesh.resources.ResourcesManager;
+
+/**
+ * Compiles the ligature description (ligatures.txt) into its binary form
+ * (ligatures.bin), which is loaded faster by {@link LigatureManager}.
+ * <p>
+ * Should be run each time ligatures.txt is modified. If it's not, the binary
+ * file is simply ignored, as its checksum no longer matches the text.
+ * The binary file holds the values of the text, and doesn't depend on the
+ * fonts or on the sign database.
+ */
+public class CompileLigatures {
+
+    static final String USAGE = "usage : "
+            + "\n java " + CompileLigatures.class.getName() + " OUTPUTFILE"
+            + "\n\twhere OUTPUTFILE is normally src/main/resources/jseshResources/data/ligatures.bin";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        ResourcesManager resources = ResourcesManager.getInstance();
+        long checksum = LigatureManager.computeChecksum(resources.getLigatureData());
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(args[0]));
+        try {
+            LigatureManager.precompile(resources.getLigatureData(), out, checksum);
+        } finally {
+            out.close();
+        }
+    }
+}
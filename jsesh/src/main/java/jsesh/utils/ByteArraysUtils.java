@@ -7,6 +7,8 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 
 public class ByteArraysUtils {
@@ -21,6 +23,35 @@ public class ByteArraysUtils {
 		return readStreamInByteArray(inputStream);
 	}
 
+	/**
+	 * Reads a whole file in a byte buffer, through its channel.
+	 * <p>
+	 * The buffer is allocated once, with the size of the file.
+	 * 
+	 * @param file
+	 * @return a buffer, ready for reading.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	public static ByteBuffer readFileInByteBuffer(File file)
+			throws FileNotFoundException, IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("File too large " + file);
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+				// keep reading
+			}
+			buffer.flip();
+			return buffer;
+		} finally {
+			in.close();
+		}
+	}
+
 	/**
 	 * Method for working in ASCII.
 	 * 
@@ -50,6 +81,36 @@ public class ByteArraysUtils {
 		return result;
 	}
 
+	/**
+	 * Method for working in ASCII.
+	 * 
+	 * @param buffer
+	 * @param firstByte absolute index of the first byte to compare.
+	 * @param string
+	 * @return
+	 */
+	public static boolean startsWith(ByteBuffer buffer, int firstByte,
+			String string) {
+		if (string.length() + firstByte > buffer.limit())
+			return false;
+		for (int i = 0; i < string.length(); i++) {
+			if (buffer.get(firstByte + i) != (byte) string.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	public static boolean startsWith(ByteBuffer buffer, int firstByte,
+			byte[] values) {
+		if (values.length + firstByte > buffer.limit())
+			return false;
+		for (int i = 0; i < values.length; i++) {
+			if (buffer.get(firstByte + i) != values[i])
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Uses C-like conventions.
 	 * 
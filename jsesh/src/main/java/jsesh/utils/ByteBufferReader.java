@@ -0,0 +1,146 @@
+package jsesh.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A reader which decodes the content of a byte buffer on demand.
+ * <p>
+ * Characters are decoded directly into the arrays passed to
+ * {@link #read(char[], int, int)}, so reading a buffer never builds a string
+ * with its whole content. Malformed input is replaced, as
+ * {@link String#String(byte[], String)} does.
+ * <p>
+ * The reader works on its own view of the buffer: the position of the buffer
+ * passed to the constructor is not modified.
+ *
+ * @author rosmord
+ */
+public class ByteBufferReader extends Reader {
+
+	private final ByteBuffer in;
+
+	/**
+	 * Position of the first byte to read in the buffer.
+	 */
+	private final int start;
+
+	private final CharsetDecoder decoder;
+
+	/**
+	 * True when all bytes have been passed to the decoder.
+	 */
+	private boolean flushing = false;
+
+	/**
+	 * True when all characters have been decoded.
+	 */
+	private boolean finished = false;
+
+	/**
+	 * Second half of a surrogate pair, when the caller asked for only one
+	 * char.
+	 */
+	private char pending;
+
+	private boolean hasPending = false;
+
+	/**
+	 * Reads the bytes between the buffer's position and its limit.
+	 *
+	 * @param buffer
+	 * @param charset
+	 */
+	public ByteBufferReader(ByteBuffer buffer, Charset charset) {
+		this.in = buffer.duplicate();
+		this.start = in.position();
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || off + len > cbuf.length)
+			throw new IndexOutOfBoundsException();
+		if (len == 0)
+			return 0;
+		int count = 0;
+		if (hasPending) {
+			cbuf[off] = pending;
+			hasPending = false;
+			count = 1;
+		}
+		if (count < len) {
+			CharBuffer out = CharBuffer.wrap(cbuf, off + count, len - count);
+			decodeInto(out);
+			count = out.position() - off;
+		}
+		if (count == 0 && !finished) {
+			// Not enough room for a surrogate pair.
+			CharBuffer small = CharBuffer.allocate(2);
+			decodeInto(small);
+			small.flip();
+			if (small.hasRemaining()) {
+				cbuf[off] = small.get();
+				count = 1;
+			}
+			if (small.hasRemaining()) {
+				pending = small.get();
+				hasPending = true;
+			}
+		}
+		if (count == 0 && finished)
+			return -1;
+		return count;
+	}
+
+	private void decodeInto(CharBuffer out) throws IOException {
+		while (out.hasRemaining() && !finished) {
+			CoderResult result;
+			if (!flushing) {
+				result = decoder.decode(in, out, true);
+				if (result.isUnderflow())
+					flushing = true;
+			} else {
+				result = decoder.flush(out);
+				if (result.isUnderflow())
+					finished = true;
+			}
+			if (result.isOverflow())
+				break;
+			if (result.isError())
+				result.throwException();
+		}
+	}
+
+	/**
+	 * Returns the proportion of the bytes which have been decoded, for
+	 * progress reports. As decoding is done on demand, this is usually a bit
+	 * more than what was read from the reader.
+	 *
+	 * @return a number between 0 and 1.
+	 */
+	public double getProgress() {
+		if (in.limit() == start)
+			return 1;
+		return (in.position() - start) / (double) (in.limit() - start);
+	}
+
+	@Override
+	public boolean ready() {
+		return hasPending || !finished;
+	}
+
+	@Override
+	public void close() {
+		finished = true;
+		hasPending = false;
+	}
+}
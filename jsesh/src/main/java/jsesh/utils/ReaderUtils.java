@@ -0,0 +1,36 @@
+package jsesh.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Prefix tests on readers, used to analyse file headers without reading the
+ * whole file.
+ * 
+ * @see StringBufferUtils
+ */
+public class ReaderUtils {
+
+	/**
+	 * Checks if the next characters of a reader are a given string. The
+	 * reader position is not modified.
+	 * 
+	 * @param in
+	 * @param string
+	 * @return true if the reader's next characters are string.
+	 * @throws IOException
+	 */
+	public static boolean startsWith(BufferedReader in, String string)
+			throws IOException {
+		in.mark(string.length());
+		try {
+			for (int i = 0; i < string.length(); i++) {
+				if (in.read() != string.charAt(i))
+					return false;
+			}
+			return true;
+		} finally {
+			in.reset();
+		}
+	}
+}
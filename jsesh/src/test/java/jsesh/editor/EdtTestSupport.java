@@ -0,0 +1,71 @@
+package jsesh.editor;
+
+import java.util.function.BooleanSupplier;
+
+import javax.swing.SwingUtilities;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs test code on the event dispatch thread, and waits for background
+ * work to be done.
+ *
+ * @author rosmord
+ */
+final class EdtTestSupport {
+
+	/**
+	 * How long to wait for background work, in milliseconds.
+	 */
+	private static final long TIMEOUT = 10000;
+
+	interface Action {
+		void run() throws Exception;
+	}
+
+	private EdtTestSupport() {
+	}
+
+	/**
+	 * Runs an action on the event dispatch thread, and throws the exception
+	 * or error it throws, if any.
+	 *
+	 * @param action
+	 * @throws Exception
+	 */
+	static void run(Action action) throws Exception {
+		Throwable[] error = { null };
+		SwingUtilities.invokeAndWait(() -> {
+			try {
+				action.run();
+			} catch (Exception | Error e) {
+				error[0] = e;
+			}
+		});
+		if (error[0] instanceof Error) {
+			throw (Error) error[0];
+		} else if (error[0] != null) {
+			throw (Exception) error[0];
+		}
+	}
+
+	/**
+	 * Waits until a condition, checked on the event dispatch thread, holds.
+	 *
+	 * @param message the failure message if the condition doesn't hold in
+	 *            time.
+	 * @param condition
+	 * @throws Exception
+	 */
+	static void waitUntil(String message, BooleanSupplier condition)
+			throws Exception {
+		boolean[] done = { false };
+		long limit = System.currentTimeMillis() + TIMEOUT;
+		while (!done[0]) {
+			assertTrue(message, System.currentTimeMillis() < limit);
+			Thread.sleep(10);
+			SwingUtilities.invokeAndWait(() -> done[0] = condition
+					.getAsBoolean());
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package jsesh.editor;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import jsesh.mdc.model.MDCPosition;
+import jsesh.mdc.model.TopItemList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static jsesh.editor.EdtTestSupport.run;
+import static jsesh.editor.EdtTestSupport.waitUntil;
+
+/**
+ * Tests for the editor component.
+ *
+ * @author rosmord
+ */
+public class JMDCEditorTest {
+
+	private JMDCEditor editor;
+
+	/**
+	 * The view is laid out in the background : the caret may be after the
+	 * end of the view when it is painted.
+	 */
+	@Test
+	public void testPaintWhileLayoutLags() throws Exception {
+		// The editor's actions need a keyboard.
+		assumeTrue(!GraphicsEnvironment.isHeadless());
+		run(() -> {
+			editor = new JMDCEditor();
+			editor.setSize(600, 200);
+			editor.setMDCText("A1-G17");
+			assertEquals(2, editor.getView().getNumberOfSubviews());
+			TopItemList text = editor.getHieroglyphicTextModel().getModel();
+			editor.getWorkflow().setCursor(new MDCPosition(text, 2));
+			editor.insert("X1");
+			editor.insert("D21");
+			// The new signs are not laid out yet.
+			assertEquals(4, text.getNumberOfChildren());
+			assertEquals(4, editor.getInsertPositiont());
+			Rectangle r = editor.getPointerRectangle();
+			assertNotNull(r);
+			paint();
+		});
+		waitUntil("layout too long",
+				() -> editor.getView().getNumberOfSubviews() == 4);
+		run(this::paint);
+	}
+
+	private void paint() {
+		BufferedImage image = new BufferedImage(600, 200,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.setClip(0, 0, 600, 200);
+		editor.paint(g);
+		g.dispose();
+	}
+}
@@ -0,0 +1,173 @@
+package jsesh.editor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import jsesh.mdc.model.ModelElement;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdc.model.operations.ModelOperation;
+import jsesh.mdcDisplayer.layout.MDCEditorKit;
+import jsesh.mdcDisplayer.mdcView.MDCView;
+import jsesh.mdcDisplayer.preferences.DrawingSpecification;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static jsesh.editor.EdtTestSupport.run;
+import static jsesh.editor.EdtTestSupport.waitUntil;
+
+/**
+ * Tests for the background layout of the editor's view.
+ *
+ * @author rosmord
+ */
+public class LayoutPipelineTest {
+
+	private final DrawingSpecification drawingSpecifications = MDCEditorKit
+			.getBasicMDCEditorKit().getDrawingSpecifications();
+
+	private final List<MDCView> published = new ArrayList<MDCView>();
+
+	private final LayoutPipeline pipeline = new LayoutPipeline(published::add);
+
+	private final HieroglyphicTextModel text = new HieroglyphicTextModel();
+
+	@Test
+	public void testIncrementalLayout() throws Exception {
+		MDCView[] first = { null };
+		double[] positions = new double[3];
+		run(() -> {
+			start("A1-G17-X1");
+			first[0] = pipeline.layoutNow(text.getModel(),
+					drawingSpecifications);
+			checkView(first[0]);
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = first[0].getSubView(i).getPosition().x;
+			}
+			text.insertMDCText(1, "D21-N35");
+			pipeline.requestLayout(drawingSpecifications);
+		});
+		waitForLayout(1);
+		run(() -> {
+			assertEquals(1, published.size());
+			MDCView view = published.get(0);
+			checkView(view);
+			assertEquals(5, view.getNumberOfSubviews());
+			// The views of the unchanged items are shared...
+			assertSame(first[0].getSubView(2).getFirstSubView(), view
+					.getSubView(4).getFirstSubView());
+			assertTrue(view.getSubView(4).getPosition().x > positions[2]);
+			// ... but the published view was not modified.
+			assertEquals(3, first[0].getNumberOfSubviews());
+			for (int i = 0; i < positions.length; i++) {
+				assertEquals(positions[i],
+						first[0].getSubView(i).getPosition().x, 0);
+			}
+		});
+	}
+
+	@Test
+	public void testOnlyLastLayoutPublished() throws Exception {
+		run(() -> {
+			start("A1");
+			pipeline.layoutNow(text.getModel(), drawingSpecifications);
+			for (int i = 0; i < 50; i++) {
+				text.insertMDCText(0, "G17-X1");
+				pipeline.requestLayout(drawingSpecifications);
+			}
+			text.removeElements(text.buildPosition(0), text.buildPosition(2));
+			pipeline.requestLayout(drawingSpecifications);
+		});
+		waitForLayout(1);
+		run(() -> {
+			for (MDCView view : published) {
+				checkView(view);
+			}
+			assertEquals(99, published.get(0).getNumberOfSubviews());
+		});
+	}
+
+	@Test
+	public void testRebuild() throws Exception {
+		run(() -> {
+			start("A1-G17-X1");
+			MDCView view = pipeline.layoutNow(text.getModel(),
+					drawingSpecifications);
+			pipeline.rebuildAll();
+			pipeline.requestLayout(drawingSpecifications);
+			published.add(view);
+		});
+		waitForLayout(2);
+		run(() -> {
+			assertEquals(2, published.size());
+			checkView(published.get(1));
+			assertNotSame(published.get(0).getSubView(0).getFirstSubView(),
+					published.get(1).getSubView(0).getFirstSubView());
+		});
+	}
+
+	/**
+	 * Creates the text, and sends its modifications to the pipeline.
+	 */
+	private void start(String mdc) throws Exception {
+		text.insertMDCText(0, mdc);
+		MDCViewUpdater updater = new MDCViewUpdater(pipeline);
+		text.addObserver((o, arg) -> {
+			if (arg instanceof ModelOperation) {
+				((ModelOperation) arg).accept(updater);
+			}
+		});
+	}
+
+	/**
+	 * Checks that a view is bound to the live text, down to its signs, so
+	 * that no copy of the text is kept.
+	 */
+	private void checkView(MDCView view) {
+		TopItemList model = text.getModel();
+		assertSame(model, view.getModel());
+		assertEquals(model.getNumberOfChildren(), view.getNumberOfSubviews());
+		for (int i = 0; i < model.getNumberOfChildren(); i++) {
+			checkBound(view.getSubView(i), model.getTopItemAt(i));
+		}
+	}
+
+	private void checkBound(MDCView view, ModelElement item) {
+		assertSame(item, view.getModel());
+		Set<ModelElement> elements = Collections
+				.newSetFromMap(new IdentityHashMap<ModelElement, Boolean>());
+		collect(item, elements);
+		checkModels(view, elements);
+	}
+
+	private void collect(ModelElement element, Set<ModelElement> elements) {
+		elements.add(element);
+		for (int i = 0; i < element.getNumberOfChildren(); i++) {
+			collect(element.getChildAt(i), elements);
+		}
+	}
+
+	private void checkModels(MDCView view, Set<ModelElement> elements) {
+		if (view.getModel() != null) {
+			assertTrue(view.getModel() + " is not in the text",
+					elements.contains(view.getModel()));
+		}
+		for (int i = 0; i < view.getNumberOfSubviews(); i++) {
+			checkModels(view.getSubView(i), elements);
+		}
+	}
+
+	/**
+	 * Waits until a number of views have been published. The number is given
+	 * by the caller, as the layout may be published before this is called.
+	 */
+	private void waitForLayout(int expected) throws Exception {
+		waitUntil("layout too long", () -> published.size() >= expected);
+		// Let a stale layout be published, if it were to happen.
+		Thread.sleep(50);
+		run(() -> {
+		});
+	}
+}
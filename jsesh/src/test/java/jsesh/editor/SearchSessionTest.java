@@ -0,0 +1,213 @@
+package jsesh.editor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jsesh.mdc.model.Hieroglyph;
+import jsesh.mdc.model.MDCPosition;
+import jsesh.mdc.model.ModelElementDeepAdapter;
+import jsesh.mdc.model.TopItemList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static jsesh.editor.EdtTestSupport.run;
+import static jsesh.editor.EdtTestSupport.waitUntil;
+
+/**
+ * Tests for background searches, and the update of their matches when the
+ * text is edited.
+ *
+ * @author rosmord
+ */
+public class SearchSessionTest {
+
+	private HieroglyphicTextModel text;
+
+	private SearchSession session;
+
+	@Test
+	public void testItemsQuery() throws Exception {
+		check("A1-G17-X1-A1-G17-A1", new ItemsQuery("A1-G17", true), 0, 3);
+	}
+
+	@Test
+	public void testUnboundedQuery() throws Exception {
+		check("A1-G17-X1-A1-G17-A1", new ItemsQuery("A1-G17", false), 0, 3);
+	}
+
+	@Test
+	public void testSignsQuery() throws Exception {
+		check("G17-!-X1-A1-G17:X1-Y1", new SignsQuery("G17", "X1"), 0, 4);
+	}
+
+	@Test
+	public void testLongText() throws Exception {
+		StringBuilder mdc = new StringBuilder("X1");
+		for (int i = 0; i < SearchSession.CHUNK_SIZE; i++) {
+			mdc.append("-A1-G17");
+		}
+		run(() -> start(mdc.toString(), new ItemsQuery("G17-A1", true)));
+		waitUntilDone();
+		run(() -> {
+			assertEquals(SearchSession.CHUNK_SIZE - 1,
+					session.getNumberOfMatches());
+			checkMatches();
+			text.removeElements(text.buildPosition(SearchSession.CHUNK_SIZE),
+					text.buildPosition(SearchSession.CHUNK_SIZE + 2));
+		});
+		waitUntilDone();
+		run(() -> {
+			assertEquals(SearchSession.CHUNK_SIZE - 2,
+					session.getNumberOfMatches());
+			checkMatches();
+			session.stop();
+			assertEquals(0, text.getModel().getNumberOfMarks());
+		});
+	}
+
+	/**
+	 * Searches a text, edits it, and compares the matches with the ones of a
+	 * direct search.
+	 */
+	private void check(String mdc, MdCSearchQuery query, Integer... expected)
+			throws Exception {
+		run(() -> start(mdc, query));
+		waitUntilDone();
+		run(() -> {
+			List<Integer> indexes = new ArrayList<Integer>();
+			for (MDCPosition position : session.getMatches()) {
+				indexes.add(position.getIndex());
+			}
+			assertEquals(java.util.Arrays.asList(expected), indexes);
+		});
+		String[][] edits = { { "2", "A1-G17" }, { "1", "!" }, { "0", "X1" },
+				{ "5", "G17-X1" } };
+		for (String[] edit : edits) {
+			run(() -> insert(Integer.parseInt(edit[0]), edit[1]));
+			waitUntilDone();
+			run(() -> checkMatches());
+		}
+		run(() -> {
+			// Several edits before the search.
+			text.removeElements(text.buildPosition(1), text.buildPosition(3));
+			insert(4, "A1");
+			text.removeElements(text.buildPosition(0), text.buildPosition(1));
+		});
+		waitUntilDone();
+		run(() -> checkMatches());
+		run(() -> {
+			text.setMDCCode(mdc);
+		});
+		waitUntilDone();
+		run(() -> checkMatches());
+	}
+
+	private void start(String mdc, MdCSearchQuery query) {
+		text = new HieroglyphicTextModel();
+		insert(0, mdc);
+		session = new SearchSession(text, query);
+		session.start();
+	}
+
+	private void insert(int index, String mdc) {
+		try {
+			text.insertMDCText(index, mdc);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void checkMatches() {
+		assertEquals(session.getQuery().doSearch(text.getModel()).toString(),
+				session.getMatches().toString());
+	}
+
+	private void waitUntilDone() throws Exception {
+		waitUntil("search too long", () -> session.isDone());
+	}
+
+	/**
+	 * Searches a sequence of top items.
+	 */
+	private static class ItemsQuery implements MdCSearchQuery {
+
+		private final TopItemList search;
+
+		private final boolean bounded;
+
+		ItemsQuery(String mdc, boolean bounded) throws Exception {
+			HieroglyphicTextModel model = new HieroglyphicTextModel();
+			model.setMDCCode(mdc);
+			this.search = model.getModel();
+			this.bounded = bounded;
+		}
+
+		@Override
+		public List<MDCPosition> doSearch(TopItemList items) {
+			List<MDCPosition> result = new ArrayList<MDCPosition>();
+			int length = search.getNumberOfChildren();
+			for (int pos = 0; pos + length <= items.getNumberOfChildren(); pos++) {
+				int i = 0;
+				while (i < length
+						&& search.getChildAt(i).equalsIgnoreId(
+								items.getChildAt(pos + i))) {
+					i++;
+				}
+				if (i == length) {
+					result.add(new MDCPosition(items, pos));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public MatchLength getMaximalMatchLength() {
+			return bounded ? MatchLength.items(search.getNumberOfChildren())
+					: null;
+		}
+	}
+
+	/**
+	 * Searches a sequence of signs, whatever the items between them.
+	 */
+	private static class SignsQuery implements MdCSearchQuery {
+
+		private final String[] codes;
+
+		SignsQuery(String... codes) {
+			this.codes = codes;
+		}
+
+		@Override
+		public List<MDCPosition> doSearch(TopItemList items) {
+			List<String> signs = new ArrayList<String>();
+			List<Integer> positions = new ArrayList<Integer>();
+			for (int i = 0; i < items.getNumberOfChildren(); i++) {
+				int index = i;
+				items.getChildAt(i).accept(new ModelElementDeepAdapter() {
+					@Override
+					public void visitHieroglyph(Hieroglyph h) {
+						signs.add(h.getCode());
+						positions.add(index);
+					}
+				});
+			}
+			List<MDCPosition> result = new ArrayList<MDCPosition>();
+			for (int i = 0; i + codes.length <= signs.size(); i++) {
+				int j = 0;
+				while (j < codes.length && codes[j].equals(signs.get(i + j))) {
+					j++;
+				}
+				if (j == codes.length) {
+					result.add(new MDCPosition(items, positions.get(i)));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public MatchLength getMaximalMatchLength() {
+			return MatchLength.signs(codes.length);
+		}
+	}
+}
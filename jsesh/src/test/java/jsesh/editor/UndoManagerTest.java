@@ -0,0 +1,110 @@
+package jsesh.editor;
+
+import jsesh.mdc.MDCSyntaxError;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the limits of the undo history, and the grouping of insertions.
+ *
+ * @author rosmord
+ */
+public class UndoManagerTest {
+
+	@Test
+	public void testCoalescing() throws MDCSyntaxError {
+		HieroglyphicTextModel text = new HieroglyphicTextModel();
+		String[] codes = { "A1", "G17", "X1", "D21" };
+		for (String code : codes) {
+			text.insertMDCText(text.getModel().getNumberOfChildren(), code);
+		}
+		// Grouping signs replaces the last one.
+		text.replaceWithMDCText(3, 4, "D21:n");
+		text.insertMDCText(4, "Y1");
+		assertEquals(5, text.getModel().getNumberOfChildren());
+		text.undo();
+		assertEquals(0, text.getModel().getNumberOfChildren());
+		assertFalse(text.canUndo());
+		text.redo();
+		assertEquals("A1-G17-X1-D21:n-Y1", mdc(text));
+	}
+
+	@Test
+	public void testBreaksAndUndo() throws MDCSyntaxError {
+		HieroglyphicTextModel text = new HieroglyphicTextModel();
+		text.insertMDCText(0, "A1");
+		text.insertMDCText(1, "!");
+		text.insertMDCText(2, "G17");
+		text.undo();
+		assertEquals(2, text.getModel().getNumberOfChildren());
+		// No grouping with the command before an undo.
+		text.insertMDCText(2, "X1");
+		text.insertMDCText(3, "D21");
+		text.undo();
+		assertEquals(2, text.getModel().getNumberOfChildren());
+		text.undo();
+		assertEquals(1, text.getModel().getNumberOfChildren());
+		text.undo();
+		assertEquals(0, text.getModel().getNumberOfChildren());
+		assertTrue(text.isClean());
+	}
+
+	@Test
+	public void testMaximalCommands() throws MDCSyntaxError {
+		HieroglyphicTextModel text = new HieroglyphicTextModel();
+		text.setMaximalUndoCommands(3);
+		for (int i = 0; i < 5; i++) {
+			text.insertMDCText(2 * i, "A1-G17");
+		}
+		int undone = 0;
+		while (text.canUndo()) {
+			text.undo();
+			undone++;
+		}
+		assertEquals(3, undone);
+		assertEquals(4, text.getModel().getNumberOfChildren());
+		// The text is not the one we started from.
+		assertFalse(text.isClean());
+		text.setClean();
+		assertTrue(text.isClean());
+	}
+
+	@Test
+	public void testSpill() throws MDCSyntaxError {
+		HieroglyphicTextModel text = new HieroglyphicTextModel();
+		text.insertMDCText(0,
+				"i-A1\\R90:n-<-ra-mn->-!-D*d:t-+ltext+s-!!-$r-G17-[[-X1-]]-$b-#b-Y1-#e");
+		String original = mdc(text);
+		// All commands but the last one are written to the history file.
+		text.setMaximalUndoMemory(0);
+		int removals = 0;
+		while (text.getModel().getNumberOfChildren() > 0) {
+			int n = text.getModel().getNumberOfChildren() / 2;
+			text.removeElements(text.buildPosition(n), text.buildPosition(n + 1));
+			removals++;
+		}
+		for (int i = 0; i < 3; i++) {
+			text.undo();
+		}
+		text.redo();
+		for (int i = 0; i < removals - 2; i++) {
+			text.undo();
+		}
+		assertEquals(original, mdc(text));
+		text.undo();
+		assertEquals(0, text.getModel().getNumberOfChildren());
+		while (text.canRedo()) {
+			text.redo();
+		}
+		assertEquals(0, text.getModel().getNumberOfChildren());
+		for (int i = 0; i < removals; i++) {
+			text.undo();
+		}
+		assertEquals(original, mdc(text));
+	}
+
+	private String mdc(HieroglyphicTextModel text) {
+		return text.getModel().toMdC().trim();
+	}
+}
@@ -0,0 +1,103 @@
+package jsesh.editor.latency;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the latency measures of the editor.
+ *
+ * @author rosmord
+ */
+public class EditorLatencyTest {
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentileMillis(50), 0);
+		// 1 to 1000 ms.
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000000L);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500, histogram.getPercentileMillis(50), 500 * 0.07);
+		assertEquals(990, histogram.getPercentileMillis(99), 990 * 0.07);
+		assertEquals(1000, histogram.getPercentileMillis(100), 0);
+		assertEquals(1000, histogram.getMaxMillis(), 0);
+		assertEquals(500.5, histogram.getMeanMillis(), 0.01);
+	}
+
+	@Test
+	public void testBuckets() {
+		for (long micros = 0; micros < 100000; micros++) {
+			int bucket = LatencyHistogram.getBucket(micros);
+			assertTrue(LatencyHistogram.getBucketTop(bucket) >= micros);
+			assertTrue(bucket == 0
+					|| LatencyHistogram.getBucketTop(bucket - 1) < micros);
+		}
+	}
+
+	@Test
+	public void testNestedStages() throws InterruptedException {
+		EditorLatency latency = new EditorLatency();
+		latency.setEnabled(true);
+		latency.begin(EditorStage.COMMAND);
+		latency.begin(EditorStage.VIEW_UPDATE);
+		Thread.sleep(50);
+		latency.end(EditorStage.VIEW_UPDATE);
+		latency.end(EditorStage.COMMAND);
+		assertTrue(latency.getHistogram(EditorStage.VIEW_UPDATE)
+				.getMaxMillis() >= 50);
+		// The command doesn't include the view update.
+		assertTrue(latency.getHistogram(EditorStage.COMMAND).getMaxMillis() < 50);
+
+		// A stage which is not ended doesn't disturb the others.
+		latency.begin(EditorStage.KEY);
+		latency.begin(EditorStage.POSSIBILITIES);
+		latency.end(EditorStage.KEY);
+		latency.end(EditorStage.LAYOUT);
+		assertEquals(1, latency.getHistogram(EditorStage.KEY).getCount());
+		assertEquals(0, latency.getHistogram(EditorStage.POSSIBILITIES)
+				.getCount());
+
+		latency.setEnabled(false);
+		latency.begin(EditorStage.PAINT);
+		latency.end(EditorStage.PAINT);
+		assertEquals(0, latency.getHistogram(EditorStage.PAINT).getCount());
+	}
+
+	@Test
+	public void testKeystroke() {
+		EditorLatency latency = new EditorLatency();
+		latency.setEnabled(true);
+		latency.keyTyped(System.currentTimeMillis());
+		latency.keyTyped(System.currentTimeMillis());
+		latency.painted();
+		latency.painted();
+		assertEquals(2, latency.getHistogram(EditorStage.EVENT_QUEUE)
+				.getCount());
+		assertEquals(1, latency.getHistogram(EditorStage.KEYSTROKE).getCount());
+	}
+
+	@Test
+	public void testReport() throws Exception {
+		EditorLatency latency = EditorLatency.getInstance();
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(
+				new ObjectName(EditorLatency.OBJECT_NAME)));
+		latency.record(EditorStage.LAYOUT, 3000000L);
+		assertTrue(latency.getReport().contains("LAYOUT"));
+		File file = File.createTempFile("latency", ".txt");
+		try {
+			latency.dump(file.getPath());
+			String text = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+			assertTrue(text.contains("<= "));
+		} finally {
+			file.delete();
+		}
+	}
+}
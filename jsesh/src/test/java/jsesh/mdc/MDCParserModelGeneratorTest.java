@@ -0,0 +1,70 @@
+package jsesh.mdc;
+
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.model.TopItemList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the reuse of generators.
+ *
+ * @author rosmord
+ */
+public class MDCParserModelGeneratorTest {
+
+	private static final String[] TEXTS = { "A1-G17:t-!", "$r-p*t-#b-X1-#e",
+			"A1-((-G2", "n:(x:t)*U30-+ltext+s-A1", "i-[[-A1-]]-!!", "A1-)" };
+
+	@Test
+	public void testReusedGenerator() throws Exception {
+		MDCParserModelGenerator reused = new MDCParserModelGenerator();
+		for (String text : TEXTS) {
+			// The state of the generator goes on from one text to the next.
+			MDCParserModelGenerator fresh = new MDCParserModelGenerator();
+			fresh.parse("$r-A1");
+			reused.parse("$r-A1");
+			assertEquals(parse(fresh, text), parse(reused, text));
+		}
+	}
+
+	@Test
+	public void testThreadGenerator() throws Exception {
+		for (String text : TEXTS) {
+			MDCParserModelGenerator generator = MDCParserModelGenerator
+					.getThreadGenerator(Dialect.OTHER);
+			assertEquals(parse(new MDCParserModelGenerator(), text),
+					parse(generator, text));
+			// Settings and state are those of a new generator.
+			generator.setPhilologyAsSigns(false);
+			generator.parse("$r-A1");
+		}
+		assertSame(MDCParserModelGenerator.getThreadGenerator(Dialect.OTHER),
+				MDCParserModelGenerator.getThreadGenerator(Dialect.OTHER));
+	}
+
+	@Test
+	public void testThreadGeneratorResult() throws Exception {
+		MDCParserModelGenerator generator = MDCParserModelGenerator
+				.getThreadGenerator(Dialect.OTHER);
+		TopItemList first = generator.parse("A1-B1");
+		TopItemList second = MDCParserModelGenerator.getThreadGenerator(
+				Dialect.OTHER).parse("C1");
+		// The lists are independent.
+		assertEquals(2, first.getNumberOfChildren());
+		assertEquals(1, second.getNumberOfChildren());
+	}
+
+	private String parse(MDCParserModelGenerator generator, String text) {
+		try {
+			TopItemList list = generator.parse(text);
+			StringBuilder result = new StringBuilder(list.toMdC());
+			for (int i = 0; i < list.getNumberOfChildren(); i++) {
+				result.append(list.getTopItemAt(i).isRed() ? 'r' : 'b');
+			}
+			return result.toString();
+		} catch (MDCSyntaxError e) {
+			return e.getMessage() + " " + e.getLine() + " " + e.getCharPos();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package jsesh.mdc;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.model.MDCModelBuilder;
+import jsesh.mdc.model.TopItem;
+import jsesh.mdc.model.TopItemList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that parsing a text in parts gives the same result as a normal
+ * parse.
+ *
+ * @author rosmord
+ */
+public class ParallelModelParserTest {
+
+	private static final String QUADRANTS[] = { "A1", "p*t:pt", "<-ra-mn->",
+			"i&i", "G17#12", "$r-D21", "$b-n:ra", "#b-X1:N35-#e", "+ltext+s",
+			"(A1-G1)*t" };
+
+	@Test
+	public void testSameResult() throws MDCSyntaxError {
+		String text = buildText(1);
+		assertEquals(describe(sequential(text)), describe(parallel(text)));
+	}
+
+	@Test
+	public void testSameErrors() throws MDCSyntaxError {
+		String text = buildText(2);
+		Random random = new Random(2);
+		String errors[] = { ")", "(", "<-", "&", "*", "{{" };
+		for (int i = 0; i < 10; i++) {
+			int pos = random.nextInt(text.length());
+			String wrong = text.substring(0, pos)
+					+ errors[random.nextInt(errors.length)]
+					+ text.substring(pos);
+			MDCSyntaxError expected = null;
+			try {
+				sequential(wrong);
+			} catch (MDCSyntaxError e) {
+				expected = e;
+			}
+			try {
+				parallel(wrong);
+				assertNull(expected);
+			} catch (MDCSyntaxError e) {
+				assertNotNull(expected);
+				assertEquals(expected.getMessage(), e.getMessage());
+				assertEquals(expected.getLine(), e.getLine());
+				assertEquals(expected.getCharPos(), e.getCharPos());
+			}
+		}
+	}
+
+	private String buildText(long seed) {
+		Random random = new Random(seed);
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 6000; i++) {
+			b.append(QUADRANTS[random.nextInt(QUADRANTS.length)]);
+			b.append(i % 15 == 14 ? "-!\n" : "-");
+		}
+		return b.toString();
+	}
+
+	private TopItemList sequential(String text) throws MDCSyntaxError {
+		return new MDCParserModelGenerator().parse(text);
+	}
+
+	private TopItemList parallel(String text) throws MDCSyntaxError {
+		return new ParallelModelParser(Dialect.OTHER, true, 4).parse(
+				() -> new StringReader(text), new MDCModelBuilder());
+	}
+
+	private String describe(TopItemList list) {
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < list.getNumberOfChildren(); i++) {
+			TopItem item = list.getTopItemAt(i);
+			assertSame(list, item.getParent());
+			b.append(item.getState().isRed() ? "red " : "");
+			b.append(item.getState().isShaded() ? "shaded " : "");
+			b.append(item.toMdC()).append('\n');
+		}
+		return b.toString();
+	}
+}
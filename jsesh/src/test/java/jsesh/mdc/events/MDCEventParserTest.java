@@ -0,0 +1,190 @@
+package jsesh.mdc.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.constants.ToggleType;
+import jsesh.mdc.constants.WordEndingCode;
+import jsesh.mdc.model.OptionsMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the events sent by the event parser.
+ *
+ * @author rosmord
+ */
+public class MDCEventParserTest {
+
+	@Test
+	public void testQuadrant() throws MDCSyntaxError {
+		assertEquals("[start, quadrant 0, HORIZONTAL, p, t, /HORIZONTAL,"
+				+ " HORIZONTAL, pt, /HORIZONTAL, /quadrant, end]",
+				events("p*t:pt"));
+	}
+
+	@Test
+	public void testTopItems() throws MDCSyntaxError {
+		assertEquals("[start, quadrant 15, HORIZONTAL, A1, /HORIZONTAL,"
+				+ " /quadrant, line 100, text l some text, start hieroglyphs,"
+				+ " toggle " + ToggleType.SHADINGON + ", page, superscript a-b,"
+				+ " end]", events("A1#1234-!+lsome text+s-#b-!!-|a\\-b"));
+	}
+
+	@Test
+	public void testGroups() throws MDCSyntaxError {
+		assertEquals("[start, quadrant 0, HORIZONTAL, LIGATURE, i, i,"
+				+ " /LIGATURE, SUBGROUP, quadrant 0, HORIZONTAL, A1,"
+				+ " /HORIZONTAL, /quadrant, quadrant 0, HORIZONTAL, G1,"
+				+ " /HORIZONTAL, /quadrant, /SUBGROUP, OVERWRITE, A1, D1,"
+				+ " /OVERWRITE, /HORIZONTAL, /quadrant, end]",
+				events("i&i*(A1-G1)*A1##D1"));
+	}
+
+	@Test
+	public void testCartoucheAndComplexLigature() throws MDCSyntaxError {
+		assertEquals("[start, quadrant 0, HORIZONTAL, cartouche 99 1 2,"
+				+ " quadrant 0, HORIZONTAL, ra, /HORIZONTAL, /quadrant,"
+				+ " /cartouche, /HORIZONTAL, /quadrant, quadrant 0,"
+				+ " HORIZONTAL, complex true false, t, w, /complex,"
+				+ " /HORIZONTAL, /quadrant, end]", events("<-ra->-t^^^w"));
+	}
+
+	@Test
+	public void testSigns() throws MDCSyntaxError {
+		final List<SignEvent> signs = new ArrayList<SignEvent>();
+		new MDCEventParser(Dialect.MACSCRIBE).parse(
+				"A1\\r90-A1&&G17{{10,20,30}}-A1\\-A1_",
+				new MDCEventHandlerAdapter() {
+					@Override
+					public void sign(SignEvent sign) {
+						signs.add(sign);
+					}
+				});
+		assertEquals(5, signs.size());
+		assertEquals(1, signs.get(0).getNumberOfModifiers());
+		assertEquals("R", signs.get(0).getModifierName(0));
+		assertEquals(Integer.valueOf(90), signs.get(0).getModifierValue(0));
+		assertFalse(signs.get(1).hasExplicitPosition());
+		assertTrue(signs.get(2).hasExplicitPosition());
+		assertEquals(10, signs.get(2).getX());
+		assertEquals(20, signs.get(2).getY());
+		assertEquals(30, signs.get(2).getScale());
+		assertEquals(0, signs.get(2).getNumberOfModifiers());
+		assertNull(signs.get(3).getModifierValue(0));
+		assertEquals(WordEndingCode.WORD_END, signs.get(4).getEndingCode());
+	}
+
+	@Test(expected = MDCSyntaxError.class)
+	public void testError() throws MDCSyntaxError {
+		events("A1-(G1");
+	}
+
+	private String events(String mdc) throws MDCSyntaxError {
+		final List<String> result = new ArrayList<String>();
+		new MDCEventParser().parse(mdc, new MDCEventHandler() {
+
+			public void startDocument() {
+				result.add("start");
+			}
+
+			public void endDocument() {
+				result.add("end");
+			}
+
+			public void sign(SignEvent sign) {
+				result.add(sign.getCode());
+			}
+
+			public void startQuadrant(int shading) {
+				result.add("quadrant " + shading);
+			}
+
+			public void endQuadrant() {
+				result.add("/quadrant");
+			}
+
+			public void startGroup(GroupType type) {
+				result.add(type.toString());
+			}
+
+			public void endGroup(GroupType type) {
+				result.add("/" + type);
+			}
+
+			public void startCartouche(int type, int leftPart, int rightPart) {
+				result.add("cartouche " + type + " " + leftPart + " "
+						+ rightPart);
+			}
+
+			public void endCartouche() {
+				result.add("/cartouche");
+			}
+
+			public void startPhilology(int code) {
+				result.add("philology " + code);
+			}
+
+			public void endPhilology(int code) {
+				result.add("/philology " + code);
+			}
+
+			public void startComplexLigature(boolean hasGroupBefore,
+					boolean hasGroupAfter) {
+				result.add("complex " + hasGroupBefore + " " + hasGroupAfter);
+			}
+
+			public void endComplexLigature() {
+				result.add("/complex");
+			}
+
+			public void text(char scriptCode, String text) {
+				result.add("text " + scriptCode + " " + text);
+			}
+
+			public void superscript(String text) {
+				result.add("superscript " + text);
+			}
+
+			public void lineBreak(int skip) {
+				result.add("line " + skip);
+			}
+
+			public void pageBreak() {
+				result.add("page");
+			}
+
+			public void toggle(ToggleType toggle) {
+				result.add("toggle " + toggle);
+			}
+
+			public void startHieroglyphicText() {
+				result.add("start hieroglyphs");
+			}
+
+			public void tabStop(int stopWidth) {
+				result.add("tab " + stopWidth);
+			}
+
+			public void tabbing(OptionsMap options) {
+				result.add("tabbing");
+			}
+
+			public void tabbingClear() {
+				result.add("tabbing clear");
+			}
+
+			public void hRule(char lineType, int startPos, int endPos) {
+				result.add("rule");
+			}
+
+			public void zoneStart(OptionsMap options) {
+				result.add("zone");
+			}
+		});
+		return result.toString();
+	}
+}
@@ -0,0 +1,169 @@
+package jsesh.mdc.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import jsesh.editor.HieroglyphicTextModel;
+import jsesh.mdc.model.Hieroglyph;
+import jsesh.mdc.model.ModelElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the recovery of modifications from the journal of a document.
+ *
+ * @author rosmord
+ */
+public class DocumentJournalTest {
+
+	private File file;
+
+	private File journalFile;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("journal", ".gly");
+		journalFile = DocumentJournal.getJournalFile(file);
+		MDCDocument document = new MDCDocument();
+		document.getHieroglyphicTextModel().setMDCCode("A1-G17-!-X1:D21-Y1");
+		document.setFile(file);
+		document.save();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+		journalFile.delete();
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		MDCDocument document = load();
+		document.setJournaled(true);
+		HieroglyphicTextModel text = document.getHieroglyphicTextModel();
+		text.insertMDCText(1, "i");
+		text.insertMDCText(2, "n");
+		text.removeElements(text.buildPosition(4), text.buildPosition(5));
+		text.replaceWithMDCText(0, 1, "ra:Z1");
+		text.getModel().setRed(1, 3, true);
+		String expected = text.getModel().toMdC();
+		crash(document);
+
+		MDCDocument recovered = load();
+		assertEquals(expected, recovered.getHieroglyphicTextModel().getModel()
+				.toMdC());
+		assertFalse(recovered.getHieroglyphicTextModel().isClean());
+
+		// A record half written ends the journal.
+		try (OutputStream out = new FileOutputStream(journalFile, true)) {
+			out.write(new byte[] { 0, 0, 0, 20, 1, 0 });
+		}
+		recovered = load();
+		assertEquals(expected, recovered.getHieroglyphicTextModel().getModel()
+				.toMdC());
+
+		// Go on with the recovered document.
+		recovered.setJournaled(true);
+		recovered.getHieroglyphicTextModel().insertMDCText(0, "p");
+		expected = recovered.getHieroglyphicTextModel().getModel().toMdC();
+		crash(recovered);
+		assertEquals(expected, load().getHieroglyphicTextModel().getModel()
+				.toMdC());
+	}
+
+	@Test
+	public void testCheckpointAndSave() throws Exception {
+		MDCDocument document = load();
+		document.setJournaled(true);
+		HieroglyphicTextModel text = document.getHieroglyphicTextModel();
+		text.insertMDCText(0, "i-n");
+		document.getJournal().checkpoint();
+		text.insertMDCText(2, "p");
+		String expected = text.getModel().toMdC();
+		crash(document);
+		assertEquals(expected, load().getHieroglyphicTextModel().getModel()
+				.toMdC());
+
+		// Once the document is saved, there is nothing to replay.
+		document = load();
+		document.setJournaled(true);
+		document.save();
+		document.getJournal().flush();
+		MDCDocument saved = load();
+		assertEquals(expected, saved.getHieroglyphicTextModel().getModel()
+				.toMdC());
+		assertTrue(saved.getHieroglyphicTextModel().isClean());
+
+		// Closed normally : the journal is deleted.
+		document.setJournaled(false);
+		assertFalse(journalFile.exists());
+	}
+
+	@Test
+	public void testSignPropertyChange() throws Exception {
+		MDCDocument document = load();
+		document.setJournaled(true);
+		HieroglyphicTextModel text = document.getHieroglyphicTextModel();
+		StringBuilder mdc = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			mdc.append("-G17:D21");
+		}
+		text.insertMDCText(5, mdc.toString());
+		document.getJournal().flush();
+		long length = journalFile.length();
+
+		Hieroglyph sign = findSign(text.getModel().getTopItemAt(50));
+		sign.setAngle(90);
+		sign.setReversed(true);
+		String expected = text.getModel().toMdC();
+		crash(document);
+		// Only the modified item is recorded, not the whole text.
+		assertTrue(journalFile.length() - length < 100);
+		assertEquals(expected, load().getHieroglyphicTextModel().getModel()
+				.toMdC());
+	}
+
+	private Hieroglyph findSign(ModelElement element) {
+		if (element instanceof Hieroglyph) {
+			return (Hieroglyph) element;
+		}
+		for (int i = 0; i < element.getNumberOfChildren(); i++) {
+			Hieroglyph sign = findSign(element.getChildAt(i));
+			if (sign != null) {
+				return sign;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testChangedFile() throws Exception {
+		MDCDocument document = load();
+		document.setJournaled(true);
+		document.getHieroglyphicTextModel().insertMDCText(0, "i");
+		crash(document);
+		Files.write(file.toPath(), "A1".getBytes("UTF-8"));
+		assertEquals("A1", load().getHieroglyphicTextModel().getModel()
+				.toMdC().trim());
+	}
+
+	private MDCDocument load() throws Exception {
+		MDCDocumentReader reader = new MDCDocumentReader();
+		reader.setReplayJournal(true);
+		return reader.loadFile(file);
+	}
+
+	/**
+	 * Writes the journal, and forgets about the document without closing it.
+	 */
+	private void crash(MDCDocument document) {
+		document.getJournal().flush();
+		document.getHieroglyphicTextModel().deleteObserver(
+				document.getJournal());
+	}
+}
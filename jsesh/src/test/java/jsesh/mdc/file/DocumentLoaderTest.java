@@ -0,0 +1,179 @@
+package jsesh.mdc.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.ProgressiveModelParser;
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.model.TopItemList;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the progressive loading of large documents.
+ *
+ * @author rosmord
+ */
+public class DocumentLoaderTest {
+
+	private File file;
+
+	@After
+	public void tearDown() {
+		if (file != null) {
+			file.delete();
+			DocumentJournal.getJournalFile(file).delete();
+		}
+	}
+
+	@Test
+	public void testPartsAreCutAtLineEnds() throws Exception {
+		String mdc = buildText(300, null);
+		ProgressiveModelParser parser = new ProgressiveModelParser(
+				new StringReader(mdc), Dialect.JSESH, true);
+		TopItemList all = new TopItemList();
+		TopItemList part;
+		int lastStart = -1;
+		while ((part = parser.nextPart(7)) != null) {
+			assertTrue(parser.getPartStartLine() > lastStart);
+			lastStart = parser.getPartStartLine();
+			all.addAll(part.removeTopItems(0, part.getNumberOfChildren()));
+		}
+		assertTrue(parser.isDone());
+		assertEquals(parse(mdc).toMdC(), all.toMdC());
+	}
+
+	@Test
+	public void testLoadLargeDocument() throws Exception {
+		String mdc = buildText(largeDocumentLines(), null);
+		MDCDocument document = loadLarge(mdc);
+		DocumentLoader loader = document.getLoader();
+		assertNotNull(loader);
+		assertTrue(document.isLoading());
+		int firstPart = document.getHieroglyphicTextModel().getModel()
+				.getNumberOfChildren();
+		assertTrue(firstPart > 0);
+		assertTrue(firstPart < parse(mdc).getNumberOfChildren());
+		try {
+			document.save();
+			fail("a document being loaded can't be saved");
+		} catch (java.io.IOException e) {
+		}
+
+		waitFor(loader);
+		assertFalse(document.isLoading());
+		assertNull(document.getLoader());
+		assertEquals(parse(mdc).toMdC(), document.getHieroglyphicTextModel()
+				.getModel().toMdC());
+		assertFalse(document.getHieroglyphicTextModel().mustSave());
+		assertEquals(0, loader.getNumberOfIncorrectLines());
+	}
+
+	@Test
+	public void testLoadIncorrectLargeDocument() throws Exception {
+		int lines = largeDocumentLines();
+		String mdc = buildText(lines, "A1-(((-G17");
+		MDCDocument document = loadLarge(mdc);
+		DocumentLoader loader = document.getLoader();
+		waitFor(loader);
+		assertEquals(1, loader.getNumberOfIncorrectLines());
+		MDCDocumentReader reader = new MDCDocumentReader();
+		MDCDocument whole = reader.readString(mdc, file);
+		assertEquals(whole.getHieroglyphicTextModel().getModel().toMdC(),
+				document.getHieroglyphicTextModel().getModel().toMdC());
+	}
+
+	@Test
+	public void testFailedLoading() throws Exception {
+		MDCDocument document = loadLarge(buildText(largeDocumentLines(), null));
+		long length = file.length();
+		DocumentLoader loader = document.getLoader();
+		loader.addDocumentLoaderListener(l -> {
+			if (!l.isDone()) {
+				throw new IllegalStateException("can't add a part");
+			}
+		});
+		waitFor(loader);
+		assertFalse(document.isLoading());
+		assertTrue(loader.isTruncated());
+		assertTrue(document.isTruncated());
+		try {
+			document.save();
+			fail("a part of a document can't be saved");
+		} catch (java.io.IOException e) {
+		}
+		assertEquals(length, file.length());
+	}
+
+	private MDCDocument loadLarge(String mdc) throws Exception {
+		file = File.createTempFile("large", ".gly");
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(file),
+				"UTF-8")) {
+			w.write(mdc);
+		}
+		MDCDocumentReader reader = new MDCDocumentReader();
+		reader.setEncoding("UTF-8");
+		reader.setUseSnapshots(false);
+		reader.setLargeDocumentMode(true);
+		return reader.loadFile(file);
+	}
+
+	private void waitFor(DocumentLoader loader) throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		loader.addDocumentLoaderListener(l -> {
+			if (l.isDone()) {
+				latch.countDown();
+			}
+		});
+		loader.start(Runnable::run);
+		assertTrue("loading too long", latch.await(60, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * A long text item, so that large documents are quickly parsed.
+	 */
+	private static final String PADDING = "+l" + new String(new char[300])
+			.replace('\0', 'x') + "+s-";
+
+	private static int largeDocumentLines() {
+		return MDCDocumentReader.LARGE_DOCUMENT_SIZE / PADDING.length() + 1000;
+	}
+
+	/**
+	 * Builds a text, with red parts spanning several lines, and an optional
+	 * incorrect line near its end.
+	 */
+	private static String buildText(int lines, String incorrectLine) {
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			if (lines > 1000) {
+				b.append(PADDING);
+			}
+			if (incorrectLine != null && i == lines - 100) {
+				b.append(incorrectLine).append("-!\n");
+			} else if (i % 10 == 0) {
+				b.append("$r-A1-G17-X1:D21-!\n");
+			} else if (i % 10 == 3) {
+				b.append("$b-N35-Z2-!\n");
+			} else {
+				b.append("i-n-m-A2-!\n");
+			}
+			if (i % 50 == 49) {
+				b.append("-!!\n");
+			}
+		}
+		return b.toString();
+	}
+
+	private static TopItemList parse(String mdc) throws Exception {
+		return new MDCParserModelGenerator().parse(mdc);
+	}
+}
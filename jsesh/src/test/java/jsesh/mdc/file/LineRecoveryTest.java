@@ -0,0 +1,99 @@
+package jsesh.mdc.file;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.model.AlphabeticText;
+import jsesh.mdc.model.LineBreak;
+import jsesh.mdc.model.TopItemList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that recovering a text in parallel batches gives the same result as
+ * reading it line by line.
+ *
+ * @author rosmord
+ */
+public class LineRecoveryTest {
+
+	@Test
+	public void testSameResult() {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 3 * LineRecovery.BATCH_SIZE; i++) {
+			switch (i % 7) {
+			case 0:
+				lines.add("A1-G17:t-!");
+				break;
+			case 1:
+				lines.add("$r-p*t");
+				break;
+			case 2:
+				lines.add("#b-X1:N35-$b");
+				break;
+			default:
+				lines.add("<-ra-mn-> +ltext+s");
+			}
+		}
+		// Errors, one of them with a toggle before it.
+		lines.set(10, "A1-((((-G2");
+		lines.set(LineRecovery.BATCH_SIZE + 5, "$r-A1-((-G2");
+		lines.set(2 * LineRecovery.BATCH_SIZE - 1, "#b-A1-<<");
+
+		checkRecovery(lines, 10, 3);
+	}
+
+	@Test
+	public void testToggleInIncorrectLine() {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 3 * LineRecovery.BATCH_SIZE; i++) {
+			lines.add("A1-G17");
+		}
+		lines.set(0, "$r-A1");
+		// Following its toggles, this line would end the red part.
+		lines.set(LineRecovery.BATCH_SIZE + 5, "A1-((-G2-$b");
+		checkRecovery(lines, LineRecovery.BATCH_SIZE + 5, 1);
+	}
+
+	private void checkRecovery(List<String> lines, int errorLine,
+			int numberOfIncorrectLines) {
+		String expected = lineByLine(lines, errorLine).toMdC();
+		for (int threads = 1; threads <= 4; threads++) {
+			LineRecovery recovery = new LineRecovery(Dialect.JSESH, threads);
+			assertEquals(expected, recovery.recover(lines, errorLine).toMdC());
+			assertEquals(numberOfIncorrectLines,
+					recovery.getNumberOfIncorrectLines());
+		}
+	}
+
+	/**
+	 * The way incorrect texts used to be read, except that the lines before
+	 * the error are read as a whole.
+	 */
+	private TopItemList lineByLine(List<String> lines, int errorLine) {
+		MDCParserModelGenerator gen = new MDCParserModelGenerator(Dialect.JSESH);
+		TopItemList list = new TopItemList();
+		try {
+			list.addAll(gen.parse(String.join("\n", lines.subList(0, errorLine)))
+					.asList());
+		} catch (MDCSyntaxError e) {
+			fail(e.getMessage());
+		}
+		for (String line : lines.subList(errorLine, lines.size())) {
+			try {
+				list.addAll(gen.parse(line).asList());
+			} catch (MDCSyntaxError exception) {
+				list.addTopItem(new AlphabeticText('b', "Error in file: "
+						+ exception.getMessage()));
+				list.addTopItem(new LineBreak());
+				list.addTopItem(new AlphabeticText('l', line));
+				list.addTopItem(new LineBreak());
+			}
+		}
+		return list;
+	}
+}
@@ -0,0 +1,105 @@
+package jsesh.mdc.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.constants.TextOrientation;
+import jsesh.mdc.events.MDCEventHandlerAdapter;
+import jsesh.mdc.events.SignEvent;
+import jsesh.mdc.model.Hieroglyph;
+import jsesh.mdc.model.ModelElementDeepAdapter;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the reading of document properties without the text.
+ *
+ * @author rosmord
+ */
+public class MDCDocumentReaderTest {
+
+	@Test
+	public void testDialects() throws Exception {
+		checkProperties("A1-G17", ".gly", Dialect.JSESH);
+		checkProperties("@\nA1-G17", ".gly", Dialect.WINGLYPH);
+		checkProperties("++Created by: MacScribe\n++other\nA1-G17", ".gly",
+				Dialect.MACSCRIBE);
+		checkProperties("A1-[[-G17-]]", ".hie", Dialect.TKSESH);
+		checkProperties("\u00ef\u00bb\u00bfA1-G17", ".gly", Dialect.JSESH);
+	}
+
+	@Test
+	public void testJSeshHeader() throws Exception {
+		MDCDocument document = new MDCDocument();
+		document.getHieroglyphicTextModel().setMDCCode("A1-G17-!-X1");
+		document.setDocumentPreferences(document.getDocumentPreferences()
+				.withTextOrientation(TextOrientation.VERTICAL));
+		File file = File.createTempFile("header", ".gly");
+		try {
+			try (OutputStream out = new FileOutputStream(file)) {
+				document.saveTo(out);
+			}
+			MDCDocument properties = checkProperties(file, Dialect.JSESH1);
+			assertEquals(TextOrientation.VERTICAL, properties
+					.getDocumentPreferences().getTextOrientation());
+			assertEquals(0, properties.getHieroglyphicTextModel().getModel()
+					.getNumberOfChildren());
+		} finally {
+			file.delete();
+		}
+	}
+
+	private void checkProperties(String content, String extension,
+			Dialect dialect) throws Exception {
+		File file = File.createTempFile("header", extension);
+		try {
+			try (OutputStream out = new FileOutputStream(file)) {
+				out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+			}
+			checkProperties(file, dialect);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Compares the properties read with those of the whole document, and the
+	 * text read by parseFile with the one of the whole document.
+	 */
+	private MDCDocument checkProperties(File file, Dialect dialect)
+			throws Exception {
+		MDCDocument loaded = new MDCDocumentReader().loadFile(file);
+		MDCDocument properties = new MDCDocumentReader().readProperties(file);
+		assertEquals(dialect, properties.getDialect());
+		assertEquals(loaded.getDialect(), properties.getDialect());
+		assertEquals(loaded.getEncoding(), properties.getEncoding());
+		assertEquals(loaded.getDocumentPreferences().getStringRepresentation(),
+				properties.getDocumentPreferences().getStringRepresentation());
+
+		final StringBuilder codes = new StringBuilder();
+		new MDCDocumentReader().parseFile(file, new MDCEventHandlerAdapter() {
+			@Override
+			public void sign(SignEvent sign) {
+				codes.append(sign.getCode()).append(' ');
+			}
+		});
+		assertEquals(signCodes(loaded), codes.toString());
+		return properties;
+	}
+
+	private String signCodes(MDCDocument document) {
+		final StringBuilder codes = new StringBuilder();
+		document.getHieroglyphicTextModel().getModel()
+				.accept(new ModelElementDeepAdapter() {
+					@Override
+					public void visitHieroglyph(Hieroglyph h) {
+						codes.append(h.getCode()).append(' ');
+					}
+				});
+		return codes.toString();
+	}
+}
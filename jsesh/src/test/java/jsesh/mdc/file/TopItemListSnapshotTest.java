@@ -0,0 +1,121 @@
+package jsesh.mdc.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.constants.Dialect;
+import jsesh.mdc.model.TopItemList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for snapshots of parsed texts.
+ *
+ * @author rosmord
+ */
+public class TopItemListSnapshotTest {
+
+	private static final String TEXT = "A1-G17:t-!\n"
+			+ "$r-p*t-#b-X1:N35-#e-$b-<-ra-mn->-+ltext+s-!\n"
+			+ "A1\\r90-A1&&G17{{10,20,30}}-A1\\-A1_-G5\\200&&&ra-!\n"
+			+ "t&A-A&t-t^^^A-A&&&t-i&i*(A1-G1)*A1##D1-[[-A1-]]-[&-A1-&]-!!\n"
+			+ "A1#-A1#12-A2#1234-D21\\R45-n:(x:t)*U30-A1^^^G17-?12-%clear";
+
+	@Test
+	public void testSameText() throws Exception {
+		TopItemList list = parse(TEXT);
+		TopItemListSnapshot snapshot = new TopItemListSnapshot(source(TEXT),
+				"UTF-8");
+		TopItemList copy = snapshot.read(write(snapshot, list));
+		assertNotNull(copy);
+		assertEquals(0, list.compareTo(copy));
+		assertEquals(list.toMdC(), copy.toMdC());
+		for (int i = 0; i < list.getNumberOfChildren(); i++) {
+			assertEquals(list.getTopItemAt(i).isRed(), copy.getTopItemAt(i)
+					.isRed());
+			assertEquals(list.getTopItemAt(i).isShaded(), copy
+					.getTopItemAt(i).isShaded());
+		}
+	}
+
+	@Test
+	public void testOtherSource() throws Exception {
+		TopItemList list = parse(TEXT);
+		byte[] data = write(new TopItemListSnapshot(source(TEXT), "UTF-8"),
+				list);
+		assertNull(new TopItemListSnapshot(source(TEXT + "-A1"), "UTF-8")
+				.read(data));
+		assertNull(new TopItemListSnapshot(source(TEXT), "ISO-8859-1")
+				.read(data));
+	}
+
+	@Test
+	public void testTruncatedSnapshot() throws Exception {
+		TopItemListSnapshot snapshot = new TopItemListSnapshot(source(TEXT),
+				"UTF-8");
+		byte[] data = write(snapshot, parse(TEXT));
+		for (int length = 0; length < data.length; length += 7) {
+			assertNull(snapshot.read(Arrays.copyOf(data, length)));
+		}
+	}
+
+	@Test
+	public void testDocumentReader() throws Exception {
+		StringBuilder text = new StringBuilder();
+		while (text.length() < MDCDocumentReader.MINIMAL_SNAPSHOT_SIZE) {
+			text.append(TEXT).append("-!\n");
+		}
+		File file = File.createTempFile("snapshot", ".gly");
+		File snapshotFile = TopItemListSnapshot.getSnapshotFile(file);
+		try {
+			save(file, text.toString());
+			TopItemList first = load(file);
+			assertTrue(snapshotFile.exists());
+			// Read from the snapshot.
+			assertEquals(0, first.compareTo(load(file)));
+			// The file changes : the snapshot is not used any more.
+			save(file, text + "A1");
+			assertEquals(first.getNumberOfChildren() + 1, load(file)
+					.getNumberOfChildren());
+		} finally {
+			file.delete();
+			snapshotFile.delete();
+		}
+	}
+
+	private TopItemList parse(String text) throws MDCSyntaxError {
+		return new MDCParserModelGenerator(Dialect.JSESH).parse(text);
+	}
+
+	private ByteBuffer source(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private byte[] write(TopItemListSnapshot snapshot, TopItemList list)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(list, out);
+		return out.toByteArray();
+	}
+
+	private void save(File file, String text) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private TopItemList load(File file) throws Exception {
+		MDCDocumentReader reader = new MDCDocumentReader();
+		reader.setEncoding("UTF-8");
+		return reader.loadFile(file).getHieroglyphicTextModel().getModel();
+	}
+}
@@ -0,0 +1,165 @@
+package jsesh.mdc.lex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import java_cup.runtime.Symbol;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the hand-written lexer produces exactly the same tokens as the
+ * generated one.
+ *
+ * @author rosmord
+ */
+public class MDCFastLexTest {
+
+	private static final String SAMPLES[] = {
+			"A1-G17-i-w-r:a-n:ra",
+			"p*t:pt-<-ra-mn-xpr->-!\nA1 B1  C1\r\nD1__E1",
+			"!!-!=200%--!=12-?12-??-?-%-%clear-{l10,200}-{L0,5}-{l1,}",
+			"+lsome text+s-A1-+bbold \\+ text +i+s-+l\\\\+s-+l+\\+s-+la+",
+			"+ttext with + signs+s+l+",
+			"|1,2-|abc\\-def-A1",
+			"A1#-A1#12-#b-A2-#e-A1##G17-A1# -A1#-#-G1-#1234-$r-G1-$b-$",
+			"A1\\R90-A1\\R-90-A1\\R45a-A1\\?-A1\\t12-A1\\-A1\\l",
+			"[[-A1-]]-[{-A1-}]-[\"-A1-\"]-['-A1-']-[&-A1-&]-[(-A1-)]-[?-A1-?]",
+			"<S-A1->-<Sb-A1-s>-<s2-A1-s1>-<h-A1-h>-<1-A1-2>-<b-A1-e>-<F-A1-f3>",
+			"A1&&G17&&&D1^^^D2^^D3^D4&D5**D6*D7",
+			"o-O-..-.-//-/-v/-h/-zone-quadrant-zones-oa-A1A-Aa1-@-@x-@A1",
+			"\"small text\"-\"a\\\"b\\]c\"-\"unterminated",
+			"{{10,20,3}}A1-[color=red,a_b=12]-{{a}-[",
+			"A1\u00e9-\u00e9-`-'-]-}-{-\"]-=-(A1)-A1:(G1*G2)",
+			"A1-\r\r\n\n\rG1-A1\n \nG17", "", "-", "!", "+", "\\", "#", "[", "{{" };
+
+	private static final String ALPHABET = "AaGzos1234fhvqRlLbe@!?%{}+|-_ \t\n\r#$^:*[]<>\"'&()=\\`./,x\u00e9";
+
+	@Test
+	public void testSamples() throws Exception {
+		for (String s : SAMPLES) {
+			compare(s, true);
+			compare(s, false);
+		}
+	}
+
+	@Test
+	public void testRandomTexts() throws Exception {
+		Random random = new Random(1);
+		for (int i = 0; i < 5000; i++) {
+			int length = random.nextInt(30);
+			StringBuilder b = new StringBuilder();
+			for (int j = 0; j < length; j++)
+				b.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			compare(b.toString(), random.nextBoolean());
+		}
+	}
+
+	@Test
+	public void testSmallReads() throws Exception {
+		// Long texts, read one char at a time, to exercise the buffer.
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 2000; i++)
+			b.append("+lsome text+s-A1:G17-\"small text\"-!\n");
+		String text = b.toString();
+		assertEquals(tokens(new MDCLex(new StringReader(text)), true),
+				tokens(new MDCFastLex(new OneCharReader(text)), true));
+	}
+
+	@Test
+	public void testCodesAreInterned() throws Exception {
+		MDCFastLex lex = new MDCFastLex(new StringReader("A1-A1"));
+		MDCSign a = (MDCSign) lex.next_token().value;
+		lex.next_token();
+		MDCSign b = (MDCSign) lex.next_token().value;
+		assertSame(a.getString(), b.getString());
+		assertSame("A1", a.getString());
+	}
+
+	private void compare(String text, boolean philologyAsSigns)
+			throws Exception {
+		MDCLex expected = new MDCLex(new StringReader(text));
+		expected.setPhilologyAsSigns(philologyAsSigns);
+		MDCFastLex actual = new MDCFastLex(new StringReader(text));
+		actual.setPhilologyAsSigns(philologyAsSigns);
+		assertEquals("for " + text, tokens(expected, philologyAsSigns),
+				tokens(actual, philologyAsSigns));
+	}
+
+	/**
+	 * Describe all tokens read by a lexer, with the error messages it would
+	 * give for each of them.
+	 */
+	private List<String> tokens(java_cup.runtime.Scanner lex,
+			boolean philologyAsSigns) throws Exception {
+		List<String> result = new ArrayList<String>();
+		try {
+			Symbol s;
+			do {
+				s = lex.next_token();
+				String error = lex instanceof MDCLex ? ((MDCLex) lex)
+						.buildError("e").getMessage() : ((MDCFastLex) lex)
+						.buildError("e").getMessage();
+				result.add(describe(s) + " / " + error);
+			} while (s.sym != MDCSymbols.EOF);
+		} catch (RuntimeException e) {
+			result.add(e.getClass().getName());
+		}
+		return result;
+	}
+
+	private String describe(Symbol s) {
+		Object v = s.value;
+		String d;
+		if (v == null) {
+			d = "";
+		} else if (v instanceof MDCSign) {
+			d = ((MDCSign) v).getType() + " " + ((MDCSign) v).getString();
+		} else if (v instanceof MDCModifier) {
+			d = v.toString();
+		} else if (v instanceof MDCAlphabeticText) {
+			d = ((MDCAlphabeticText) v).getScriptCode() + " "
+					+ ((MDCAlphabeticText) v).getText();
+		} else if (v instanceof MDCShading) {
+			d = "shading " + ((MDCShading) v).getShading();
+		} else if (v instanceof MDCCartouche) {
+			d = "cartouche " + ((MDCCartouche) v).getCartoucheType() + " "
+					+ ((MDCCartouche) v).getPart();
+		} else if (v instanceof MDCStartOldCartouche) {
+			d = "old cartouche "
+					+ ((MDCStartOldCartouche) v).getCartoucheType() + " "
+					+ (int) ((MDCStartOldCartouche) v).getPart();
+		} else if (v instanceof MDCHRule) {
+			MDCHRule r = (MDCHRule) v;
+			d = "rule " + r.getLineType() + " " + r.getStartPos() + " "
+					+ r.getEndPos();
+		} else if (v instanceof MDCSubType) {
+			d = "subtype " + ((MDCSubType) v).getSubType();
+		} else {
+			d = v.getClass().getSimpleName() + " " + v;
+		}
+		return s.sym + " " + d;
+	}
+
+	private static class OneCharReader extends Reader {
+		private final StringReader in;
+
+		OneCharReader(String s) {
+			in = new StringReader(s);
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			return in.read(cbuf, off, Math.min(len, 1));
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
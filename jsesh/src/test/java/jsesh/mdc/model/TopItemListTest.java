@@ -0,0 +1,212 @@
+package jsesh.mdc.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.model.operations.Deletion;
+import jsesh.mdc.model.operations.Insertion;
+import jsesh.mdc.model.operations.ModelOperation;
+import jsesh.mdc.model.operations.ZoneModification;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the batches of modifications of TopItemList.
+ *
+ * @author rosmord
+ */
+public class TopItemListTest {
+
+    private final List<ModelOperation> operations = new ArrayList<>();
+
+    private TopItemList buildList() {
+        TopItemList list = new TopItemList();
+        for (int i = 0; i < 10; i++) {
+            list.addTopItem(new LineBreak());
+        }
+        list.addObserver(operations::add);
+        return list;
+    }
+
+    @Test
+    public void testAddAllAt() {
+        TopItemList list = buildList();
+        List<TopItem> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            items.add(new LineBreak());
+        }
+        list.addAllAt(5, items);
+        assertEquals(1, operations.size());
+        Insertion insertion = (Insertion) operations.get(0);
+        assertEquals(5, insertion.getIndex());
+        assertEquals(items, insertion.getChildren());
+    }
+
+    @Test
+    public void testDeletions() {
+        TopItemList list = buildList();
+        MDCMark mark = new MDCMark(new MDCPosition(list, 8));
+        list.beginBatch();
+        list.removeTopItem(2);
+        list.removeTopItem(2);
+        // The mark is updated during the batch.
+        assertEquals(6, mark.getPosition().getIndex());
+        list.removeTopItem(1);
+        assertTrue(operations.isEmpty());
+        list.endBatch();
+        assertEquals(1, operations.size());
+        Deletion deletion = (Deletion) operations.get(0);
+        assertEquals(1, deletion.getStart());
+        assertEquals(4, deletion.getEnd());
+        assertEquals(5, mark.getPosition().getIndex());
+        assertFalse(list.isInBatch());
+    }
+
+    @Test
+    public void testMixedOperations() {
+        TopItemList list = buildList();
+        list.beginBatch();
+        list.beginBatch();
+        list.addAllAt(0, Collections.singletonList(new LineBreak()));
+        list.setRed(3, 6, true);
+        list.endBatch();
+        assertTrue(operations.isEmpty());
+        list.removeTopItem(9);
+        list.endBatch();
+        // The zone modification can't be replayed after the deletion: the
+        // batch is reported as the range it changed.
+        assertEquals(1, operations.size());
+        ZoneModification zone = (ZoneModification) operations.get(0);
+        assertEquals(0, zone.getStart());
+        assertEquals(9, zone.getEnd());
+
+        // A range whose size has changed is deleted and inserted again.
+        operations.clear();
+        list.beginBatch();
+        list.addAllAt(2, Arrays.asList(new LineBreak(),
+                new LineBreak()));
+        list.setRed(0, 1, true);
+        list.endBatch();
+        assertEquals(2, operations.size());
+        Deletion deletion = (Deletion) operations.get(0);
+        assertEquals(0, deletion.getStart());
+        assertEquals(2, deletion.getEnd());
+        Insertion insertion = (Insertion) operations.get(1);
+        assertEquals(0, insertion.getIndex());
+        assertEquals(4, insertion.getChildren().size());
+        assertSame(list.getChildAt(3), insertion.getChildren().get(3));
+    }
+
+    @Test
+    public void testMarks() {
+        Random random = new Random(43);
+        TopItemList list = buildList();
+        List<MDCMark> marks = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            int size = list.getNumberOfChildren();
+            int op = random.nextInt(10);
+            if (op < 3) {
+                int index = random.nextInt(size + 1);
+                marks.add(new MDCMark(new MDCPosition(list, index), random
+                        .nextBoolean() ? MDCMark.Gravity.FORWARD
+                        : MDCMark.Gravity.BACKWARD));
+                expected.add(index);
+            } else if (op < 4 && !marks.isEmpty()) {
+                int k = random.nextInt(marks.size());
+                marks.remove(k).release();
+                expected.remove(k);
+            } else if (op < 7) {
+                int index = random.nextInt(size + 1);
+                int length = 1 + random.nextInt(3);
+                List<TopItem> items = new ArrayList<>();
+                for (int j = 0; j < length; j++) {
+                    items.add(new LineBreak());
+                }
+                list.addAllAt(index, items);
+                for (int k = 0; k < marks.size(); k++) {
+                    int position = expected.get(k);
+                    if (position > index
+                            || (position == index && marks.get(k).getGravity()
+                                    .equals(MDCMark.Gravity.FORWARD))) {
+                        expected.set(k, position + length);
+                    }
+                }
+            } else if (size > 0) {
+                int start = random.nextInt(size);
+                int end = start + 1 + random.nextInt(Math.min(5, size - start));
+                list.removeTopItems(start, end);
+                for (int k = 0; k < marks.size(); k++) {
+                    int position = expected.get(k);
+                    if (end <= position) {
+                        expected.set(k, position - end + start);
+                    } else if (start < position) {
+                        expected.set(k, start);
+                    }
+                }
+            }
+            if (i % 100 == 0) {
+                checkMarks(list, marks, expected);
+            }
+        }
+        checkMarks(list, marks, expected);
+    }
+
+    private void checkMarks(TopItemList list, List<MDCMark> marks,
+            List<Integer> expected) {
+        assertEquals(marks.size(), list.getNumberOfMarks());
+        for (int k = 0; k < marks.size(); k++) {
+            assertEquals(expected.get(k).intValue(), marks.get(k).getIndex());
+        }
+        for (int index = 0; index <= list.getNumberOfChildren() + 1; index++) {
+            int next = Integer.MAX_VALUE;
+            for (int position : expected) {
+                if (position >= index) {
+                    next = Math.min(next, position);
+                }
+            }
+            MDCMark mark = list.getNextMark(index);
+            if (next == Integer.MAX_VALUE) {
+                assertNull(mark);
+            } else {
+                assertEquals(next, mark.getIndex());
+            }
+        }
+    }
+
+    @Test
+    public void testDeepCopy() throws Exception {
+        TopItemList list = new MDCParserModelGenerator()
+                .parse("i-A1\\R90:n-<-ra-mn->-!-D*d:t-+ltext+s-!!-G17");
+        TopItemList copy = list.deepCopy();
+        assertEquals(0, list.compareTo(copy));
+        assertEquals(list.toMdC(), copy.toMdC());
+        checkLinks(copy);
+        // The copy can be edited like any list.
+        copy.removeTopItem(0);
+        copy.addTopItemAt(1, new LineBreak());
+        checkLinks(copy);
+    }
+
+    private void checkLinks(ModelElement element) {
+        for (int i = 0; i < element.getNumberOfChildren(); i++) {
+            EmbeddedModelElement child = element.getChildAt(i);
+            assertSame(element, child.getParent());
+            assertSame(i == 0 ? null : element.getChildAt(i - 1),
+                    child.getPreviousSlibing());
+            assertSame(i == element.getNumberOfChildren() - 1 ? null
+                    : element.getChildAt(i + 1), child.getNextSlibing());
+            checkLinks(child);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnbalancedEnd() {
+        buildList().endBatch();
+    }
+}
@@ -0,0 +1,79 @@
+package jsesh.mdc.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares TreeList with ArrayList on random operations.
+ *
+ * @author rosmord
+ */
+public class TreeListTest {
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(41);
+        List<Integer> expected = new ArrayList<>();
+        TreeList<Integer> list = new TreeList<>();
+        for (int i = 0; i < 20000; i++) {
+            int op = random.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, i);
+                list.add(index, i);
+            } else if (op < 8) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            } else if (op < 9) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, -i), list.set(index, -i));
+            } else {
+                int a = random.nextInt(expected.size());
+                int b = a + random.nextInt(Math.min(10, expected.size() - a) + 1);
+                expected.subList(a, b).clear();
+                list.subList(a, b).clear();
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void testIterator() {
+        for (int size = 0; size < 40; size++) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                expected.add(i);
+            }
+            TreeList<Integer> list = new TreeList<>();
+            list.addAll(expected);
+            assertEquals(expected, new ArrayList<>(list));
+            // Remove the even elements.
+            for (Iterator<Integer> it = list.iterator(); it.hasNext();) {
+                if (it.next() % 2 == 0) {
+                    it.remove();
+                }
+            }
+            expected.removeIf(i -> i % 2 == 0);
+            assertEquals(expected, list);
+        }
+    }
+
+    @Test
+    public void testTopItemList() {
+        TopItemList topItemList = new TopItemList();
+        for (int i = 0; i < 100; i++) {
+            topItemList.addTopItemAt(0, new LineBreak());
+        }
+        topItemList.removeTopItems(10, 90);
+        assertEquals(20, topItemList.getNumberOfChildren());
+        assertSame(topItemList.getTopItemAt(10),
+                topItemList.getTopItemAt(9).getNextSlibing());
+        assertEquals(20, topItemList.deepCopy().asList().size());
+    }
+}
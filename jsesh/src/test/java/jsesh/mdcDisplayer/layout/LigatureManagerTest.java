@@ -0,0 +1,59 @@
+package jsesh.mdcDisplayer.layout;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import jsesh.resources.ResourcesManager;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the precompiled ligature description.
+ *
+ * @author rosmord
+ */
+public class LigatureManagerTest {
+
+	@Test
+	public void testPrecompiledLigatures() throws IOException {
+		ResourcesManager resources = ResourcesManager.getInstance();
+		LigatureManager text = new LigatureManager();
+		text.readTksesh(resources.getLigatureData());
+		LigatureManager precompiled = new LigatureManager();
+		long checksum = LigatureManager.computeChecksum(resources
+				.getLigatureData());
+		assertTrue(precompiled.readPrecompiled(
+				resources.getPrecompiledLigatureData(), checksum));
+
+		BufferedReader r = new BufferedReader(resources.getLigatureData());
+		String s;
+		while ((s = r.readLine()) != null) {
+			String codes[] = s.split("\\|")[0].split("&");
+			ExplicitPosition expected[] = text.getPositions(codes);
+			ExplicitPosition actual[] = precompiled.getPositions(codes);
+			assertEquals(expected.length, actual.length);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i].getX(), actual[i].getX(), 0);
+				assertEquals(expected[i].getY(), actual[i].getY(), 0);
+				assertEquals(expected[i].getScale(), actual[i].getScale(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testObsoletePrecompiledLigatures() throws IOException {
+		String description = "i&i|2 i 0 0 100 i 2 0 100\n";
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LigatureManager.precompile(new StringReader(description), out, 1);
+		LigatureManager manager = new LigatureManager();
+		assertFalse(manager.readPrecompiled(
+				new ByteArrayInputStream(out.toByteArray()), 2));
+		assertTrue(manager.readPrecompiled(
+				new ByteArrayInputStream(out.toByteArray()), 1));
+		assertEquals(2, manager.getPositions(new String[] { "i", "i" }).length);
+	}
+}
@@ -0,0 +1,65 @@
+package jsesh.mdcDisplayer.mdcView;
+
+import jsesh.mdc.model.Cadrat;
+import jsesh.mdc.model.TopItemList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the hit-testing index of subviews.
+ *
+ * @author rosmord
+ */
+public class SubViewIndexTest {
+
+	/**
+	 * Build a view with lines of three 10x10 subviews, each line 20 units
+	 * below the previous one.
+	 */
+	private MDCView buildLines(int numberOfLines) {
+		MDCView v = new MDCView(new TopItemList());
+		for (int line = 0; line < numberOfLines; line++) {
+			for (int i = 0; i < 3; i++) {
+				MDCView sub = new MDCView(new Cadrat());
+				sub.setWidth(10);
+				sub.setHeight(10);
+				sub.getPosition().x = i * 10;
+				sub.getPosition().y = line * 20;
+				v.add(sub);
+			}
+		}
+		return v;
+	}
+
+	@Test
+	public void testFirstSubViewOnLine() {
+		MDCView v = buildLines(4);
+		SubViewIndex index = v.getSubViewIndex();
+		assertEquals(0, index.firstSubViewEndingAfterY(-5, 0));
+		assertEquals(0, index.firstSubViewEndingAfterY(5, 0));
+		// Between line 0 and line 1 :
+		assertEquals(3, index.firstSubViewEndingAfterY(15, 0));
+		// The margin extends the line :
+		assertEquals(0, index.firstSubViewEndingAfterY(15, 6));
+		assertEquals(9, index.firstSubViewEndingAfterY(65, 0));
+		assertEquals(12, index.firstSubViewEndingAfterY(75, 0));
+		assertEquals(1, index.firstSubViewEndingAfterX(15, 0));
+	}
+
+	@Test
+	public void testInvalidation() {
+		MDCView v = buildLines(2);
+		SubViewIndex index = v.getSubViewIndex();
+		assertEquals(6, index.firstSubViewEndingAfterY(35, 0));
+		// Move the last view lower : the layout should invalidate the index.
+		v.getSubView(5).getPosition().y = 40;
+		v.invalidateSubViewIndex();
+		assertEquals(5, index.firstSubViewEndingAfterY(35, 0));
+		// Structural modifications invalidate the index automatically.
+		v.remove(5);
+		assertEquals(5, index.firstSubViewEndingAfterY(35, 0));
+		v.clear();
+		assertEquals(0, index.firstSubViewEndingAfterY(35, 0));
+	}
+}
@@ -84,6 +84,7 @@ import jsesh.jhotdraw.actions.file.QuickPDFSelectExportFolderAction;
 import jsesh.jhotdraw.actions.file.SetAsModelAction;
 import jsesh.jhotdraw.actions.generic.ViewOpenerWorker;
 import jsesh.jhotdraw.actions.help.JSeshHelpAction;
+import jsesh.jhotdraw.actions.help.ShowEditorLatencyAction;
 import jsesh.jhotdraw.actions.text.EditGroupAction;
 import jsesh.jhotdraw.actions.text.InsertElementAction;
 import jsesh.jhotdraw.actions.windows.ToggleGlossaryEditorAction;
@@ -252,6 +253,7 @@ public class JSeshApplicationModel extends DefaultApplicationModel {
             map.put(ImportRTFAction.ID, new ImportRTFAction(a));
             map.put(ImportNewSignAction.ID, new ImportNewSignAction(a));
             map.put(JSeshHelpAction.ID, new JSeshHelpAction(a));
+            map.put(ShowEditorLatencyAction.ID, new ShowEditorLatencyAction(a));
             // Corpus search...
             map.put(FindInFolderAction.ID, new FindInFolderAction((ActiveViewAwareApplication) a, hit -> showCorpusSearchHit(hit)));
 
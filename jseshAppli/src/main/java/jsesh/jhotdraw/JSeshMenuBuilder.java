@@ -41,6 +41,7 @@ import jsesh.jhotdraw.actions.file.QuickPDFSelectExportFolderAction;
 import jsesh.jhotdraw.actions.file.SetAsModelAction;
 import jsesh.jhotdraw.actions.format.*;
 import jsesh.jhotdraw.actions.help.JSeshHelpAction;
+import jsesh.jhotdraw.actions.help.ShowEditorLatencyAction;
 import jsesh.jhotdraw.actions.text.EditGroupAction;
 import jsesh.jhotdraw.actions.windows.ToggleGlossaryEditorAction;
 import jsesh.jhotdraw.actions.windows.ToggleGlyphPaletteAction;
@@ -376,6 +377,8 @@ public class JSeshMenuBuilder extends DefaultMenuBuilder {
     @Override
     public void addHelpItems(JMenu m, Application app, View v) {
         m.add(app.getActionMap(v).get(JSeshHelpAction.ID));
+        m.addSeparator();
+        m.add(app.getActionMap(v).get(ShowEditorLatencyAction.ID));
     }
 
     /*
@@ -0,0 +1,41 @@
+package jsesh.jhotdraw.actions.help;
+
+import java.awt.event.ActionEvent;
+
+import javax.swing.JDialog;
+
+import jsesh.editor.latency.EditorLatencyPanel;
+import jsesh.jhotdraw.actions.BundleHelper;
+
+import org.jhotdraw_7_6.app.Application;
+import org.jhotdraw_7_6.app.action.AbstractApplicationAction;
+
+/**
+ * Shows the latency of the edition stages, for bug reports about a slow
+ * editor.
+ *
+ * @author rosmord
+ */
+@SuppressWarnings("serial")
+public class ShowEditorLatencyAction extends AbstractApplicationAction {
+
+	public static final String ID = "help.editorLatency";
+
+	private JDialog dialog = null;
+
+	public ShowEditorLatencyAction(Application app) {
+		super(app);
+		BundleHelper.getInstance().configure(this);
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		if (dialog == null) {
+			dialog = new JDialog();
+			dialog.setTitle((String) getValue(NAME));
+			dialog.add(new EditorLatencyPanel());
+			dialog.pack();
+		}
+		dialog.setVisible(true);
+	}
+}
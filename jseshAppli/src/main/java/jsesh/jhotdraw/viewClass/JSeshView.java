@@ -103,6 +103,7 @@ public class JSeshView extends AbstractView {
     public void dispose() {
         // The document model might be disposable, it would be cleaner.
         // anyway:
+        viewModel.getMdcDocument().setJournaled(false);
         viewModel.getEditor().clearText();
         viewModel.getEditor().setCached(false);
         super.dispose();
@@ -234,6 +235,10 @@ public class JSeshView extends AbstractView {
                         ()->viewModel.setCurrentDocument(document));
             } else {
                 MDCDocumentReader mdcDocumentReader = new MDCDocumentReader();
+                // Recover the modifications lost if JSesh stopped.
+                mdcDocumentReader.setReplayJournal(true);
+                // Display the start of large documents at once.
+                mdcDocumentReader.setLargeDocumentMode(true);
                 final MDCDocument document = mdcDocumentReader.loadFile(file);
                 // Observe changes to this document in the future.
                 SwingUtilities.invokeLater(() -> {
@@ -267,6 +272,8 @@ public class JSeshView extends AbstractView {
     public void write(URI uri, URIChooser chooser) throws IOException {
         File file = new File(uri);
         MDCDocument document = viewModel.getMdcDocument();
+        // Neither save nor export a part of the document, and keep its file.
+        document.checkComplete();
         document.setFile(file);
 
         // TODO : create a sane system for dealing with text orientation and
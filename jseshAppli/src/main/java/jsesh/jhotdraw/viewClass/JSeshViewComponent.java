@@ -43,6 +43,7 @@ import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.JToolBar;
@@ -102,6 +103,11 @@ public final class JSeshViewComponent extends JPanel {
      */
     private final JButton hieroglyphsButton;
 
+    /**
+     * Shows the progress of the loading of a large document.
+     */
+    private final JProgressBar loadingProgressBar;
+
     public JSeshViewComponent() {
         // simple components.
         editor = new JMDCEditor();
@@ -111,6 +117,7 @@ public final class JSeshViewComponent extends JPanel {
         messageField= new JTextField();
         zoomComboBox= new JComboBox();
         hieroglyphsButton= new JButton();
+        loadingProgressBar= new JProgressBar(0, 100);
         // Panels layout
         topPanel = prepareTopPanel();
         bottomPanel = prepareBottomPanel();
@@ -164,6 +171,11 @@ public final class JSeshViewComponent extends JPanel {
         actualBar.add(messageField);
         actualBar.add(Box.createHorizontalGlue());
 
+        loadingProgressBar.setStringPainted(true);
+        loadingProgressBar.setMaximumSize(loadingProgressBar.getPreferredSize());
+        loadingProgressBar.setVisible(false);
+        actualBar.add(loadingProgressBar);
+
         hieroglyphsButton.setBorderPainted(true);
         hieroglyphsButton.setBorder(BorderFactory.createBevelBorder(3));
         actualBar.add(hieroglyphsButton);
@@ -207,4 +219,8 @@ public final class JSeshViewComponent extends JPanel {
         return hieroglyphsButton;
     }
 
+    public JProgressBar getLoadingProgressBar() {
+        return loadingProgressBar;
+    }
+
 }
@@ -11,16 +11,20 @@ import java.util.Observer;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JButton;
 import javax.swing.JPopupMenu;
+import javax.swing.JProgressBar;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import jsesh.editor.JMDCEditor;
 import jsesh.editor.MDCModelEditionAdapter;
+import jsesh.editor.SearchSession;
+import jsesh.editor.SearchSessionListener;
 import jsesh.editor.caret.MDCCaret;
 import jsesh.hieroglyphs.data.HieroglyphDatabaseRepository;
 import jsesh.hieroglyphs.data.HieroglyphFamily;
 import jsesh.jhotdraw.actions.BundleHelper;
 import jsesh.jhotdraw.actions.edit.OpenHieroglyphicMenuAction;
+import jsesh.mdc.file.DocumentLoader;
 import jsesh.mdc.file.DocumentPreferences;
 import jsesh.mdc.file.MDCDocument;
 import jsesh.mdc.model.MDCPosition;
@@ -58,11 +62,6 @@ public final class JSeshViewModel {
      */
     private Observer observer;
 
-    /**
-     * Possible list of search results.
-     */
-    private List<MDCPosition> lastSearchResults = null;
-
     private final DelegatingObserver delegatingObserver = new DelegatingObserver();
 
     public JSeshViewModel() {
@@ -112,14 +111,47 @@ public final class JSeshViewModel {
     public final void setCurrentDocument(MDCDocument newDocument) {
         if (mdcDocument != null) {
             mdcDocument.getHieroglyphicTextModel().deleteObserver(delegatingObserver);
+            mdcDocument.setJournaled(false);
+            if (mdcDocument.getLoader() != null) {
+                mdcDocument.getLoader().cancel();
+            }
         }
         mdcDocument = newDocument;
         mdcDocument.getHieroglyphicTextModel().addObserver(delegatingObserver);
+        // Keep the modifications safe until the document is saved.
+        mdcDocument.setJournaled(true);
         DocumentPreferences prefs = mdcDocument.getDocumentPreferences();
         DrawingSpecification ds = getEditor().getDrawingSpecifications();
         ds.applyDocumentPreferences(prefs);
         getEditor().setDrawingSpecifications(ds);
         getEditor().setHieroglyphiTextModel(mdcDocument.getHieroglyphicTextModel());
+        startLoading();
+    }
+
+    /**
+     * Reads the end of a large document, if it was not read at once.
+     */
+    private void startLoading() {
+        final DocumentLoader loader = mdcDocument.getLoader();
+        final JProgressBar progressBar = viewComponent.getLoadingProgressBar();
+        if (loader == null) {
+            progressBar.setVisible(false);
+            return;
+        }
+        progressBar.setValue((int) (loader.getProgress() * 100));
+        progressBar.setVisible(true);
+        final MDCDocument document = mdcDocument;
+        loader.addDocumentLoaderListener(l -> {
+            if (document != mdcDocument) {
+                // The document was replaced.
+                return;
+            }
+            progressBar.setValue((int) (l.getProgress() * 100));
+            if (l.isDone()) {
+                progressBar.setVisible(false);
+            }
+        });
+        loader.start(SwingUtilities::invokeLater);
     }
 
     public void setEnabled(boolean enabled) {
@@ -135,7 +167,6 @@ public final class JSeshViewModel {
      * Synchronize the hieroglyphic editor and the optional mdc line display
      * below it.
      *
-     * Plus clears the last search when the text has been modified.
      *
      * @author Serge Rosmorduc (serge.rosmorduc@qenherkhopeshef.org)
      */
@@ -150,12 +181,10 @@ public final class JSeshViewModel {
 
         public void textChanged() {
             updateCurrentMDCLine();
-            lastSearchResults = null;
         }
 
         public void textEdited(ModelOperation op) {
             updateCurrentMDCLine();
-            lastSearchResults = null;
         }
 
         /**
@@ -342,19 +371,37 @@ public final class JSeshViewModel {
         }
     }
 
+    /**
+     * Searches the text in the background. The matches are highlighted, and
+     * the cursor goes to the first one as soon as it is found.
+     *
+     * @param query
+     */
     public void doSearch(MdCSearchQuery query) {
-        this.lastSearchResults = getEditor().doSearch(query);
-        this.nextSearch();
+        getEditor().startSearch(query).addSearchSessionListener(new SearchSessionListener() {
+            @Override
+            public void matchesChanged(SearchSession session) {
+                if (session.getNumberOfMatches() > 0 || session.isDone()) {
+                    session.removeSearchSessionListener(this);
+                    nextSearch(0);
+                }
+            }
+        });
     }
 
+    /**
+     * Moves the cursor to the next match after the cursor.
+     */
     public void nextSearch() {
-        if (this.lastSearchResults != null) {
-            if (!this.lastSearchResults.isEmpty()) {
-                MDCPosition nextPos = this.lastSearchResults.get(0);
-                this.lastSearchResults.remove(0); // not efficient. But who cares.
+        nextSearch(getEditor().getWorkflow().getCaret().getInsert().getIndex() + 1);
+    }
+
+    private void nextSearch(int index) {
+        SearchSession session = getEditor().getSearchSession();
+        if (session != null) {
+            MDCPosition nextPos = session.getNextMatch(index);
+            if (nextPos != null) {
                 getEditor().getWorkflow().setCursor(nextPos);
-            } else {
-                this.lastSearchResults = null;
             }
         }
     }
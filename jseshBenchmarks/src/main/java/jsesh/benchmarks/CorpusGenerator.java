@@ -0,0 +1,100 @@
+package jsesh.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic Manuel de Codage texts for benchmarks.
+ * <p>
+ * The texts mix the constructs found in real documents: simple signs,
+ * horizontal and vertical groups, ligatures, cartouches, shading, rotated
+ * signs and line breaks. The generator is deterministic for a given seed, so
+ * successive runs measure the same text.
+ *
+ * @author rosmord
+ */
+public class CorpusGenerator {
+
+	private static final String SIGNS[] = { "A1", "G17", "N35", "D21", "M17",
+			"X1", "Z1", "G43", "D36", "I9", "V31", "Q3", "O1", "S29", "R4",
+			"i", "w", "r", "n", "m", "p", "t", "ra", "nb", "pt" };
+
+	private static final String GROUPS[] = { "X1:N35", "t*Z1", "p*t:pt",
+			"D21:N35", "r:a", "Hr:r", "X1:Z1:N35", "nb*t", "s:n" };
+
+	/**
+	 * Ligatures known by the ligature manager.
+	 */
+	private static final String LIGATURES[] = { "i&i", "Z1&Z1", "F12&D28",
+			"U36&D28" };
+
+	private final Random random;
+
+	/**
+	 * Number of quadrants per line.
+	 */
+	private int lineLength = 20;
+
+	public CorpusGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	public CorpusGenerator() {
+		this(1);
+	}
+
+	/**
+	 * Sets the number of quadrants between two line breaks.
+	 *
+	 * @param lineLength
+	 */
+	public void setLineLength(int lineLength) {
+		this.lineLength = lineLength;
+	}
+
+	/**
+	 * Generates a text with the given number of quadrants.
+	 *
+	 * @param numberOfQuadrants
+	 * @return the text, in Manuel de Codage.
+	 */
+	public String generate(int numberOfQuadrants) {
+		StringBuilder result = new StringBuilder(numberOfQuadrants * 6);
+		for (int i = 0; i < numberOfQuadrants; i++) {
+			if (i > 0) {
+				if (i % lineLength == 0) {
+					result.append("-!\n");
+				} else {
+					result.append('-');
+				}
+			}
+			appendQuadrant(result);
+		}
+		return result.toString();
+	}
+
+	private void appendQuadrant(StringBuilder result) {
+		int kind = random.nextInt(100);
+		if (kind < 50) {
+			result.append(pick(SIGNS));
+		} else if (kind < 75) {
+			result.append(pick(GROUPS));
+		} else if (kind < 82) {
+			result.append(pick(LIGATURES));
+		} else if (kind < 87) {
+			result.append("<-").append(pick(SIGNS)).append('-')
+					.append(pick(GROUPS)).append("->");
+		} else if (kind < 94) {
+			// shading
+			result.append(pick(GROUPS)).append("#1234".substring(0,
+					2 + random.nextInt(4)));
+		} else {
+			// rotated sign
+			result.append(pick(SIGNS)).append("\\R").append(
+					90 * (1 + random.nextInt(3)));
+		}
+	}
+
+	private String pick(String[] table) {
+		return table[random.nextInt(table.length)];
+	}
+}
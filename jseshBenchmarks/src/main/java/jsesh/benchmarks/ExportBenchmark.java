@@ -0,0 +1,80 @@
+package jsesh.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import jsesh.graphics.export.pdfExport.PDFDataSaver;
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdcDisplayer.draw.ViewDrawer;
+import jsesh.mdcDisplayer.layout.SimpleViewBuilder;
+import jsesh.mdcDisplayer.mdcView.MDCView;
+import jsesh.mdcDisplayer.preferences.DrawingSpecification;
+import jsesh.mdcDisplayer.preferences.DrawingSpecificationsImplementation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.qenherkhopeshef.graphics.svg.SVGGraphics2D;
+import org.qenherkhopeshef.graphics.utils.DoubleDimensions;
+
+/**
+ * Measures vector exports (PDF and SVG) of a whole text, layout included.
+ *
+ * @author rosmord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExportBenchmark {
+
+	/**
+	 * Size of the generated text, in quadrants.
+	 */
+	@Param({ "1000", "10000" })
+	public int quadrants;
+
+	private TopItemList model;
+
+	private DrawingSpecification drawingSpecifications;
+
+	@Setup
+	public void prepare() throws MDCSyntaxError {
+		model = new MDCParserModelGenerator().parse(new CorpusGenerator()
+				.generate(quadrants));
+		drawingSpecifications = new DrawingSpecificationsImplementation();
+	}
+
+	@Benchmark
+	public int exportPDF() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PDFDataSaver(drawingSpecifications).writeSinglePagePDF(out, model);
+		return out.size();
+	}
+
+	@Benchmark
+	public int exportSVG() throws IOException {
+		MDCView view = new SimpleViewBuilder().buildView(model,
+				drawingSpecifications);
+		StringWriter writer = new StringWriter();
+		SVGGraphics2D g = new SVGGraphics2D(writer, new DoubleDimensions(
+				view.getWidth(), view.getHeight()));
+		new ViewDrawer().draw(g, view, drawingSpecifications);
+		g.dispose();
+		return writer.getBuffer().length();
+	}
+}
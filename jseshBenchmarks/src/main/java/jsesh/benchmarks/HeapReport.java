@@ -0,0 +1,102 @@
+package jsesh.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.file.TopItemListSnapshot;
+import jsesh.mdc.model.Hieroglyph;
+import jsesh.mdc.model.ModelElementDeepAdapter;
+import jsesh.mdc.model.TopItemList;
+
+/**
+ * Reports the memory used by a large number of loaded documents, and how
+ * the codes of their signs are shared.
+ * <p>
+ * This is not a JMH benchmark, as it measures memory, not time. Run it with
+ * <code>java -cp target/benchmarks.jar jsesh.benchmarks.HeapReport
+ * [numberOfDocuments] [parse|snapshot]</code>. In "snapshot" mode, the
+ * documents are read from their snapshots instead of being parsed.
+ *
+ * @author rosmord
+ */
+public class HeapReport {
+
+	/**
+	 * Size of each document, in quadrants.
+	 */
+	private static final int DOCUMENT_SIZE = 200;
+
+	public static void main(String[] args) throws MDCSyntaxError, IOException {
+		int numberOfDocuments = args.length > 0 ? Integer.parseInt(args[0])
+				: 10000;
+		boolean fromSnapshots = args.length > 1 && "snapshot".equals(args[1]);
+
+		long before = usedHeap();
+		List<TopItemList> documents = new ArrayList<TopItemList>();
+		for (int i = 0; i < numberOfDocuments; i++) {
+			documents.add(load(new CorpusGenerator(i).generate(DOCUMENT_SIZE),
+					fromSnapshots));
+		}
+		long after = usedHeap();
+
+		CodeCounter counter = new CodeCounter();
+		for (TopItemList document : documents) {
+			document.accept(counter);
+		}
+		System.out.println("documents: " + documents.size() + " ("
+				+ (fromSnapshots ? "snapshots" : "parsed") + ")");
+		System.out.println("heap before: " + before / 1024 + " KB");
+		System.out.println("heap after: " + after / 1024 + " KB");
+		System.out.println("per document: " + (after - before)
+				/ Math.max(1, documents.size()) + " bytes");
+		System.out.println("signs: " + counter.signs);
+		System.out.println("distinct codes: " + counter.values.size());
+		System.out.println("code strings: " + counter.instances.size());
+	}
+
+	private static TopItemList load(String text, boolean fromSnapshot)
+			throws MDCSyntaxError, IOException {
+		TopItemList list = new MDCParserModelGenerator().parse(text);
+		if (!fromSnapshot) {
+			return list;
+		}
+		TopItemListSnapshot snapshot = new TopItemListSnapshot(
+				ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)),
+				"UTF-8");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(list, out);
+		return snapshot.read(out.toByteArray());
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static class CodeCounter extends ModelElementDeepAdapter {
+		int signs = 0;
+		final Set<String> values = new HashSet<String>();
+		final Map<String, Boolean> instances = new IdentityHashMap<String, Boolean>();
+
+		@Override
+		public void visitHieroglyph(Hieroglyph h) {
+			signs++;
+			values.add(h.getCode());
+			instances.put(h.getCode(), Boolean.TRUE);
+			super.visitHieroglyph(h);
+		}
+	}
+}
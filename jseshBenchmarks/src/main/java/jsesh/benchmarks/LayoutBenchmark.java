@@ -0,0 +1,78 @@
+package jsesh.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdcDisplayer.layout.ExplicitPosition;
+import jsesh.mdcDisplayer.layout.LigatureManager;
+import jsesh.mdcDisplayer.layout.SimpleViewBuilder;
+import jsesh.mdcDisplayer.mdcView.MDCView;
+import jsesh.mdcDisplayer.preferences.DrawingSpecification;
+import jsesh.mdcDisplayer.preferences.DrawingSpecificationsImplementation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures view building, relayout of an existing view, and ligature lookup.
+ *
+ * @author rosmord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LayoutBenchmark {
+
+	/**
+	 * Size of the generated text, in quadrants.
+	 */
+	@Param({ "1000", "10000" })
+	public int quadrants;
+
+	private TopItemList model;
+
+	private DrawingSpecification drawingSpecifications;
+
+	private MDCView view;
+
+	private String ligature[] = { "F12", "D28" };
+
+	@Setup
+	public void prepare() throws MDCSyntaxError {
+		model = new MDCParserModelGenerator().parse(new CorpusGenerator()
+				.generate(quadrants));
+		drawingSpecifications = new DrawingSpecificationsImplementation();
+		view = new SimpleViewBuilder().buildView(model, drawingSpecifications);
+	}
+
+	@Benchmark
+	public MDCView buildView() {
+		return new SimpleViewBuilder().buildView(model, drawingSpecifications);
+	}
+
+	@Benchmark
+	public MDCView reLayout() {
+		new SimpleViewBuilder().reLayout(view, drawingSpecifications);
+		return view;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public ExplicitPosition[] ligatureLookup() {
+		return LigatureManager.getInstance().getPositions(ligature);
+	}
+}
@@ -0,0 +1,92 @@
+package jsesh.benchmarks;
+
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import java_cup.runtime.Scanner;
+import jsesh.mdc.lex.MDCFastLex;
+import jsesh.mdc.lex.MDCLex;
+import jsesh.mdc.lex.MDCSymbols;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of the JLex-generated lexer and of the
+ * hand-written one.
+ * <p>
+ * Besides the number of texts per second, JMH reports the "bytes" counter,
+ * which is the number of bytes (of the UTF-8 text) read per second. Divide it
+ * by 10^6 to get MB/s.
+ *
+ * @author rosmord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LexerBenchmark {
+
+	/**
+	 * Size of the generated text, in quadrants.
+	 */
+	@Param({ "1000", "10000" })
+	public int quadrants;
+
+	private String text;
+
+	private int textBytes;
+
+	@Setup
+	public void prepare() {
+		text = new CorpusGenerator().generate(quadrants);
+		textBytes = text.getBytes(Charset.forName("UTF-8")).length;
+	}
+
+	/**
+	 * Counts the bytes read during an iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class ByteCounter {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void clean() {
+			bytes = 0;
+		}
+	}
+
+	@Benchmark
+	public int generatedLexer(ByteCounter counter) throws Exception {
+		counter.bytes += textBytes;
+		return countTokens(new MDCLex(new StringReader(text)));
+	}
+
+	@Benchmark
+	public int fastLexer(ByteCounter counter) throws Exception {
+		counter.bytes += textBytes;
+		return countTokens(new MDCFastLex(new StringReader(text)));
+	}
+
+	private static int countTokens(Scanner lex) throws Exception {
+		int count = 0;
+		while (lex.next_token().sym != MDCSymbols.EOF)
+			count++;
+		return count;
+	}
+}
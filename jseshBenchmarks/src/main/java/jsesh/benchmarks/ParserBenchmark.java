@@ -0,0 +1,90 @@
+package jsesh.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.events.MDCEventHandlerAdapter;
+import jsesh.mdc.events.MDCEventParser;
+import jsesh.mdc.events.SignEvent;
+import jsesh.mdc.file.TopItemListSnapshot;
+import jsesh.mdc.model.TopItemList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of Manuel de Codage texts, into a model or as events,
+ * and the reading of their snapshots.
+ *
+ * @author rosmord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+	/**
+	 * Size of the generated text, in quadrants.
+	 */
+	@Param({ "1000", "10000" })
+	public int quadrants;
+
+	private String text;
+
+	private TopItemListSnapshot snapshot;
+
+	private byte[] snapshotData;
+
+	@Setup
+	public void prepare() throws MDCSyntaxError, IOException {
+		text = new CorpusGenerator().generate(quadrants);
+		snapshot = new TopItemListSnapshot(ByteBuffer.wrap(text
+				.getBytes(StandardCharsets.UTF_8)), "UTF-8");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(parse(), out);
+		snapshotData = out.toByteArray();
+	}
+
+	@Benchmark
+	public TopItemList parse() throws MDCSyntaxError {
+		return new MDCParserModelGenerator().parse(text);
+	}
+
+	@Benchmark
+	public int parseEvents() throws MDCSyntaxError {
+		SignCounter counter = new SignCounter();
+		new MDCEventParser().parse(text, counter);
+		return counter.count;
+	}
+
+	@Benchmark
+	public TopItemList readSnapshot() {
+		return snapshot.read(snapshotData);
+	}
+
+	private static class SignCounter extends MDCEventHandlerAdapter {
+		int count;
+
+		@Override
+		public void sign(SignEvent sign) {
+			count++;
+		}
+	}
+}
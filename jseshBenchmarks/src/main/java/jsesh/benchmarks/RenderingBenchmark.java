@@ -0,0 +1,77 @@
+package jsesh.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import jsesh.mdc.MDCParserModelGenerator;
+import jsesh.mdc.MDCSyntaxError;
+import jsesh.mdc.model.TopItemList;
+import jsesh.mdcDisplayer.draw.ViewDrawer;
+import jsesh.mdcDisplayer.layout.SimpleViewBuilder;
+import jsesh.mdcDisplayer.mdcView.MDCView;
+import jsesh.mdcDisplayer.preferences.DrawingSpecification;
+import jsesh.mdcDisplayer.preferences.DrawingSpecificationsImplementation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the drawing of a laid out text in an offscreen bitmap, as done when
+ * painting the editor.
+ * <p>
+ * The bitmap has a fixed size, so larger corpora mostly measure how the
+ * drawer deals with views which are outside of the drawing area.
+ *
+ * @author rosmord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RenderingBenchmark {
+
+	/**
+	 * Size of the generated text, in quadrants.
+	 */
+	@Param({ "1000", "10000" })
+	public int quadrants;
+
+	private DrawingSpecification drawingSpecifications;
+
+	private MDCView view;
+
+	private BufferedImage image;
+
+	@Setup
+	public void prepare() throws MDCSyntaxError {
+		TopItemList model = new MDCParserModelGenerator()
+				.parse(new CorpusGenerator().generate(quadrants));
+		drawingSpecifications = new DrawingSpecificationsImplementation();
+		view = new SimpleViewBuilder().buildView(model, drawingSpecifications);
+		image = new BufferedImage(1024, 768, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	@Benchmark
+	public BufferedImage draw() {
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setClip(0, 0, image.getWidth(), image.getHeight());
+		new ViewDrawer().draw(g, view, drawingSpecifications);
+		g.dispose();
+		return image;
+	}
+}
@@ -34,6 +34,7 @@
  */
 package jsesh.search.quadrant;
 
+import jsesh.editor.MatchLength;
 import jsesh.editor.MdCSearchQuery;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,7 +49,18 @@ import jsesh.mdc.utils.MDCNormalizer;
 public class QuadrantSearchQuery implements MdCSearchQuery {
     private final TopItemList search;
 
-    public QuadrantSearchQuery(TopItemList search) {        
+    /**
+     * Creates a query for a sequence of quadrants.
+     * <p>
+     * The query keeps its own copy of the quadrants, which can't be shared
+     * with the caller : it is normalized in place, and the caller's list is
+     * usually the model of the search field, which the user keeps editing
+     * while the query runs on the search thread. The copy is made once per
+     * query, and the searched text itself is never copied here.
+     *
+     * @param search the quadrants to search.
+     */
+    public QuadrantSearchQuery(TopItemList search) {
         this.search =search.deepCopy();
         MDCNormalizer normalizer= new MDCNormalizer();
         normalizer.normalize(this.search);
@@ -80,4 +92,10 @@ public class QuadrantSearchQuery implements MdCSearchQuery {
         return result;
     }
 
+    @Override
+    public MatchLength getMaximalMatchLength() {
+        int length = search.getNumberOfChildren();
+        return length == 0 ? null : MatchLength.items(length);
+    }
+
 }
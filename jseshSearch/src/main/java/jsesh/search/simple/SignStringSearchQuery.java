@@ -40,6 +40,7 @@ import java.util.ArrayList;
 import java.util.List;
 import jsesh.mdc.model.MDCPosition;
 import jsesh.mdc.model.TopItemList;
+import jsesh.editor.MatchLength;
 import jsesh.editor.MdCSearchQuery;
 import jsesh.hieroglyphs.data.HieroglyphDatabaseRepository;
 
@@ -126,5 +127,10 @@ public class SignStringSearchQuery implements MdCSearchQuery {
         return ok && i == search.size();
     }
 
+    @Override
+    public MatchLength getMaximalMatchLength() {
+        return search.isEmpty() ? null : MatchLength.signs(search.size());
+    }
+
 
 }
@@ -17,6 +17,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import jsesh.editor.MatchLength;
 import jsesh.editor.MdCSearchQuery;
 import jsesh.hieroglyphs.data.HieroglyphDatabaseRepository;
 import jsesh.hieroglyphs.data.HieroglyphDatabaseInterface;
@@ -60,6 +61,11 @@ public class WildCardQuery implements MdCSearchQuery {
     private static final String QUERY_SKIP = "QUERYSKIP";
 
     private RegularExtractor<HieroglyphOccurrence> extractor;
+
+    /**
+     * Maximal number of signs in a match. 0 = any length.
+     */
+    private int maximalMatchLength = 0;
     /**
      * Is this query correct or erroneous ?
      */
@@ -102,6 +108,11 @@ public class WildCardQuery implements MdCSearchQuery {
         return result;
     }
 
+    @Override
+    public MatchLength getMaximalMatchLength() {
+        return maximalMatchLength == 0 ? null : MatchLength.signs(maximalMatchLength);
+    }
+
     /**
      * Is this query syntactically correct ?
      *
@@ -116,6 +127,10 @@ public class WildCardQuery implements MdCSearchQuery {
         List<RegularLanguageIF<HieroglyphOccurrence>> seq;
         List<String> codes;
         int pos = -1;
+        /**
+         * Does the query contain skips ?
+         */
+        boolean hasSkip = false;
         private String currentCode;
         private VariantLevelForSearch variantLevel;
 
@@ -125,6 +140,11 @@ public class WildCardQuery implements MdCSearchQuery {
             codes.add(null); // null as sentinel.
             seq = new ArrayList<>();
             parseItems();
+            // Without skips, each element of the sequence matches one sign.
+            maximalMatchLength = hasSkip ? maxLength : seq.size();
+            if (maxLength != 0) {
+                maximalMatchLength = Math.min(maximalMatchLength, maxLength);
+            }
             if (maxLength == 0) {
                 return new RegularExtractor<>(seq);
             } else {
@@ -167,6 +187,7 @@ public class WildCardQuery implements MdCSearchQuery {
         }
 
         private void processSkip() {
+            hasSkip = true;
             seq.add(skip());
             nextPos();
         }